@@ -0,0 +1,166 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import htsjdk.samtools.SAMTag;
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.Genotype;
+import htsjdk.variant.variantcontext.GenotypeBuilder;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import htsjdk.variant.vcf.VCFConstants;
+import org.apache.spark.SparkConf;
+import org.apache.spark.serializer.KryoSerializer;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the Kryo serialization of reads and variants with the compact serializers registered by
+ * {@link GATKRegistrator} ("compact") against the ones used before them ("current"):
+ * {@link SAMRecordToGATKReadAdapterSerializer} for reads and Kryo's generic {@link FieldSerializer} for variants.
+ * The serialized size per record is reported by the serialize benchmarks as their {@code bytesPerRecord} secondary
+ * result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class KryoSerializerBenchmark {
+
+    private static final int NUM_READS = 1000;
+    private static final int READ_LENGTH = 150;
+    private static final int NUM_VARIANTS = 1000;
+    private static final int NUM_SAMPLES = 10;
+
+    @Param({"current", "compact"})
+    public String serializers;
+
+    private Kryo kryo;
+    private Output output;
+    private List<GATKRead> reads;
+    private List<VariantContext> variants;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setup() {
+        kryo = new KryoSerializer(new SparkConf().set("spark.kryo.registrator", GATKRegistrator.class.getName())).newKryo();
+        if ( serializers.equals("current") ) {
+            kryo.register(SAMRecordToGATKReadAdapter.class, new SAMRecordToGATKReadAdapterSerializer());
+            kryo.register(VariantContext.class, new FieldSerializer(kryo, VariantContext.class));
+        }
+        output = new Output(1 << 20, -1);
+
+        Utils.resetRandomGenerator();
+        final Random random = Utils.getRandomGenerator();
+        final List<GATKRead> artificialReads = new ArrayList<>(NUM_READS);
+        for ( int i = 0; i < NUM_READS; i++ ) {
+            final GATKRead read = ArtificialReadUtils.createHeaderlessSamBackedRead("read" + i, "20", 1 + random.nextInt(100_000), READ_LENGTH);
+            read.setBases(ArtificialReadUtils.createRandomReadBases(READ_LENGTH, false));
+            read.setBaseQualities(ArtificialReadUtils.createRandomReadQuals(READ_LENGTH));
+            read.setMappingQuality(60);
+            read.setIsPaired(true);
+            read.setMatePosition("20", read.getStart() + 200);
+            read.setFragmentLength(350);
+            read.setAttribute(SAMTag.NM.name(), random.nextInt(5));
+            read.setAttribute(SAMTag.RG.name(), "readGroup");
+            artificialReads.add(read);
+        }
+        // like reads from a BAM file, reads that have been through a shuffle carry their BAM encoding, which both
+        // serializers copy as is
+        reads = roundTrip(artificialReads, SAMRecordToGATKReadAdapter.class);
+
+        final Allele ref = Allele.create("A", true);
+        final Allele alt = Allele.create("C", false);
+        variants = new ArrayList<>(NUM_VARIANTS);
+        for ( int i = 0; i < NUM_VARIANTS; i++ ) {
+            final List<Genotype> genotypes = new ArrayList<>(NUM_SAMPLES);
+            for ( int s = 0; s < NUM_SAMPLES; s++ ) {
+                final int refDepth = random.nextInt(30);
+                final int altDepth = random.nextInt(30);
+                genotypes.add(new GenotypeBuilder("sample" + s, Arrays.asList(ref, altDepth > 10 ? alt : ref))
+                        .GQ(random.nextInt(99)).DP(refDepth + altDepth).AD(new int[] {refDepth, altDepth})
+                        .PL(new int[] {random.nextInt(500), 0, random.nextInt(500)}).make());
+            }
+            variants.add(new VariantContextBuilder("benchmark", "20", 1 + i * 100, 1 + i * 100, Arrays.asList(ref, alt))
+                    .log10PError(-random.nextDouble() * 10).passFilters()
+                    .attribute(VCFConstants.ALLELE_COUNT_KEY, random.nextInt(2 * NUM_SAMPLES))
+                    .attribute(VCFConstants.ALLELE_FREQUENCY_KEY, random.nextDouble())
+                    .attribute(VCFConstants.DEPTH_KEY, random.nextInt(600))
+                    .attribute("QD", random.nextDouble() * 30)
+                    .genotypes(genotypes).make());
+        }
+    }
+
+    /**
+     * Serialized size of the records of the last invocation, reported by JMH next to the timings
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class SerializedSize {
+        public double bytesPerRecord;
+    }
+
+    private Output serialize(final List<?> objects) {
+        output.clear();
+        for ( final Object object : objects ) {
+            kryo.writeObject(output, object);
+        }
+        return output;
+    }
+
+    private <T> List<T> roundTrip(final List<? extends T> objects, final Class<? extends T> type) {
+        serialize(objects);
+        final Input input = new Input(output.getBuffer(), 0, output.position());
+        final List<T> result = new ArrayList<>(objects.size());
+        for ( int i = 0; i < objects.size(); i++ ) {
+            result.add(kryo.readObject(input, type));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public void serializeReads(final SerializedSize size) {
+        size.bytesPerRecord = (double) serialize(reads).position() / NUM_READS;
+    }
+
+    @Benchmark
+    public void roundTripReads(final Blackhole blackhole) {
+        blackhole.consume(roundTrip(reads, SAMRecordToGATKReadAdapter.class));
+    }
+
+    @Benchmark
+    public void serializeVariants(final SerializedSize size) {
+        size.bytesPerRecord = (double) serialize(variants).position() / NUM_VARIANTS;
+    }
+
+    @Benchmark
+    public void roundTripVariants(final Blackhole blackhole) {
+        blackhole.consume(roundTrip(variants, VariantContext.class));
+    }
+}
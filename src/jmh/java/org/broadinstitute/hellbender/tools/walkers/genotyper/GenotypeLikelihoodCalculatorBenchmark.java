@@ -0,0 +1,91 @@
+package org.broadinstitute.hellbender.tools.walkers.genotyper;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.GenotypeLikelihoods;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.AlleleLikelihoods;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the calculation of genotype likelihoods from a sample's read-vs-allele likelihood matrix by
+ * {@link GenotypeLikelihoodCalculator} for a range of ploidies and allele counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GenotypeLikelihoodCalculatorBenchmark {
+
+    private static final String SAMPLE = "sample";
+    private static final String BASES = "ACGT";
+
+    @Param({"2", "4"})
+    public int ploidy;
+
+    @Param({"2", "4"})
+    public int numAlleles;
+
+    @Param({"100"})
+    public int numReads;
+
+    private LikelihoodMatrix<GATKRead, Allele> likelihoodMatrix;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Utils.resetRandomGenerator();
+        final Random random = Utils.getRandomGenerator();
+
+        final List<Allele> alleles = new ArrayList<>(numAlleles);
+        alleles.add(Allele.create("A", true));
+        for ( int i = 1; i < numAlleles; i++ ) {
+            alleles.add(Allele.create("A" + BASES.charAt(i % BASES.length()) + BASES.charAt(i / BASES.length()), false));
+        }
+
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        final List<GATKRead> reads = new ArrayList<>(numReads);
+        for ( int i = 0; i < numReads; i++ ) {
+            reads.add(ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, 1, 100));
+        }
+
+        final AlleleLikelihoods<GATKRead, Allele> likelihoods = new AlleleLikelihoods<>(new IndexedSampleList(SAMPLE),
+                new IndexedAlleleList<>(alleles), Collections.singletonMap(SAMPLE, reads));
+        likelihoodMatrix = likelihoods.sampleMatrix(0);
+        // each read strongly supports one allele and weakly supports the others
+        for ( int r = 0; r < numReads; r++ ) {
+            final int supportedAllele = random.nextInt(numAlleles);
+            for ( int a = 0; a < numAlleles; a++ ) {
+                likelihoodMatrix.set(a, r, a == supportedAllele ? -0.1 : -3.0 - random.nextDouble());
+            }
+        }
+    }
+
+    @Benchmark
+    public GenotypeLikelihoods computeGenotypeLikelihoods() {
+        return GenotypeLikelihoodCalculator.log10GenotypeLikelihoods(ploidy, likelihoodMatrix);
+    }
+}
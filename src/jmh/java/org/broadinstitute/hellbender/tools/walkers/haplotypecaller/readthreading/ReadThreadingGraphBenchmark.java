@@ -0,0 +1,88 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the construction of a {@link ReadThreadingGraph} (or a {@link PackedKmerReadThreadingGraph}) from a
+ * reference haplotype and the reads of a typical 300bp active region, including the sequencing errors that create the
+ * bubbles and dangling ends seen in practice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReadThreadingGraphBenchmark {
+
+    private static final int REF_LENGTH = 300;
+    private static final int READ_LENGTH = 150;
+    private static final double ERROR_RATE = 0.01;
+
+    @Param({"10", "25"})
+    public int kmerSize;
+
+    @Param({"200"})
+    public int numReads;
+
+    @Param({"false", "true"})
+    public boolean packedKmers;
+
+    private byte[] ref;
+    private SAMFileHeader header;
+    private List<GATKRead> reads;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Utils.resetRandomGenerator();
+        final Random random = Utils.getRandomGenerator();
+        header = ArtificialReadUtils.createArtificialSamHeader();
+        ref = ArtificialReadUtils.createRandomReadBases(REF_LENGTH, false);
+
+        reads = new ArrayList<>(numReads);
+        for ( int i = 0; i < numReads; i++ ) {
+            final int start = random.nextInt(REF_LENGTH - READ_LENGTH);
+            final byte[] bases = Arrays.copyOfRange(ref, start, start + READ_LENGTH);
+            for ( int j = 0; j < READ_LENGTH; j++ ) {
+                if ( random.nextDouble() < ERROR_RATE ) {
+                    bases[j] = (byte) "ACGT".charAt(random.nextInt(4));
+                }
+            }
+            final byte[] quals = new byte[READ_LENGTH];
+            Arrays.fill(quals, (byte) 30);
+            reads.add(ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, start + 1, bases, quals, READ_LENGTH + "M"));
+        }
+    }
+
+    @Benchmark
+    public ReadThreadingGraph buildGraph() {
+        final ReadThreadingGraph graph = packedKmers ? new PackedKmerReadThreadingGraph(kmerSize, false, (byte) 6, 1, -1) : new ReadThreadingGraph(kmerSize);
+        graph.addSequence("ref", ref, true);
+        for ( final GATKRead read : reads ) {
+            graph.addRead(read, header);
+        }
+        graph.buildGraphIfNecessary();
+        return graph;
+    }
+}
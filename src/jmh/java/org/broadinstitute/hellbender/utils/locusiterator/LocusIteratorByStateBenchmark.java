@@ -0,0 +1,82 @@
+package org.broadinstitute.hellbender.utils.locusiterator;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import org.broadinstitute.hellbender.engine.AlignmentContext;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the generation of pileups by {@link LocusIteratorByState} over coordinate-sorted reads at a
+ * constant depth, including a fraction of reads with an indel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LocusIteratorByStateBenchmark {
+
+    private static final String SAMPLE = "sample";
+    private static final String READ_GROUP = "readGroup";
+    private static final int READ_LENGTH = 150;
+    private static final int NUM_LOCI = 10_000;
+
+    @Param({"30", "100"})
+    public int depth;
+
+    private SAMFileHeader header;
+    private List<GATKRead> reads;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Utils.resetRandomGenerator();
+        final Random random = Utils.getRandomGenerator();
+        final SAMReadGroupRecord readGroup = new SAMReadGroupRecord(READ_GROUP);
+        readGroup.setSample(SAMPLE);
+        header = ArtificialReadUtils.createArtificialSamHeaderWithReadGroup(readGroup);
+
+        // one read starting every READ_LENGTH / depth bases gives the requested depth away from the edges
+        final int numReads = NUM_LOCI * depth / READ_LENGTH;
+        reads = new ArrayList<>(numReads);
+        for ( int i = 0; i < numReads; i++ ) {
+            final int start = 1 + (int) ((long) i * NUM_LOCI / numReads);
+            final String cigar = random.nextInt(10) == 0 ? "70M2D80M" : READ_LENGTH + "M";
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, start,
+                    ArtificialReadUtils.createRandomReadBases(READ_LENGTH, false), ArtificialReadUtils.createRandomReadQuals(READ_LENGTH), cigar);
+            read.setReadGroup(READ_GROUP);
+            reads.add(read);
+        }
+    }
+
+    @Benchmark
+    public void iteratePileups(final Blackhole blackhole) {
+        final LocusIteratorByState libs = new LocusIteratorByState(reads.iterator(), LocusIteratorByState.NO_DOWNSAMPLING,
+                Collections.singletonList(SAMPLE), header, true);
+        while ( libs.hasNext() ) {
+            final AlignmentContext context = libs.next();
+            blackhole.consume(context.getBasePileup().size());
+        }
+    }
+}
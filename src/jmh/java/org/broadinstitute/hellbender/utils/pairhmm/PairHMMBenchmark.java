@@ -0,0 +1,119 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.PairHMMNativeArgumentCollection;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.StandardPairHMMInputScoreImputator;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.AlleleLikelihoods;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the computation of read-vs-haplotype likelihoods for a typical HaplotypeCaller active region by the
+ * Java ({@link LoglessPairHMM}) and native ({@link VectorLoglessPairHMM}) PairHMM implementations.
+ *
+ * Implementations that are not supported on the current hardware fail during setup; select the supported ones with
+ * {@code -p implementation=LOGLESS_CACHING}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PairHMMBenchmark {
+
+    private static final String SAMPLE = "sample";
+    private static final int READ_LENGTH = 150;
+    private static final int HAPLOTYPE_LENGTH = 300;
+
+    @Param({"LOGLESS_CACHING", "VECTOR_API_LOGLESS_CACHING", "AVX_LOGLESS_CACHING"})
+    public PairHMM.Implementation implementation;
+
+    @Param({"4"})
+    public int numHaplotypes;
+
+    @Param({"100"})
+    public int numReads;
+
+    private PairHMM hmm;
+    private List<GATKRead> reads;
+    private LikelihoodMatrix<GATKRead, Haplotype> likelihoodMatrix;
+    private PairHMMInputScoreImputator inputScoreImputator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Utils.resetRandomGenerator();
+        final Random random = Utils.getRandomGenerator();
+
+        final byte[] refBases = ArtificialReadUtils.createRandomReadBases(HAPLOTYPE_LENGTH, false);
+        final List<Haplotype> haplotypes = new ArrayList<>(numHaplotypes);
+        haplotypes.add(new Haplotype(refBases, true));
+        for ( int i = 1; i < numHaplotypes; i++ ) {
+            final byte[] altBases = refBases.clone();
+            altBases[random.nextInt(HAPLOTYPE_LENGTH)] = (byte) "ACGT".charAt(random.nextInt(4));
+            haplotypes.add(new Haplotype(altBases, false));
+        }
+
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        reads = new ArrayList<>(numReads);
+        for ( int i = 0; i < numReads; i++ ) {
+            final byte[] haplotypeBases = haplotypes.get(random.nextInt(numHaplotypes)).getBases();
+            final int start = random.nextInt(HAPLOTYPE_LENGTH - READ_LENGTH);
+            final byte[] quals = new byte[READ_LENGTH];
+            Arrays.fill(quals, (byte) 30);
+            reads.add(ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, start + 1,
+                    Arrays.copyOfRange(haplotypeBases, start, start + READ_LENGTH), quals, READ_LENGTH + "M"));
+        }
+
+        try {
+            hmm = implementation.makeNewHMM(new PairHMMNativeArgumentCollection().getPairHMMArgs());
+        } catch ( final UserException.HardwareFeatureException e ) {
+            throw new IllegalStateException("PairHMM implementation " + implementation + " is not supported on this machine", e);
+        }
+        hmm.initialize(haplotypes, Collections.singletonMap(SAMPLE, reads), READ_LENGTH, HAPLOTYPE_LENGTH);
+
+        final AlleleLikelihoods<GATKRead, Haplotype> likelihoods = new AlleleLikelihoods<>(new IndexedSampleList(SAMPLE),
+                new IndexedAlleleList<>(haplotypes), Collections.singletonMap(SAMPLE, reads));
+        likelihoodMatrix = likelihoods.sampleMatrix(0);
+        inputScoreImputator = StandardPairHMMInputScoreImputator.newInstance((byte) 10);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if ( hmm != null ) {
+            hmm.close();
+        }
+    }
+
+    @Benchmark
+    public double[] computeLikelihoods() {
+        hmm.computeLog10Likelihoods(likelihoodMatrix, reads, inputScoreImputator);
+        return hmm.getLogLikelihoodArray();
+    }
+}
@@ -0,0 +1,110 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMTag;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks wrapping {@link SAMRecord}s in {@link SAMRecordToGATKReadAdapter} and the accessors most frequently
+ * called by the engine's read filters and transformers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SAMRecordToGATKReadAdapterBenchmark {
+
+    private static final int NUM_READS = 1000;
+    private static final int READ_LENGTH = 150;
+
+    private List<SAMRecord> samRecords;
+    private List<GATKRead> reads;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Utils.resetRandomGenerator();
+        final Random random = Utils.getRandomGenerator();
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+
+        samRecords = new ArrayList<>(NUM_READS);
+        reads = new ArrayList<>(NUM_READS);
+        for ( int i = 0; i < NUM_READS; i++ ) {
+            final SAMRecord record = ArtificialReadUtils.createArtificialSAMRecord(header, "read" + i, 0, 1 + random.nextInt(100_000),
+                    ArtificialReadUtils.createRandomReadBases(READ_LENGTH, false), ArtificialReadUtils.createRandomReadQuals(READ_LENGTH), "5S140M5S");
+            record.setMappingQuality(60);
+            record.setReadNegativeStrandFlag(random.nextBoolean());
+            record.setAttribute(SAMTag.NM.name(), random.nextInt(5));
+            record.setAttribute(SAMTag.RG.name(), "readGroup");
+            samRecords.add(record);
+            reads.add(new SAMRecordToGATKReadAdapter(record));
+        }
+    }
+
+    @Benchmark
+    public void wrap(final Blackhole blackhole) {
+        for ( final SAMRecord record : samRecords ) {
+            blackhole.consume(new SAMRecordToGATKReadAdapter(record));
+        }
+    }
+
+    @Benchmark
+    public void positionalAccessors(final Blackhole blackhole) {
+        for ( final GATKRead read : reads ) {
+            blackhole.consume(read.getContig());
+            blackhole.consume(read.getStart());
+            blackhole.consume(read.getEnd());
+            blackhole.consume(read.getUnclippedStart());
+            blackhole.consume(read.getUnclippedEnd());
+            blackhole.consume(read.isReverseStrand());
+            blackhole.consume(read.getMappingQuality());
+        }
+    }
+
+    @Benchmark
+    public void sequenceAccessors(final Blackhole blackhole) {
+        for ( final GATKRead read : reads ) {
+            blackhole.consume(read.getLength());
+            blackhole.consume(read.getBasesNoCopy());
+            blackhole.consume(read.getBaseQualitiesNoCopy());
+            blackhole.consume(read.getCigar());
+        }
+    }
+
+    @Benchmark
+    public void copyingAccessors(final Blackhole blackhole) {
+        for ( final GATKRead read : reads ) {
+            blackhole.consume(read.getBases());
+            blackhole.consume(read.getBaseQualities());
+            blackhole.consume(read.getCigarElements());
+        }
+    }
+
+    @Benchmark
+    public void attributeAccessors(final Blackhole blackhole) {
+        for ( final GATKRead read : reads ) {
+            blackhole.consume(read.getAttributeAsInteger(SAMTag.NM.name()));
+            blackhole.consume(read.getAttributeAsString(SAMTag.RG.name()));
+            blackhole.consume(read.getReadGroup());
+        }
+    }
+}
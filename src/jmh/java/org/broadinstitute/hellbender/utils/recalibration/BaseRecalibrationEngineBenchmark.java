@@ -0,0 +1,99 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.util.Locatable;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.engine.ReferenceMemorySource;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link BaseRecalibrationEngine#processRead} with the default covariates over reads carrying a realistic
+ * rate of mismatches against an in-memory reference, with and without BAQ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BaseRecalibrationEngineBenchmark {
+
+    private static final String READ_GROUP = "readGroup";
+    private static final int REF_LENGTH = 100_000;
+    private static final int READ_LENGTH = 150;
+    private static final int NUM_READS = 1000;
+    private static final double ERROR_RATE = 0.01;
+
+    @Param({"false", "true"})
+    public boolean enableBAQ;
+
+    private SAMFileHeader header;
+    private ReferenceDataSource reference;
+    private List<GATKRead> reads;
+    private final Iterable<? extends Locatable> knownSites = Collections.emptyList();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Utils.resetRandomGenerator();
+        final Random random = Utils.getRandomGenerator();
+        final SAMReadGroupRecord readGroup = new SAMReadGroupRecord(READ_GROUP);
+        readGroup.setSample("sample");
+        readGroup.setPlatform("ILLUMINA");
+        header = ArtificialReadUtils.createArtificialSamHeaderWithReadGroup(readGroup);
+
+        final String contig = header.getSequence(0).getSequenceName();
+        final byte[] refBases = ArtificialReadUtils.createRandomReadBases(REF_LENGTH, false);
+        reference = new ReferenceMemorySource(new ReferenceBases(refBases, new SimpleInterval(contig, 1, REF_LENGTH)), header.getSequenceDictionary());
+
+        reads = new ArrayList<>(NUM_READS);
+        for ( int i = 0; i < NUM_READS; i++ ) {
+            final int start = random.nextInt(REF_LENGTH - READ_LENGTH);
+            final byte[] bases = Arrays.copyOfRange(refBases, start, start + READ_LENGTH);
+            for ( int j = 0; j < READ_LENGTH; j++ ) {
+                if ( random.nextDouble() < ERROR_RATE ) {
+                    bases[j] = (byte) "ACGT".charAt(random.nextInt(4));
+                }
+            }
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, start + 1,
+                    bases, ArtificialReadUtils.createRandomReadQuals(READ_LENGTH), READ_LENGTH + "M");
+            read.setReadGroup(READ_GROUP);
+            read.setIsReverseStrand(random.nextBoolean());
+            reads.add(read);
+        }
+    }
+
+    @Benchmark
+    public RecalibrationTables processReads() {
+        final RecalibrationArgumentCollection recalArgs = new RecalibrationArgumentCollection();
+        recalArgs.enableBAQ = enableBAQ;
+        final BaseRecalibrationEngine engine = new BaseRecalibrationEngine(recalArgs, header);
+        for ( final GATKRead read : reads ) {
+            engine.processRead(read, reference, knownSites);
+        }
+        return engine.getRecalibrationTables();
+    }
+}
@@ -0,0 +1,65 @@
+package org.broadinstitute.hellbender.utils.smithwaterman;
+
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the alignment of a haplotype carrying a few SNPs and an indel against its reference with
+ * {@link SmithWatermanJavaAligner}, using the haplotype-to-reference parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SmithWatermanJavaAlignerBenchmark {
+
+    @Param({"300", "1000"})
+    public int refLength;
+
+    @Param({"SOFTCLIP", "INDEL"})
+    public SWOverhangStrategy overhangStrategy;
+
+    private final SmithWatermanJavaAligner aligner = SmithWatermanJavaAligner.getInstance();
+    private byte[] ref;
+    private byte[] alt;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Utils.resetRandomGenerator();
+        final Random random = Utils.getRandomGenerator();
+        ref = ArtificialReadUtils.createRandomReadBases(refLength, false);
+
+        // a 10bp deletion in the middle plus a handful of SNPs
+        final int deletionStart = refLength / 2;
+        final byte[] withDeletion = new byte[refLength - 10];
+        System.arraycopy(ref, 0, withDeletion, 0, deletionStart);
+        System.arraycopy(ref, deletionStart + 10, withDeletion, deletionStart, refLength - deletionStart - 10);
+        for ( int i = 0; i < 5; i++ ) {
+            withDeletion[random.nextInt(withDeletion.length)] = (byte) "ACGT".charAt(random.nextInt(4));
+        }
+        alt = withDeletion;
+    }
+
+    @Benchmark
+    public SmithWatermanAlignment align() {
+        return aligner.align(ref, alt, SmithWatermanAlignmentConstants.NEW_SW_PARAMETERS, overhangStrategy);
+    }
+}
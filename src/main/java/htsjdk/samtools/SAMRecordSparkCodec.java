@@ -66,12 +66,34 @@ public class SAMRecordSparkCodec implements SortingCollection.Codec<SAMRecord> {
     @Override
     public void encode(final SAMRecord alignment) {
         // Compute block size, as it is the first element of the file representation of SAMRecord
-        final int readLength = alignment.getReadLength();
-
         final int cigarLength = alignment.getCigarLength();
+        final int blockSize = BAMFileConstants.FIXED_BLOCK_SIZE + getVariableLengthBlockSize(alignment);
 
-        int blockSize = BAMFileConstants.FIXED_BLOCK_SIZE + alignment.getReadNameLength() + 1  + // null terminated
-                        cigarLength * 4 +
+        // Blurt out the elements
+        this.binaryCodec.writeInt(blockSize);
+        this.binaryCodec.writeInt(SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX); // reference index is not used
+        // 0-based!!
+        this.binaryCodec.writeInt(alignment.getAlignmentStart() - 1);
+        this.binaryCodec.writeUByte((short)(alignment.getReadNameLength() + 1));
+        this.binaryCodec.writeUByte((short) alignment.getMappingQuality());
+        this.binaryCodec.writeUShort(0); // index bin is not used
+        this.binaryCodec.writeUShort(cigarLength);
+        this.binaryCodec.writeUShort(alignment.getFlags());
+        this.binaryCodec.writeInt(alignment.getReadLength());
+        this.binaryCodec.writeInt(SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX);  // mate reference index is not used
+        this.binaryCodec.writeInt(alignment.getMateAlignmentStart() - 1);
+        this.binaryCodec.writeInt(alignment.getInferredInsertSize());
+        encodeVariableLengthBlock(alignment);
+    }
+
+    /**
+     * @return the size of the variable-length part of the BAM representation of a record: its name, cigar, bases,
+     *         qualities and tags
+     */
+    public static int getVariableLengthBlockSize(final SAMRecord alignment) {
+        final int readLength = alignment.getReadLength();
+        int blockSize = alignment.getReadNameLength() + 1  + // null terminated
+                        alignment.getCigarLength() * 4 +
                         (readLength + 1) / 2 + // 2 bases per byte, round up
                         readLength;
 
@@ -86,21 +108,15 @@ public class SAMRecordSparkCodec implements SortingCollection.Codec<SAMRecord> {
                 attribute = attribute.getNext();
             }
         }
+        return blockSize;
+    }
 
-        // Blurt out the elements
-        this.binaryCodec.writeInt(blockSize);
-        this.binaryCodec.writeInt(SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX); // reference index is not used
-        // 0-based!!
-        this.binaryCodec.writeInt(alignment.getAlignmentStart() - 1);
-        this.binaryCodec.writeUByte((short)(alignment.getReadNameLength() + 1));
-        this.binaryCodec.writeUByte((short) alignment.getMappingQuality());
-        this.binaryCodec.writeUShort(0); // index bin is not used
-        this.binaryCodec.writeUShort(cigarLength);
-        this.binaryCodec.writeUShort(alignment.getFlags());
-        this.binaryCodec.writeInt(alignment.getReadLength());
-        this.binaryCodec.writeInt(SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX);  // mate reference index is not used
-        this.binaryCodec.writeInt(alignment.getMateAlignmentStart() - 1);
-        this.binaryCodec.writeInt(alignment.getInferredInsertSize());
+    /**
+     * Write only the variable-length part of the BAM representation of a record (see
+     * {@link #getVariableLengthBlockSize}) to the output stream. Records read from a BAM file that haven't been
+     * modified since have it already, and it is copied as is.
+     */
+    public void encodeVariableLengthBlock(final SAMRecord alignment) {
         final byte[] variableLengthBinaryBlock = alignment.getVariableBinaryRepresentation();
         if (variableLengthBinaryBlock != null) {
             // Don't need to encode variable-length block, because it is unchanged from
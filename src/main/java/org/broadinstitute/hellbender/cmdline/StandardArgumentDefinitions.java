@@ -33,6 +33,11 @@ public final class StandardArgumentDefinitions {
     public static final String CLOUD_PREFETCH_BUFFER_LONG_NAME = "cloud-prefetch-buffer";
     public static final String CLOUD_INDEX_PREFETCH_BUFFER_LONG_NAME = "cloud-index-prefetch-buffer";
     public static final String DISABLE_BAM_INDEX_CACHING_LONG_NAME = "disable-bam-index-caching";
+    public static final String READ_AHEAD_BATCH_SIZE_LONG_NAME = "read-ahead-batch-size";
+    public static final String OUTPUT_BAM_COMPRESSION_THREADS_LONG_NAME = "output-bam-compression-threads";
+    public static final String OUTPUT_VCF_ENCODING_THREADS_LONG_NAME = "output-vcf-encoding-threads";
+    public static final String MEMORY_MAP_REFERENCE_LONG_NAME = "memory-map-reference";
+    public static final String SHARED_FEATURE_CACHE_BLOCKS_LONG_NAME = "shared-feature-cache-blocks";
     public static final String DISABLE_SEQUENCE_DICT_VALIDATION_NAME = "disable-sequence-dictionary-validation";
     public static final String ADD_OUTPUT_SAM_PROGRAM_RECORD = "add-output-sam-program-record";
     public static final String ADD_OUTPUT_VCF_COMMANDLINE = "add-output-vcf-command-line";
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.engine;
 
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
@@ -11,6 +12,7 @@ import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.IGVUtils;
 import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.downsampling.PositionalDownsampler;
 import org.broadinstitute.hellbender.utils.downsampling.ReadsDownsampler;
 
@@ -36,10 +38,27 @@ import java.util.List;
  * handle/process active vs. inactive regions.
  *
  * Internally, the reads are loaded in chunks called read shards, which are then subdivided into active/inactive regions
- * for processing by the tool implementation. One read shard is created per contig.
+ * for processing by the tool implementation. Each read shard holds all of the intervals for one contig.
+ *
+ * Tools that implement {@link #makeAssemblyRegionWorker} may also be run with {@code --traversal-threads} greater
+ * than 1. In that mode a contig is further split into several shards where consecutive traversal intervals on it are
+ * not adjacent (the points at which the activity profile is always closed out anyway), once a shard holds
+ * {@code --traversal-shard-size} bases of intervals, and the shards are processed concurrently, each traversal thread
+ * using its own reads, reference and Feature data sources. Each shard is processed with its own random number
+ * generators (see {@link Utils#setThreadRandomGenerators}), seeded from the index of the shard, so that downsampling
+ * and any other random choices made by the tool depend only on the shard and not on the number of threads. The output
+ * of each region is emitted on the main thread in traversal order. Output that involves no random choices is the same
+ * as for a single-threaded run.
  */
 public abstract class AssemblyRegionWalker extends WalkerBase {
 
+    public static final String TRAVERSAL_SHARD_SIZE_LONG_NAME = "traversal-shard-size";
+
+    /**
+     * Maximum number of processed regions that may be buffered for each read shard while waiting to be emitted in order
+     */
+    private static final int MAX_BUFFERED_REGIONS_PER_SHARD = 100;
+
     @ArgumentCollection
     public final AssemblyRegionArgumentCollection assemblyRegionArgs = new AssemblyRegionArgumentCollection();
 
@@ -54,6 +73,16 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
     @Argument(fullName = AssemblyRegionArgumentCollection.ASSEMBLY_REGION_OUT_LONG_NAME, doc="Output the assembly region to this IGV formatted file", optional = true)
     protected String assemblyRegionOut = null;
 
+    /**
+     * When traversing with more than one thread, the number of bases of traversal intervals to group into each read
+     * shard before starting a new one at the next gap between intervals. Read shards are the units of work of the
+     * traversal threads, and each has its own stream of random numbers, so the output of multi-threaded runs with
+     * downsampling only matches for the same shard size.
+     */
+    @Advanced
+    @Argument(fullName = TRAVERSAL_SHARD_SIZE_LONG_NAME, doc = "Minimum number of interval bases per read shard when using more than one traversal thread", optional = true, minValue = 1)
+    public int traversalShardSize = 1_000_000;
+
     private PrintStream assemblyRegionOutStream;
 
     @Override
@@ -81,7 +110,7 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
         assemblyRegionArgs.validate();
 
         final List<SimpleInterval> intervals = hasUserSuppliedIntervals() ? userIntervals : IntervalUtils.getAllIntervalsForReference(getHeaderForReads().getSequenceDictionary());
-        readShards = makeReadShards(intervals);
+        readShards = traversalThreads > 1 ? makeParallelReadShards(intervals) : makeReadShards(intervals);
 
         initializeAssemblyRegionOutputStreams();
     }
@@ -107,6 +136,42 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
         return shards;
     }
 
+    /**
+     * Shard our intervals for a multi-threaded traversal. Intervals are split by contig, and a contig is further split
+     * between two consecutive intervals that are not adjacent, once the current shard holds at least
+     * {@link #traversalShardSize} bases of intervals. The shards are the same whatever the number of traversal threads.
+     *
+     * Since the activity profile is always closed out at a gap between intervals, and since each assembly region
+     * only receives reads overlapping its own padded span, the regions produced are the same as those produced
+     * for per-contig shards.
+     *
+     * @param intervals unmodified intervals for traversal
+     * @return List of {@link MultiIntervalLocalReadShard} objects, sharded and padded as necessary
+     */
+    private List<MultiIntervalLocalReadShard> makeParallelReadShards(final List<SimpleInterval> intervals) {
+        final List<MultiIntervalLocalReadShard> shards = new ArrayList<>();
+        final List<List<SimpleInterval>> intervalsGroupedByContig = IntervalUtils.groupIntervalsByContig(intervals);
+
+        for ( final List<SimpleInterval> allIntervalsOnContig : intervalsGroupedByContig ) {
+            // merge overlapping and abutting intervals so that we never split a contiguous stretch of loci
+            final List<SimpleInterval> contiguousIntervals = IntervalUtils.getIntervalsWithFlanks(allIntervalsOnContig, 0, getHeaderForReads().getSequenceDictionary());
+            List<SimpleInterval> currentShardIntervals = new ArrayList<>();
+            long currentShardSize = 0;
+            for ( final SimpleInterval interval : contiguousIntervals ) {
+                if ( currentShardSize >= traversalShardSize ) {
+                    shards.add(new MultiIntervalLocalReadShard(currentShardIntervals, assemblyRegionArgs.assemblyRegionPadding, reads));
+                    currentShardIntervals = new ArrayList<>();
+                    currentShardSize = 0;
+                }
+                currentShardIntervals.add(interval);
+                currentShardSize += interval.size();
+            }
+            shards.add(new MultiIntervalLocalReadShard(currentShardIntervals, assemblyRegionArgs.assemblyRegionPadding, reads));
+        }
+
+        return shards;
+    }
+
     private void initializeAssemblyRegionOutputStreams() {
         if ( assemblyRegionOut != null ) {
             try {
@@ -140,8 +205,13 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
         return defaultFilters;
     }
 
+    /**
+     * Create the downsampler for a read shard. Called on the thread processing the shard. In a multi-threaded
+     * traversal, the random number generators of the shard have been installed by then, so that
+     * {@link Utils#getRandomGenerator} returns the shard's own.
+     */
     protected ReadsDownsampler createDownsampler() {
-        return assemblyRegionArgs.maxReadsPerAlignmentStart > 0 ? new PositionalDownsampler(assemblyRegionArgs.maxReadsPerAlignmentStart, getHeaderForReads(), nonRandomDownsamplingMode) : null;
+        return assemblyRegionArgs.maxReadsPerAlignmentStart > 0 ? new PositionalDownsampler(assemblyRegionArgs.maxReadsPerAlignmentStart, getHeaderForReads(), nonRandomDownsamplingMode, Utils.getRandomGenerator()) : null;
     }
 
     /**
@@ -155,6 +225,10 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
      */
     @Override
     public void traverse() {
+        if ( traversalThreads > 1 ) {
+            traverseInParallel();
+            return;
+        }
 
         CountingReadFilter countedFilter = makeReadFilter();
 
@@ -206,12 +280,102 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
         }
     }
 
+    @Override
+    final boolean supportsTraversalThreads() {
+        return true;
+    }
+
+    /**
+     * Multi-threaded implementation of assembly region traversal.
+     *
+     * Each traversal thread owns an {@link AssemblyRegionWorker} obtained from {@link #makeAssemblyRegionWorker} along
+     * with its own reads, reference and Feature data sources (see {@link AssemblyRegionShardProcessor}). Intervals on a
+     * contig are only split into separate shards where they are not adjacent, so supplying a scattered interval list
+     * (eg., one split at assembly gaps) increases available parallelism.
+     */
+    private void traverseInParallel() {
+        progressMeter.setRecordsBetweenTimeChecks(10L);
+
+        final List<AssemblyRegionShardProcessor> processors = traverseShardsInParallel("assemblyRegionTraversal-thread-%d", readShards,
+                () -> {
+                    final AssemblyRegionWorker worker = makeAssemblyRegionWorker();
+                    return worker == null ? null : new AssemblyRegionShardProcessor(worker);
+                },
+                MAX_BUFFERED_REGIONS_PER_SHARD);
+
+        long filteredReadCount = 0;
+        for ( final AssemblyRegionShardProcessor processor : processors ) {
+            filteredReadCount += processor.filter.getFilteredCount();
+        }
+        logger.info(filteredReadCount + " read(s) filtered in total across " + traversalThreads + " traversal threads");
+    }
+
+    /**
+     * The {@link AssemblyRegionWorker} of one traversal thread, with its own filter and data sources. The output of
+     * each region is emitted together with its IGV record and progress update, and we don't hold on to the region
+     * itself, to avoid buffering its reads.
+     */
+    private final class AssemblyRegionShardProcessor implements ShardProcessor<MultiIntervalLocalReadShard> {
+        private final AssemblyRegionWorker worker;
+        private final CountingReadFilter filter = makeReadFilter();
+        private final ReadsDataSource workerReads = makeReadsDataSource();
+        private final ReferenceDataSource workerReference = makeReferenceDataSource();
+        private final FeatureManager workerFeatures = makeFeatureManager();
+
+        AssemblyRegionShardProcessor(final AssemblyRegionWorker worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public void processShard(final int shardIndex, final MultiIntervalLocalReadShard templateShard, final ShardOutput output) throws InterruptedException {
+            final MultiIntervalLocalReadShard readShard = new MultiIntervalLocalReadShard(templateShard.getIntervals(), assemblyRegionArgs.assemblyRegionPadding, workerReads);
+            readShard.setPreReadFilterTransformer(makePreReadFilterTransformer());
+            readShard.setReadFilter(filter);
+            readShard.setDownsampler(createDownsampler());
+            readShard.setPostReadFilterTransformer(makePostReadFilterTransformer());
+
+            final Iterator<AssemblyRegion> assemblyRegionIter = new AssemblyRegionIterator(readShard, getHeaderForReads(), workerReference, workerFeatures, worker.assemblyRegionEvaluator(), assemblyRegionArgs, shouldTrackPileupsForAssemblyRegions());
+            while ( assemblyRegionIter.hasNext() ) {
+                final AssemblyRegion assemblyRegion = assemblyRegionIter.next();
+                if ( assemblyRegionArgs.forceActive ) {
+                    assemblyRegion.setIsActive(true);
+                }
+
+                logger.debug("Processing assembly region at " + assemblyRegion.getSpan() + " isActive: " + assemblyRegion.isActive() + " numReads: " + assemblyRegion.getReads().size());
+                final Runnable regionOutput = worker.processRegion(assemblyRegion,
+                        new ReferenceContext(workerReference, assemblyRegion.getPaddedSpan()),
+                        new FeatureContext(workerFeatures, assemblyRegion.getPaddedSpan()));
+                final SimpleInterval span = assemblyRegion.getSpan();
+                final boolean isActive = assemblyRegion.isActive();
+                output.emit(() -> {
+                    writeAssemblyRegion(span, isActive);
+                    regionOutput.run();
+                    progressMeter.update(span);
+                });
+            }
+        }
+
+        @Override
+        public void close() {
+            worker.close();
+            workerReads.close();
+            workerReference.close();
+            if ( workerFeatures != null ) {
+                workerFeatures.close();
+            }
+        }
+    }
+
     private void writeAssemblyRegion(final AssemblyRegion region) {
+        writeAssemblyRegion(region.getSpan(), region.isActive());
+    }
+
+    private void writeAssemblyRegion(final SimpleInterval span, final boolean isActive) {
         if ( assemblyRegionOutStream != null ) {
-            IGVUtils.printIGVFormatRow(assemblyRegionOutStream, new SimpleInterval(region.getContig(), region.getStart(), region.getStart()),
+            IGVUtils.printIGVFormatRow(assemblyRegionOutStream, new SimpleInterval(span.getContig(), span.getStart(), span.getStart()),
                     "end-marker", 0.0);
-            IGVUtils.printIGVFormatRow(assemblyRegionOutStream, region,
-                    "size=" + new SimpleInterval(region).size(), region.isActive() ? 1.0 : -1.0);
+            IGVUtils.printIGVFormatRow(assemblyRegionOutStream, span,
+                    "size=" + span.size(), isActive ? 1.0 : -1.0);
         }
     }
 
@@ -255,6 +419,19 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
      */
     public abstract void apply( final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext );
 
+    /**
+     * Create a new worker for multi-threaded traversal. Called once per traversal thread (on the main thread) when
+     * running with {@code --traversal-threads} greater than 1. Each worker must be independent of the others and of
+     * the state used by {@link #apply}.
+     *
+     * The default implementation returns null, indicating that the tool does not support multi-threaded traversal.
+     *
+     * @return a new {@link AssemblyRegionWorker}, or null if multi-threaded traversal is not supported
+     */
+    protected AssemblyRegionWorker makeAssemblyRegionWorker() {
+        return null;
+    }
+
     public boolean nonRandomDownsamplingMode() {
         return false;
     }
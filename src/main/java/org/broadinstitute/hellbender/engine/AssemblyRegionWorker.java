@@ -0,0 +1,37 @@
+package org.broadinstitute.hellbender.engine;
+
+/**
+ * Per-thread processor used by {@link AssemblyRegionWalker} when traversing with more than one traversal thread.
+ *
+ * Each traversal thread owns exactly one worker, so implementations may keep non-thread-safe state (engines,
+ * PairHMM instances, caches, etc.) as long as it is not shared with other workers or with the tool itself.
+ *
+ * {@link #processRegion} is called on the worker thread and must not write any output directly. Instead it returns
+ * an action that the walker runs on the main traversal thread, in the same order in which the regions would have
+ * been visited by a single-threaded traversal. This keeps the output of a multi-threaded run identical to the
+ * output of a single-threaded run.
+ */
+public interface AssemblyRegionWorker extends AutoCloseable {
+
+    /**
+     * @return the evaluator used by this worker to determine whether each locus is active or not. May not be shared
+     *         with other workers.
+     */
+    AssemblyRegionEvaluator assemblyRegionEvaluator();
+
+    /**
+     * Process an individual AssemblyRegion on the worker thread.
+     *
+     * @param region region to process (pre-marked as either active or inactive)
+     * @param referenceContext reference data overlapping the padded span of the assembly region
+     * @param featureContext features overlapping the padded span of the assembly region
+     * @return an action that emits the output for this region. Run on the main traversal thread, in order.
+     */
+    Runnable processRegion(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext);
+
+    /**
+     * Release any resources held by this worker. Called on the worker thread once its last region has been processed.
+     */
+    @Override
+    default void close() {}
+}
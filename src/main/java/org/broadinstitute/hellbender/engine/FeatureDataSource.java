@@ -18,6 +18,7 @@ import org.broadinstitute.hellbender.tools.genomicsdb.GenomicsDBOptions;
 import org.broadinstitute.hellbender.utils.IndexUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.codecs.VariantSitesBCICodec;
 import org.broadinstitute.hellbender.tools.sv.SVFeaturesHeader;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
 import org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStream.Reader;
@@ -31,6 +32,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
@@ -62,6 +64,14 @@ import static org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStre
  * random, involves queries over intervals with DECREASING start positions instead of INCREASING start positions,
  * or involves lots of very large jumps forward on the genome or lots of contig switches. Query caching
  * can be disabled, if desired.
+ * <p>
+ * A VCF input can opt in to being read from its binary sites sidecar (see {@link VariantSitesBCICodec}), created by
+ * IndexFeatureFile, by being tagged with {@link #SITES_SIDECAR_ATTRIBUTE}=true, as in
+ * {@code --resource:gnomad,sites-sidecar=true gnomad.vcf.gz}. If the sidecar exists and is no older than the VCF
+ * itself, records are read from the sidecar instead of being parsed from the VCF. Those records have no genotypes,
+ * and only the INFO fields that were chosen when the sidecar was made, and the header reported for the input has no
+ * samples and only the INFO lines of those fields. The tag is honoured only for Feature arguments discovered by
+ * {@link FeatureManager}, never for driving variants.
  *
  * @param <T> The type of Feature returned by this data source
  */
@@ -97,6 +107,12 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
      */
     private final FeatureCache<T> queryCache;
 
+    /**
+     * If not null, queries are answered from this cache, which is shared with the data sources of other threads,
+     * instead of from {@link #queryCache}
+     */
+    private SharedFeatureCache sharedCache = null;
+
     /**
      * When we experience a cache miss (ie., a query interval not fully contained within our cache) and need
      * to re-populate the Feature cache from disk to satisfy a query, this controls the number of extra bases
@@ -132,6 +148,12 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
      */
     public static final int DEFAULT_QUERY_LOOKAHEAD_BASES = 1000;
 
+    /**
+     * Tag attribute with which a VCF input opts in to being read from its binary sites sidecar, when it has an
+     * up-to-date one
+     */
+    public static final String SITES_SIDECAR_ATTRIBUTE = "sites-sidecar";
+
     /**
      * Creates a FeatureDataSource backed by the provided File. The data source will have an automatically
      * generated name, and will look ahead the default number of bases ({@link #DEFAULT_QUERY_LOOKAHEAD_BASES})
@@ -308,6 +330,29 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
     public FeatureDataSource(final FeatureInput<T> featureInput, final int queryLookaheadBases, final Class<? extends Feature> targetFeatureType,
                              final int cloudPrefetchBuffer, final int cloudIndexPrefetchBuffer, final GenomicsDBOptions genomicsDBOptions,
                              final boolean setNameOnCodec) {
+        this(featureInput, queryLookaheadBases, targetFeatureType, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
+                genomicsDBOptions, setNameOnCodec, false);
+    }
+
+    /**
+     * Creates a FeatureDataSource backed by the provided FeatureInput. We will look ahead the specified number of bases
+     * during queries that produce cache misses.
+     *
+     * @param featureInput             a FeatureInput specifying a source of Features
+     * @param queryLookaheadBases      look ahead this many bases during queries that produce cache misses
+     * @param targetFeatureType        When searching for a {@link FeatureCodec} for this data source, restrict the search to codecs
+     *                                 that produce this type of Feature. May be null, which results in an unrestricted search.
+     * @param cloudPrefetchBuffer      MB size of caching/prefetching wrapper for the data, if on Google Cloud (0 to disable).
+     * @param cloudIndexPrefetchBuffer MB size of caching/prefetching wrapper for the index, if on Google Cloud (0 to disable).
+     * @param genomicsDBOptions         options and info for reading from a GenomicsDB; may be null
+     * @param setNameOnCodec            If true, and if this FeatureDataSource uses a NameAwareCodec, the name of the FeatureInput will be used to set the codec's name. This exists as a mechanism to store the FeatureInput name in the source field of VariantContexts
+     * @param allowSitesSidecar         If true, and if the FeatureInput is a VCF tagged with {@link #SITES_SIDECAR_ATTRIBUTE}=true
+     *                                  that has an up-to-date sites sidecar, read the records from the sidecar. Must be false for
+     *                                  inputs whose genotypes or full set of INFO fields may be needed, such as driving variants.
+     */
+    public FeatureDataSource(final FeatureInput<T> featureInput, final int queryLookaheadBases, final Class<? extends Feature> targetFeatureType,
+                             final int cloudPrefetchBuffer, final int cloudIndexPrefetchBuffer, final GenomicsDBOptions genomicsDBOptions,
+                             final boolean setNameOnCodec, final boolean allowSitesSidecar) {
         Utils.validateArg(queryLookaheadBases >= 0, "Query lookahead bases must be >= 0");
         this.featureInput = Utils.nonNull(featureInput, "featureInput must not be null");
         if (IOUtils.isGenomicsDBPath(featureInput)) {
@@ -319,7 +364,7 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         this.featureReader = getFeatureReader(featureInput, targetFeatureType,
                 BucketUtils.getPrefetchingWrapper(cloudPrefetchBuffer),
                 BucketUtils.getPrefetchingWrapper(cloudIndexPrefetchBuffer),
-                genomicsDBOptions, setNameOnCodec);
+                genomicsDBOptions, setNameOnCodec, allowSitesSidecar && requestsSitesSidecar(featureInput));
 
         if (IOUtils.isGenomicsDBPath(featureInput) ||
                 featureInput.getFeaturePath().toLowerCase().endsWith(BCI_FILE_EXTENSION)) {
@@ -327,6 +372,10 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
             // likewise with block-compressed interval files
             this.hasIndex = false;
             this.supportsRandomAccess = true;
+        } else if (featureReader instanceof VariantSitesSidecarReader) {
+            // the sidecar carries its own index
+            this.hasIndex = false;
+            this.supportsRandomAccess = true;
         } else if (featureReader instanceof AbstractFeatureReader) {
             this.hasIndex = ((AbstractFeatureReader<T, ?>)featureReader).hasIndex();
             this.supportsRandomAccess = hasIndex;
@@ -335,7 +384,7 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         }
         // Due to a bug in HTSJDK, unindexed block compressed input files may fail to parse completely. For safety,
         // these files have been disabled. See https://github.com/broadinstitute/gatk/issues/4224 for discussion
-        if (!hasIndex && IOUtil.hasBlockCompressedExtension(featureInput.getFeaturePath())) {
+        if (!supportsRandomAccess && IOUtil.hasBlockCompressedExtension(featureInput.getFeaturePath())) {
             throw new UserException.MissingIndex(featureInput.toString(), "Support for unindexed block-compressed files has been temporarily disabled. Try running IndexFeatureFile on the input.");
         }
 
@@ -353,7 +402,8 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
     private static <T extends Feature> FeatureReader<T> getFeatureReader(final FeatureInput<T> featureInput, final Class<? extends Feature> targetFeatureType,
                                                                          final Function<SeekableByteChannel, SeekableByteChannel> cloudWrapper,
                                                                          final Function<SeekableByteChannel, SeekableByteChannel> cloudIndexWrapper,
-                                                                         final GenomicsDBOptions genomicsDBOptions, final boolean setNameOnCodec) {
+                                                                         final GenomicsDBOptions genomicsDBOptions, final boolean setNameOnCodec,
+                                                                         final boolean useSitesSidecar) {
         if (IOUtils.isGenomicsDBPath(featureInput.getFeaturePath())) {
             Utils.nonNull(genomicsDBOptions);
             try {
@@ -374,10 +424,63 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
             if ( featureInput.getFeaturePath().toLowerCase().endsWith(BCI_FILE_EXTENSION) ) {
                 return new Reader(featureInput, codec);
             }
-            return getTribbleFeatureReader(featureInput, codec, cloudWrapper, cloudIndexWrapper);
+            final AbstractFeatureReader<T, ?> tribbleReader = getTribbleFeatureReader(featureInput, codec, cloudWrapper, cloudIndexWrapper);
+            if ( useSitesSidecar && codec.getFeatureType() == VariantContext.class && hasUpToDateSidecar(featureInput) ) {
+                return (FeatureReader<T>)getSidecarReader(featureInput, tribbleReader, setNameOnCodec);
+            }
+            return tribbleReader;
         }
     }
 
+    /**
+     * @return true if the given input is tagged with {@link #SITES_SIDECAR_ATTRIBUTE}=true
+     */
+    private static boolean requestsSitesSidecar(final FeatureInput<?> featureInput) {
+        return Boolean.parseBoolean(featureInput.getAttribute(SITES_SIDECAR_ATTRIBUTE));
+    }
+
+    /**
+     * @return true if the given VCF has a binary sites sidecar that was written no earlier than the VCF itself
+     */
+    private static boolean hasUpToDateSidecar(final FeatureInput<?> featureInput) {
+        try {
+            final Path sidecarPath = IOUtils.getPath(VariantSitesBCICodec.getSidecarPath(featureInput.getRawInputString()));
+            if (!Files.exists(sidecarPath)) {
+                return false;
+            }
+            if (Files.getLastModifiedTime(sidecarPath).compareTo(Files.getLastModifiedTime(featureInput.toPath())) < 0) {
+                logger.warn("Ignoring sites sidecar " + sidecarPath.toUri() + ", which is older than " + featureInput + ". Re-run IndexFeatureFile to update it.");
+                return false;
+            }
+            return true;
+        } catch (final IOException | RuntimeException e) {
+            // a sidecar we can't inspect is one we won't use; the VCF itself is still readable
+            return false;
+        }
+    }
+
+    /**
+     * Replace the reader over a VCF with one over its binary sites sidecar, reporting a sites-only version of the
+     * header of the VCF
+     */
+    private static FeatureReader<VariantContext> getSidecarReader(final FeatureInput<?> featureInput, final AbstractFeatureReader<?, ?> vcfReader,
+                                                                  final boolean setNameOnCodec) {
+        final Object header = vcfReader.getHeader();
+        try {
+            vcfReader.close();
+        } catch (final IOException e) {
+            throw new GATKException("Error closing feature reader for path " + featureInput.getFeaturePath(), e);
+        }
+        final String sidecarPath = VariantSitesBCICodec.getSidecarPath(featureInput.getRawInputString());
+        logger.info("Reading " + featureInput.getName() + " from its sites sidecar " + sidecarPath);
+
+        final VariantSitesBCICodec sidecarCodec = new VariantSitesBCICodec();
+        if (setNameOnCodec) {
+            sidecarCodec.setName(featureInput.getName());
+        }
+        return new VariantSitesSidecarReader(new Reader<>(new FeatureInput<>(sidecarPath), sidecarCodec), (VCFHeader)header);
+    }
+
     /**
      * Get a new FeatureCodec instance to use for a FeatureInput. Avoid re-discovering which codec class to
      * use by checking to see if the FeatureInput already has a cached codec class. It not, discover the codec class
@@ -580,6 +683,10 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
                     "If it's a file, please index it using the bundled tool " + IndexFeatureFile.class.getSimpleName());
         }
 
+        if (sharedCache != null) {
+            return sharedCache.query(featureInput, interval, this::queryFromReader);
+        }
+
         // If the query can be satisfied using existing cache contents, prepare for retrieval
         // by discarding all Features at the beginning of the cache that end before the start
         // of our query interval.
@@ -626,6 +733,37 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         }
     }
 
+    /**
+     * Read all Features overlapping the given interval directly from our reader, bypassing {@link #queryCache}.
+     * <p>
+     * Calling this has the side effect of invalidating (closing) any currently-open iteration over
+     * this data source.
+     *
+     * @param interval the query interval
+     * @return all Features overlapping interval, in file order
+     */
+    private List<T> queryFromReader(final SimpleInterval interval) {
+        closeOpenIterationIfNecessary();
+
+        try (final CloseableTribbleIterator<T> queryIter = featureReader.query(interval.getContig(), interval.getStart(), interval.getEnd())) {
+            final List<T> features = new ArrayList<>();
+            queryIter.forEachRemaining(features::add);
+            return features;
+        } catch (final IOException e) {
+            throw new GATKException("Error querying file " + featureInput + " over interval " + interval, e);
+        }
+    }
+
+    /**
+     * Answer queries from the given cache, which may be shared with the data sources of other threads, instead of
+     * from the private cache of this data source.
+     *
+     * @param sharedCache cache to use for queries, or null to go back to the private cache of this data source
+     */
+    void setSharedCache(final SharedFeatureCache sharedCache) {
+        this.sharedCache = sharedCache;
+    }
+
     /**
      * Get the logical name of this data source.
      *
@@ -202,15 +202,27 @@ public final class FeatureManager implements AutoCloseable {
         for ( final Pair<ArgumentDefinition, FeatureInput> featureArgument : featureArgumentValues ) {
             final FeatureInput<? extends Feature> featureInput = featureArgument.getValue();
 
-            // Only create a data source for Feature arguments that were actually specified
+            // Only create a data source for Feature arguments that were actually specified. These are the only
+            // inputs that may be read from a sites sidecar, if they opt in to it: driving variants are added
+            // separately by the walkers, without one.
             if ( featureInput != null ) {
                 final Class<? extends Feature> featureType = getFeatureTypeForFeatureInputArgument(featureArgument.getKey());
-                addToFeatureSources(featureQueryLookahead, featureInput, featureType, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
-                        gdbOptions);
+                featureSources.put(featureInput, new FeatureDataSource<>(featureInput, featureQueryLookahead, featureType, cloudPrefetchBuffer,
+                        cloudIndexPrefetchBuffer, gdbOptions, false, true));
             }
         }
     }
 
+    /**
+     * Answer the queries of all of our data sources from the given cache, which may be shared with the
+     * FeatureManagers of other threads over the same FeatureInputs.
+     *
+     * @param sharedCache cache to use for queries, or null to use the private cache of each data source
+     */
+    void setSharedFeatureCache(final SharedFeatureCache sharedCache) {
+        featureSources.values().forEach(ds -> ds.setSharedCache(sharedCache));
+    }
+
     @SuppressWarnings({"unchecked", "rawtypes"})
     public void dumpAllFeatureCacheStats() {
         for ( final FeatureDataSource f : featureSources.values() ) {
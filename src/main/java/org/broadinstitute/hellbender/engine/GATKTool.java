@@ -123,6 +123,37 @@ public abstract class GATKTool extends CommandLineProgram {
             optional = true)
     public boolean disableBamIndexCaching = false;
 
+    @Argument(fullName = StandardArgumentDefinitions.READ_AHEAD_BATCH_SIZE_LONG_NAME,
+            doc = "If greater than 0, inflate and decode the input reads on background threads (one per reads input), " +
+                    "handing them to the tool in batches of this many reads (0 to decode reads on the traversal thread).",
+            optional = true, minValue = 0)
+    public int readAheadBatchSize = 0;
+
+    @Argument(fullName = StandardArgumentDefinitions.OUTPUT_BAM_COMPRESSION_THREADS_LONG_NAME,
+            doc = "If greater than 0, compress BAM output on this many threads. The output is identical to that of " +
+                    "single-threaded compression. Only applies to BAM outputs whose reads are written in the header's sort order.",
+            optional = true, minValue = 0)
+    public int outputBamCompressionThreads = 0;
+
+    @Argument(fullName = StandardArgumentDefinitions.OUTPUT_VCF_ENCODING_THREADS_LONG_NAME,
+            doc = "If greater than 0, format and compress block-compressed VCF output on this many threads. " +
+                    "The text of the output is identical to that of single-threaded writing.",
+            optional = true, minValue = 0)
+    public int outputVcfEncodingThreads = 0;
+
+    @Argument(fullName = StandardArgumentDefinitions.MEMORY_MAP_REFERENCE_LONG_NAME,
+            doc = "If true, memory-map the reference instead of reading it through a cache window. Speeds up tools that " +
+                    "query the reference at scattered locations. Only applies to uncompressed local fasta files.",
+            optional = true)
+    public boolean memoryMapReference = false;
+
+    @Argument(fullName = StandardArgumentDefinitions.SHARED_FEATURE_CACHE_BLOCKS_LONG_NAME,
+            doc = "If greater than 0, answer queries over Feature inputs from a cache of this many blocks of " +
+                    SharedFeatureCache.DEFAULT_BLOCK_SIZE + " bases, shared by all traversal threads, instead of from " +
+                    "a private lookahead cache per input and thread.",
+            optional = true, minValue = 0)
+    public int sharedFeatureCacheBlocks = 0;
+
     @Argument(fullName = StandardArgumentDefinitions.SITES_ONLY_LONG_NAME,
             doc = "If true, don't emit genotype fields when writing vcf file output.", optional = true)
     public boolean outputSitesOnlyVCFs = false;
@@ -165,6 +196,12 @@ public abstract class GATKTool extends CommandLineProgram {
      */
     List<SimpleInterval> userIntervals;
 
+    /**
+     * Cache of Features shared by the FeatureManagers of all traversal threads (null unless
+     * --shared-feature-cache-blocks was set)
+     */
+    SharedFeatureCache sharedFeatureCache;
+
     /**
      * Get the {@link ReferenceDataSource} for this {@link GATKTool}.
      * Will throw a {@link GATKException} if the reference is null.
@@ -436,7 +473,23 @@ public abstract class GATKTool extends CommandLineProgram {
      * May be overridden by traversals that require custom initialization of the reference data source.
      */
     void initializeReference() {
-        reference = referenceArguments.getReferencePath() != null ? ReferenceDataSource.of(referenceArguments.getReferencePath()) : null;
+        reference = makeReferenceDataSource();
+    }
+
+    /**
+     * Create a new, independent source of reference data from the reference argument (or null if no reference
+     * argument was provided).
+     *
+     * Package-private so that engine classes can access it, but concrete tool child classes cannot. Traversals that
+     * process data on multiple threads use this to give each thread its own reference reader.
+     */
+    ReferenceDataSource makeReferenceDataSource() {
+        if (referenceArguments.getReferencePath() == null) {
+            return null;
+        }
+        return memoryMapReference ?
+                ReferenceDataSource.ofMemoryMapped(referenceArguments.getReferencePath()) :
+                ReferenceDataSource.of(referenceArguments.getReferencePath());
     }
 
     /**
@@ -446,14 +499,31 @@ public abstract class GATKTool extends CommandLineProgram {
      * May be overridden by traversals that require custom initialization of the reads data source.
      */
     void initializeReads() {
+        reads = makeReadsDataSource();
+    }
+
+    /**
+     * Create a new, independent source of reads data from the reads argument(s) (or null if no reads argument(s)
+     * were provided).
+     *
+     * Package-private so that engine classes can access it, but concrete tool child classes cannot. Traversals that
+     * process data on multiple threads use this to give each thread its own set of readers.
+     */
+    ReadsDataSource makeReadsDataSource() {
         if (! readArguments.getReadPathSpecifiers().isEmpty()) {
-            final SamReaderFactory factory = makeSamReaderFactory();
+            SamReaderFactory factory = makeSamReaderFactory();
+            if (readAheadBatchSize > 0) {
+                // decode records as they are read, so that it happens on the read-ahead threads
+                factory = factory.setUseAsyncIo(true).enable(SamReaderFactory.Option.EAGERLY_DECODE);
+            }
 
-            reads = new ReadsPathDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
+            final ReadsPathDataSource readsSource = new ReadsPathDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
                 (cloudIndexPrefetchBuffer < 0 ? cloudPrefetchBuffer : cloudIndexPrefetchBuffer));
+            readsSource.setReadAheadBatchSize(readAheadBatchSize);
+            return readsSource;
         }
         else {
-            reads = null;
+            return null;
         }
     }
 
@@ -493,10 +563,34 @@ public abstract class GATKTool extends CommandLineProgram {
      * By default, this method initializes the FeatureManager to use the lookahead cache of {@link FeatureDataSource#DEFAULT_QUERY_LOOKAHEAD_BASES} bases.
      */
     void initializeFeatures() {
-        features = new FeatureManager(this, FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES, cloudPrefetchBuffer,
+        features = makeFeatureManager();
+    }
+
+    /**
+     * Create a new, independent FeatureManager over the Feature arguments of this tool (or null if no Feature
+     * argument(s) were provided).
+     *
+     * Package-private so that engine classes can access it, but concrete tool child classes cannot. Traversals that
+     * process data on multiple threads use this to give each thread its own Feature readers and caches.
+     */
+    FeatureManager makeFeatureManager() {
+        final FeatureManager featureManager = new FeatureManager(this, FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES, cloudPrefetchBuffer,
                 cloudIndexPrefetchBuffer, getGenomicsDBOptions());
-        if ( features.isEmpty() ) {  // No available sources of Features discovered for this tool
-            features = null;
+        if ( featureManager.isEmpty() ) {  // No available sources of Features discovered for this tool
+            return null;
+        }
+        useSharedFeatureCache(featureManager);
+        return featureManager;
+    }
+
+    /**
+     * Make the given FeatureManager answer its queries from the {@link SharedFeatureCache} of this tool, if one was
+     * requested via --shared-feature-cache-blocks, so that all FeatureManagers created by {@link #makeFeatureManager}
+     * share the Features they have decoded.
+     */
+    final void useSharedFeatureCache(final FeatureManager featureManager) {
+        if ( sharedFeatureCache != null ) {
+            featureManager.setSharedFeatureCache(sharedFeatureCache);
         }
     }
 
@@ -723,6 +817,11 @@ public abstract class GATKTool extends CommandLineProgram {
 
         initializeReads(); // Must be initialized after reference, in case we are dealing with CRAM and a reference is required
 
+        // Created before any FeatureManager, since traversal threads create theirs concurrently
+        if ( sharedFeatureCacheBlocks > 0 ) {
+            sharedFeatureCache = new SharedFeatureCache(sharedFeatureCacheBlocks);
+        }
+
         initializeFeatures();
 
         initializeIntervals(); // Must be initialized after reference, reads and features, since intervals currently require a sequence dictionary from another data source
@@ -850,7 +949,8 @@ public abstract class GATKTool extends CommandLineProgram {
                 getHeaderForSAMWriter(),
                 preSorted,
                 createOutputBamIndex,
-                createOutputBamMD5
+                createOutputBamMD5,
+                outputBamCompressionThreads
             )
         );
     }
@@ -918,12 +1018,14 @@ public abstract class GATKTool extends CommandLineProgram {
                     maxVariantsPerShard,
                     sequenceDictionary,
                     createOutputVariantMD5,
+                    outputVcfEncodingThreads,
                     options.toArray(new Options[options.size()]));
         }
         return GATKVariantContextUtils.createVCFWriter(
                 outPath,
                 sequenceDictionary,
                 createOutputVariantMD5,
+                outputVcfEncodingThreads,
                 options.toArray(new Options[options.size()]));
     }
 
@@ -1058,6 +1160,10 @@ public abstract class GATKTool extends CommandLineProgram {
         if ( hasFeatures() ) {
             features.close();
         }
+
+        if ( sharedFeatureCache != null ) {
+            logger.info(sharedFeatureCache.getStatistics());
+        }
     }
 
     /**
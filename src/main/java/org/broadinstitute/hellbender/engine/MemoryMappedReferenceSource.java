@@ -0,0 +1,218 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.reference.FastaSequenceIndex;
+import htsjdk.samtools.reference.FastaSequenceIndexEntry;
+import htsjdk.samtools.reference.ReferenceSequence;
+import htsjdk.samtools.reference.ReferenceSequenceFileFactory;
+import htsjdk.samtools.util.IOUtil;
+import htsjdk.samtools.util.StringUtil;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.BaseUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.fasta.CachingIndexedFastaSequenceFile;
+import org.broadinstitute.hellbender.utils.reference.ReferenceUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A source of reference data that memory-maps an uncompressed fasta file.
+ *
+ * Queries compute the file offsets of the requested bases from the .fai index and copy them straight out of the
+ * mapped file, line segment by line segment, without reading or parsing the surrounding lines. There is no cache
+ * window to miss: pages of the fasta are cached by the operating system, and are shared by every source that maps
+ * the same file. Tools that jump around the genome therefore pay for a page fault at most, rather than for a seek
+ * and the parsing of a new cache window.
+ *
+ * Queries never modify the state of this source, so a single instance may be queried from any number of threads.
+ *
+ * Bases are upper-cased and IUPAC codes are converted to N, as {@link CachingIndexedFastaSequenceFile} does, unless
+ * {@code preserveAmbiguityCodesAndCapitalization} is set.
+ */
+public final class MemoryMappedReferenceSource implements ReferenceDataSource {
+
+    /**
+     * The fasta is mapped in chunks of this many bytes, since a single mapping cannot exceed 2GB
+     */
+    private static final long MAPPED_CHUNK_SIZE = 1L << 30;
+
+    private final Path fastaPath;
+    private final SAMSequenceDictionary sequenceDictionary;
+    private final boolean preserveAmbiguityCodesAndCapitalization;
+    private final Map<String, FastaSequenceIndexEntry> indexEntries = new HashMap<>();
+    private final MappedByteBuffer[] chunks;
+
+    /**
+     * @return true if the fasta at the given path can be memory-mapped by this class: it must be an uncompressed
+     *         file on the local file system
+     */
+    public static boolean canMemoryMap(final Path fastaPath) {
+        Utils.nonNull(fastaPath);
+        if (fastaPath.getFileSystem() != FileSystems.getDefault() || !Files.isRegularFile(fastaPath)) {
+            return false;
+        }
+        try {
+            return !IOUtil.isBlockCompressed(fastaPath, true);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(fastaPath, e);
+        }
+    }
+
+    /**
+     * Initialize this data source using a fasta file.
+     *
+     * The provided fasta file must be uncompressed, and must have companion .fai and .dict files.
+     *
+     * @param fastaPath reference fasta file
+     */
+    public MemoryMappedReferenceSource(final Path fastaPath) {
+        this(fastaPath, false);
+    }
+
+    /**
+     * Initialize this data source using a fasta file.
+     *
+     * The provided fasta file must be uncompressed, and must have companion .fai and .dict files.
+     *
+     * If {@code preserveAmbiguityCodesAndCapitalization} is {@code true}, will NOT convert IUPAC bases in the file to `N` and will NOT capitalize lower-case bases.
+     * NOTE: Most GATK tools do not support data created by setting {@code preserveAmbiguityCodesAndCapitalization} to {@code true}.
+     *
+     * @param fastaPath reference fasta file
+     * @param preserveAmbiguityCodesAndCapitalization Whether to preserve the original bases in the given reference file path.
+     */
+    public MemoryMappedReferenceSource(final Path fastaPath, final boolean preserveAmbiguityCodesAndCapitalization) {
+        // Will throw a UserException if the .fai and/or .dict are missing
+        CachingIndexedFastaSequenceFile.checkFastaPath(Utils.nonNull(fastaPath));
+        Utils.validateArg(canMemoryMap(fastaPath), () -> "Cannot memory-map " + fastaPath.toUri() + ": only uncompressed local fasta files are supported");
+        this.fastaPath = fastaPath;
+        this.preserveAmbiguityCodesAndCapitalization = preserveAmbiguityCodesAndCapitalization;
+
+        final Path dictPath = ReferenceSequenceFileFactory.getDefaultDictionaryForReferenceSequence(fastaPath);
+        try (final InputStream dictStream = Files.newInputStream(dictPath)) {
+            sequenceDictionary = ReferenceUtils.loadFastaDictionary(dictStream);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(dictPath, e);
+        }
+
+        final FastaSequenceIndex index = new FastaSequenceIndex(ReferenceSequenceFileFactory.getFastaIndexFileName(fastaPath));
+        for (final FastaSequenceIndexEntry entry : index) {
+            indexEntries.put(entry.getContig(), entry);
+        }
+        for (final SAMSequenceRecord sequence : sequenceDictionary.getSequences()) {
+            final FastaSequenceIndexEntry entry = indexEntries.get(sequence.getSequenceName());
+            if (entry == null || entry.getSize() != sequence.getSequenceLength()) {
+                throw new UserException.MalformedFile(fastaPath, "The .fai index and the sequence dictionary of the reference disagree about contig " + sequence.getSequenceName());
+            }
+        }
+
+        try (final FileChannel channel = FileChannel.open(fastaPath, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            chunks = new MappedByteBuffer[(int) ((fileSize + MAPPED_CHUNK_SIZE - 1) / MAPPED_CHUNK_SIZE)];
+            for (int i = 0; i < chunks.length; i++) {
+                final long chunkStart = i * MAPPED_CHUNK_SIZE;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, Math.min(MAPPED_CHUNK_SIZE, fileSize - chunkStart));
+            }
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(fastaPath, "Could not memory-map the reference", e);
+        }
+    }
+
+    /**
+     * Start an iteration over the entire reference. Not yet supported!
+     *
+     * @return iterator over all bases in this reference
+     */
+    @Override
+    public Iterator<Byte> iterator() {
+        throw new UnsupportedOperationException("Iteration over entire reference not yet implemented");
+    }
+
+    /**
+     * Query a specific interval on this reference, and get back all bases spanning that interval at once.
+     * Call getBases() on the returned ReferenceSequence to get the actual reference bases. See the BaseUtils
+     * class for guidance on how to work with bases in this format.
+     *
+     * @param contig query interval contig
+     * @param start query interval start
+     * @param stop query interval stop
+     * @return a ReferenceSequence containing all bases spanning the query interval, prefetched
+     */
+    @Override
+    public ReferenceSequence queryAndPrefetch(final String contig, final long start, final long stop) {
+        final SAMSequenceRecord contigInfo = sequenceDictionary.getSequence(contig);
+        if (contigInfo == null) {
+            throw new UserException.MissingContigInSequenceDictionary(contig, sequenceDictionary);
+        }
+        if (start < 1 || start > stop + 1) {
+            throw new SAMException(String.format("Malformed query; start point %d lies after end point %d", start, stop));
+        }
+        if (stop > contigInfo.getSequenceLength()) {
+            throw new SAMException("Query asks for data past end of contig. Query contig " + contig + " start:" + start + " stop:" + stop + " contigLength:" + contigInfo.getSequenceLength());
+        }
+
+        final FastaSequenceIndexEntry entry = indexEntries.get(contig);
+        final int basesPerLine = entry.getBasesPerLine();
+        final int bytesPerLine = entry.getBytesPerLine();
+        final byte[] bases = new byte[(int) (stop - start + 1)];
+
+        // copy the requested bases one line segment at a time, skipping the line terminators between them
+        long position = start - 1;
+        int copied = 0;
+        while (copied < bases.length) {
+            final int positionInLine = (int) (position % basesPerLine);
+            final int length = Math.min(basesPerLine - positionInLine, bases.length - copied);
+            copyFromFasta(entry.getLocation() + (position / basesPerLine) * bytesPerLine + positionInLine, bases, copied, length);
+            copied += length;
+            position += length;
+        }
+
+        if (!preserveAmbiguityCodesAndCapitalization) {
+            StringUtil.toUpperCase(bases);
+            BaseUtils.convertIUPACtoN(bases, true, false);
+        }
+        return new ReferenceSequence(contig, contigInfo.getSequenceIndex(), bases);
+    }
+
+    /**
+     * Copy length bytes of the fasta starting at fileOffset, which may span two mapped chunks, into destination
+     */
+    private void copyFromFasta(long fileOffset, final byte[] destination, int destinationOffset, int length) {
+        while (length > 0) {
+            final MappedByteBuffer chunk = chunks[(int) (fileOffset / MAPPED_CHUNK_SIZE)];
+            final int offsetInChunk = (int) (fileOffset % MAPPED_CHUNK_SIZE);
+            final int lengthInChunk = Math.min(length, chunk.limit() - offsetInChunk);
+            // absolute bulk get, which leaves the position of the shared buffer alone
+            chunk.get(offsetInChunk, destination, destinationOffset, lengthInChunk);
+            fileOffset += lengthInChunk;
+            destinationOffset += lengthInChunk;
+            length -= lengthInChunk;
+        }
+    }
+
+    /**
+     * Get the sequence dictionary for this reference
+     *
+     * @return SAMSequenceDictionary for this reference
+     */
+    @Override
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return sequenceDictionary;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryMappedReferenceSource(" + fastaPath.toUri() + ")";
+    }
+}
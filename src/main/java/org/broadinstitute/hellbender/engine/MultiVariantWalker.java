@@ -96,12 +96,24 @@ public abstract class MultiVariantWalker extends VariantWalkerBase {
 
         // Create a (MultiVariantDataSource) FeatureDataSource for the driving variants inputs using the
         // cache lookahead value from getDrivingVariantCacheLookAheadBases()
-        drivingVariants = new MultiVariantDataSource(drivingVariantsFeatureInputs, getDrivingVariantCacheLookAheadBases(), cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
-                                                     referenceArguments.getReferencePath(), skipDictionaryValidation);
+        drivingVariants = makeDrivingVariantsDataSource(skipDictionaryValidation);
 
         // Note: the intervals for the driving variants are set in onStartup()
     }
 
+    /**
+     * Create a new, independent source of the driving variants, with its own readers for each input.
+     *
+     * Package-private so that engine classes can access it, but concrete tool child classes cannot. Traversals that
+     * process data on multiple threads use this to give each thread its own set of readers.
+     *
+     * @param skipDictionaryValidation whether to skip the cross-validation of the sequence dictionaries of the inputs
+     */
+    MultiVariantDataSource makeDrivingVariantsDataSource(final boolean skipDictionaryValidation) {
+        return new MultiVariantDataSource(drivingVariantsFeatureInputs, getDrivingVariantCacheLookAheadBases(), cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
+                                          referenceArguments.getReferencePath(), skipDictionaryValidation);
+    }
+
     /**
      * Returns a list of feature inputs used for the driving variants for this source.
      */
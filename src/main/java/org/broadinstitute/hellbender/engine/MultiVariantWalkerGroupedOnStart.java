@@ -5,12 +5,16 @@ import htsjdk.samtools.util.OverlapDetector;
 import htsjdk.variant.variantcontext.VariantContext;
 import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.hellbender.engine.filters.CountingVariantFilter;
 import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.transformers.VariantTransformer;
+import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -25,11 +29,15 @@ import java.util.stream.Collectors;
  * only presenting variants that start inside the requested interval regardless of whether there is a spanning variant.
  *
  * Client tools must implement apply(List<VariantContext> variantContexts, ReferenceContext referenceContext)
+ *
+ * Tools that implement {@link #makeVariantGroupWorker} may also be run with {@code --traversal-threads} greater than 1.
+ * In that mode the traversal is split into partitions of whole contigs, which are processed concurrently, each
+ * traversal thread using its own {@link VariantGroupWorker} and its own readers of the driving variants and the
+ * reference. The output of each partition is emitted on the main thread in traversal order. The driving variants must
+ * be indexed, and the workers don't get reads contexts.
  */
 public abstract class MultiVariantWalkerGroupedOnStart extends MultiVariantWalker {
     private List<VariantContext> currentVariants = new ArrayList<>();
-    private int firstCurrentVariantStart;
-    private int lastCurrentVariantStart;
     private List<ReadsContext> currentReadsContexts = new ArrayList<>();
     private OverlapDetector<SimpleInterval> overlapDetector;
 
@@ -41,6 +49,11 @@ public abstract class MultiVariantWalkerGroupedOnStart extends MultiVariantWalke
 
     public static final String REFERENCE_WINDOW_PADDING = "ref-padding";
 
+    /**
+     * Maximum number of processed groups of variants that may be buffered for each partition while waiting to be emitted in order
+     */
+    private static final int MAX_BUFFERED_GROUPS_PER_PARTITION = 1000;
+
     /**
      * this option has no effect unless intervals are specified.
      * <p>
@@ -99,21 +112,28 @@ public abstract class MultiVariantWalkerGroupedOnStart extends MultiVariantWalke
         }
 
         // Collecting all the reads that start at a particular base into one.
-        if (currentVariants.isEmpty()) {
-            firstCurrentVariantStart = variant.getStart();
-        } else if (!currentVariants.get(0).contigsMatch(variant)
-                || lastCurrentVariantStart < variant.getStart() - distanceToCombineVariants
-                || firstCurrentVariantStart < variant.getStart() - maxCombinedDistance) {
+        if (!currentVariants.isEmpty() && !belongsToGroup(currentVariants, variant)) {
             // Emptying any sites which should emit a new VC since the last one
             apply(new ArrayList<>(currentVariants), currentReadsContexts);
             currentVariants.clear();
             currentReadsContexts.clear();
-            firstCurrentVariantStart = variant.getStart();
         }
 
         currentVariants.add(variant);
         currentReadsContexts.add(readsContext);
-        lastCurrentVariantStart = variant.getStart();
+    }
+
+    /**
+     * @param group non-empty group of variants, in traversal order
+     * @param variant the next variant in traversal order
+     * @return whether the variant should be added to the group rather than start a new one
+     */
+    private boolean belongsToGroup(final List<VariantContext> group, final VariantContext variant) {
+        final int firstGroupVariantStart = group.get(0).getStart();
+        final int lastGroupVariantStart = group.get(group.size() - 1).getStart();
+        return group.get(0).contigsMatch(variant)
+                && lastGroupVariantStart >= variant.getStart() - distanceToCombineVariants
+                && firstGroupVariantStart >= variant.getStart() - maxCombinedDistance;
     }
 
     /**
@@ -130,14 +150,27 @@ public abstract class MultiVariantWalkerGroupedOnStart extends MultiVariantWalke
     public abstract void apply(final List<VariantContext> variantContexts, final ReferenceContext referenceContext, final List<ReadsContext> readsContexts);
 
     public void apply(List<VariantContext> variantContexts, final List<ReadsContext> readsContexts) {
-        apply(variantContexts, makeSpanningReferenceContext(variantContexts, referenceWindowPadding), readsContexts);
+        apply(variantContexts, makeSpanningReferenceContext(reference, variantContexts, referenceWindowPadding), readsContexts);
+    }
+
+    /**
+     * Create a new worker for multi-threaded traversal. Called once per traversal thread (on the main thread) when
+     * running with {@code --traversal-threads} greater than 1. Each worker must be independent of the others and of
+     * the state used by {@link #apply}.
+     *
+     * The default implementation returns null, indicating that the tool does not support multi-threaded traversal.
+     *
+     * @return a new {@link VariantGroupWorker}, or null if multi-threaded traversal is not supported
+     */
+    protected VariantGroupWorker makeVariantGroupWorker() {
+        return null;
     }
 
     /**
      * Helper method that ensures the reference context it returns is adequate to span the length of all the accumulated
      * VariantContexts. It assumes that all variant contexts in currentVariants have the same contig.
      */
-    private ReferenceContext makeSpanningReferenceContext(final List<VariantContext> variantContexts, final int referenceWindowPadding) {
+    private static ReferenceContext makeSpanningReferenceContext(final ReferenceDataSource reference, final List<VariantContext> variantContexts, final int referenceWindowPadding) {
         Utils.nonEmpty(variantContexts, "Must have at least one current variant context");
         final List<String> contigs = variantContexts.stream().map(VariantContext::getContig).distinct().collect(Collectors.toList());
         Utils.validate(contigs.size() == 1, "variant contexts should all have the same contig");
@@ -162,10 +195,114 @@ public abstract class MultiVariantWalkerGroupedOnStart extends MultiVariantWalke
     @Override
     public void traverse() {
         beforeTraverse();
+        if (traversalThreads > 1) {
+            traverseInParallel();
+            return;
+        }
         super.traverse();
         afterTraverse();
     }
 
+    @Override
+    final boolean supportsTraversalThreads() {
+        return true;
+    }
+
+    /**
+     * Multi-threaded implementation of multi-variant grouped on start traversal.
+     *
+     * Each traversal thread owns a {@link VariantGroupWorker} obtained from {@link #makeVariantGroupWorker} along with
+     * its own variant filter and transformers and its own readers of the driving variants and the reference (see
+     * {@link VariantGroupShardProcessor}). The shards are partitions of whole contigs, so the speedup is limited by the
+     * largest contig of the traversal.
+     */
+    private void traverseInParallel() {
+        final List<SimpleInterval> intervals = hasUserSuppliedIntervals() ? userIntervals : IntervalUtils.getAllIntervalsForReference(getBestAvailableSequenceDictionary());
+        final List<List<SimpleInterval>> partitions = IntervalUtils.groupIntervalsByContig(intervals);
+
+        final List<VariantGroupShardProcessor> processors = traverseShardsInParallel("variantGroupTraversal-thread-%d", partitions,
+                () -> {
+                    final VariantGroupWorker worker = makeVariantGroupWorker();
+                    return worker == null ? null : new VariantGroupShardProcessor(worker, partitions.size());
+                },
+                MAX_BUFFERED_GROUPS_PER_PARTITION);
+
+        long groupCount = 0;
+        long filteredVariantCount = 0;
+        for (final VariantGroupShardProcessor processor : processors) {
+            groupCount += processor.groupCount;
+            filteredVariantCount += processor.filter.getFilteredCount();
+        }
+        logger.info(filteredVariantCount + " variant(s) filtered in total across " + traversalThreads + " traversal threads");
+        if (groupCount == 0) {
+            logger.warn("Error: The requested interval contained no data in source VCF files");
+        }
+    }
+
+    /**
+     * The {@link VariantGroupWorker} of one traversal thread, with its own filter, transformers and data sources.
+     * The output of each group is emitted together with its progress update, and we don't hold on to the variants.
+     */
+    private final class VariantGroupShardProcessor implements ShardProcessor<List<SimpleInterval>> {
+        private final VariantGroupWorker worker;
+        private final int numPartitions;
+        private final CountingVariantFilter filter = makeVariantFilter();
+        private final VariantTransformer preTransformer = makePreVariantFilterTransformer();
+        private final VariantTransformer postTransformer = makePostVariantFilterTransformer();
+        // the dictionaries of the inputs have already been validated by the main driving variants source
+        private final MultiVariantDataSource workerVariants = makeDrivingVariantsDataSource(true);
+        private final ReferenceDataSource workerReference = makeReferenceDataSource();
+        private long groupCount = 0;
+
+        VariantGroupShardProcessor(final VariantGroupWorker worker, final int numPartitions) {
+            this.worker = worker;
+            this.numPartitions = numPartitions;
+        }
+
+        @Override
+        public void processShard(final int partitionIndex, final List<SimpleInterval> partition, final ShardOutput output) throws InterruptedException {
+            workerVariants.setIntervalsForTraversal(partition);
+            worker.startPartition();
+
+            final Iterator<VariantContext> variants = getTransformedVariantStream(workerVariants.spliterator(), preTransformer, filter, postTransformer).iterator();
+            List<VariantContext> group = new ArrayList<>();
+            while (variants.hasNext()) {
+                final VariantContext variant = variants.next();
+                if (ignoreIntervalsOutsideStart && !isWithinInterval(new SimpleInterval(variant.getContig(), variant.getStart(), variant.getStart()))) {
+                    continue;
+                }
+                if (!group.isEmpty() && !belongsToGroup(group, variant)) {
+                    processGroup(group, output);
+                    group = new ArrayList<>();
+                }
+                group.add(variant);
+            }
+            if (!group.isEmpty()) {
+                processGroup(group, output);
+            }
+
+            output.emit(worker.finishPartition(partitionIndex == numPartitions - 1));
+        }
+
+        private void processGroup(final List<VariantContext> group, final ShardOutput output) throws InterruptedException {
+            final VariantContext first = group.get(0);
+            final SimpleInterval groupStart = new SimpleInterval(first.getContig(), first.getStart(), first.getStart());
+            final Runnable groupOutput = worker.processGroup(group, makeSpanningReferenceContext(workerReference, group, referenceWindowPadding));
+            groupCount++;
+            output.emit(() -> {
+                groupOutput.run();
+                progressMeter.update(groupStart);
+            });
+        }
+
+        @Override
+        public void close() {
+            worker.close();
+            workerVariants.close();
+            workerReference.close();
+        }
+    }
+
     /**
      * Marked final so that tool authors don't override it. Tool authors should override {@link #onTraversalStart} instead.
      */
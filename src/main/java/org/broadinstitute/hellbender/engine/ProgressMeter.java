@@ -7,6 +7,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.utils.Utils;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.function.LongSupplier;
 
 /**
@@ -131,6 +133,11 @@ public final class ProgressMeter {
      */
     private String recordLabel = DEFAULT_RECORD_LABEL;
 
+    /**
+     * Additional tool-specific counters to output with each progress line, by label, in the order they were added.
+     */
+    private final Map<String, LongSupplier> statistics = new LinkedHashMap<>();
+
     /**
      * Create a progress meter with the default update interval of {@link #DEFAULT_SECONDS_BETWEEN_UPDATES} seconds
      * and the default time function {@link #DEFAULT_TIME_FUNCTION}.
@@ -215,6 +222,21 @@ public final class ProgressMeter {
         this.recordLabel = label;
     }
 
+    /**
+     * Add a tool-specific counter to be output in its own column of every progress line and in the summary at the end
+     * of the traversal. The counter may be updated from any thread, so the supplier must be thread-safe.
+     *
+     * @param label Label for the counter in logger messages. Not null.
+     * @param value Function returning the current value of the counter. Not null.
+     * @throws IllegalStateException if the meter has been started already
+     */
+    public void addStatistic( final String label, final LongSupplier value ) {
+        Utils.nonNull(label);
+        Utils.nonNull(value);
+        Utils.validate( !started, "statistics must be added before the progress meter is started");
+        statistics.put(label, value);
+    }
+
     /**
      * Start the progress meter and produce preliminary output such as column headings.
      * @throws IllegalStateException if the meter has been started before or has been stopped already
@@ -307,16 +329,19 @@ public final class ProgressMeter {
         // Output progress a final time at the end
         printProgress();
         logger.info(String.format("Traversal complete. Processed %d total %s in %.1f minutes.", numRecordsProcessed, recordLabel, elapsedTimeInMinutes()));
+        statistics.forEach((label, value) -> logger.info(String.format("%s: %d", label, value.getAsLong())));
     }
 
     /**
      * Print column headings labelling the output from {@link #printProgress}
      */
     private void printHeader() {
-        logger.info(String.format("%20s  %15s  %20s  %15s",
+        final StringBuilder header = new StringBuilder(String.format("%20s  %15s  %20s  %15s",
                                   "Current Locus", "Elapsed Minutes",
                                   StringUtils.capitalize(recordLabel) + " Processed",
                                   StringUtils.capitalize(recordLabel) + "/Minute"));
+        statistics.keySet().forEach(label -> header.append(String.format("  %15s", label)));
+        logger.info(header.toString());
     }
 
     /**
@@ -324,8 +349,10 @@ public final class ProgressMeter {
      */
     private void printProgress() {
         ++numLoggerUpdates;
-        logger.info(String.format("%20s  %15.1f  %20d  %15.1f",
+        final StringBuilder progress = new StringBuilder(String.format("%20s  %15.1f  %20d  %15.1f",
                                   currentLocusString(), elapsedTimeInMinutes(), numRecordsProcessed, processingRate()));
+        statistics.values().forEach(value -> progress.append(String.format("  %15d", value.getAsLong())));
+        logger.info(progress.toString());
     }
 
     /**
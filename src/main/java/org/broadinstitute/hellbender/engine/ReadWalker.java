@@ -1,12 +1,17 @@
 package org.broadinstitute.hellbender.engine;
 
 import htsjdk.samtools.SAMSequenceDictionary;
+import org.broadinstitute.barclay.argparser.Advanced;
+import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
+import org.broadinstitute.hellbender.transformers.ReadTransformer;
+import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -24,9 +29,35 @@ import java.util.List;
  *
  * ReadWalker authors must implement the apply() method to process each read, and may optionally implement
  * onTraversalStart() and/or onTraversalSuccess(). See the PrintReadsWithReference walker for an example.
+ *
+ * Tools that implement {@link #makeReadWorker} may also be run with {@code --traversal-threads} greater than 1. In that
+ * mode the traversal intervals (or the whole reference) are split into read shards of about
+ * {@code --traversal-shard-size} bases, which are processed concurrently, each traversal thread using its own
+ * {@link ReadWorker} and its own reads, reference and Feature data sources. Each read is processed exactly once, by the
+ * shard holding the first traversal interval it overlaps, as in a single-threaded traversal. Unmapped reads are not
+ * traversed in this mode.
  */
 public abstract class ReadWalker extends WalkerBase {
 
+    public static final String TRAVERSAL_SHARD_SIZE_LONG_NAME = "traversal-shard-size";
+
+    /**
+     * Number of reads each traversal thread processes between updates of the progress meter
+     */
+    private static final long READS_BETWEEN_PROGRESS_UPDATES = 10_000L;
+
+    /**
+     * Maximum number of progress updates that may be buffered for each read shard while waiting to be emitted in order
+     */
+    private static final int MAX_BUFFERED_PROGRESS_UPDATES_PER_SHARD = 100;
+
+    /**
+     * When traversing with more than one thread, the number of bases of traversal intervals in each read shard.
+     */
+    @Advanced
+    @Argument(fullName = TRAVERSAL_SHARD_SIZE_LONG_NAME, doc = "Number of interval bases per read shard when using more than one traversal thread", optional = true, minValue = 1)
+    public int traversalShardSize = 10_000_000;
+
     @Override
     public boolean requiresReads() {
         return true;
@@ -66,13 +97,15 @@ public abstract class ReadWalker extends WalkerBase {
     }
 
     @Override
-    void initializeFeatures() {
+    FeatureManager makeFeatureManager() {
         //We override this method to change lookahead of the cache
-        features = new FeatureManager(this, FEATURE_CACHE_LOOKAHEAD, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
+        final FeatureManager featureManager = new FeatureManager(this, FEATURE_CACHE_LOOKAHEAD, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
                                       getGenomicsDBOptions());
-        if ( features.isEmpty() ) {  // No available sources of Features discovered for this tool
-            features = null;
+        if ( featureManager.isEmpty() ) {  // No available sources of Features discovered for this tool
+            return null;
         }
+        useSharedFeatureCache(featureManager);
+        return featureManager;
     }
 
     /**
@@ -91,6 +124,11 @@ public abstract class ReadWalker extends WalkerBase {
      */
     @Override
     public void traverse() {
+        if ( traversalThreads > 1 ) {
+            traverseInParallel();
+            return;
+        }
+
         // Process each read in the input stream.
         // Supply reference bases spanning each read, if a reference is available.
         final CountingReadFilter countedFilter = makeReadFilter();
@@ -107,6 +145,144 @@ public abstract class ReadWalker extends WalkerBase {
         logger.info(countedFilter.getSummaryLine());
     }
 
+    @Override
+    final boolean supportsTraversalThreads() {
+        return true;
+    }
+
+    /**
+     * Multi-threaded implementation of read traversal.
+     *
+     * Each traversal thread owns a {@link ReadWorker} obtained from {@link #makeReadWorker}, along with its own read
+     * filter and transformers and its own reads, reference and Feature data sources (see {@link ReadShardProcessor}).
+     * Workers don't emit output, so the only output of each shard is its progress updates.
+     */
+    private void traverseInParallel() {
+        final List<List<SimpleInterval>> readShards = makeParallelReadShards();
+        final List<ReadShardProcessor> processors = traverseShardsInParallel("readTraversal-thread-%d", readShards,
+                () -> {
+                    final ReadWorker worker = makeReadWorker();
+                    return worker == null ? null : new ReadShardProcessor(worker, readShards);
+                },
+                MAX_BUFFERED_PROGRESS_UPDATES_PER_SHARD);
+
+        long filteredReadCount = 0;
+        for ( final ReadShardProcessor processor : processors ) {
+            filteredReadCount += processor.filter.getFilteredCount();
+        }
+        logger.info(filteredReadCount + " read(s) filtered in total across " + traversalThreads + " traversal threads");
+    }
+
+    /**
+     * Split our intervals (or the whole reference) into read shards of {@link #traversalShardSize} bases of intervals,
+     * in traversal order. Shards never span more than one contig, and intervals are split between shards as needed.
+     *
+     * @return the intervals of each read shard, in order
+     */
+    private List<List<SimpleInterval>> makeParallelReadShards() {
+        final SAMSequenceDictionary dictionary = getHeaderForReads().getSequenceDictionary();
+        final List<SimpleInterval> intervals = hasUserSuppliedIntervals() ? userIntervals : IntervalUtils.getAllIntervalsForReference(dictionary);
+        final List<List<SimpleInterval>> shards = new ArrayList<>();
+
+        for ( final List<SimpleInterval> intervalsOnContig : IntervalUtils.groupIntervalsByContig(intervals) ) {
+            // merge overlapping and abutting intervals, so that the intervals of different shards never overlap
+            final List<SimpleInterval> contiguousIntervals = IntervalUtils.getIntervalsWithFlanks(intervalsOnContig, 0, dictionary);
+            List<SimpleInterval> currentShard = new ArrayList<>();
+            long currentShardSize = 0;
+            for ( final SimpleInterval interval : contiguousIntervals ) {
+                int start = interval.getStart();
+                while ( start <= interval.getEnd() ) {
+                    final int end = (int) Math.min(interval.getEnd(), start + (traversalShardSize - currentShardSize) - 1);
+                    currentShard.add(new SimpleInterval(interval.getContig(), start, end));
+                    currentShardSize += end - start + 1;
+                    if ( currentShardSize >= traversalShardSize ) {
+                        shards.add(currentShard);
+                        currentShard = new ArrayList<>();
+                        currentShardSize = 0;
+                    }
+                    start = end + 1;
+                }
+            }
+            if ( ! currentShard.isEmpty() ) {
+                shards.add(currentShard);
+            }
+        }
+
+        return shards;
+    }
+
+    /**
+     * The {@link ReadWorker} of one traversal thread, with its own filter, transformers and data sources.
+     *
+     * A read overlapping the intervals of several shards is returned by the query of each of them, so it is only
+     * processed by the first one: the shards are consecutive in traversal order, so a read that also overlaps an earlier
+     * shard necessarily overlaps the last interval of the previous shard.
+     */
+    private final class ReadShardProcessor implements ShardProcessor<List<SimpleInterval>> {
+        private final ReadWorker worker;
+        private final List<List<SimpleInterval>> readShards;
+        private final CountingReadFilter filter = makeReadFilter();
+        private final ReadTransformer preTransformer = makePreReadFilterTransformer();
+        private final ReadTransformer postTransformer = makePostReadFilterTransformer();
+        private final ReadsDataSource workerReads = makeReadsDataSource();
+        private final ReferenceDataSource workerReference = makeReferenceDataSource();
+        private final FeatureManager workerFeatures = makeFeatureManager();
+
+        ReadShardProcessor(final ReadWorker worker, final List<List<SimpleInterval>> readShards) {
+            this.worker = worker;
+            this.readShards = readShards;
+        }
+
+        @Override
+        public void processShard(final int shardIndex, final List<SimpleInterval> shardIntervals, final ShardOutput output) throws InterruptedException {
+            final List<SimpleInterval> previousShard = shardIndex > 0 ? readShards.get(shardIndex - 1) : null;
+            final SimpleInterval previousShardEnd = previousShard != null ? previousShard.get(previousShard.size() - 1) : null;
+
+            long readsSinceProgressUpdate = 0;
+            SimpleInterval lastReadInterval = null;
+            workerReads.setTraversalBounds(new TraversalParameters(shardIntervals, false));
+            for ( final GATKRead originalRead : workerReads ) {
+                if ( previousShardEnd != null && originalRead.overlaps(previousShardEnd) ) {
+                    continue;
+                }
+                final GATKRead transformedRead = preTransformer.apply(originalRead);
+                if ( ! filter.test(transformedRead) ) {
+                    continue;
+                }
+                final GATKRead read = postTransformer.apply(transformedRead);
+                final SimpleInterval readInterval = getReadInterval(read);
+                worker.processRead(read,
+                        new ReferenceContext(workerReference, readInterval),
+                        new FeatureContext(workerFeatures, readInterval));
+
+                lastReadInterval = readInterval;
+                if ( ++readsSinceProgressUpdate == READS_BETWEEN_PROGRESS_UPDATES ) {
+                    emitProgress(output, lastReadInterval, readsSinceProgressUpdate);
+                    readsSinceProgressUpdate = 0;
+                }
+            }
+            emitProgress(output, lastReadInterval, readsSinceProgressUpdate);
+        }
+
+        @Override
+        public void close() {
+            worker.close();
+            workerReads.close();
+            if ( workerReference != null ) {
+                workerReference.close();
+            }
+            if ( workerFeatures != null ) {
+                workerFeatures.close();
+            }
+        }
+    }
+
+    private void emitProgress(final ShardOutput output, final SimpleInterval lastReadInterval, final long readCount) throws InterruptedException {
+        if ( readCount > 0 ) {
+            output.emit(() -> progressMeter.update(lastReadInterval, readCount));
+        }
+    }
+
     /**
      * Returns an interval for the read.
      * Note: some walkers must be able to work on any read, including those whose coordinates do not form a valid SimpleInterval.
@@ -161,6 +337,20 @@ public abstract class ReadWalker extends WalkerBase {
      */
     public abstract void apply( GATKRead read, ReferenceContext referenceContext, FeatureContext featureContext );
 
+    /**
+     * Create a new worker for multi-threaded traversal. Called once per traversal thread (on the main thread) when
+     * running with {@code --traversal-threads} greater than 1. Each worker must be independent of the others and of
+     * the state used by {@link #apply}; the tool is responsible for combining the results of its workers, typically in
+     * {@link #onTraversalSuccess()}.
+     *
+     * The default implementation returns null, indicating that the tool does not support multi-threaded traversal.
+     *
+     * @return a new {@link ReadWorker}, or null if multi-threaded traversal is not supported
+     */
+    protected ReadWorker makeReadWorker() {
+        return null;
+    }
+
     /**
      * Shutdown data sources.
      *
@@ -0,0 +1,32 @@
+package org.broadinstitute.hellbender.engine;
+
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+/**
+ * Per-thread processor used by {@link ReadWalker} when traversing with more than one traversal thread.
+ *
+ * Each traversal thread owns exactly one worker, so implementations may keep non-thread-safe state (engines,
+ * tables, reference readers, etc.) as long as it is not shared with other workers or with the tool itself.
+ *
+ * The reads are split among the workers by genomic shard. Each worker sees the reads of a shard in coordinate order,
+ * but the workers run concurrently, so the order in which reads of different shards are processed is undefined.
+ * Workers are therefore meant for tools that accumulate statistics over the reads and combine those of all the
+ * workers once the traversal is done, rather than for tools that write per-read output.
+ */
+public interface ReadWorker extends AutoCloseable {
+
+    /**
+     * Process an individual read on the worker thread.
+     *
+     * @param read the read to process, already transformed and filtered as in a single-threaded traversal
+     * @param referenceContext reference data overlapping the read
+     * @param featureContext features overlapping the read
+     */
+    void processRead(final GATKRead read, final ReferenceContext referenceContext, final FeatureContext featureContext);
+
+    /**
+     * Release any resources held by this worker. Called on the worker thread once its last read has been processed.
+     */
+    @Override
+    default void close() {}
+}
@@ -10,6 +10,7 @@ import htsjdk.samtools.SamFileHeaderMerger;
 import htsjdk.samtools.SamInputResource;
 import htsjdk.samtools.SamReader;
 import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.util.AsyncBufferedIterator;
 import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.samtools.util.IOUtil;
 import org.apache.logging.log4j.LogManager;
@@ -46,10 +47,19 @@ import java.util.stream.Collectors;
  *
  * -Iteration over all reads, optionally restricted to reads that overlap a set of intervals
  * -Targeted queries by one interval at a time
+ *
+ * If a read-ahead batch size is set via {@link #setReadAheadBatchSize}, the records of each file are decoded on a
+ * background thread (one per file) and handed to the traversal in batches of that many reads, so that decoding
+ * overlaps with the work done on each read.
  */
 public final class ReadsPathDataSource implements ReadsDataSource {
     private static final Logger logger = LogManager.getLogger(ReadsPathDataSource.class);
 
+    /**
+     * Number of batches of decoded reads that each read-ahead thread may hold before it waits for the traversal
+     */
+    public static final int READ_AHEAD_BATCH_COUNT = 4;
+
     /**
      * Mapping from SamReaders to iterators over the reads from each reader. Only one
      * iterator can be open from a given reader at a time (this is a restriction
@@ -92,6 +102,12 @@ public final class ReadsPathDataSource implements ReadsDataSource {
      */
     private boolean indicesAvailable;
 
+    /**
+     * Number of reads per batch decoded ahead of the traversal by a background thread for each reader,
+     * or 0 if reads are decoded on the calling thread.
+     */
+    private int readAheadBatchSize = 0;
+
     /**
      * Has it been closed already.
      */
@@ -303,6 +319,22 @@ public final class ReadsPathDataSource implements ReadsDataSource {
         }
     }
 
+    /**
+     * Decode the reads of each input file on a background thread, ahead of iterations and queries started after this
+     * call. Decoded reads are handed over in batches of readAheadBatchSize reads, and each background thread holds
+     * at most {@link #READ_AHEAD_BATCH_COUNT} batches.
+     *
+     * For the decoding to happen on the background thread the readers should decode records eagerly
+     * (see {@link SamReaderFactory.Option#EAGERLY_DECODE}); BGZF blocks may additionally be inflated
+     * asynchronously by enabling {@link SamReaderFactory#setUseAsyncIo}.
+     *
+     * @param readAheadBatchSize number of reads per batch, or 0 to decode reads on the calling thread
+     */
+    public void setReadAheadBatchSize( final int readAheadBatchSize ) {
+        Utils.validateArg(readAheadBatchSize >= 0, "readAheadBatchSize must be >= 0");
+        this.readAheadBatchSize = readAheadBatchSize;
+    }
+
     /**
      * @return True if traversals initiated via {@link #iterator} will be restricted to reads that overlap intervals
      *         as configured via {@link #setTraversalBounds}, otherwise false
@@ -404,19 +436,23 @@ public final class ReadsPathDataSource implements ReadsDataSource {
 
         // Set up an iterator for each reader, bounded to overlap with the supplied intervals if there are any
         for ( Map.Entry<SamReader, CloseableIterator<SAMRecord>> readerEntry : readers.entrySet() ) {
+            final CloseableIterator<SAMRecord> readerIterator;
             if (traversalIsBounded) {
-                readerEntry.setValue(
-                        new SamReaderQueryingIterator(
+                readerIterator = new SamReaderQueryingIterator(
                                 readerEntry.getKey(),
                                 readers.size() > 1 ?
                                         getIntervalsOverlappingReader(readerEntry.getKey(), queryIntervals) :
                                         queryIntervals,
                                 queryUnmapped
-                        )
-                );
+                        );
             } else {
-                readerEntry.setValue(readerEntry.getKey().iterator());
+                readerIterator = readerEntry.getKey().iterator();
             }
+            // the read-ahead iterator closes the reader's iterator when it is itself closed
+            readerEntry.setValue(readAheadBatchSize > 0 ?
+                    new AsyncBufferedIterator<>(readerIterator, readAheadBatchSize, READ_AHEAD_BATCH_COUNT,
+                            "ReadsPathDataSource read-ahead for " + backingPaths.get(readerEntry.getKey()).getFileName()) :
+                    readerIterator);
         }
 
         // Create a merging iterator over all readers if necessary. In the case where there's only a single reader,
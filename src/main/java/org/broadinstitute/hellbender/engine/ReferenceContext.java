@@ -168,6 +168,15 @@ public final class ReferenceContext implements Iterable<Byte>, Locatable, BasicR
         return dataSource != null;
     }
 
+    /**
+     * @return the backing reference data source of this context, or null if it has none. Tools that query the
+     *         reference outside of this context's window may use it to share the reader of the traversal thread
+     *         instead of opening their own.
+     */
+    public ReferenceDataSource getDataSource() {
+        return dataSource;
+    }
+
     /**
      * Get an iterator over the reference bases in this context. Will return an empty iterator if this
      * context has no backing data source and/or interval.
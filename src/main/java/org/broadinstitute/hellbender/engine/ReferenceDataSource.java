@@ -43,6 +43,19 @@ public interface ReferenceDataSource extends GATKDataSource<Byte>, AutoCloseable
         return new ReferenceFileSource(fastaPath, preserveAmbiguityCodesAndCapitalization);
     }
 
+    /**
+     * Initialize this data source using a fasta file, memory-mapping it if possible.
+     *
+     * The provided fasta file must have companion .fai and .dict files. Uncompressed local fasta files are read through
+     * a {@link MemoryMappedReferenceSource}, which may be shared by any number of threads. Other fasta files fall back
+     * to a {@link ReferenceFileSource}.
+     *
+     * @param fastaPath reference fasta Path
+     */
+    public static ReferenceDataSource ofMemoryMapped(final Path fastaPath) {
+        return MemoryMappedReferenceSource.canMemoryMap(fastaPath) ? new MemoryMappedReferenceSource(fastaPath) : new ReferenceFileSource(fastaPath);
+    }
+
     /**
      * Initialize this data source using ReferenceBases and corresponding sequence dictionary.
      */
@@ -0,0 +1,234 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.util.Locatable;
+import htsjdk.tribble.Feature;
+import htsjdk.variant.variantcontext.GenotypesContext;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A cache of Feature records shared by the {@link FeatureDataSource}s of several {@link FeatureManager}s, typically
+ * one per traversal thread.
+ *
+ * Unlike {@link FeatureCache}, which holds a single window of records for one data source and one thread, this cache
+ * divides each contig into fixed-size blocks and keeps the records overlapping recently used blocks, for any number
+ * of inputs, in least-recently-used order. A block that one thread has decoded can therefore be reused by every
+ * other thread querying the same input nearby, instead of each thread decoding the same compressed blocks of dbSNP,
+ * gnomAD or a panel of normals again.
+ *
+ * The blocks are spread over up to 16 independently locked LRU stripes, so threads querying different
+ * blocks rarely contend with each other. Blocks are loaded outside of the locks, using the reader of the data source
+ * that missed; two threads missing the same block at once may both load it, in which case the first one is kept.
+ *
+ * The cached records themselves are handed out to several threads, so they must not be modified. VariantContexts and
+ * their GenotypesContexts compute some of their state lazily, on first use, and not in a thread-safe way: genotypes
+ * are decoded by codecs that are not thread-safe, and the map from sample names to genotypes is assigned before it is
+ * filled. All of that state is therefore computed before a block is cached, while only the loading thread can see it.
+ */
+public final class SharedFeatureCache {
+
+    /**
+     * Default size, in bases, of the blocks of a contig that are cached together
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 10000;
+
+    private static final int MAX_STRIPES = 16;
+
+    private final int blockSize;
+    private final Stripe[] stripes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static final class BlockKey {
+        final FeatureInput<?> input;
+        final String contig;
+        final int blockIndex;
+
+        BlockKey(final FeatureInput<?> input, final String contig, final int blockIndex) {
+            this.input = input;
+            this.contig = contig;
+            this.blockIndex = blockIndex;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof BlockKey)) {
+                return false;
+            }
+            final BlockKey otherKey = (BlockKey) other;
+            return blockIndex == otherKey.blockIndex && contig.equals(otherKey.contig) && input.equals(otherKey.input);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(input, contig, blockIndex);
+        }
+    }
+
+    /**
+     * One independently locked LRU map of blocks
+     */
+    private final class Stripe extends LinkedHashMap<BlockKey, List<? extends Feature>> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxBlocks;
+
+        Stripe(final int maxBlocks) {
+            super(16, 0.75f, true);
+            this.maxBlocks = maxBlocks;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<BlockKey, List<? extends Feature>> eldest) {
+            if (size() > maxBlocks) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Create a cache holding up to maxBlocks blocks of {@link #DEFAULT_BLOCK_SIZE} bases
+     *
+     * @param maxBlocks maximum number of blocks kept in the cache, across all inputs
+     */
+    public SharedFeatureCache(final int maxBlocks) {
+        this(maxBlocks, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * The capacity is divided between the stripes as evenly as possible, the first {@code maxBlocks % stripes} of
+     * them holding one more block than the others, so that the cache holds exactly maxBlocks blocks when full. A
+     * cache of fewer than 16 blocks has one stripe per block.
+     *
+     * @param maxBlocks maximum number of blocks kept in the cache, across all inputs
+     * @param blockSize size, in bases, of the blocks of a contig that are cached together
+     */
+    public SharedFeatureCache(final int maxBlocks, final int blockSize) {
+        Utils.validateArg(maxBlocks > 0, "maxBlocks must be > 0");
+        Utils.validateArg(blockSize > 0, "blockSize must be > 0");
+        this.blockSize = blockSize;
+        stripes = new Stripe[Math.min(maxBlocks, MAX_STRIPES)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(maxBlocks / stripes.length + (i < maxBlocks % stripes.length ? 1 : 0));
+        }
+    }
+
+    /**
+     * Get the records of input that overlap interval, in the order in which the reader returns them.
+     *
+     * @param input input whose records are queried; identifies the records in this cache
+     * @param interval query interval
+     * @param reader queries the records of input overlapping an interval directly from its file, on a cache miss
+     * @return a new list of the records overlapping interval, which the caller may modify
+     */
+    public <T extends Feature> List<T> query(final FeatureInput<T> input, final Locatable interval, final Function<SimpleInterval, List<T>> reader) {
+        Utils.nonNull(input);
+        Utils.nonNull(interval);
+        Utils.nonNull(reader);
+
+        final int firstBlock = blockIndex(interval.getStart());
+        final int lastBlock = blockIndex(interval.getEnd());
+        final List<T> result = new ArrayList<>();
+        for (int blockIndex = firstBlock; blockIndex <= lastBlock; blockIndex++) {
+            final int blockStart = blockIndex * blockSize + 1;
+            for (final T feature : getBlock(input, interval.getContig(), blockIndex, reader)) {
+                // a record starting before this block also overlaps the previous one, where we already returned it
+                if (blockIndex > firstBlock && feature.getStart() < blockStart) {
+                    continue;
+                }
+                if (feature.getStart() <= interval.getEnd() && feature.getEnd() >= interval.getStart()) {
+                    result.add(feature);
+                }
+            }
+        }
+        return result;
+    }
+
+    private int blockIndex(final int position) {
+        return Math.max(position - 1, 0) / blockSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Feature> List<T> getBlock(final FeatureInput<T> input, final String contig, final int blockIndex,
+                                                 final Function<SimpleInterval, List<T>> reader) {
+        final BlockKey key = new BlockKey(input, contig, blockIndex);
+        final Stripe stripe = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+        synchronized (stripe) {
+            final List<? extends Feature> block = stripe.get(key);
+            if (block != null) {
+                hits.increment();
+                return (List<T>) block;
+            }
+        }
+
+        misses.increment();
+        final List<T> block = reader.apply(new SimpleInterval(contig, blockIndex * blockSize + 1, Math.addExact(blockIndex * blockSize, blockSize)));
+        block.forEach(SharedFeatureCache::decodeLazyData);
+        synchronized (stripe) {
+            final List<? extends Feature> loadedMeanwhile = stripe.putIfAbsent(key, block);
+            return loadedMeanwhile != null ? (List<T>) loadedMeanwhile : block;
+        }
+    }
+
+    /**
+     * Compute the lazily-computed state of a record now, while only the loading thread can see it, so that the
+     * record is only ever read by the threads it is handed out to
+     */
+    private static void decodeLazyData(final Feature feature) {
+        if (feature instanceof VariantContext) {
+            final VariantContext vc = (VariantContext) feature;
+            final GenotypesContext genotypes = vc.getGenotypes();
+            // decodes lazily-parsed genotypes, and builds the sample name to genotype map used by getGenotype(name)
+            genotypes.getSampleNames();
+            genotypes.getSampleNamesOrderedByName();
+            vc.getType();
+            // genotype counts, used by getHomRefCount() and the like
+            vc.getNoCallCount();
+            vc.isMonomorphicInSamples();
+        }
+    }
+
+    /**
+     * @return the number of block lookups that found the block in this cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of block lookups that had to load the block from its input
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of blocks evicted from this cache to make room for others
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return a one-line summary of the hits, misses and evictions of this cache
+     */
+    public String getStatistics() {
+        final long numHits = getHits();
+        final long numMisses = getMisses();
+        final double efficiency = numHits + numMisses == 0 ? 0.0 : 100.0 * numHits / (numHits + numMisses);
+        return String.format("SharedFeatureCache: hits=%d misses=%d evictions=%d efficiency %.2f%%", numHits, numMisses, getEvictions(), efficiency);
+    }
+}
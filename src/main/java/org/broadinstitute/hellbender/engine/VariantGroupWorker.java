@@ -0,0 +1,52 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.variant.variantcontext.VariantContext;
+
+import java.util.List;
+
+/**
+ * Per-thread processor used by {@link MultiVariantWalkerGroupedOnStart} when traversing with more than one traversal
+ * thread.
+ *
+ * Each traversal thread owns exactly one worker, so implementations may keep non-thread-safe state (merge state,
+ * annotation engines, etc.) as long as it is not shared with other workers or with the tool itself.
+ *
+ * The traversal is split into partitions of whole contigs. A worker processes the groups of variants of a partition in
+ * order, from {@link #startPartition} to {@link #finishPartition}, and then moves on to the next partition it claims,
+ * which is generally not the next one in traversal order. It must therefore not carry any state from one partition to
+ * the next.
+ *
+ * No method may write any output directly. Instead each returns an action that the walker runs on the main traversal
+ * thread, in the same order in which the groups would have been visited by a single-threaded traversal.
+ */
+public interface VariantGroupWorker extends AutoCloseable {
+
+    /**
+     * Start processing a new partition on the worker thread.
+     */
+    void startPartition();
+
+    /**
+     * Process the variants starting at (or, when grouping nearby variants, near) the same locus, on the worker thread.
+     *
+     * @param variantContexts variants from all the driving variants grouped as in a single-threaded traversal. Never empty.
+     * @param referenceContext reference data covering the span of all the variants
+     * @return an action that emits the output for this group. Run on the main traversal thread, in order.
+     */
+    Runnable processGroup(final List<VariantContext> variantContexts, final ReferenceContext referenceContext);
+
+    /**
+     * Finish processing the current partition on the worker thread, once its last group has been processed.
+     *
+     * @param isLastPartition whether this is the last partition of the traversal, after which a single-threaded
+     *                        traversal would have called {@link GATKTool#onTraversalSuccess}
+     * @return an action that emits any output still pending for this partition. Run on the main traversal thread, in order.
+     */
+    Runnable finishPartition(final boolean isLastPartition);
+
+    /**
+     * Release any resources held by this worker. Called on the worker thread once its last partition has been processed.
+     */
+    @Override
+    default void close() {}
+}
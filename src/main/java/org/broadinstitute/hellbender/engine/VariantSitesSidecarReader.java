@@ -0,0 +1,93 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.tribble.CloseableTribbleIterator;
+import htsjdk.tribble.FeatureReader;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFConstants;
+import htsjdk.variant.vcf.VCFFormatHeaderLine;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderLine;
+import htsjdk.variant.vcf.VCFInfoHeaderLine;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.codecs.VariantSitesBCICodec;
+import org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStream.Reader;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the records of a VCF from its binary sites sidecar (see {@link VariantSitesBCICodec}), while presenting a
+ * sites-only version of the header of the VCF itself: it declares no samples and no FORMAT fields, and only the INFO
+ * fields kept in the sidecar, so that the header agrees with the records.
+ *
+ * Package-private: {@link FeatureDataSource} substitutes this for the VCF reader when an input has opted in to using
+ * its sidecar and an up-to-date sidecar exists.
+ */
+final class VariantSitesSidecarReader implements FeatureReader<VariantContext> {
+    private final Reader<VariantContext> sitesReader;
+    private final VCFHeader header;
+
+    /**
+     * @param sitesReader reader over the sidecar
+     * @param vcfHeader header of the VCF the sidecar was made from
+     */
+    VariantSitesSidecarReader(final Reader<VariantContext> sitesReader, final VCFHeader vcfHeader) {
+        this.sitesReader = Utils.nonNull(sitesReader);
+        this.header = makeSitesHeader(Utils.nonNull(vcfHeader), sitesReader.getSampleNames());
+    }
+
+    /**
+     * @param vcfHeader header of the VCF the sidecar was made from
+     * @param keptInfoFields the INFO fields kept in the sidecar (stored as its sample names)
+     * @return the header of the VCF without samples, FORMAT lines, or the INFO lines of fields that were not kept
+     */
+    static VCFHeader makeSitesHeader(final VCFHeader vcfHeader, final List<String> keptInfoFields) {
+        final Set<String> infoFields = new HashSet<>(keptInfoFields);
+        // records whose extent was given by END keep it, see VariantSitesBCICodec
+        infoFields.add(VCFConstants.END_KEY);
+        final Set<VCFHeaderLine> lines = new LinkedHashSet<>();
+        for ( final VCFHeaderLine line : vcfHeader.getMetaDataInInputOrder() ) {
+            if ( line instanceof VCFFormatHeaderLine ) {
+                continue;
+            }
+            if ( line instanceof VCFInfoHeaderLine && !infoFields.contains(((VCFInfoHeaderLine)line).getID()) ) {
+                continue;
+            }
+            lines.add(line);
+        }
+        return new VCFHeader(lines);
+    }
+
+    @Override
+    public CloseableTribbleIterator<VariantContext> query(final String chr, final int start, final int end) throws IOException {
+        return sitesReader.query(chr, start, end);
+    }
+
+    @Override
+    public CloseableTribbleIterator<VariantContext> iterator() {
+        return sitesReader.iterator();
+    }
+
+    @Override
+    public List<String> getSequenceNames() {
+        return sitesReader.getSequenceNames();
+    }
+
+    @Override
+    public Object getHeader() {
+        return header;
+    }
+
+    @Override
+    public boolean isQueryable() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        sitesReader.close();
+    }
+}
@@ -1,6 +1,23 @@
 package org.broadinstitute.hellbender.engine;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * Base class for pre-packaged walker traversals in the GATK engine.
@@ -12,9 +29,46 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
  * Classes that extend {@link WalkerBase} will be unable to directly access engine data sources unless they are in the
  * engine package. This is to allow walker base classes such as {@link ReadWalker} direct datasource access while disallowing
  * it for concrete walker tool implementations, which should get their data via their {@code apply()} method.
+ *
+ * Walker types that support {@code --traversal-threads} greater than 1 split their traversal into shards, and run them
+ * through {@link #traverseShardsInParallel}, supplying only the shards and a {@link ShardProcessor} per thread.
  */
 public abstract class WalkerBase extends GATKTool {
 
+    public static final String TRAVERSAL_THREADS_LONG_NAME = "traversal-threads";
+
+    /**
+     * Number of threads used to process the shards of the traversal concurrently. Only supported by walker types with
+     * a multi-threaded traversal, and within those only by tools that provide the workers it needs.
+     */
+    @Argument(fullName = TRAVERSAL_THREADS_LONG_NAME, doc = "Number of threads to use for traversal (experimental)", optional = true, minValue = 1)
+    public int traversalThreads = 1;
+
+    /**
+     * End marker of the output of a shard in {@link #traverseShardsInParallel}
+     */
+    private static final Runnable END_OF_SHARD = () -> {};
+
+    /**
+     * {@inheritDoc}
+     *
+     * Rejects {@code --traversal-threads} greater than 1 for walker types without a multi-threaded traversal.
+     */
+    @Override
+    protected void onStartup() {
+        if ( traversalThreads > 1 && ! supportsTraversalThreads() ) {
+            throw new CommandLineException.BadArgumentValue(TRAVERSAL_THREADS_LONG_NAME, String.valueOf(traversalThreads), getClass().getSimpleName() + " does not support multi-threaded traversal");
+        }
+        super.onStartup();
+    }
+
+    /**
+     * @return true if this walker type implements a multi-threaded traversal using {@link #traverseShardsInParallel}
+     */
+    boolean supportsTraversalThreads() {
+        return false;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -65,4 +119,155 @@ public abstract class WalkerBase extends GATKTool {
         throw new GATKException("Should never directly access the engine FeatureManager in walker tool classes " +
                 "outside of the engine package. Walker tools should get their data via apply() instead.");
     }
+
+    /**
+     * The processor of the shards claimed by one traversal thread in {@link #traverseShardsInParallel}. Each processor
+     * owns its worker and its data sources, none of which may be shared with other processors or with the main thread.
+     *
+     * @param <S> type of the shards
+     */
+    interface ShardProcessor<S> extends AutoCloseable {
+        /**
+         * Process one shard on the traversal thread owning this processor. The shard's own random number generators
+         * are installed for the duration of the call (see {@link Utils#setThreadRandomGenerators}).
+         *
+         * @param shardIndex index of the shard in traversal order
+         * @param output receives the actions that emit the output of the shard, which are run on the main thread after
+         *               those of all earlier shards
+         */
+        void processShard(int shardIndex, S shard, ShardOutput output) throws InterruptedException;
+
+        /**
+         * Close the worker and data sources of this processor. Called on its traversal thread once it runs out of shards.
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * Receives the output actions of one shard in {@link #traverseShardsInParallel}
+     */
+    interface ShardOutput {
+        /**
+         * Queue an action to run on the main thread, in order. Blocks while too many actions of the shard are queued.
+         */
+        void emit(Runnable action) throws InterruptedException;
+    }
+
+    /**
+     * Multi-threaded implementation of a sharded traversal.
+     *
+     * Creates {@link #traversalThreads} processors on this thread, then runs each on its own traversal thread, which
+     * repeatedly claims the next unprocessed shard until there are none left. The output actions produced for each
+     * shard are buffered in a bounded queue per shard, and run on this thread shard by shard, so that output is
+     * emitted in traversal order. Shards are claimed in order, so the shard whose output we are waiting on is always
+     * either finished or being processed by a thread that is not blocked on a full queue.
+     *
+     * @param threadNameFormat name format for the traversal threads, with a %d for the thread number
+     * @param shards the shards to process, in traversal order
+     * @param processorFactory called once per traversal thread, returning null if the tool does not support
+     *                         multi-threaded traversal
+     * @param maxBufferedOutputsPerShard maximum number of output actions that may be buffered for each shard
+     * @return the processors, all of them closed, so that the caller can combine any state they accumulated
+     */
+    final <S, P extends ShardProcessor<S>> List<P> traverseShardsInParallel(final String threadNameFormat, final List<S> shards,
+                                                                           final Supplier<P> processorFactory, final int maxBufferedOutputsPerShard) {
+        final List<P> processors = new ArrayList<>(traversalThreads);
+        try {
+            for ( int i = 0; i < traversalThreads; i++ ) {
+                final P processor = processorFactory.get();
+                if ( processor == null ) {
+                    throw new CommandLineException.BadArgumentValue(TRAVERSAL_THREADS_LONG_NAME, String.valueOf(traversalThreads), getClass().getSimpleName() + " does not support multi-threaded traversal");
+                }
+                processors.add(processor);
+            }
+        } catch ( final RuntimeException e ) {
+            processors.forEach(ShardProcessor::close);
+            throw e;
+        }
+        logger.info("Traversing " + shards.size() + " shards using " + traversalThreads + " threads");
+
+        final List<BlockingQueue<Runnable>> shardOutputs = new ArrayList<>(shards.size());
+        for ( int i = 0; i < shards.size(); i++ ) {
+            shardOutputs.add(new ArrayBlockingQueue<>(maxBufferedOutputsPerShard));
+        }
+        final AtomicInteger nextShard = new AtomicInteger(0);
+        final AtomicReference<Throwable> workerFailure = new AtomicReference<>();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(traversalThreads,
+                new ThreadFactoryBuilder().setNameFormat(threadNameFormat).setDaemon(true).build());
+        try {
+            final List<Future<?>> results = new ArrayList<>(traversalThreads);
+            for ( final P processor : processors ) {
+                results.add(executor.submit(() -> {
+                    try {
+                        runShardProcessor(processor, shards, nextShard, shardOutputs);
+                    } catch ( final Throwable t ) {
+                        workerFailure.compareAndSet(null, t);
+                    }
+                }));
+            }
+
+            for ( final BlockingQueue<Runnable> shardOutput : shardOutputs ) {
+                Runnable action;
+                while ( (action = takeShardOutput(shardOutput, workerFailure)) != END_OF_SHARD ) {
+                    action.run();
+                }
+            }
+
+            // wait for the processors to be closed, so that the caller sees their final state
+            for ( final Future<?> result : results ) {
+                result.get();
+            }
+            throwIfFailed(workerFailure);
+        } catch ( final ExecutionException e ) {
+            throw new GATKException("Traversal thread failed", e.getCause());
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for traversal threads", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return processors;
+    }
+
+    /**
+     * Process shards on the current thread until there are none left
+     */
+    private static <S> void runShardProcessor(final ShardProcessor<S> processor, final List<S> shards, final AtomicInteger nextShard,
+                                              final List<BlockingQueue<Runnable>> shardOutputs) throws InterruptedException {
+        try ( final ShardProcessor<S> closeableProcessor = processor ) {
+            int shardIndex;
+            while ( (shardIndex = nextShard.getAndIncrement()) < shards.size() ) {
+                final BlockingQueue<Runnable> shardOutput = shardOutputs.get(shardIndex);
+                Utils.setThreadRandomGenerators(shardIndex);
+                try {
+                    closeableProcessor.processShard(shardIndex, shards.get(shardIndex), shardOutput::put);
+                } finally {
+                    Utils.clearThreadRandomGenerators();
+                }
+                shardOutput.put(END_OF_SHARD);
+            }
+        }
+    }
+
+    private static Runnable takeShardOutput(final BlockingQueue<Runnable> shardOutput, final AtomicReference<Throwable> workerFailure) throws InterruptedException {
+        while ( true ) {
+            final Runnable action = shardOutput.poll(1, TimeUnit.SECONDS);
+            if ( action != null ) {
+                return action;
+            }
+            throwIfFailed(workerFailure);
+        }
+    }
+
+    private static void throwIfFailed(final AtomicReference<Throwable> workerFailure) {
+        final Throwable failure = workerFailure.get();
+        if ( failure != null ) {
+            if ( failure instanceof RuntimeException ) {
+                throw (RuntimeException) failure;
+            }
+            throw new GATKException("Traversal thread failed", failure);
+        }
+    }
 }
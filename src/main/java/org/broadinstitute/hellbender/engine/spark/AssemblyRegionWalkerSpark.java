@@ -12,6 +12,8 @@ import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
 import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -26,6 +28,8 @@ import java.util.stream.Collectors;
 public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
     private static final long serialVersionUID = 1L;
 
+    public static final String READ_SHARDS_FROM_INDEX_LONG_NAME = "read-shards-from-index";
+
     @ArgumentCollection
     public final AssemblyRegionReadShardArgumentCollection shardingArgs = new AssemblyRegionReadShardArgumentCollection();
 
@@ -38,6 +42,11 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
     @Argument(doc = "whether to use the strict implementation or not (defaults to the faster implementation that doesn't strictly match the walker version)", fullName = "strict", optional = true)
     public boolean strict = false;
 
+    @Argument(doc = "whether each task should query the reads of its shards from the inputs directly, using their indexes, " +
+            "rather than the reads being loaded and then sharded (requires coordinate-sorted and indexed BAM or CRAM inputs " +
+            "that can be read from the executors, and the fast implementation)", fullName = READ_SHARDS_FROM_INDEX_LONG_NAME, optional = true)
+    public boolean readShardsFromIndex = false;
+
     private String referenceFileName;
 
     @Override
@@ -93,6 +102,8 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
 
     /**
      * Loads assembly regions and the corresponding reference and features into a {@link JavaRDD} for the intervals specified.
+     * With {@code --read-shards-from-index}, the reads of each shard are queried from the indexed inputs by the task
+     * that processes it (see {@link IndexedSparkSharder}), rather than loaded into an RDD and sharded.
      *
      * If no intervals were specified, returns all the assembly regions.
      *
@@ -100,7 +111,14 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
      */
     protected JavaRDD<AssemblyRegionWalkerContext> getAssemblyRegions(JavaSparkContext ctx) {
         SAMSequenceDictionary sequenceDictionary = getBestAvailableSequenceDictionary();
-        if (strict) {
+        if (readShardsFromIndex) {
+            Utils.validateArg(!strict && !shuffle, "--" + READ_SHARDS_FROM_INDEX_LONG_NAME + " can't be used with --strict or --shuffle");
+            final JavaRDD<Shard<GATKRead>> shardedReads = IndexedSparkSharder.shard(ctx, readArguments.getReadPathSpecifiers(),
+                    referenceArguments.getReferenceSpecifier(), referenceFileName, intervalShards, bamPartitionSplitSize,
+                    makeReadFilter(), readArguments.getReadValidationStringency());
+            return FindAssemblyRegionsSpark.getAssemblyRegionsFast(ctx, shardedReads, getHeaderForReads(), referenceFileName, features,
+                    assemblyRegionEvaluatorSupplierBroadcast(ctx), assemblyRegionArgs, false);
+        } else if (strict) {
             return FindAssemblyRegionsSpark.getAssemblyRegionsStrict(ctx, getReads(), getHeaderForReads(), sequenceDictionary, referenceFileName, features,
                     intervalShards, assemblyRegionEvaluatorSupplierBroadcast(ctx), shardingArgs, assemblyRegionArgs,
                     shuffle);
@@ -0,0 +1,113 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import htsjdk.samtools.*;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compact serializer for SAMRecordToGATKReadAdapters, and the default one for them (see {@link GATKRegistrator}).
+ *
+ * Like {@link SAMRecordToGATKReadAdapterSerializer}, each record is self-contained and carries the variable-length
+ * part of its BAM encoding (name, cigar, bases, qualities and tags) as raw bytes, which are copied as is from records
+ * read from a BAM file and decoded lazily by the {@link BAMRecord} they're read back into. Unlike it, the fixed part
+ * of the BAM encoding is written as varints, without the block size, bin and reference indices, and the mate's
+ * contig is written only if it differs from the read's. Contig names are interned as they are read back, so that
+ * the reads of a partition share a single copy of each.
+ *
+ * Records can't refer to the contigs of records written before them in the same stream, since Spark may relocate
+ * the serialized bytes of records within a stream when it shuffles them.
+ *
+ * Assumes that the underlying SAMRecords are headerless (and clears their header if they're not).
+ */
+public final class CompactGATKReadSerializer extends Serializer<SAMRecordToGATKReadAdapter> {
+    // the number of distinct contig names interned by a serializer, beyond which new ones are no longer interned
+    private static final int MAX_INTERNED_CONTIGS = 100_000;
+
+    private static final byte MATE_ON_SAME_CONTIG = 1;
+
+    private final SAMRecordSparkCodec lazyCodec = new SAMRecordSparkCodec();
+    private final Map<String, String> contigs = new HashMap<>();
+
+    @Override
+    public void write(final Kryo kryo, final Output output, final SAMRecordToGATKReadAdapter adapter) {
+        final SAMRecord record = adapter.getEncapsulatedSamRecord();
+        // The underlying read is likely to already be headerless, but as a defensive
+        // measure in case it's not, set the header to null explicitly.
+        record.setHeaderStrict(null);
+
+        final String referenceName = record.getReferenceName();
+        final String mateReferenceName = record.getMateReferenceName();
+        final boolean mateOnSameContig = Objects.equals(referenceName, mateReferenceName);
+        output.writeByte(mateOnSameContig ? MATE_ON_SAME_CONTIG : 0);
+        output.writeString(referenceName);
+        if (!mateOnSameContig) {
+            output.writeString(mateReferenceName);
+        }
+
+        output.writeVarInt(record.getFlags(), true);
+        output.writeVarInt(record.getAlignmentStart(), true);
+        output.writeByte(record.getMappingQuality());
+        output.writeVarInt(record.getMateAlignmentStart(), true);
+        output.writeVarInt(record.getInferredInsertSize(), false);
+        output.writeVarInt(record.getReadNameLength() + 1, true);
+        output.writeVarInt(record.getCigarLength(), true);
+        output.writeVarInt(record.getReadLength(), true);
+        output.writeVarInt(SAMRecordSparkCodec.getVariableLengthBlockSize(record), true);
+        lazyCodec.setOutputStream(output);
+        lazyCodec.encodeVariableLengthBlock(record);
+
+        // clear indexing bin after encoding to ensure all SAMRecords compare properly
+        record.setFlags(record.getFlags());
+    }
+
+    @Override
+    public SAMRecordToGATKReadAdapter read(final Kryo kryo, final Input input, final Class<SAMRecordToGATKReadAdapter> type) {
+        final boolean mateOnSameContig = input.readByte() == MATE_ON_SAME_CONTIG;
+        final String referenceName = internContig(input.readString());
+        final String mateReferenceName = mateOnSameContig ? referenceName : internContig(input.readString());
+
+        final int flags = input.readVarInt(true);
+        final int alignmentStart = input.readVarInt(true);
+        final short mappingQuality = (short)(input.readByte() & 0xFF);
+        final int mateAlignmentStart = input.readVarInt(true);
+        final int insertSize = input.readVarInt(false);
+        final short readNameLength = (short)input.readVarInt(true);
+        final int cigarLength = input.readVarInt(true);
+        final int readLength = input.readVarInt(true);
+        final byte[] variableLengthBlock = input.readBytes(input.readVarInt(true));
+        final SAMRecord record = DefaultSAMRecordFactory.getInstance().createBAMRecord(null,
+                SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX, alignmentStart, readNameLength, mappingQuality, 0,
+                cigarLength, flags, readLength, SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX, mateAlignmentStart, insertSize,
+                variableLengthBlock);
+
+        // clear indexing bin after decoding to ensure all SAMRecords compare properly
+        record.setFlags(record.getFlags());
+
+        // set reference names (and indices to null)
+        record.setReferenceName(referenceName);
+        record.setMateReferenceName(mateReferenceName);
+
+        // headerlessReadAdapter() calls setHeaderStrict(null), which will set reference indices to null if the above
+        // setReferenceName()/setMateReferenceName() calls failed to do so (eg., in the case of "*" as the
+        // reference name).
+        return SAMRecordToGATKReadAdapter.headerlessReadAdapter(record);
+    }
+
+    private String internContig(final String contig) {
+        final String interned = contigs.get(contig);
+        if (interned != null) {
+            return interned;
+        }
+        if (contigs.size() < MAX_INTERNED_CONTIGS) {
+            contigs.put(contig, contig);
+        }
+        return contig;
+    }
+}
@@ -0,0 +1,329 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import htsjdk.variant.variantcontext.*;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+
+import java.util.*;
+
+/**
+ * Compact serializer for VariantContexts, in the spirit of BCF: positions and counts are written as varints, the
+ * alleles of genotypes as indices into the alleles of the variant, the standard genotype fields (GQ, DP, AD and PL)
+ * as integers, and INFO and FORMAT values with a one-byte type so that Strings, Integers, Doubles, Booleans and
+ * Lists of them don't go through generic Kryo serialization. Any other value is written with Kryo.
+ *
+ * Unlike in BCF there is no header to hold a dictionary of contigs, keys, filters and samples, and records can't
+ * refer to those of records written before them in the same stream, since Spark may relocate the serialized bytes of
+ * records within a stream when it shuffles them. These strings are instead interned as they are read back, so that
+ * the variants of a partition share a single copy of each.
+ *
+ * Lazily-decoded INFO fields (as Strings) are kept as they are, as is whether the variant was fully decoded.
+ * Genotypes are decoded if they haven't been already.
+ */
+public final class CompactVariantContextSerializer extends Serializer<VariantContext> {
+    // the number of distinct strings interned by a serializer, beyond which new ones are no longer interned
+    private static final int MAX_INTERNED_STRINGS = 100_000;
+
+    // bits of the byte of flags of a variant
+    private static final int HAS_LOG10_PERROR = 1;
+    private static final int FILTERS_APPLIED = 1 << 1;
+    private static final int FULLY_DECODED = 1 << 2;
+
+    // bits of the byte of flags of a genotype
+    private static final int PHASED = 1;
+    private static final int HAS_GQ = 1 << 1;
+    private static final int HAS_DP = 1 << 2;
+    private static final int HAS_AD = 1 << 3;
+    private static final int HAS_PL = 1 << 4;
+    private static final int FILTERED = 1 << 5;
+
+    // the index of a genotype allele that is not among the alleles of its variant, which is then written in full
+    private static final int UNLISTED_ALLELE = -1;
+
+    // types of INFO and FORMAT values
+    private static final byte NULL_VALUE = 0;
+    private static final byte BOOLEAN_VALUE = 1;
+    private static final byte STRING_VALUE = 2;
+    private static final byte INTEGER_VALUE = 3;
+    private static final byte DOUBLE_VALUE = 4;
+    private static final byte LIST_VALUE = 5;
+    private static final byte OTHER_VALUE = 6;
+
+    private final Map<String, String> strings = new HashMap<>();
+
+    @Override
+    public void write(final Kryo kryo, final Output output, final VariantContext variant) {
+        output.writeString(variant.getSource());
+        output.writeString(variant.getContig());
+        output.writeVarInt(variant.getStart(), true);
+        output.writeVarInt(variant.getEnd() - variant.getStart(), false);
+        output.writeString(variant.getID());
+
+        final List<Allele> alleles = variant.getAlleles();
+        output.writeVarInt(alleles.size(), true);
+        for (final Allele allele : alleles) {
+            writeAllele(output, allele);
+        }
+
+        output.writeByte((variant.hasLog10PError() ? HAS_LOG10_PERROR : 0) |
+                (variant.filtersWereApplied() ? FILTERS_APPLIED : 0) |
+                (variant.isFullyDecoded() ? FULLY_DECODED : 0));
+        if (variant.hasLog10PError()) {
+            output.writeDouble(variant.getLog10PError());
+        }
+        if (variant.filtersWereApplied()) {
+            final Set<String> filters = variant.getFilters();
+            output.writeVarInt(filters.size(), true);
+            for (final String filter : filters) {
+                output.writeString(filter);
+            }
+        }
+        writeAttributes(kryo, output, variant.getAttributes());
+
+        final GenotypesContext genotypes = variant.getGenotypes();
+        output.writeVarInt(genotypes.size(), true);
+        for (final Genotype genotype : genotypes) {
+            writeGenotype(kryo, output, genotype, alleles);
+        }
+    }
+
+    @Override
+    public VariantContext read(final Kryo kryo, final Input input, final Class<VariantContext> type) {
+        final VariantContextBuilder builder = new VariantContextBuilder().source(readInternedString(input));
+        final String contig = readInternedString(input);
+        final int start = input.readVarInt(true);
+        final int stop = start + input.readVarInt(false);
+        builder.chr(contig).start(start).stop(stop).id(input.readString());
+
+        final int nAlleles = input.readVarInt(true);
+        final List<Allele> alleles = new ArrayList<>(nAlleles);
+        for (int i = 0; i < nAlleles; i++) {
+            alleles.add(readAllele(input));
+        }
+        builder.alleles(alleles);
+
+        final byte flags = input.readByte();
+        if ((flags & HAS_LOG10_PERROR) != 0) {
+            builder.log10PError(input.readDouble());
+        }
+        if ((flags & FILTERS_APPLIED) != 0) {
+            final int nFilters = input.readVarInt(true);
+            if (nFilters == 0) {
+                builder.passFilters();
+            } else {
+                final Set<String> filters = new LinkedHashSet<>(nFilters);
+                for (int i = 0; i < nFilters; i++) {
+                    filters.add(readInternedString(input));
+                }
+                builder.filters(filters);
+            }
+        } else {
+            builder.unfiltered();
+        }
+        builder.attributes(readAttributes(kryo, input));
+        builder.fullyDecoded((flags & FULLY_DECODED) != 0);
+
+        final int nGenotypes = input.readVarInt(true);
+        if (nGenotypes == 0) {
+            builder.noGenotypes();
+        } else {
+            final ArrayList<Genotype> genotypes = new ArrayList<>(nGenotypes);
+            for (int i = 0; i < nGenotypes; i++) {
+                genotypes.add(readGenotype(kryo, input, alleles));
+            }
+            // genotypes may carry alleles that are not among those of the variant (see UNLISTED_ALLELE), which
+            // validation would reject, although the variant being written passed it or was built without it
+            builder.genotypesNoValidation(GenotypesContext.create(genotypes));
+        }
+        return builder.make();
+    }
+
+    private static void writeAllele(final Output output, final Allele allele) {
+        output.writeString(allele.getDisplayString());
+        output.writeBoolean(allele.isReference());
+    }
+
+    private static Allele readAllele(final Input input) {
+        final String allele = input.readString();
+        return Allele.create(allele, input.readBoolean());
+    }
+
+    private static void writeGenotype(final Kryo kryo, final Output output, final Genotype genotype, final List<Allele> variantAlleles) {
+        output.writeString(genotype.getSampleName());
+
+        final List<Allele> alleles = genotype.getAlleles();
+        output.writeVarInt(alleles.size(), true);
+        for (final Allele allele : alleles) {
+            // as in BCF, 0 is a no-call and i + 1 the i-th allele of the variant
+            final int index = allele.isNoCall() ? 0 : variantAlleles.indexOf(allele) + 1;
+            if (index == 0 && !allele.isNoCall()) {
+                output.writeVarInt(UNLISTED_ALLELE, false);
+                writeAllele(output, allele);
+            } else {
+                output.writeVarInt(index, false);
+            }
+        }
+
+        output.writeByte((genotype.isPhased() ? PHASED : 0) |
+                (genotype.hasGQ() ? HAS_GQ : 0) |
+                (genotype.hasDP() ? HAS_DP : 0) |
+                (genotype.hasAD() ? HAS_AD : 0) |
+                (genotype.hasPL() ? HAS_PL : 0) |
+                (genotype.isFiltered() ? FILTERED : 0));
+        if (genotype.hasGQ()) {
+            output.writeVarInt(genotype.getGQ(), false);
+        }
+        if (genotype.hasDP()) {
+            output.writeVarInt(genotype.getDP(), false);
+        }
+        if (genotype.hasAD()) {
+            writeInts(output, genotype.getAD());
+        }
+        if (genotype.hasPL()) {
+            writeInts(output, genotype.getPL());
+        }
+        if (genotype.isFiltered()) {
+            output.writeString(genotype.getFilters());
+        }
+        writeAttributes(kryo, output, genotype.getExtendedAttributes());
+    }
+
+    private Genotype readGenotype(final Kryo kryo, final Input input, final List<Allele> variantAlleles) {
+        final String sampleName = readInternedString(input);
+
+        final int nAlleles = input.readVarInt(true);
+        final List<Allele> alleles = new ArrayList<>(nAlleles);
+        for (int i = 0; i < nAlleles; i++) {
+            final int index = input.readVarInt(false);
+            if (index == UNLISTED_ALLELE) {
+                alleles.add(readAllele(input));
+            } else {
+                alleles.add(index == 0 ? Allele.NO_CALL : variantAlleles.get(index - 1));
+            }
+        }
+
+        final GenotypeBuilder builder = new GenotypeBuilder(sampleName, alleles);
+        final byte flags = input.readByte();
+        builder.phased((flags & PHASED) != 0);
+        if ((flags & HAS_GQ) != 0) {
+            builder.GQ(input.readVarInt(false));
+        }
+        if ((flags & HAS_DP) != 0) {
+            builder.DP(input.readVarInt(false));
+        }
+        if ((flags & HAS_AD) != 0) {
+            builder.AD(readInts(input));
+        }
+        if ((flags & HAS_PL) != 0) {
+            builder.PL(readInts(input));
+        }
+        if ((flags & FILTERED) != 0) {
+            builder.filter(readInternedString(input));
+        }
+        final Map<String, Object> attributes = readAttributes(kryo, input);
+        if (!attributes.isEmpty()) {
+            builder.attributes(attributes);
+        }
+        return builder.make();
+    }
+
+    private static void writeInts(final Output output, final int[] values) {
+        output.writeVarInt(values.length, true);
+        output.writeInts(values, false);
+    }
+
+    private static int[] readInts(final Input input) {
+        return input.readInts(input.readVarInt(true), false);
+    }
+
+    private static void writeAttributes(final Kryo kryo, final Output output, final Map<String, Object> attributes) {
+        output.writeVarInt(attributes.size(), true);
+        for (final Map.Entry<String, Object> attribute : attributes.entrySet()) {
+            output.writeString(attribute.getKey());
+            writeValue(kryo, output, attribute.getValue());
+        }
+    }
+
+    private Map<String, Object> readAttributes(final Kryo kryo, final Input input) {
+        final int nAttributes = input.readVarInt(true);
+        final Map<String, Object> attributes = new LinkedHashMap<>(nAttributes * 2);
+        for (int i = 0; i < nAttributes; i++) {
+            final String key = readInternedString(input);
+            attributes.put(key, readValue(kryo, input));
+        }
+        return attributes;
+    }
+
+    private static void writeValue(final Kryo kryo, final Output output, final Object value) {
+        if (value == null) {
+            output.writeByte(NULL_VALUE);
+        } else if (value instanceof Boolean) {
+            output.writeByte(BOOLEAN_VALUE);
+            output.writeBoolean((Boolean)value);
+        } else if (value instanceof String) {
+            output.writeByte(STRING_VALUE);
+            output.writeString((String)value);
+        } else if (value instanceof Integer) {
+            output.writeByte(INTEGER_VALUE);
+            output.writeVarInt((Integer)value, false);
+        } else if (value instanceof Double) {
+            output.writeByte(DOUBLE_VALUE);
+            output.writeDouble((Double)value);
+        } else if (value instanceof List) {
+            final List<?> values = (List<?>)value;
+            output.writeByte(LIST_VALUE);
+            output.writeVarInt(values.size(), true);
+            for (final Object element : values) {
+                writeValue(kryo, output, element);
+            }
+        } else {
+            output.writeByte(OTHER_VALUE);
+            kryo.writeClassAndObject(output, value);
+        }
+    }
+
+    private static Object readValue(final Kryo kryo, final Input input) {
+        final byte type = input.readByte();
+        switch (type) {
+            case NULL_VALUE:
+                return null;
+            case BOOLEAN_VALUE:
+                return input.readBoolean();
+            case STRING_VALUE:
+                return input.readString();
+            case INTEGER_VALUE:
+                return input.readVarInt(false);
+            case DOUBLE_VALUE:
+                return input.readDouble();
+            case LIST_VALUE:
+                final int nValues = input.readVarInt(true);
+                final List<Object> values = new ArrayList<>(nValues);
+                for (int i = 0; i < nValues; i++) {
+                    values.add(readValue(kryo, input));
+                }
+                return values;
+            case OTHER_VALUE:
+                return kryo.readClassAndObject(input);
+            default:
+                throw new GATKException("Unknown type of serialized attribute value: " + type);
+        }
+    }
+
+    private String readInternedString(final Input input) {
+        final String string = input.readString();
+        if (string == null) {
+            return null;
+        }
+        final String interned = strings.get(string);
+        if (interned != null) {
+            return interned;
+        }
+        if (strings.size() < MAX_INTERNED_STRINGS) {
+            strings.put(string, string);
+        }
+        return string;
+    }
+}
@@ -66,6 +66,32 @@ public class FindAssemblyRegionsSpark {
             final boolean shuffle,
             final boolean trackPileups) {
         JavaRDD<Shard<GATKRead>> shardedReads = SparkSharder.shard(ctx, reads, GATKRead.class, sequenceDictionary, intervalShards, shardingArgs.readShardSize, shuffle);
+        return getAssemblyRegionsFast(ctx, shardedReads, header, referenceFileName, features,
+                assemblyRegionEvaluatorSupplierBroadcast, assemblyRegionArgs, trackPileups);
+    }
+
+    /**
+     * Get an RDD of assembly regions for the given read shards using the <i>fast</i> algorithm (looks for
+     * assembly regions in each read shard in parallel), for reads that have already been sharded (for example by
+     * {@link IndexedSparkSharder}).
+     * @param ctx the Spark context
+     * @param shardedReads the coordinate-sorted read shards
+     * @param header the header for the reads
+     * @param referenceFileName the file name for the reference
+     * @param features source of arbitrary features (may be null)
+     * @param assemblyRegionEvaluatorSupplierBroadcast evaluator used to determine whether a locus is active
+     * @param assemblyRegionArgs the arguments for finding assembly regions
+     * @return an RDD of assembly regions
+     */
+    public static JavaRDD<AssemblyRegionWalkerContext> getAssemblyRegionsFast(
+            final JavaSparkContext ctx,
+            final JavaRDD<Shard<GATKRead>> shardedReads,
+            final SAMFileHeader header,
+            final String referenceFileName,
+            final FeatureManager features,
+            final Broadcast<Supplier<AssemblyRegionEvaluator>> assemblyRegionEvaluatorSupplierBroadcast,
+            final AssemblyRegionArgumentCollection assemblyRegionArgs,
+            final boolean trackPileups) {
         Broadcast<FeatureManager> bFeatureManager = features == null ? null : ctx.broadcast(features);
         return shardedReads.mapPartitions(getAssemblyRegionsFunctionFast(referenceFileName, bFeatureManager, header,
                 assemblyRegionEvaluatorSupplierBroadcast, assemblyRegionArgs, trackPileups));
@@ -10,6 +10,7 @@ import de.javakaffee.kryoserializers.guava.ImmutableMapSerializer;
 import htsjdk.samtools.*;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.SimpleAllele;
+import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.vcf.VCFHeaderLineType;
 import htsjdk.variant.vcf.VCFInfoHeaderLine;
 import org.apache.spark.serializer.KryoRegistrator;
@@ -17,6 +18,7 @@ import org.bdgenomics.adam.serialization.ADAMKryoRegistrator;
 import org.broadinstitute.hellbender.tools.funcotator.FuncotationMap;
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.TableFuncotation;
 import org.broadinstitute.hellbender.tools.funcotator.metadata.VcfFuncotationMetadata;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.DuplicateGroup;
 import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSparkUtils;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
@@ -124,7 +126,9 @@ public class GATKRegistrator implements KryoRegistrator {
         kryo.register(ImmutableMap.of("one","element").getClass(), new ImmutableMapSerializer());
         kryo.register(ImmutableMap.of("map","with","multiple","elements").getClass(), new ImmutableMapSerializer());
 
-        kryo.register(SAMRecordToGATKReadAdapter.class, new SAMRecordToGATKReadAdapterSerializer());
+        // reads and variants are what Spark tools shuffle the most, so they get compact serializers of their own
+        kryo.register(SAMRecordToGATKReadAdapter.class, new CompactGATKReadSerializer());
+        kryo.register(VariantContext.class, new CompactVariantContextSerializer());
 
         kryo.register(SAMRecord.class, new SAMRecordSerializer());
         kryo.register(BAMRecord.class, new SAMRecordSerializer());
@@ -140,6 +144,7 @@ public class GATKRegistrator implements KryoRegistrator {
         kryo.register(Pair.class, new Pair.Serializer());
         kryo.register(Passthrough.class, new FieldSerializer(kryo, Passthrough.class));
         kryo.register(MarkDuplicatesSparkUtils.IndexPair.class, new FieldSerializer(kryo, MarkDuplicatesSparkUtils.IndexPair.class));
+        kryo.register(DuplicateGroup.class, new FieldSerializer(kryo, DuplicateGroup.class));
         kryo.register(ReadsKey.class, new FieldSerializer(kryo, ReadsKey.class));
         kryo.register(ReadsKey.KeyForFragment.class, new FieldSerializer(kryo, ReadsKey.KeyForFragment.class));
         kryo.register(ReadsKey.KeyForPair.class, new FieldSerializer(kryo, ReadsKey.KeyForPair.class));
@@ -0,0 +1,213 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.google.common.annotations.VisibleForTesting;
+import htsjdk.samtools.*;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import org.apache.spark.SparkFiles;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.broadinstitute.hellbender.engine.GATKPath;
+import org.broadinstitute.hellbender.engine.ReadsPathDataSource;
+import org.broadinstitute.hellbender.engine.Shard;
+import org.broadinstitute.hellbender.engine.ShardBoundary;
+import org.broadinstitute.hellbender.engine.ShardBoundaryShard;
+import org.broadinstitute.hellbender.engine.filters.ReadFilter;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+/**
+ * Creates an RDD of {@link Shard} of reads for given intervals <i>without loading the reads into an RDD first</i>, for
+ * coordinate-sorted BAM or CRAM files with an index.
+ *
+ * Unlike {@link SparkSharder}, which shards an RDD of all the reads and must move the reads that overlap the padding of
+ * shards in other partitions between partitions, the shards are grouped into partitions up front on the driver, and
+ * each task queries the reads of the padded intervals of its own shards from the inputs directly. The size of the
+ * reads of each shard is estimated from the indexes of the inputs, so that partitions have similar amounts of reads
+ * to process. Partitions hold consecutive shards in coordinate order, so the output of each of them can be written as
+ * a part of a file and the parts concatenated without a sort.
+ *
+ * The inputs (and the reference, for CRAM) must be readable from the executors at the same paths as on the driver.
+ */
+public final class IndexedSparkSharder {
+    /** The default maximum estimated compressed size of the reads of a partition (the size of an HDFS block) */
+    public static final long DEFAULT_MAX_PARTITION_SIZE = 128L * 1024 * 1024;
+
+    private IndexedSparkSharder() {}
+
+    /**
+     * Create an RDD of {@link Shard} of the reads overlapping the given shard boundaries (including overlapping only
+     * padding), by querying the given coordinate-sorted and indexed inputs from each task.
+     * @param ctx the Spark Context
+     * @param readsPaths the BAM or CRAM inputs, which must be coordinate sorted and indexed
+     * @param referencePath the reference, required for CRAM inputs (may be null otherwise)
+     * @param referenceFileName the file name of the reference as added to the Spark context with {@code SparkContext#addFile()}
+     *                          (may be null if {@code referencePath} is)
+     * @param intervalShards the shard boundaries to create shards for, must be coordinate sorted
+     * @param maxPartitionSize the maximum estimated compressed size of the reads of a partition (partitions with a
+     *                         single shard may be larger), or 0 to use {@link #DEFAULT_MAX_PARTITION_SIZE}
+     * @param readFilter the filter that the reads of the shards must pass
+     * @param validationStringency the validation stringency for reading the inputs
+     * @return an RDD of {@link Shard} of the reads overlapping each shard boundary, in the order of the shard boundaries
+     */
+    public static JavaRDD<Shard<GATKRead>> shard(final JavaSparkContext ctx,
+                                                 final List<GATKPath> readsPaths,
+                                                 final GATKPath referencePath,
+                                                 final String referenceFileName,
+                                                 final List<ShardBoundary> intervalShards,
+                                                 final long maxPartitionSize,
+                                                 final ReadFilter readFilter,
+                                                 final ValidationStringency validationStringency) {
+        Utils.nonEmpty(readsPaths);
+        Utils.nonNull(intervalShards);
+        Utils.nonNull(readFilter);
+        final long[] shardSizes = getShardSizes(readsPaths, referencePath, intervalShards, validationStringency);
+        final List<List<ShardBoundary>> partitions = groupShards(intervalShards, shardSizes, maxPartitionSize > 0 ? maxPartitionSize : DEFAULT_MAX_PARTITION_SIZE);
+        if (partitions.isEmpty()) {
+            return ctx.emptyRDD();
+        }
+        // one element per partition, so that each partition gets exactly the shards grouped together above
+        return ctx.parallelize(partitions, partitions.size())
+                .mapPartitions(getShardsFunction(readsPaths, referenceFileName, readFilter, validationStringency));
+    }
+
+    /**
+     * @return the estimated compressed size of the reads overlapping the padded span of each shard, in all the inputs
+     */
+    private static long[] getShardSizes(final List<GATKPath> readsPaths, final GATKPath referencePath,
+                                        final List<ShardBoundary> intervalShards, final ValidationStringency validationStringency) {
+        final long[] shardSizes = new long[intervalShards.size()];
+        final SamReaderFactory factory = makeSamReaderFactory(referencePath == null ? null : referencePath.toPath(), validationStringency);
+        for (final GATKPath readsPath : readsPaths) {
+            try (final SamReader reader = factory.open(readsPath.toPath())) {
+                if (reader.getFileHeader().getSortOrder() != SAMFileHeader.SortOrder.coordinate) {
+                    throw new UserException.BadInput("Reads must be coordinate sorted to be sharded using their index, but " + readsPath + " is not");
+                }
+                if (!reader.hasIndex()) {
+                    throw new UserException.MissingIndex(readsPath.toString(), "Reads can only be sharded using their index if they have one.");
+                }
+                final BAMIndex index = reader.indexing().getIndex();
+                final SAMSequenceDictionary dictionary = reader.getFileHeader().getSequenceDictionary();
+                for (int i = 0; i < shardSizes.length; i++) {
+                    final SimpleInterval paddedSpan = intervalShards.get(i).getPaddedSpan();
+                    final int contigIndex = dictionary.getSequenceIndex(paddedSpan.getContig());
+                    if (contigIndex != -1) {
+                        shardSizes[i] += getCompressedSize(index.getSpanOverlapping(contigIndex, paddedSpan.getStart(), paddedSpan.getEnd()));
+                    }
+                }
+            } catch (final IOException e) {
+                throw new UserException.CouldNotReadInputFile(readsPath, "could not read the index", e);
+            }
+        }
+        return shardSizes;
+    }
+
+    private static long getCompressedSize(final BAMFileSpan span) {
+        if (span == null) {
+            return 0;
+        }
+        long size = 0;
+        for (final Chunk chunk : span.getChunks()) {
+            size += BlockCompressedFilePointerUtil.getBlockAddress(chunk.getChunkEnd()) - BlockCompressedFilePointerUtil.getBlockAddress(chunk.getChunkStart());
+        }
+        return size;
+    }
+
+    /**
+     * Group consecutive shards into partitions of at most the given total size, except for partitions of a single shard
+     */
+    @VisibleForTesting
+    static List<List<ShardBoundary>> groupShards(final List<ShardBoundary> intervalShards, final long[] shardSizes, final long maxPartitionSize) {
+        Utils.validateArg(intervalShards.size() == shardSizes.length, "there must be one size per shard");
+        final List<List<ShardBoundary>> partitions = new ArrayList<>();
+        List<ShardBoundary> partition = new ArrayList<>();
+        long partitionSize = 0;
+        for (int i = 0; i < shardSizes.length; i++) {
+            if (!partition.isEmpty() && partitionSize + shardSizes[i] > maxPartitionSize) {
+                partitions.add(partition);
+                partition = new ArrayList<>();
+                partitionSize = 0;
+            }
+            partition.add(intervalShards.get(i));
+            partitionSize += shardSizes[i];
+        }
+        if (!partition.isEmpty()) {
+            partitions.add(partition);
+        }
+        return partitions;
+    }
+
+    private static FlatMapFunction<Iterator<List<ShardBoundary>>, Shard<GATKRead>> getShardsFunction(
+            final List<GATKPath> readsPaths,
+            final String referenceFileName,
+            final ReadFilter readFilter,
+            final ValidationStringency validationStringency) {
+        return (FlatMapFunction<Iterator<List<ShardBoundary>>, Shard<GATKRead>>) partition -> {
+            final List<ShardBoundary> shardBoundaries = new ArrayList<>();
+            partition.forEachRemaining(shardBoundaries::addAll);
+            final Path referencePath = referenceFileName == null ? null : IOUtils.getPath(SparkFiles.get(referenceFileName));
+            final ReadsPathDataSource readsSource = new ReadsPathDataSource(
+                    readsPaths.stream().map(GATKPath::toPath).collect(Collectors.toList()),
+                    makeSamReaderFactory(referencePath, validationStringency));
+            return new ShardIterator(shardBoundaries.iterator(), readsSource, readFilter);
+        };
+    }
+
+    private static SamReaderFactory makeSamReaderFactory(final Path referencePath, final ValidationStringency validationStringency) {
+        final SamReaderFactory factory = SamReaderFactory.makeDefault().validationStringency(validationStringency);
+        return referencePath == null ? factory : factory.referenceSequence(referencePath);
+    }
+
+    /**
+     * Queries the reads of each shard as it's needed, so that only one shard of reads is held in memory at a time, and
+     * closes the reads source after the last one.
+     */
+    private static final class ShardIterator implements Iterator<Shard<GATKRead>> {
+        private final Iterator<ShardBoundary> shardBoundaries;
+        private final ReadsPathDataSource readsSource;
+        private final ReadFilter readFilter;
+
+        ShardIterator(final Iterator<ShardBoundary> shardBoundaries, final ReadsPathDataSource readsSource, final ReadFilter readFilter) {
+            this.shardBoundaries = shardBoundaries;
+            this.readsSource = readsSource;
+            this.readFilter = readFilter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (shardBoundaries.hasNext()) {
+                return true;
+            }
+            readsSource.close();
+            return false;
+        }
+
+        @Override
+        public Shard<GATKRead> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more shards");
+            }
+            final ShardBoundary shardBoundary = shardBoundaries.next();
+            final List<GATKRead> reads = new ArrayList<>();
+            final Iterator<GATKRead> overlappingReads = readsSource.query(shardBoundary.getPaddedSpan());
+            while (overlappingReads.hasNext()) {
+                final GATKRead read = overlappingReads.next();
+                if (readFilter.test(read)) {
+                    reads.add(read);
+                }
+            }
+            return new ShardBoundaryShard<>(shardBoundary, reads);
+        }
+    }
+}
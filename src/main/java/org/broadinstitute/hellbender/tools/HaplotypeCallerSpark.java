@@ -70,6 +70,21 @@ import java.util.List;
  * -O output.vcf.gz
  * </pre>
  *
+ * <p>For coordinate-sorted and indexed inputs that can be read from the executors, {@code --read-shards-from-index}
+ * makes each task query the reads of its own shards from the inputs, rather than the reads being loaded into Spark and
+ * then moved between partitions to make the shards. The shards are grouped into partitions using the sizes of their
+ * reads estimated from the index, and each partition writes its part of the output in order, so the parts are
+ * concatenated without a sort.</p>
+ *
+ * <pre>
+ * gatk HaplotypeCallerSpark \
+ * -R Homo_sapiens_assembly38.fasta \
+ * -I hdfs://namenode/input.bam \
+ * -O output.g.vcf.gz \
+ * -ERC GVCF \
+ * --read-shards-from-index
+ * </pre>
+ *
  */
 @CommandLineProgramProperties(summary = "HaplotypeCaller on Spark", oneLineSummary = "HaplotypeCaller on Spark", programGroup = ShortVariantDiscoveryProgramGroup.class)
 @DocumentedFeature
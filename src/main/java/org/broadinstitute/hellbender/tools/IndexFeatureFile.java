@@ -1,12 +1,15 @@
 
 package org.broadinstitute.hellbender.tools;
 
+import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.util.FileExtensions;
 import htsjdk.samtools.util.IOUtil;
 import htsjdk.tribble.*;
 import htsjdk.tribble.index.Index;
 import htsjdk.tribble.index.IndexFactory;
 import htsjdk.tribble.index.tabix.TabixIndex;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFHeader;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.barclay.argparser.Argument;
@@ -19,11 +22,17 @@ import picard.cmdline.programgroups.OtherProgramGroup;
 import org.broadinstitute.hellbender.engine.FeatureManager;
 import org.broadinstitute.hellbender.engine.ProgressMeter;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.codecs.FeatureSink;
 import org.broadinstitute.hellbender.utils.codecs.ProgressReportingDelegatingCodec;
+import org.broadinstitute.hellbender.utils.codecs.VariantSitesBCICodec;
+import org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStream;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 /**
  * This tool creates an index file for the various kinds of feature-containing files supported by GATK (such as VCF
@@ -35,6 +44,23 @@ import java.nio.file.Path;
  *     -I cohort.vcf.gz
  * </pre>
  * This produces the corresponding index, cohort.vcf.gz.tbi.
+ *
+ * <h3>Sites sidecar</h3>
+ * <p>For large VCF resources that are queried over and over, such as gnomAD, a panel of normals or dbSNP, this tool
+ * can also write a compact binary copy of the sites, keeping only the INFO fields named with
+ * --sites-sidecar-info-field. GATK tools read the records of a VCF from its sidecar, when it exists and is up to
+ * date, instead of parsing VCF text, but only for Feature inputs tagged with sites-sidecar=true (driving variants
+ * are always read from the VCF). The sidecar has no genotypes, so tag only resources that are used as sites-only,
+ * and keep every INFO field that the tools using the VCF need.</p>
+ * <pre>
+ * gatk IndexFeatureFile \
+ *     -I af-only-gnomad.vcf.gz \
+ *     --sites-sidecar-info-field AF
+ * </pre>
+ * This also produces af-only-gnomad.vcf.gz.sites.bci, which a tool then reads when given, for example,
+ * <pre>
+ *     --germline-resource:gnomad,sites-sidecar=true af-only-gnomad.vcf.gz
+ * </pre>
  */
 
 @CommandLineProgramProperties(
@@ -58,6 +84,15 @@ public final class IndexFeatureFile extends CommandLineProgram {
               optional = true)
     public GATKPath outputPath;
 
+    @Argument(fullName = SITES_SIDECAR_INFO_FIELD_LONG_NAME,
+              doc = "If specified, also write a binary sites sidecar next to the input VCF, keeping these INFO fields. " +
+                      "GATK tools read the records of the VCF from an up-to-date sidecar instead of parsing the VCF " +
+                      "when the VCF is given as a Feature input tagged with sites-sidecar=true.",
+              optional = true)
+    public List<String> sitesSidecarInfoFields = new ArrayList<>();
+
+    public static final String SITES_SIDECAR_INFO_FIELD_LONG_NAME = "sites-sidecar-info-field";
+
     public static final int OPTIMAL_GVCF_INDEX_BIN_SIZE = 128000;
     public static final String GVCF_FILE_EXTENSION = ".g.vcf";
 
@@ -82,9 +117,47 @@ public final class IndexFeatureFile extends CommandLineProgram {
         }
 
         logger.info("Successfully wrote index to " + indexPath);
+
+        if ( !sitesSidecarInfoFields.isEmpty() ) {
+            writeSitesSidecar();
+        }
         return indexPath.toString();
     }
 
+    private void writeSitesSidecar() {
+        final FeatureCodec<? extends Feature, ?> codec = FeatureManager.getCodecForFile(featurePath.toPath());
+        if ( codec.getFeatureType() != VariantContext.class ) {
+            throw new UserException.BadInput("--" + SITES_SIDECAR_INFO_FIELD_LONG_NAME + " can only be used with VCF inputs");
+        }
+        final GATKPath sidecarPath = new GATKPath(VariantSitesBCICodec.getSidecarPath(featurePath.getRawInputString()));
+
+        @SuppressWarnings("unchecked")
+        final FeatureCodec<VariantContext, ?> vcfCodec = (FeatureCodec<VariantContext, ?>)codec;
+        try ( final FeatureReader<VariantContext> vcfReader = AbstractFeatureReader.getFeatureReader(featurePath.getRawInputString(), vcfCodec, false) ) {
+            final VCFHeader header = (VCFHeader)vcfReader.getHeader();
+            final SAMSequenceDictionary dictionary = header.getSequenceDictionary();
+            if ( dictionary == null || dictionary.isEmpty() ) {
+                throw new UserException.BadInput("A sites sidecar can only be made for a VCF whose header has contig lines");
+            }
+            for ( final String infoField : sitesSidecarInfoFields ) {
+                if ( !header.hasInfoLine(infoField) ) {
+                    throw new UserException.BadInput("INFO field " + infoField + " is not defined in the header of " + featurePath);
+                }
+            }
+
+            final VariantSitesBCICodec sidecarCodec = new VariantSitesBCICodec();
+            final FeatureSink<VariantContext> sidecar = sidecarCodec.makeSink(sidecarPath, dictionary,
+                    new ArrayList<>(new LinkedHashSet<>(sitesSidecarInfoFields)), BlockCompressedIntervalStream.Writer.DEFAULT_COMPRESSION_LEVEL);
+            for ( final VariantContext vc : vcfReader.iterator() ) {
+                sidecar.write(vc);
+            }
+            sidecar.close();
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(featurePath.toPath(), e);
+        }
+        logger.info("Successfully wrote sites sidecar to " + sidecarPath);
+    }
+
     private Path determineFileName(final Index index) {
         if (outputPath != null) {
             return outputPath.toPath();
@@ -0,0 +1,319 @@
+package org.broadinstitute.hellbender.tools.spark.transforms.markduplicates;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords.MarkDuplicatesSparkRecord;
+import org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords.Pair;
+import org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords.TransientFieldPhysicalLocation;
+import picard.sam.markduplicates.util.OpticalDuplicateFinder;
+import picard.sam.util.PhysicalLocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Everything MarkDuplicatesSpark needs to know about the {@link MarkDuplicatesSparkRecord}s that share a ReadsKey,
+ * accumulated one record at a time so that the records of a key never have to be shuffled or held in memory all at
+ * once (see {@link MarkDuplicatesSparkUtils#transformToDuplicateNames}).
+ *
+ * Only the records that might be output are kept whole: the best fragment, the best pair and any passthroughs.
+ * Empty fragments reduce to a flag, and other fragments are dropped as soon as a better one, or an empty fragment,
+ * is seen. Every pair other than the best one is reduced to what the {@link OpticalDuplicateFinder} needs: its
+ * packed physical location and orientation, plus its name only if optical duplicates are to be tagged.
+ *
+ * When the end positions of fragments are significant (in flow mode), all fragments are kept whole, since which of
+ * them are duplicates depends on the ends of all of them.
+ */
+@DefaultSerializer(FieldSerializer.class)
+public final class DuplicateGroup {
+    private final boolean keepPairNames;
+    private final boolean keepAllFragments;
+
+    private boolean hasEmptyFragment = false;
+    private TransientFieldPhysicalLocation bestFragment = null;
+    private List<MarkDuplicatesSparkRecord> allFragments = null;
+    private List<MarkDuplicatesSparkRecord> passthroughs = null;
+
+    private Pair bestPair = null;
+    // the pairs other than bestPair, as parallel arrays of which the first numOtherPairs entries are in use
+    private int numOtherPairs = 0;
+    private long[] otherPairLocations = new long[0];
+    private byte[] otherPairOrientations = new byte[0];
+    private String[] otherPairNames = null;
+    private int[] otherPairPartitionIndexes = null;
+
+    /**
+     * @param keepPairNames if true, keep the names of all pairs, so that the optical duplicates among them can be
+     *                      tagged; otherwise only the number of optical duplicates can be computed
+     * @param keepAllFragments if true, keep all fragments rather than only the best one, for when their end positions
+     *                         decide which of them are duplicates
+     */
+    public DuplicateGroup(final boolean keepPairNames, final boolean keepAllFragments) {
+        this.keepPairNames = keepPairNames;
+        this.keepAllFragments = keepAllFragments;
+        if (keepPairNames) {
+            otherPairNames = new String[0];
+            otherPairPartitionIndexes = new int[0];
+        }
+    }
+
+    /**
+     * Add one record to this group
+     *
+     * @param finder used to parse the physical location of fragments and pairs from their names
+     * @return this group
+     */
+    public DuplicateGroup add(final MarkDuplicatesSparkRecord record, final OpticalDuplicateFinder finder) {
+        switch (record.getType()) {
+            case EMPTY_FRAGMENT:
+                markEmptyFragment();
+                break;
+            case FRAGMENT:
+                if (!hasEmptyFragment) {
+                    addFragment((TransientFieldPhysicalLocation)record, finder);
+                }
+                break;
+            case PAIR:
+                addPair((Pair)record, finder);
+                break;
+            case PASSTHROUGH:
+                if (passthroughs == null) {
+                    passthroughs = new ArrayList<>(1);
+                }
+                passthroughs.add(record);
+                break;
+            default:
+                throw new GATKException.ShouldNeverReachHereException("Unknown MarkDuplicatesSparkRecord type " + record.getType());
+        }
+        return this;
+    }
+
+    /**
+     * Add all the records of another group, built from the records of the same key, to this group
+     *
+     * @param finder used to parse the physical location of fragments and pairs from their names
+     * @return this group
+     */
+    public DuplicateGroup merge(final DuplicateGroup other, final OpticalDuplicateFinder finder) {
+        if (other.hasEmptyFragment) {
+            markEmptyFragment();
+        }
+        if (!hasEmptyFragment) {
+            if (other.bestFragment != null) {
+                addFragment(other.bestFragment, finder);
+            }
+            if (other.allFragments != null) {
+                other.allFragments.forEach(fragment -> addFragment((TransientFieldPhysicalLocation)fragment, finder));
+            }
+        }
+        if (other.passthroughs != null) {
+            if (passthroughs == null) {
+                passthroughs = new ArrayList<>(other.passthroughs.size());
+            }
+            passthroughs.addAll(other.passthroughs);
+        }
+        if (other.bestPair != null) {
+            addPair(other.bestPair, finder);
+        }
+        for (int i = 0; i < other.numOtherPairs; i++) {
+            addOtherPair(other.otherPairLocations[i], other.otherPairOrientations[i],
+                    keepPairNames ? other.otherPairNames[i] : null, keepPairNames ? other.otherPairPartitionIndexes[i] : -1);
+        }
+        return this;
+    }
+
+    private void markEmptyFragment() {
+        hasEmptyFragment = true;
+        // fragments starting where a read of a mapped pair starts are all duplicates, so there's no need to keep them
+        bestFragment = null;
+        allFragments = null;
+    }
+
+    private void addFragment(final TransientFieldPhysicalLocation fragment, final OpticalDuplicateFinder finder) {
+        if (keepAllFragments) {
+            if (allFragments == null) {
+                allFragments = new ArrayList<>(1);
+            }
+            allFragments.add(fragment);
+            return;
+        }
+        // the physical location is transient, so it must be parsed again after serialization
+        finder.addLocationInformation(fragment.getName(), fragment);
+        if (bestFragment == null) {
+            bestFragment = fragment;
+        } else {
+            finder.addLocationInformation(bestFragment.getName(), bestFragment);
+            if (MarkDuplicatesSparkUtils.PAIRED_ENDS_SCORE_COMPARATOR.compare(fragment, bestFragment) > 0) {
+                bestFragment = fragment;
+            }
+        }
+    }
+
+    private void addPair(final Pair pair, final OpticalDuplicateFinder finder) {
+        finder.addLocationInformation(pair.getName(), pair);
+        if (bestPair == null) {
+            bestPair = pair;
+            return;
+        }
+        finder.addLocationInformation(bestPair.getName(), bestPair);
+        final Pair worsePair;
+        if (MarkDuplicatesSparkUtils.PAIRED_ENDS_SCORE_COMPARATOR.compare(pair, bestPair) > 0) {
+            worsePair = bestPair;
+            bestPair = pair;
+        } else {
+            worsePair = pair;
+        }
+        addOtherPair(packLocation(worsePair), worsePair.getOrientationForOpticalDuplicates(), worsePair.getName(), worsePair.getPartitionIndex());
+    }
+
+    private void addOtherPair(final long location, final byte orientation, final String name, final int partitionIndex) {
+        if (numOtherPairs == otherPairLocations.length) {
+            final int newLength = Math.max(4, numOtherPairs * 2);
+            otherPairLocations = Arrays.copyOf(otherPairLocations, newLength);
+            otherPairOrientations = Arrays.copyOf(otherPairOrientations, newLength);
+            if (keepPairNames) {
+                otherPairNames = Arrays.copyOf(otherPairNames, newLength);
+                otherPairPartitionIndexes = Arrays.copyOf(otherPairPartitionIndexes, newLength);
+            }
+        }
+        otherPairLocations[numOtherPairs] = location;
+        otherPairOrientations[numOtherPairs] = orientation;
+        if (keepPairNames) {
+            otherPairNames[numOtherPairs] = name;
+            otherPairPartitionIndexes[numOtherPairs] = partitionIndex;
+        }
+        numOtherPairs++;
+    }
+
+    private static long packLocation(final PhysicalLocation location) {
+        return ((location.getReadGroup() & 0xFFFFL) << 48) |
+                ((location.getTile() & 0xFFFFL) << 32) |
+                ((location.getX() & 0xFFFFL) << 16) |
+                (location.getY() & 0xFFFFL);
+    }
+
+    /**
+     * @return true if a mapped read of a pair starts at this key, in which case all of its fragments are duplicates
+     */
+    public boolean hasEmptyFragment() {
+        return hasEmptyFragment;
+    }
+
+    /**
+     * @return the best-scoring fragment of this key, or null if it has none or all fragments are kept
+     */
+    public TransientFieldPhysicalLocation getBestFragment() {
+        return bestFragment;
+    }
+
+    /**
+     * @return all the fragments of this key if this group was created to keep them all, or null if it has none
+     */
+    public List<MarkDuplicatesSparkRecord> getAllFragments() {
+        return allFragments;
+    }
+
+    /**
+     * @return the passthroughs of this key, or null if it has none
+     */
+    public List<MarkDuplicatesSparkRecord> getPassthroughs() {
+        return passthroughs;
+    }
+
+    /**
+     * @return the best-scoring pair of this key, or null if it has no pairs
+     */
+    public Pair getBestPair() {
+        return bestPair;
+    }
+
+    /**
+     * @return the number of pairs in this key
+     */
+    public int getNumPairs() {
+        return bestPair == null ? 0 : numOtherPairs + 1;
+    }
+
+    /**
+     * Get the physical locations of all the pairs of this key, for optical duplicate detection. The first one is that
+     * of the best pair, and the names of the others are null unless this group was created to keep them.
+     *
+     * @param finder used to parse the physical location of the best pair from its name
+     */
+    public List<PairLocation> getPairLocations(final OpticalDuplicateFinder finder) {
+        final List<PairLocation> locations = new ArrayList<>(getNumPairs());
+        if (bestPair != null) {
+            finder.addLocationInformation(bestPair.getName(), bestPair);
+            locations.add(new PairLocation(packLocation(bestPair), bestPair.getOrientationForOpticalDuplicates(), bestPair.getName(), bestPair.getPartitionIndex()));
+        }
+        for (int i = 0; i < numOtherPairs; i++) {
+            locations.add(new PairLocation(otherPairLocations[i], otherPairOrientations[i],
+                    keepPairNames ? otherPairNames[i] : null, keepPairNames ? otherPairPartitionIndexes[i] : -1));
+        }
+        return locations;
+    }
+
+    /**
+     * The physical location of one pair, as seen by the {@link OpticalDuplicateFinder}
+     */
+    public static final class PairLocation implements PhysicalLocation {
+        private static final long serialVersionUID = 1L;
+
+        private final byte orientation;
+        private final String name;
+        private final int partitionIndex;
+        private short readGroup;
+        private short tile;
+        private short x;
+        private short y;
+        private short libraryId = -1;
+
+        PairLocation(final long packedLocation, final byte orientation, final String name, final int partitionIndex) {
+            this.readGroup = (short)(packedLocation >>> 48);
+            this.tile = (short)(packedLocation >>> 32);
+            this.x = (short)(packedLocation >>> 16);
+            this.y = (short)packedLocation;
+            this.orientation = orientation;
+            this.name = name;
+            this.partitionIndex = partitionIndex;
+        }
+
+        public byte getOrientationForOpticalDuplicates() { return orientation; }
+
+        public String getName() { return name; }
+
+        public int getPartitionIndex() { return partitionIndex; }
+
+        @Override
+        public short getReadGroup() { return readGroup; }
+
+        @Override
+        public void setReadGroup(final short readGroup) { this.readGroup = readGroup; }
+
+        @Override
+        public short getTile() { return tile; }
+
+        @Override
+        public void setTile(final short tile) { this.tile = tile; }
+
+        @Override
+        public int getX() { return x; }
+
+        @Override
+        public void setX(final int x) { this.x = (short)x; }
+
+        @Override
+        public int getY() { return y; }
+
+        @Override
+        public void setY(final int y) { this.y = (short)y; }
+
+        @Override
+        public short getLibraryId() { return libraryId; }
+
+        @Override
+        public void setLibraryId(final short libraryId) { this.libraryId = libraryId; }
+    }
+}
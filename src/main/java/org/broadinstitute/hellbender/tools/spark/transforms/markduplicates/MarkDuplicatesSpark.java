@@ -227,44 +227,63 @@ public final class MarkDuplicatesSpark extends GATKSparkTool {
                 });
 
             return Utils.stream(readsIter)
-                    .peek(read -> read.setIsDuplicate(false))
-                    .peek(read -> read.setAttribute(MarkDuplicates.DUPLICATE_TYPE_TAG, (String) null))
                     .peek(read -> {
-                        // Handle reads that have been marked as non-duplicates (which also get tagged with optical duplicate summary statistics)
-                        if (namesOfNonDuplicateReadsAndOpticalCounts.containsKey(read.getName())) {
-                            // If its an optical duplicate, mark it. (Note: we only expect these to exist if optical duplicate marking is on)
-                            if (namesOfNonDuplicateReadsAndOpticalCounts.get(read.getName()) == OPTICAL_DUPLICATE_MARKER) {
-                                read.setIsDuplicate(true);
-                                read.setAttribute(MarkDuplicates.DUPLICATE_TYPE_TAG, MarkDuplicates.DUPLICATE_TYPE_SEQUENCING);
-
-                            // Otherwise treat it normally as a non-duplicate.
-                            } else {
-                                read.setIsDuplicate(false);
-                                if (markUnmappedMates || !read.isUnmapped()) {
-                                    int dupCount = namesOfNonDuplicateReadsAndOpticalCounts.replace(read.getName(), NO_OPTICAL_MARKER);
-                                    if (dupCount > -1) {
-                                        read.setTransientAttribute(MarkDuplicatesSparkUtils.OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME, dupCount);
-                                    }
-                                }
-                            }
-                            // Mark unmapped read pairs as non-duplicates
-                        } else if (ReadUtils.readAndMateAreUnmapped(read)) {
-                            read.setIsDuplicate(false);
-                            // Everything else is a duplicate
-                        } else {
-                            if (markUnmappedMates || !read.isUnmapped()) {
-                                read.setIsDuplicate(true);
-                                if (taggingPolicy == MarkDuplicates.DuplicateTaggingPolicy.All) {
-                                    read.setAttribute(MarkDuplicates.DUPLICATE_TYPE_TAG, MarkDuplicates.DUPLICATE_TYPE_LIBRARY);
-                                }
-                            } else {
-                                read.setIsDuplicate(false);
-                            }
+                        final Integer marker = namesOfNonDuplicateReadsAndOpticalCounts.get(read.getName());
+                        final Integer remainingMarker = markRead(read, marker, markUnmappedMates, taggingPolicy);
+                        if (marker != null) {
+                            namesOfNonDuplicateReadsAndOpticalCounts.put(read.getName(), remainingMarker);
                         }
                     }).iterator();
         });
     }
 
+    /**
+     * Sets the duplicate flag and duplicate type tag of one read, given the marker found for its name by
+     * {@link MarkDuplicatesSparkUtils#markDuplicateGroup}.
+     *
+     * @param marker the number of optical duplicates or other marker of the read's template, or null if the template
+     *               was not among the non-duplicates
+     * @return the marker for the remaining reads of the template, since the number of optical duplicates is only
+     *         recorded on one read of the template
+     */
+    public static Integer markRead(final GATKRead read, final Integer marker, final boolean markUnmappedMates,
+                                   final MarkDuplicates.DuplicateTaggingPolicy taggingPolicy) {
+        read.setIsDuplicate(false);
+        read.setAttribute(MarkDuplicates.DUPLICATE_TYPE_TAG, (String) null);
+        // Handle reads that have been marked as non-duplicates (which also get tagged with optical duplicate summary statistics)
+        if (marker != null) {
+            // If its an optical duplicate, mark it. (Note: we only expect these to exist if optical duplicate marking is on)
+            if (marker == OPTICAL_DUPLICATE_MARKER) {
+                read.setIsDuplicate(true);
+                read.setAttribute(MarkDuplicates.DUPLICATE_TYPE_TAG, MarkDuplicates.DUPLICATE_TYPE_SEQUENCING);
+
+            // Otherwise treat it normally as a non-duplicate.
+            } else {
+                read.setIsDuplicate(false);
+                if (markUnmappedMates || !read.isUnmapped()) {
+                    if (marker > -1) {
+                        read.setTransientAttribute(MarkDuplicatesSparkUtils.OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME, marker);
+                    }
+                    return NO_OPTICAL_MARKER;
+                }
+            }
+            // Mark unmapped read pairs as non-duplicates
+        } else if (ReadUtils.readAndMateAreUnmapped(read)) {
+            read.setIsDuplicate(false);
+            // Everything else is a duplicate
+        } else {
+            if (markUnmappedMates || !read.isUnmapped()) {
+                read.setIsDuplicate(true);
+                if (taggingPolicy == MarkDuplicates.DuplicateTaggingPolicy.All) {
+                    read.setAttribute(MarkDuplicates.DUPLICATE_TYPE_TAG, MarkDuplicates.DUPLICATE_TYPE_LIBRARY);
+                }
+            } else {
+                read.setIsDuplicate(false);
+            }
+        }
+        return marker;
+    }
+
     public static JavaRDD<GATKRead> mark(final JavaRDD<GATKRead> reads, final SAMFileHeader header,
                                          final OpticalDuplicateFinder finder,
                                          final MarkDuplicatesSparkArgumentCollection mdArgs,
@@ -2,7 +2,6 @@ package org.broadinstitute.hellbender.tools.spark.transforms.markduplicates;
 
 import com.esotericsoftware.kryo.DefaultSerializer;
 import com.esotericsoftware.kryo.serializers.FieldSerializer;
-import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.*;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMReadGroupRecord;
@@ -42,7 +41,7 @@ public class MarkDuplicatesSparkUtils {
     public static final String OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME = "OD";
     // This comparator represents the tiebreaking for PairedEnds duplicate marking.
     // We compare first on score, followed by unclipped start position (which is reversed here because of the expected ordering)
-    private static final Comparator<TransientFieldPhysicalLocation> PAIRED_ENDS_SCORE_COMPARATOR = Comparator.comparing(TransientFieldPhysicalLocation::getScore)
+    static final Comparator<TransientFieldPhysicalLocation> PAIRED_ENDS_SCORE_COMPARATOR = Comparator.comparing(TransientFieldPhysicalLocation::getScore)
             .thenComparing(TransientFieldPhysicalLocationComparator.INSTANCE.reversed());
 
     /**
@@ -87,8 +86,7 @@ public class MarkDuplicatesSparkUtils {
             return index;
         }
 
-        @VisibleForTesting
-        IndexPair(T value, int index) {
+        public IndexPair(T value, int index) {
             this.value = value;
             this.index = index;
         }
@@ -110,11 +108,11 @@ public class MarkDuplicatesSparkUtils {
      *   (c) Label each read with alignment information: Library, reference index,
      *       stranded unclipped start and reverse strand.
      *   (d) Unmapped Pairs, Templates of entirely non-primary reads, etc are passed through as unmarked reads
-     * (4) GroupByKey: Group MarkDuplicatesSparkRecord that share alignment information. These pairs
-     *     are duplicates of each other.
+     * (4) CombineByKey: Combine MarkDuplicatesSparkRecord that share alignment information into a DuplicateGroup.
+     *     These pairs are duplicates of each other. The combining is done on each side of the shuffle, keeping only
+     *     the best fragment and pair of each key and the physical locations of the other pairs.
      * (5) markDuplicatePairs:
-     *   (a) For each group created by (4), sort the pairs by score and mark all but the
-     *       highest scoring as duplicates.
+     *   (a) For each group created by (4), mark all but the highest scoring fragment or pair as duplicates.
      *   (b) Determine which duplicates are optical duplicates and increase the overall count.
      */
     static JavaPairRDD<IndexPair<String>, Integer> transformToDuplicateNames(final SAMFileHeader header, final MarkDuplicatesScoringStrategy scoringStrategy, final OpticalDuplicateFinder finder, final JavaRDD<GATKRead>  reads, final int numReducers, final boolean markOpticalDups, final MarkDuplicatesSparkArgumentCollection mdArgs) {
@@ -127,77 +125,100 @@ public class MarkDuplicatesSparkUtils {
         final Broadcast<Map<String, Byte>> libraryIndex = JavaSparkContext.fromSparkContext(reads.context()).broadcast( constructLibraryIndex(header));
 
         // Place all the reads into a single RDD of MarkDuplicatesSparkRecord objects
-        final JavaPairRDD<ReadsKey, MarkDuplicatesSparkRecord> pairedEnds = keyedReads.flatMapToPair(keyedRead -> {
-            final List<Tuple2<ReadsKey, MarkDuplicatesSparkRecord>> out = Lists.newArrayList();
-            final IndexPair<?>[] hadNonPrimaryRead = {null};
-
-            final List<IndexPair<GATKRead>> primaryReads = Utils.stream(keyedRead._2())
-                    ////// Making The Fragments //////
-                    // Make a PairedEnd object with no second read for each fragment (and an empty one for each paired read)
-                    .peek(readWithIndex -> {
-                        final GATKRead read = readWithIndex.getValue();
-                        if (!(read.isSecondaryAlignment()||read.isSupplementaryAlignment())) {
-                            PairedEnds fragment = (ReadUtils.readHasMappedMate(read)) ?
-                                    MarkDuplicatesSparkRecord.newEmptyFragment(read, header, libraryIndex.getValue(), mdArgs) :
-                                    MarkDuplicatesSparkRecord.newFragment(read, header, readWithIndex.getIndex(), scoringStrategy, libraryIndex.getValue(), mdArgs);
-
-                            out.add(new Tuple2<>(fragment.key(), fragment));
-                        } else {
-                            hadNonPrimaryRead[0] = readWithIndex;
-                        }
-                    })
-                    .filter(indexPair -> !(indexPair.getValue().isSecondaryAlignment()||indexPair.getValue().isSupplementaryAlignment()))
-                    .collect(Collectors.toList());
-
-            // Catching the case where there are only secondary and supplementary reads in the readname group
-            if (primaryReads.isEmpty()) {
-                final MarkDuplicatesSparkRecord pass = MarkDuplicatesSparkRecord.getPassthrough((GATKRead)hadNonPrimaryRead[0].getValue(), hadNonPrimaryRead[0].getIndex());
-                out.add(new Tuple2<>(pass.key(), pass));
-                return out.iterator();
-
-                // Mark duplicates cant properly handle templates with more than two reads in a pair
-            } else if (primaryReads.size()>2) {
-                throw new UserException.UnimplementedFeature(String.format("MarkDuplicatesSpark only supports singleton fragments and pairs. We found the following group with >2 primary reads: ( %d number of reads)." +
-                        " \n%s.", primaryReads.size(), primaryReads.stream().map(Object::toString).collect(Collectors.joining("\n"))));
-            }
+        final JavaPairRDD<ReadsKey, MarkDuplicatesSparkRecord> pairedEnds = keyedReads.flatMapToPair(keyedRead ->
+                makeRecordsForTemplate(keyedRead._2(), header, scoringStrategy, headerReadGroupIndexMap.getValue(), libraryIndex.getValue(), mdArgs).iterator());
 
-            ////// Making The Paired Reads //////
-            // Write each paired read with a mapped mate as a pair
-            final List<IndexPair<GATKRead>> mappedPair = primaryReads.stream()
-                    .filter(readWithIndex -> ReadUtils.readHasMappedMate(readWithIndex.getValue()))
-                    .collect(Collectors.toList());
-
-            // If there are two primary reads in the group pass them as a pair
-            if (mappedPair.size()==2) {
-                final GATKRead firstRead = mappedPair.get(0).getValue();
-                final IndexPair<GATKRead> secondRead = mappedPair.get(1);
-                final Pair pair = MarkDuplicatesSparkRecord.newPair(firstRead, secondRead.getValue(), header, secondRead.getIndex(), scoringStrategy, libraryIndex.getValue());
-                // Validate and add the read group to the pair
-                final Short readGroup = headerReadGroupIndexMap.getValue().get(firstRead.getReadGroup());
-                if (readGroup != null) {
-                    pair.setReadGroup(readGroup);
-                } else {
-                    throw (firstRead.getReadGroup()==null) ?
-                            new UserException.ReadMissingReadGroup(firstRead) :
-                            new UserException.HeaderMissingReadGroup(firstRead);
-                }
-                out.add(new Tuple2<>(pair.key(), pair));
+        final boolean handleFragmentEnds = mdArgs.FLOW_END_LOCATION_SIGNIFICANT;
+        final JavaPairRDD<ReadsKey, DuplicateGroup> keyedPairs = pairedEnds.combineByKey(
+                record -> new DuplicateGroup(markOpticalDups, handleFragmentEnds).add(record, finder),
+                (group, record) -> group.add(record, finder),
+                (group, otherGroup) -> group.merge(otherGroup, finder));
 
-                // If there is one paired read in the template this probably means the bam is missing its mate, don't duplicate mark it
-            } else if (mappedPair.size()==1) {
-                final IndexPair<GATKRead> firstRead = mappedPair.get(0);
-                final MarkDuplicatesSparkRecord pass = MarkDuplicatesSparkRecord.getPassthrough(firstRead.getValue(), firstRead.getIndex());
-                out.add(new Tuple2<>(pass.key(), pass));
-            }
-            // If mappedPair is empty here, it probably means that we had a fragment with an unmapped mate, which has already been built
-            // and added to out. So we just pass through and return.
+        return markDuplicateRecords(keyedPairs, finder, markOpticalDups, handleFragmentEnds, mdArgs.ENDS_READ_UNCERTAINTY);
+    }
 
-            return out.iterator();
-        });
+    /**
+     * Makes the MarkDuplicatesSparkRecords for the reads of one template (all the mapped reads sharing a name), keyed
+     * by the alignment information that duplicates have in common:
+     *  - a fragment or empty fragment for each primary read;
+     *  - a pair if the template has two primary reads with mapped mates;
+     *  - a passthrough for templates of only non-primary reads, or with a single read having a mapped mate.
+     *
+     * @param template the mapped reads of the template, each with the index that identifies its template in the output
+     * @param headerReadGroupIndexMap index of each read group of the header (see {@link #getHeaderReadGroupIndexMap})
+     * @param libraryIndex index of each library of the header (see {@link #constructLibraryIndex})
+     */
+    public static List<Tuple2<ReadsKey, MarkDuplicatesSparkRecord>> makeRecordsForTemplate(final Iterable<IndexPair<GATKRead>> template,
+                                                                                          final SAMFileHeader header,
+                                                                                          final MarkDuplicatesScoringStrategy scoringStrategy,
+                                                                                          final Map<String, Short> headerReadGroupIndexMap,
+                                                                                          final Map<String, Byte> libraryIndex,
+                                                                                          final MarkDuplicatesSparkArgumentCollection mdArgs) {
+        final List<Tuple2<ReadsKey, MarkDuplicatesSparkRecord>> out = Lists.newArrayList();
+        final IndexPair<?>[] hadNonPrimaryRead = {null};
+
+        final List<IndexPair<GATKRead>> primaryReads = Utils.stream(template)
+                ////// Making The Fragments //////
+                // Make a PairedEnd object with no second read for each fragment (and an empty one for each paired read)
+                .peek(readWithIndex -> {
+                    final GATKRead read = readWithIndex.getValue();
+                    if (!(read.isSecondaryAlignment()||read.isSupplementaryAlignment())) {
+                        PairedEnds fragment = (ReadUtils.readHasMappedMate(read)) ?
+                                MarkDuplicatesSparkRecord.newEmptyFragment(read, header, libraryIndex, mdArgs) :
+                                MarkDuplicatesSparkRecord.newFragment(read, header, readWithIndex.getIndex(), scoringStrategy, libraryIndex, mdArgs);
+
+                        out.add(new Tuple2<>(fragment.key(), fragment));
+                    } else {
+                        hadNonPrimaryRead[0] = readWithIndex;
+                    }
+                })
+                .filter(indexPair -> !(indexPair.getValue().isSecondaryAlignment()||indexPair.getValue().isSupplementaryAlignment()))
+                .collect(Collectors.toList());
+
+        // Catching the case where there are only secondary and supplementary reads in the readname group
+        if (primaryReads.isEmpty()) {
+            final MarkDuplicatesSparkRecord pass = MarkDuplicatesSparkRecord.getPassthrough((GATKRead)hadNonPrimaryRead[0].getValue(), hadNonPrimaryRead[0].getIndex());
+            out.add(new Tuple2<>(pass.key(), pass));
+            return out;
 
-        final JavaPairRDD<ReadsKey, Iterable<MarkDuplicatesSparkRecord>> keyedPairs = pairedEnds.groupByKey(); //TODO evaluate replacing this with a smart aggregate by key.
+            // Mark duplicates cant properly handle templates with more than two reads in a pair
+        } else if (primaryReads.size()>2) {
+            throw new UserException.UnimplementedFeature(String.format("MarkDuplicatesSpark only supports singleton fragments and pairs. We found the following group with >2 primary reads: ( %d number of reads)." +
+                    " \n%s.", primaryReads.size(), primaryReads.stream().map(Object::toString).collect(Collectors.joining("\n"))));
+        }
 
-        return markDuplicateRecords(keyedPairs, finder, markOpticalDups, mdArgs.FLOW_END_LOCATION_SIGNIFICANT, mdArgs.ENDS_READ_UNCERTAINTY);
+        ////// Making The Paired Reads //////
+        // Write each paired read with a mapped mate as a pair
+        final List<IndexPair<GATKRead>> mappedPair = primaryReads.stream()
+                .filter(readWithIndex -> ReadUtils.readHasMappedMate(readWithIndex.getValue()))
+                .collect(Collectors.toList());
+
+        // If there are two primary reads in the group pass them as a pair
+        if (mappedPair.size()==2) {
+            final GATKRead firstRead = mappedPair.get(0).getValue();
+            final IndexPair<GATKRead> secondRead = mappedPair.get(1);
+            final Pair pair = MarkDuplicatesSparkRecord.newPair(firstRead, secondRead.getValue(), header, secondRead.getIndex(), scoringStrategy, libraryIndex);
+            // Validate and add the read group to the pair
+            final Short readGroup = headerReadGroupIndexMap.get(firstRead.getReadGroup());
+            if (readGroup != null) {
+                pair.setReadGroup(readGroup);
+            } else {
+                throw (firstRead.getReadGroup()==null) ?
+                        new UserException.ReadMissingReadGroup(firstRead) :
+                        new UserException.HeaderMissingReadGroup(firstRead);
+            }
+            out.add(new Tuple2<>(pair.key(), pair));
+
+            // If there is one paired read in the template this probably means the bam is missing its mate, don't duplicate mark it
+        } else if (mappedPair.size()==1) {
+            final IndexPair<GATKRead> firstRead = mappedPair.get(0);
+            final MarkDuplicatesSparkRecord pass = MarkDuplicatesSparkRecord.getPassthrough(firstRead.getValue(), firstRead.getIndex());
+            out.add(new Tuple2<>(pass.key(), pass));
+        }
+        // If mappedPair is empty here, it probably means that we had a fragment with an unmapped mate, which has already been built
+        // and added to out. So we just pass through and return.
+
+        return out;
     }
 
     /**
@@ -219,7 +240,7 @@ public class MarkDuplicatesSparkUtils {
     /**
      * Method which generates a map of the readgroups from the header so they can be serialized as indexes
      */
-    private static Map<String, Short> getHeaderReadGroupIndexMap(final SAMFileHeader header) {
+    public static Map<String, Short> getHeaderReadGroupIndexMap(final SAMFileHeader header) {
         final List<SAMReadGroupRecord> readGroups = header.getReadGroups();
         if (readGroups.size() > 65535) {
             throw new GATKException("Detected too many read groups in the header, currently MarkDuplicatesSpark only supports up to 65535 unique readgroup IDs but " + readGroups.size() + " were found");
@@ -280,69 +301,49 @@ public class MarkDuplicatesSparkUtils {
 
     /**
      * Primary landing point for MarkDuplicateSparkRecords:
-     *  - Handles separating out hashed keys into into groups by start position/readgroup
-     *  - Further separates out MarkDuplicatesSparkRecord by their record objects
-     *  - Farms out to methods which handles each group
+     *  - Handles the DuplicateGroup of each key, which holds everything needed of the records sharing that key
      *  - Collects the results and returns an iterator
      */
-    @SuppressWarnings("unchecked")
-    private static JavaPairRDD<IndexPair<String>, Integer> markDuplicateRecords(final JavaPairRDD<ReadsKey, Iterable<MarkDuplicatesSparkRecord>> keyedPairs,
+    private static JavaPairRDD<IndexPair<String>, Integer> markDuplicateRecords(final JavaPairRDD<ReadsKey, DuplicateGroup> keyedPairs,
                                                                                 final OpticalDuplicateFinder finder, final boolean markOpticalDups,
                                                                                 final boolean handleFragmentEnds, final int flowEndUncert) {
-        return keyedPairs.flatMapToPair(keyedPair -> {
-            Iterable<MarkDuplicatesSparkRecord> pairGroups = keyedPair._2();
-
-            final List<Tuple2<IndexPair<String>, Integer>> nonDuplicates = Lists.newArrayList();
-            final Map<MarkDuplicatesSparkRecord.Type, List<MarkDuplicatesSparkRecord>> stratifiedByType = splitByType(pairGroups);
-
-            // Each key corresponds to either fragments or paired ends, not a mixture of both.
-            final List<MarkDuplicatesSparkRecord> emptyFragments = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.EMPTY_FRAGMENT);
-            final List<MarkDuplicatesSparkRecord> fragments = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.FRAGMENT);
-            final List<Pair> pairs = (List<Pair>)(List)stratifiedByType.get(MarkDuplicatesSparkRecord.Type.PAIR);
-            final List<MarkDuplicatesSparkRecord> passthroughs = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.PASSTHROUGH);
-
-            //empty MarkDuplicatesSparkRecord signify that a pair has a mate somewhere else
-            // If there are any non-fragment placeholders at this site, mark everything as duplicates, otherwise compute the best score
-            if (Utils.isNonEmpty(fragments) && !Utils.isNonEmpty(emptyFragments)) {
-                if ( !handleFragmentEnds ) {
-                    final Tuple2<IndexPair<String>, Integer> bestFragment = handleFragments(fragments, finder);
-                    nonDuplicates.add(bestFragment);
-                } else {
-                    nonDuplicates.addAll(handleFragmentsWithEndPosition(fragments, finder, flowEndUncert));
-                }
-
-            }
-
-            if (Utils.isNonEmpty(pairs)) {
-                nonDuplicates.addAll(handlePairs(pairs, finder, markOpticalDups));
-            }
-
-            if (Utils.isNonEmpty(passthroughs)) {
-                nonDuplicates.addAll(handlePassthroughs(passthroughs));
-            }
-
-            return nonDuplicates.iterator();
-        });
+        return keyedPairs.flatMapToPair(keyedPair ->
+                markDuplicateGroup(keyedPair._2(), finder, markOpticalDups, handleFragmentEnds, flowEndUncert).iterator());
     }
 
     /**
-     * split MarkDuplicatesSparkRecord into groups by their type
+     * Finds the non-duplicates among the records of one key, farming out to methods which handle each type of record.
+     *
+     * @return the name and index of each non-duplicate, with the number of optical duplicates of the non-duplicate
+     *         pairs, or {@link MarkDuplicatesSpark#NO_OPTICAL_MARKER} for other non-duplicates. If markOpticalDups
+     *         is set, the optical duplicates are also included, with {@link MarkDuplicatesSpark#OPTICAL_DUPLICATE_MARKER}.
      */
-    private static Map<MarkDuplicatesSparkRecord.Type, List<MarkDuplicatesSparkRecord>> splitByType(Iterable<MarkDuplicatesSparkRecord> duplicateGroup) {
-        final EnumMap<MarkDuplicatesSparkRecord.Type, List<MarkDuplicatesSparkRecord>> byType = new EnumMap<>(MarkDuplicatesSparkRecord.Type.class);
-        for(MarkDuplicatesSparkRecord pair: duplicateGroup) {
-            byType.compute(pair.getType(), (key, value) -> {
-                if (value == null) {
-                    final ArrayList<MarkDuplicatesSparkRecord> pairedEnds = new ArrayList<>();
-                    pairedEnds.add(pair);
-                    return pairedEnds;
-                } else {
-                    value.add(pair);
-                    return value;
+    public static List<Tuple2<IndexPair<String>, Integer>> markDuplicateGroup(final DuplicateGroup group,
+                                                                              final OpticalDuplicateFinder finder, final boolean markOpticalDups,
+                                                                              final boolean handleFragmentEnds, final int flowEndUncert) {
+        final List<Tuple2<IndexPair<String>, Integer>> nonDuplicates = Lists.newArrayList();
+
+        //empty MarkDuplicatesSparkRecord signify that a pair has a mate somewhere else
+        // If there are any non-fragment placeholders at this site, mark everything as duplicates, otherwise compute the best score
+        if (!group.hasEmptyFragment()) {
+            if ( !handleFragmentEnds ) {
+                if (group.getBestFragment() != null) {
+                    nonDuplicates.add(handleFragments(Collections.singletonList(group.getBestFragment()), finder));
                 }
-            });
+            } else if (Utils.isNonEmpty(group.getAllFragments())) {
+                nonDuplicates.addAll(handleFragmentsWithEndPosition(group.getAllFragments(), finder, flowEndUncert));
+            }
+        }
+
+        if (group.getNumPairs() > 0) {
+            nonDuplicates.addAll(handlePairs(group.getPairLocations(finder), finder, markOpticalDups));
+        }
+
+        if (Utils.isNonEmpty(group.getPassthroughs())) {
+            nonDuplicates.addAll(handlePassthroughs(group.getPassthroughs()));
         }
-        return byType;
+
+        return nonDuplicates;
     }
 
     private static List<Tuple2<IndexPair<String>,Integer>> handlePassthroughs(List<MarkDuplicatesSparkRecord> passthroughs) {
@@ -439,7 +440,10 @@ public class MarkDuplicatesSparkUtils {
         return output;
     }
 
-    private static List<Tuple2<IndexPair<String>, Integer>> handlePairs(final List<Pair> pairs, final OpticalDuplicateFinder finder, final boolean markOpticalDups) {
+    /**
+     * @param pairs the physical locations of all the pairs of a key, the first of which is that of the best pair
+     */
+    private static List<Tuple2<IndexPair<String>, Integer>> handlePairs(final List<DuplicateGroup.PairLocation> pairs, final OpticalDuplicateFinder finder, final boolean markOpticalDups) {
         // save ourselves the trouble when there are no optical duplicates to worry about
         if (pairs.size() == 1) {
             return Collections.singletonList(new Tuple2<>(new IndexPair<>(pairs.get(0).getName(), pairs.get(0).getPartitionIndex()), 0));
@@ -447,18 +451,15 @@ public class MarkDuplicatesSparkUtils {
 
         List<Tuple2<IndexPair<String>, Integer>> output = new ArrayList<>();
 
-        final Pair bestPair = pairs.stream()
-                .peek(pair -> finder.addLocationInformation(pair.getName(), pair))
-                .max(PAIRED_ENDS_SCORE_COMPARATOR)
-                .orElseThrow(() -> new GATKException.ShouldNeverReachHereException("There was no best pair because the stream was empty, but it shouldn't have been empty."));
+        final DuplicateGroup.PairLocation bestPair = pairs.get(0);
 
         // Split by orientation and count duplicates in each group separately.
-        final Map<Byte, List<Pair>> groupByOrientation = pairs.stream()
-                .collect(Collectors.groupingBy(Pair::getOrientationForOpticalDuplicates));
+        final Map<Byte, List<DuplicateGroup.PairLocation>> groupByOrientation = pairs.stream()
+                .collect(Collectors.groupingBy(DuplicateGroup.PairLocation::getOrientationForOpticalDuplicates));
         final int numOpticalDuplicates;
         if (groupByOrientation.containsKey(ReadEnds.FR) && groupByOrientation.containsKey(ReadEnds.RF)) {
-            final List<Pair> peFR = new ArrayList<>(groupByOrientation.get(ReadEnds.FR));
-            final List<Pair> peRF = new ArrayList<>(groupByOrientation.get(ReadEnds.RF));
+            final List<DuplicateGroup.PairLocation> peFR = new ArrayList<>(groupByOrientation.get(ReadEnds.FR));
+            final List<DuplicateGroup.PairLocation> peRF = new ArrayList<>(groupByOrientation.get(ReadEnds.RF));
             numOpticalDuplicates = countOpticalDuplicates(finder, peFR, bestPair, markOpticalDups? output : null) + countOpticalDuplicates(finder, peRF, bestPair, markOpticalDups? output : null);
         } else {
             numOpticalDuplicates = countOpticalDuplicates(finder, pairs, bestPair, markOpticalDups? output : null);
@@ -467,7 +468,7 @@ public class MarkDuplicatesSparkUtils {
         return output;
     }
 
-    private static int countOpticalDuplicates(OpticalDuplicateFinder finder, List<Pair> scored, Pair best, List<Tuple2<IndexPair<String>,Integer>> opticalDuplicateList) {
+    private static int countOpticalDuplicates(OpticalDuplicateFinder finder, List<DuplicateGroup.PairLocation> scored, DuplicateGroup.PairLocation best, List<Tuple2<IndexPair<String>,Integer>> opticalDuplicateList) {
         final boolean[] opticalDuplicateFlags = finder.findOpticalDuplicates(scored, best);
         int numOpticalDuplicates = 0;
         for (int i = 0; i < opticalDuplicateFlags.length; i++) {
@@ -498,14 +499,7 @@ public class MarkDuplicatesSparkUtils {
                     final String library = LibraryIdGenerator.getLibraryName(header, read.getReadGroup());
                     GATKDuplicationMetrics metrics = new GATKDuplicationMetrics();
                     metrics.LIBRARY = library;
-                    metrics.updateMetrics(read);
-                    // NOTE: we use the SAMRecord transientAttribute field here specifically to prevent the already
-                    // serialized read from being parsed again here for performance reasons.
-                    if (read.getTransientAttribute(OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME)!=null) {
-                        // NOTE: there is a safety check above in getReadsGroupedByName()
-                        metrics.READ_PAIR_OPTICAL_DUPLICATES +=
-                                (int)(read.getTransientAttribute(OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME));
-                    }
+                    updateMetrics(metrics, read);
                     return new Tuple2<>(library, metrics);
                 })
                 .foldByKey(new GATKDuplicationMetrics(), (metricsSum, m) -> {
@@ -516,19 +510,38 @@ public class MarkDuplicatesSparkUtils {
                     }
                     return metricsSum;
                 })
-                .mapValues(metrics -> {
-                    final GATKDuplicationMetrics copy = metrics.copy();
-                    // Divide these by 2 because they are counted for each read
-                    // when they should be counted by pair.
-                    copy.READ_PAIRS_EXAMINED = metrics.READ_PAIRS_EXAMINED / 2;
-                    copy.READ_PAIR_DUPLICATES = metrics.READ_PAIR_DUPLICATES / 2;
-
-                    copy.calculateDerivedFields();
-                    if (copy.ESTIMATED_LIBRARY_SIZE == null) {
-                        copy.ESTIMATED_LIBRARY_SIZE = 0L;
-                    }
-                    return copy;
-                });
+                .mapValues(MarkDuplicatesSparkUtils::finalizeMetrics);
+    }
+
+    /**
+     * Adds the contribution of one marked read to the metrics of its library
+     */
+    public static void updateMetrics(final GATKDuplicationMetrics metrics, final GATKRead read) {
+        metrics.updateMetrics(read);
+        // NOTE: we use the SAMRecord transientAttribute field here specifically to prevent the already
+        // serialized read from being parsed again here for performance reasons.
+        if (read.getTransientAttribute(OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME)!=null) {
+            // NOTE: there is a safety check above in getReadsGroupedByName()
+            metrics.READ_PAIR_OPTICAL_DUPLICATES +=
+                    (int)(read.getTransientAttribute(OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME));
+        }
+    }
+
+    /**
+     * @return a copy of the metrics summed over the reads of a library, with the derived fields calculated
+     */
+    public static GATKDuplicationMetrics finalizeMetrics(final GATKDuplicationMetrics metrics) {
+        final GATKDuplicationMetrics copy = metrics.copy();
+        // Divide these by 2 because they are counted for each read
+        // when they should be counted by pair.
+        copy.READ_PAIRS_EXAMINED = metrics.READ_PAIRS_EXAMINED / 2;
+        copy.READ_PAIR_DUPLICATES = metrics.READ_PAIR_DUPLICATES / 2;
+
+        copy.calculateDerivedFields();
+        if (copy.ESTIMATED_LIBRARY_SIZE == null) {
+            copy.ESTIMATED_LIBRARY_SIZE = 0L;
+        }
+        return copy;
     }
 
     /**
@@ -537,9 +550,19 @@ public class MarkDuplicatesSparkUtils {
      * @param result metrics object, potentially pre-initialized with headers,
      */
     public static void saveMetricsRDD(final MetricsFile<GATKDuplicationMetrics, Double> result, final SAMFileHeader header, final JavaPairRDD<String, GATKDuplicationMetrics> metricsRDD, final String metricsOutputPath) {
+        saveMetrics(result, header, metricsRDD.collectAsMap(), metricsOutputPath);
+    }
+
+    /**
+     * Saves the metrics to a file.
+     * Note: the SamFileHeader is needed in order to include libraries that didn't have any duplicates.
+     * @param result metrics object, potentially pre-initialized with headers,
+     * @param nonEmptyMetricsByLibrary finalized metrics (see {@link #finalizeMetrics}) of each library that had reads
+     */
+    public static void saveMetrics(final MetricsFile<GATKDuplicationMetrics, Double> result, final SAMFileHeader header, final Map<String, GATKDuplicationMetrics> nonEmptyMetricsByLibrary, final String metricsOutputPath) {
         final LibraryIdGenerator libraryIdGenerator = new LibraryIdGenerator(header);
 
-        final Map<String, GATKDuplicationMetrics> nonEmptyMetricsByLibrary = metricsRDD.collectAsMap();           //Unknown Library
+        //Unknown Library
         final Map<String, GATKDuplicationMetrics> emptyMapByLibrary = libraryIdGenerator.getMetricsByLibraryMap();//with null
 
         final List<String> sortedListOfLibraryNames = new ArrayList<>(Sets.union(emptyMapByLibrary.keySet(), nonEmptyMetricsByLibrary.keySet()));
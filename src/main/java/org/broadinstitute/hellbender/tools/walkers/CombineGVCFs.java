@@ -22,6 +22,7 @@ import org.broadinstitute.hellbender.engine.GATKPath;
 import org.broadinstitute.hellbender.engine.MultiVariantWalkerGroupedOnStart;
 import org.broadinstitute.hellbender.engine.ReadsContext;
 import org.broadinstitute.hellbender.engine.ReferenceContext;
+import org.broadinstitute.hellbender.engine.VariantGroupWorker;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.genomicsdb.GenomicsDBArgumentCollection;
 import org.broadinstitute.hellbender.tools.walkers.annotator.Annotation;
@@ -36,6 +37,7 @@ import org.broadinstitute.hellbender.utils.variant.GATKVCFHeaderLines;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Combine per-sample gVCF files produced by HaplotypeCaller into a multi-sample gVCF file
@@ -66,6 +68,18 @@ import java.util.*;
  *   -O cohort.g.vcf.gz
  * </pre>
  *
+ * <p>With indexed inputs, contigs can be merged concurrently with --traversal-threads. Each thread merges whole
+ * contigs using its own readers of the inputs, and the merged records are written in order, so the output is the same
+ * as with a single thread.</p>
+ * <pre>
+ * gatk CombineGVCFs \
+ *   -R reference.fasta \
+ *   --variant sample1.g.vcf.gz \
+ *   --variant sample2.g.vcf.gz \
+ *   --traversal-threads 8 \
+ *   -O cohort.g.vcf.gz
+ * </pre>
+ *
  * <h3>Caveats</h3>
  * <p>Only GVCF files produced by HaplotypeCaller (or CombineGVCFs) can be used as input for this tool. Some other
  * programs produce files that they call GVCFs but those lack some important information (accurate genotype likelihoods
@@ -145,43 +159,12 @@ public final class CombineGVCFs extends MultiVariantWalkerGroupedOnStart {
     @ArgumentCollection
     protected DbsnpArgumentCollection dbsnp = new DbsnpArgumentCollection();
 
-    // State that gets accumulated between calls of apply()
-    private final LinkedList<VariantContext> variantContextsOverlappingCurrentMerge = new LinkedList<>();
-    private final Set<String> samples = new HashSet<>();
-    private SimpleInterval prevPos = null;
-    private byte refAfterPrevPos;
-    private ReferenceContext storedReferenceContext;
+    // State that gets accumulated between calls of apply(), when traversing on a single thread
+    private GVCFMerger merger;
 
     @Override
     public void apply(List<VariantContext> variantContexts, ReferenceContext referenceContext, final List<ReadsContext> readsContexts) {
-        // Check that the input variant contexts do not contain MNPs as these may not be properly merged
-        for (final VariantContext ctx : variantContexts) {
-            if (GATKVariantContextUtils.isUnmixedMnpIgnoringNonRef(ctx)) {
-                throw new UserException.BadInput(String.format(
-                        "Combining gVCFs containing MNPs is not supported. %1s contained a MNP at %2s:%3d",
-                        ctx.getSource(), ctx.getContig(), ctx.getStart()));
-            }
-        }
-
-        // If we need to stop at an intermediate site since the last apply, do so (caused by gvcfBlocks, contexts ending, etc...)
-        if (!variantContextsOverlappingCurrentMerge.isEmpty()) {
-            Locatable last = prevPos!=null && prevPos.getContig().equals(variantContextsOverlappingCurrentMerge.get(0).getContig()) ?  prevPos : variantContextsOverlappingCurrentMerge.get(0);
-            // If on a different contig, close out all the queued states on the current contig
-            int end = last.getContig().equals(referenceContext.getWindow().getContig())
-                    ? referenceContext.getInterval().getStart() - 1
-                    : variantContextsOverlappingCurrentMerge.stream().mapToInt(VariantContext::getEnd).max().getAsInt();
-
-            createIntermediateVariants( new SimpleInterval(last.getContig(), last.getStart(), end));
-        }
-
-        mergeWithNewVCs(variantContexts, referenceContext);
-
-        // Update the stored reference if it has a later stop position than the current stored reference
-        if ( (storedReferenceContext == null) ||
-                (!referenceContext.getWindow().contigsMatch(storedReferenceContext.getWindow()) ) ||
-                (storedReferenceContext.getWindow().getEnd() < referenceContext.getWindow().getEnd())) {
-            storedReferenceContext = referenceContext;
-        }
+        merger.apply(variantContexts, referenceContext);
     }
 
     /**
@@ -192,44 +175,7 @@ public final class CombineGVCFs extends MultiVariantWalkerGroupedOnStart {
      */
     @VisibleForTesting
     void createIntermediateVariants(SimpleInterval intervalToClose) {
-        resizeReferenceIfNeeded(intervalToClose);
-
-        // Break up the GVCF according to the provided reference blocking scheme
-        // The values returned from getIntermediateStopSites represent a proposed set of stop sites that may include
-        // intervals that are outside the actual interval being closed. These sites are filtered out below.
-        // Note: Precomputing these is really inefficient when large reference blocks are closed with
-        // fine band resolution because it results in very large collections of stop sites (tens or hundreds of millions)
-        // that must subsequently be sorted.
-        final Set<Integer> sitesToStop = getIntermediateStopSites(intervalToClose, multipleAtWhichToBreakBands);
-
-        // If any variant contexts ended (or were spanning deletions) the last context compute where we should stop them
-        for (VariantContext vc : variantContextsOverlappingCurrentMerge) {
-
-            // Asking if the number of alleles > 2 is a shorthand for a variant being present, as we expect <non-ref>
-            // symbolic alleles to be present in all VariantContext. This might also be the case if we saw a spanning
-            // deletion that reads into the current site, as we would expect ReferenceConfidenceVariantContextMerger to
-            // insert symbolic alleles for those spanning variants.
-            if (vc.getNAlleles() > 2) {
-                for (int i = vc.getStart(); i <= vc.getEnd(); i++ ) {
-                    sitesToStop.add(i);
-                }
-            } else if (vc.getEnd() <= intervalToClose.getEnd()) {
-                sitesToStop.add(vc.getEnd());
-            }
-        }
-
-        List<Integer> stoppedLocs = new ArrayList<>(sitesToStop);
-        stoppedLocs.sort(Comparator.naturalOrder());
-
-        // For each stopped loc that is within the interval being closed, create a fake QueuedContextState and pass it to endPreviousStats
-        for (int stoppedLoc : stoppedLocs) {
-            SimpleInterval loc = new SimpleInterval(intervalToClose.getContig(), stoppedLoc, stoppedLoc);
-            if (( stoppedLoc <= intervalToClose.getEnd() && stoppedLoc>= intervalToClose.getStart()) && isWithinInterval(loc)) {
-                byte[] refBases = Arrays.copyOfRange(storedReferenceContext.getBases(), stoppedLoc - storedReferenceContext.getWindow().getStart(), stoppedLoc - storedReferenceContext.getWindow().getStart() + 2);
-                endPreviousStates(loc, refBases, Collections.emptyList(), true);
-            }
-        }
-
+        merger.createIntermediateVariants(intervalToClose);
     }
 
     // Get any intermediate stop sites based on the break band multiple.
@@ -251,18 +197,6 @@ public final class CombineGVCFs extends MultiVariantWalkerGroupedOnStart {
         return sitesToStop;
     }
 
-    /**
-     * Resize {@link #storedReferenceContext} to cover at least as much as intervalToClose
-     * @param intervalToClose
-     */
-    private void resizeReferenceIfNeeded(SimpleInterval intervalToClose) {
-        final int leftEdge = storedReferenceContext.getInterval().getStart() - intervalToClose.getStart();
-        final int rightEdge = intervalToClose.getEnd() - storedReferenceContext.getInterval().getEnd();
-
-        storedReferenceContext.setWindow(Math.max(1, leftEdge), Math.max(1, rightEdge));
-    }
-
-
     @Override
     public void onTraversalStart() {
         if (somaticInput) {
@@ -284,6 +218,8 @@ public final class CombineGVCFs extends MultiVariantWalkerGroupedOnStart {
             useBpResolution = true;
             multipleAtWhichToBreakBands = 1;
         }
+
+        merger = new GVCFMerger(referenceConfidenceVariantContextMerger, vcfWriter::add);
     }
 
     private VariantContextWriter getVCFWriter() {
@@ -323,6 +259,50 @@ public final class CombineGVCFs extends MultiVariantWalkerGroupedOnStart {
         return writer;
     }
 
+    /**
+     * Each traversal thread merges whole contigs with its own {@link GVCFMerger}, annotation engine and
+     * {@link ReferenceConfidenceVariantContextMerger}. The merged records are written to the shared writer on the main
+     * thread, in traversal order, so that the output is the same as for a single-threaded run.
+     */
+    @Override
+    protected VariantGroupWorker makeVariantGroupWorker() {
+        final VariantAnnotatorEngine workerAnnotationEngine = new VariantAnnotatorEngine(makeVariantAnnotations(), dbsnp.dbsnp, Collections.emptyList(), false, false);
+        final ReferenceConfidenceVariantContextMerger workerVariantContextMerger = new ReferenceConfidenceVariantContextMerger(workerAnnotationEngine,
+                getHeaderForVariants(), somaticInput, dropSomaticFilteringAnnotations, makeGenotypeCalls);
+        final List<VariantContext> mergedVCs = new ArrayList<>();
+        return new VariantGroupWorker() {
+            private GVCFMerger partitionMerger;
+
+            @Override
+            public void startPartition() {
+                partitionMerger = new GVCFMerger(workerVariantContextMerger, mergedVCs::add);
+            }
+
+            @Override
+            public Runnable processGroup(final List<VariantContext> variantContexts, final ReferenceContext referenceContext) {
+                partitionMerger.apply(variantContexts, referenceContext);
+                return takeMergedVCs();
+            }
+
+            @Override
+            public Runnable finishPartition(final boolean isLastPartition) {
+                if (isLastPartition) {
+                    partitionMerger.finish();
+                } else {
+                    partitionMerger.closeOutContig();
+                }
+                partitionMerger = null;
+                return takeMergedVCs();
+            }
+
+            private Runnable takeMergedVCs() {
+                final List<VariantContext> output = new ArrayList<>(mergedVCs);
+                mergedVCs.clear();
+                return () -> output.forEach(vcfWriter::add);
+            }
+        };
+    }
+
     /**
      * Method which calls endPreviousStates at the appropriate places on the given a new startingStates object
      * and an OverallState object corresponding to the currently accumulated reads.
@@ -331,187 +311,327 @@ public final class CombineGVCFs extends MultiVariantWalkerGroupedOnStart {
      * @param referenceContext ReferenceContext object overlapping the provided VariantContexts
      */
     public void mergeWithNewVCs(final List<VariantContext> variantContexts, final ReferenceContext referenceContext) {
-        if ( !variantContexts.isEmpty() ) {
-            if ( ! okayToSkipThisSite(variantContexts, referenceContext) ) {
-                SimpleInterval loc = referenceContext.getInterval();
-                if (loc.getStart()-1 > 0) {
-                    endPreviousStates(new SimpleInterval(loc.getContig(), loc.getStart() - 1, loc.getStart() - 1),
-                            Arrays.copyOfRange(referenceContext.getBases(), 1, referenceContext.getWindow().getLengthOnReference()),
-                            variantContexts,
-                            false);
-                }
-            }
-            variantContextsOverlappingCurrentMerge.addAll(variantContexts);
-            for(final VariantContext vc : variantContextsOverlappingCurrentMerge){
-                samples.addAll(vc.getSampleNames());
-            }
-        }
+        merger.mergeWithNewVCs(variantContexts, referenceContext);
     }
 
     /**
-     * Is it okay to skip the given position?
+     * Does the given list of VariantContexts contain any with an alternate allele other than <NON_REF>?
      *
-     * @param variantContexts  the query variant contexts representing the current position
-     * @param referenceContext  Reference context object overlapping the variant contexts
-     * @return true if it is okay to skip this position, false otherwise
+     * @param VCs  list of VariantContexts
+     * @return true if there are one or more variantContexts that contain a true alternate allele, false otherwise
      */
-    private boolean okayToSkipThisSite(List<VariantContext> variantContexts, ReferenceContext referenceContext) {
-        Set<String> intersection = new HashSet<>(getSamples(variantContexts));
-        intersection.retainAll(samples);
+    private static boolean containsTrueAltAllele(final List<VariantContext> VCs) {
+
+        for ( final VariantContext vc : VCs ) {
+            if ( vc.getNAlleles() > 2 ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Object onTraversalSuccess() {
+        // with more than one traversal thread, each contig has already been finished by the worker that merged it
+        if (traversalThreads > 1) {
+            return null;
+        }
+
+        if (merger.isEmpty()) {
+            logger.warn("Error: The requested interval contained no data in source VCF files");
+            return null;
+        }
 
-        //if there's a starting VC with a sample that's already in a current VC, don't skip this position
-        return prevPos != null && referenceContext.getInterval().getStart() == prevPos.getStart() + 1 && intersection.isEmpty();
+        merger.finish();
+        return null;
     }
 
-    private Set<String> getSamples(List<VariantContext> variantContexts) {
-        Set<String> output = new HashSet<>();
-        for (final VariantContext vc : variantContexts) {
-            output.addAll(vc.getSampleNames());
+    @Override
+    public void closeTool(){
+        if (vcfWriter != null) {
+            vcfWriter.close();
         }
-        return output;
     }
 
     /**
-     * Disrupt the VariantContexts so that they all stop at the given pos, write them out, and put the remainder back in the list.
-     * @param pos   the position for the starting variantContexts
-     * @param variantContexts the current variant contexts with the same starting position
-     * @param forceOutputAtCurrentPosition  indicates whether we output a variant at the current position, independent of VCF start/end, i.e. in BP resolution mode
+     * The state of the merge of a run of consecutive sites, and the methods that advance it. A single-threaded traversal
+     * uses one merger for all the sites, while each traversal thread uses a new one for each contig it merges.
      */
-    private void endPreviousStates(final SimpleInterval pos, final byte[] refBases, final List<VariantContext> variantContexts, boolean forceOutputAtCurrentPosition) {
-        Set<String> newSamples = getSamples(variantContexts);
+    private final class GVCFMerger {
+        private final ReferenceConfidenceVariantContextMerger referenceConfidenceVariantContextMerger;
+        private final Consumer<VariantContext> output;
+
+        private final LinkedList<VariantContext> variantContextsOverlappingCurrentMerge = new LinkedList<>();
+        private final Set<String> samples = new HashSet<>();
+        private SimpleInterval prevPos = null;
+        private byte refAfterPrevPos;
+        private ReferenceContext storedReferenceContext;
+
+        GVCFMerger(final ReferenceConfidenceVariantContextMerger referenceConfidenceVariantContextMerger, final Consumer<VariantContext> output) {
+            this.referenceConfidenceVariantContextMerger = referenceConfidenceVariantContextMerger;
+            this.output = output;
+        }
 
-        final byte refBase = refBases[0];
-        //if we're in BP resolution mode or a VC ends at the current position then the reference for the next output VC (refNextBase)
-        // will be advanced one base
-        final byte refNextBase = (forceOutputAtCurrentPosition) ? (refBases.length > 1 ? refBases[1] : (byte)'N' ): refBase;
+        void apply(final List<VariantContext> variantContexts, final ReferenceContext referenceContext) {
+            // Check that the input variant contexts do not contain MNPs as these may not be properly merged
+            for (final VariantContext ctx : variantContexts) {
+                if (GATKVariantContextUtils.isUnmixedMnpIgnoringNonRef(ctx)) {
+                    throw new UserException.BadInput(String.format(
+                            "Combining gVCFs containing MNPs is not supported. %1s contained a MNP at %2s:%3d",
+                            ctx.getSource(), ctx.getContig(), ctx.getStart()));
+                }
+            }
+
+            // If we need to stop at an intermediate site since the last apply, do so (caused by gvcfBlocks, contexts ending, etc...)
+            if (!variantContextsOverlappingCurrentMerge.isEmpty()) {
+                Locatable last = prevPos!=null && prevPos.getContig().equals(variantContextsOverlappingCurrentMerge.get(0).getContig()) ?  prevPos : variantContextsOverlappingCurrentMerge.get(0);
+                // If on a different contig, close out all the queued states on the current contig
+                int end = last.getContig().equals(referenceContext.getWindow().getContig())
+                        ? referenceContext.getInterval().getStart() - 1
+                        : variantContextsOverlappingCurrentMerge.stream().mapToInt(VariantContext::getEnd).max().getAsInt();
+
+                createIntermediateVariants( new SimpleInterval(last.getContig(), last.getStart(), end));
+            }
 
-        final List<VariantContext> stoppedVCs = new ArrayList<>(variantContextsOverlappingCurrentMerge.size());
+            mergeWithNewVCs(variantContexts, referenceContext);
 
-        for (int i = variantContextsOverlappingCurrentMerge.size() - 1; i >= 0; i-- ) {
-            final VariantContext vc = variantContextsOverlappingCurrentMerge.get(i);
-            //the VC for the previous state will be stopped if its position is previous to the current position or it we've moved to a new contig
-            if ( vc.getStart() <= pos.getStart() || !vc.contigsMatch(pos)) {
+            // Update the stored reference if it has a later stop position than the current stored reference
+            if ( (storedReferenceContext == null) ||
+                    (!referenceContext.getWindow().contigsMatch(storedReferenceContext.getWindow()) ) ||
+                    (storedReferenceContext.getWindow().getEnd() < referenceContext.getWindow().getEnd())) {
+                storedReferenceContext = referenceContext;
+            }
+        }
+
+        /**
+         * Close out all the queued states of the current contig, as {@link #apply} does when it moves on to the next one
+         */
+        void closeOutContig() {
+            if (!variantContextsOverlappingCurrentMerge.isEmpty()) {
+                final VariantContext first = variantContextsOverlappingCurrentMerge.get(0);
+                final Locatable last = prevPos != null && prevPos.getContig().equals(first.getContig()) ? prevPos : first;
+                createIntermediateVariants(new SimpleInterval(last.getContig(), last.getStart(),
+                        variantContextsOverlappingCurrentMerge.stream().mapToInt(VariantContext::getEnd).max().getAsInt()));
+            }
+        }
 
-                stoppedVCs.add(vc);
+        /**
+         * @return whether no variants have been merged yet
+         */
+        boolean isEmpty() {
+            return storedReferenceContext == null;
+        }
 
-                // if it was ending anyways, then remove it from the future state
-                // or if ending vc is the same sample as a starting VC, then remove it from the future state
-                if((vc.getEnd() == pos.getStart()) || (variantContexts.size() > 0 && !forceOutputAtCurrentPosition && newSamples.containsAll(vc.getSampleNames()))) {
-                    samples.removeAll(vc.getSampleNames());
-                    variantContextsOverlappingCurrentMerge.remove(i);
+        /**
+         * Finish off the last blocks at the end of the traversal
+         */
+        void finish() {
+            if ( !variantContextsOverlappingCurrentMerge.isEmpty() ) {
+                // finish off the last blocks
+                final SimpleInterval lastInterval = new SimpleInterval(
+                        variantContextsOverlappingCurrentMerge.get(0).getContig(),
+                        variantContextsOverlappingCurrentMerge.get(0).getStart(),
+                        variantContextsOverlappingCurrentMerge.stream().map(VariantContext::getEnd).max(Comparator.naturalOrder()).get());
+                    createIntermediateVariants(lastInterval);
+                // there shouldn't be any state left unless the user cut in the middle of a gVCF block
+                if ( !variantContextsOverlappingCurrentMerge.isEmpty() ) {
+                    logger.warn("You have asked for an interval that cuts in the middle of one or more gVCF blocks. Please note that this will cause you to lose records that don't end within your interval.");
                 }
             }
         }
 
-        //output the stopped variantContexts if there is no previous output (state.prevPos == null) or our current position is past
-        // the last write position (state.prevPos)
-        //NOTE: BP resolution with have current position == state.prevPos because it gets output via a different control flow
-        if ( !stoppedVCs.isEmpty() &&  (prevPos == null || IntervalUtils.isAfter(pos,prevPos,sequenceDictionary) )) {
-            final SimpleInterval closingSpot = new SimpleInterval(stoppedVCs.get(0).getContig(), pos.getStart(), pos.getStart());
+        void createIntermediateVariants(SimpleInterval intervalToClose) {
+            resizeReferenceIfNeeded(intervalToClose);
+
+            // Break up the GVCF according to the provided reference blocking scheme
+            // The values returned from getIntermediateStopSites represent a proposed set of stop sites that may include
+            // intervals that are outside the actual interval being closed. These sites are filtered out below.
+            // Note: Precomputing these is really inefficient when large reference blocks are closed with
+            // fine band resolution because it results in very large collections of stop sites (tens or hundreds of millions)
+            // that must subsequently be sorted.
+            final Set<Integer> sitesToStop = getIntermediateStopSites(intervalToClose, multipleAtWhichToBreakBands);
+
+            // If any variant contexts ended (or were spanning deletions) the last context compute where we should stop them
+            for (VariantContext vc : variantContextsOverlappingCurrentMerge) {
+
+                // Asking if the number of alleles > 2 is a shorthand for a variant being present, as we expect <non-ref>
+                // symbolic alleles to be present in all VariantContext. This might also be the case if we saw a spanning
+                // deletion that reads into the current site, as we would expect ReferenceConfidenceVariantContextMerger to
+                // insert symbolic alleles for those spanning variants.
+                if (vc.getNAlleles() > 2) {
+                    for (int i = vc.getStart(); i <= vc.getEnd(); i++ ) {
+                        sitesToStop.add(i);
+                    }
+                } else if (vc.getEnd() <= intervalToClose.getEnd()) {
+                    sitesToStop.add(vc.getEnd());
+                }
+            }
 
-            // we need the specialized merge if the site contains anything other than ref blocks
-            final VariantContext mergedVC;
-            if ( containsTrueAltAllele(stoppedVCs) ) {
-                mergedVC = referenceConfidenceVariantContextMerger.merge(stoppedVCs, closingSpot, refBase, false, false);
-            } else {
-                mergedVC = referenceBlockMerge(stoppedVCs, pos.getStart());
+            List<Integer> stoppedLocs = new ArrayList<>(sitesToStop);
+            stoppedLocs.sort(Comparator.naturalOrder());
+
+            // For each stopped loc that is within the interval being closed, create a fake QueuedContextState and pass it to endPreviousStats
+            for (int stoppedLoc : stoppedLocs) {
+                SimpleInterval loc = new SimpleInterval(intervalToClose.getContig(), stoppedLoc, stoppedLoc);
+                if (( stoppedLoc <= intervalToClose.getEnd() && stoppedLoc>= intervalToClose.getStart()) && isWithinInterval(loc)) {
+                    byte[] refBases = Arrays.copyOfRange(storedReferenceContext.getBases(), stoppedLoc - storedReferenceContext.getWindow().getStart(), stoppedLoc - storedReferenceContext.getWindow().getStart() + 2);
+                    endPreviousStates(loc, refBases, Collections.emptyList(), true);
+                }
             }
 
-            vcfWriter.add(mergedVC);
-            prevPos = closingSpot;
-            refAfterPrevPos = refNextBase;
         }
-    }
 
-    /**
-     * Combine a list of reference block VariantContexts.
-     * We can't use GATKVariantContextUtils.simpleMerge() because it is just too slow for this sort of thing.
-     *
-     * @param vcs   the variant contexts to merge
-     * @param end   the end of this block (inclusive)
-     * @return a new merged VariantContext
-     */
-    private VariantContext referenceBlockMerge(final List<VariantContext> vcs, final int end) {
-
-        final VariantContext first = vcs.get(0);
-
-        // ref allele and start
-        final Allele refAllele;
-        final int start;
-        if ( prevPos == null || !prevPos.getContig().equals(first.getContig()) || first.getStart() >= prevPos.getStart() + 1) {
-            start = first.getStart();
-            refAllele = first.getReference();
-        } else {
-            start = prevPos.getStart() + 1;
-            refAllele = Allele.create(refAfterPrevPos, true);
-        }
-        final List<Allele> allelesToUse = Arrays.asList(refAllele, Allele.NON_REF_ALLELE);
+        /**
+         * Resize {@link #storedReferenceContext} to cover at least as much as intervalToClose
+         * @param intervalToClose
+         */
+        private void resizeReferenceIfNeeded(SimpleInterval intervalToClose) {
+            final int leftEdge = storedReferenceContext.getInterval().getStart() - intervalToClose.getStart();
+            final int rightEdge = intervalToClose.getEnd() - storedReferenceContext.getInterval().getEnd();
 
-        // attributes
-        final Map<String, Object> attrs = new HashMap<>(1);
-        if ( !useBpResolution && end != start ) {
-            attrs.put(VCFConstants.END_KEY, Integer.toString(end));
+            storedReferenceContext.setWindow(Math.max(1, leftEdge), Math.max(1, rightEdge));
         }
 
-        // genotypes
-        final GenotypesContext genotypes = GenotypesContext.create();
-        final GenotypeAssignmentMethod assignmentMethod = makeGenotypeCalls ? GenotypeAssignmentMethod.PREFER_PLS : GenotypeAssignmentMethod.SET_TO_NO_CALL;
-        for (final VariantContext vc : vcs) {
-            for (final Genotype g : vc.getGenotypes()) {
-                final GenotypeBuilder gBuilder = new GenotypeBuilder(g);
-                GATKVariantContextUtils.makeGenotypeCall(g.getPloidy(),
-                            gBuilder, assignmentMethod,
-                            g.hasLikelihoods() ? g.getLikelihoods().getAsVector() : null, allelesToUse, g.getAlleles(), null);
-                genotypes.add(gBuilder.make());
+        void mergeWithNewVCs(final List<VariantContext> variantContexts, final ReferenceContext referenceContext) {
+            if ( !variantContexts.isEmpty() ) {
+                if ( ! okayToSkipThisSite(variantContexts, referenceContext) ) {
+                    SimpleInterval loc = referenceContext.getInterval();
+                    if (loc.getStart()-1 > 0) {
+                        endPreviousStates(new SimpleInterval(loc.getContig(), loc.getStart() - 1, loc.getStart() - 1),
+                                Arrays.copyOfRange(referenceContext.getBases(), 1, referenceContext.getWindow().getLengthOnReference()),
+                                variantContexts,
+                                false);
+                    }
+                }
+                variantContextsOverlappingCurrentMerge.addAll(variantContexts);
+                for(final VariantContext vc : variantContextsOverlappingCurrentMerge){
+                    samples.addAll(vc.getSampleNames());
+                }
             }
         }
-        return new VariantContextBuilder("", first.getContig(), start, end, allelesToUse).attributes(attrs).genotypes(genotypes).make();
-    }
 
-    /**
-     * Does the given list of VariantContexts contain any with an alternate allele other than <NON_REF>?
-     *
-     * @param VCs  list of VariantContexts
-     * @return true if there are one or more variantContexts that contain a true alternate allele, false otherwise
-     */
-    private static boolean containsTrueAltAllele(final List<VariantContext> VCs) {
+        /**
+         * Is it okay to skip the given position?
+         *
+         * @param variantContexts  the query variant contexts representing the current position
+         * @param referenceContext  Reference context object overlapping the variant contexts
+         * @return true if it is okay to skip this position, false otherwise
+         */
+        private boolean okayToSkipThisSite(List<VariantContext> variantContexts, ReferenceContext referenceContext) {
+            Set<String> intersection = new HashSet<>(getSamples(variantContexts));
+            intersection.retainAll(samples);
+
+            //if there's a starting VC with a sample that's already in a current VC, don't skip this position
+            return prevPos != null && referenceContext.getInterval().getStart() == prevPos.getStart() + 1 && intersection.isEmpty();
+        }
 
-        for ( final VariantContext vc : VCs ) {
-            if ( vc.getNAlleles() > 2 ) {
-                return true;
+        private Set<String> getSamples(List<VariantContext> variantContexts) {
+            Set<String> output = new HashSet<>();
+            for (final VariantContext vc : variantContexts) {
+                output.addAll(vc.getSampleNames());
             }
+            return output;
         }
-        return false;
-    }
 
-    @Override
-    public Object onTraversalSuccess() {
+        /**
+         * Disrupt the VariantContexts so that they all stop at the given pos, write them out, and put the remainder back in the list.
+         * @param pos   the position for the starting variantContexts
+         * @param variantContexts the current variant contexts with the same starting position
+         * @param forceOutputAtCurrentPosition  indicates whether we output a variant at the current position, independent of VCF start/end, i.e. in BP resolution mode
+         */
+        private void endPreviousStates(final SimpleInterval pos, final byte[] refBases, final List<VariantContext> variantContexts, boolean forceOutputAtCurrentPosition) {
+            Set<String> newSamples = getSamples(variantContexts);
+
+            final byte refBase = refBases[0];
+            //if we're in BP resolution mode or a VC ends at the current position then the reference for the next output VC (refNextBase)
+            // will be advanced one base
+            final byte refNextBase = (forceOutputAtCurrentPosition) ? (refBases.length > 1 ? refBases[1] : (byte)'N' ): refBase;
+
+            final List<VariantContext> stoppedVCs = new ArrayList<>(variantContextsOverlappingCurrentMerge.size());
+
+            for (int i = variantContextsOverlappingCurrentMerge.size() - 1; i >= 0; i-- ) {
+                final VariantContext vc = variantContextsOverlappingCurrentMerge.get(i);
+                //the VC for the previous state will be stopped if its position is previous to the current position or it we've moved to a new contig
+                if ( vc.getStart() <= pos.getStart() || !vc.contigsMatch(pos)) {
+
+                    stoppedVCs.add(vc);
+
+                    // if it was ending anyways, then remove it from the future state
+                    // or if ending vc is the same sample as a starting VC, then remove it from the future state
+                    if((vc.getEnd() == pos.getStart()) || (variantContexts.size() > 0 && !forceOutputAtCurrentPosition && newSamples.containsAll(vc.getSampleNames()))) {
+                        samples.removeAll(vc.getSampleNames());
+                        variantContextsOverlappingCurrentMerge.remove(i);
+                    }
+                }
+            }
 
-        if (storedReferenceContext == null) {
-            logger.warn("Error: The requested interval contained no data in source VCF files");
-            return null;
-        }
+            //output the stopped variantContexts if there is no previous output (state.prevPos == null) or our current position is past
+            // the last write position (state.prevPos)
+            //NOTE: BP resolution with have current position == state.prevPos because it gets output via a different control flow
+            if ( !stoppedVCs.isEmpty() &&  (prevPos == null || IntervalUtils.isAfter(pos,prevPos,sequenceDictionary) )) {
+                final SimpleInterval closingSpot = new SimpleInterval(stoppedVCs.get(0).getContig(), pos.getStart(), pos.getStart());
+
+                // we need the specialized merge if the site contains anything other than ref blocks
+                final VariantContext mergedVC;
+                if ( containsTrueAltAllele(stoppedVCs) ) {
+                    mergedVC = referenceConfidenceVariantContextMerger.merge(stoppedVCs, closingSpot, refBase, false, false);
+                } else {
+                    mergedVC = referenceBlockMerge(stoppedVCs, pos.getStart());
+                }
 
-        if ( !variantContextsOverlappingCurrentMerge.isEmpty() ) {
-            // finish off the last blocks
-            final SimpleInterval lastInterval = new SimpleInterval(
-                    variantContextsOverlappingCurrentMerge.get(0).getContig(),
-                    variantContextsOverlappingCurrentMerge.get(0).getStart(),
-                    variantContextsOverlappingCurrentMerge.stream().map(VariantContext::getEnd).max(Comparator.naturalOrder()).get());
-                createIntermediateVariants(lastInterval);
-            // there shouldn't be any state left unless the user cut in the middle of a gVCF block
-            if ( !variantContextsOverlappingCurrentMerge.isEmpty() ) {
-                logger.warn("You have asked for an interval that cuts in the middle of one or more gVCF blocks. Please note that this will cause you to lose records that don't end within your interval.");
+                output.accept(mergedVC);
+                prevPos = closingSpot;
+                refAfterPrevPos = refNextBase;
             }
         }
 
-        return null;
-    }
+        /**
+         * Combine a list of reference block VariantContexts.
+         * We can't use GATKVariantContextUtils.simpleMerge() because it is just too slow for this sort of thing.
+         *
+         * @param vcs   the variant contexts to merge
+         * @param end   the end of this block (inclusive)
+         * @return a new merged VariantContext
+         */
+        private VariantContext referenceBlockMerge(final List<VariantContext> vcs, final int end) {
+
+            final VariantContext first = vcs.get(0);
+
+            // ref allele and start
+            final Allele refAllele;
+            final int start;
+            if ( prevPos == null || !prevPos.getContig().equals(first.getContig()) || first.getStart() >= prevPos.getStart() + 1) {
+                start = first.getStart();
+                refAllele = first.getReference();
+            } else {
+                start = prevPos.getStart() + 1;
+                refAllele = Allele.create(refAfterPrevPos, true);
+            }
+            final List<Allele> allelesToUse = Arrays.asList(refAllele, Allele.NON_REF_ALLELE);
 
-    @Override
-    public void closeTool(){
-        if (vcfWriter != null) {
-            vcfWriter.close();
+            // attributes
+            final Map<String, Object> attrs = new HashMap<>(1);
+            if ( !useBpResolution && end != start ) {
+                attrs.put(VCFConstants.END_KEY, Integer.toString(end));
+            }
+
+            // genotypes
+            final GenotypesContext genotypes = GenotypesContext.create();
+            for (final VariantContext vc : vcs) {
+                for (final Genotype g : vc.getGenotypes()) {
+                    final GenotypeBuilder gBuilder = new GenotypeBuilder(g);
+                    if ( makeGenotypeCalls ) {
+                        GATKVariantContextUtils.makeGenotypeCall(g.getPloidy(),
+                                gBuilder, GenotypeAssignmentMethod.PREFER_PLS,
+                                g.hasLikelihoods() ? g.getLikelihoods().getAsVector() : null, allelesToUse, g.getAlleles(), null);
+                    } else {
+                        // no-calls don't depend on the likelihoods, so don't convert the PLs of every sample of every block into them
+                        gBuilder.alleles(GATKVariantContextUtils.noCallAlleles(g.getPloidy()));
+                    }
+                    genotypes.add(gBuilder.make());
+                }
+            }
+            return new VariantContextBuilder("", first.getContig(), start, end, allelesToUse).attributes(attrs).genotypes(genotypes).make();
         }
     }
 }
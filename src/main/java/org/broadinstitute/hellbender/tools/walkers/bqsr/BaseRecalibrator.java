@@ -123,6 +123,12 @@ public final class BaseRecalibrator extends ReadWalker {
 
     private ReferenceDataSource referenceDataSource; // datasource for the reference. We're using a different one from the engine itself to avoid messing with its caches.
 
+    /**
+     * engines of the traversal threads when running with more than one traversal thread, merged into
+     * recalibrationEngine once the traversal is done
+     */
+    private final List<BaseRecalibrationEngine> workerEngines = new ArrayList<>();
+
     /**
      * an object that keeps track of the information necessary for quality score quantization
      */
@@ -189,8 +195,22 @@ public final class BaseRecalibrator extends ReadWalker {
         recalibrationEngine.processRead(read, referenceDataSource, featureContext.getValues(knownSites));
     }
 
+    /**
+     * Each traversal thread accumulates its own recalibration tables, reading the reference through the data source of
+     * its own reference contexts, and the tables of all the threads are summed up in {@link #onTraversalSuccess()}.
+     */
+    @Override
+    protected ReadWorker makeReadWorker() {
+        final BaseRecalibrationEngine workerEngine = new BaseRecalibrationEngine(recalArgs, getHeaderForReads());
+        workerEngines.add(workerEngine);
+        return (read, ref, featureContext) -> workerEngine.processRead(read, ref.getDataSource(), featureContext.getValues(knownSites));
+    }
+
     @Override
     public Object onTraversalSuccess() {
+        for ( final BaseRecalibrationEngine workerEngine : workerEngines ) {
+            recalibrationEngine.combine(workerEngine);
+        }
         recalibrationEngine.finalizeData();
 
         logger.info("Calculating quantized quality scores...");
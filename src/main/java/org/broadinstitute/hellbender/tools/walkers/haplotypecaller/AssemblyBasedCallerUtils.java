@@ -259,6 +259,20 @@ public final class AssemblyBasedCallerUtils {
                                                                                     final FlowBasedAlignmentArgumentCollection fbargs,
                                                                                     final boolean handleSoftclips,
                                                                                     final ReadLikelihoodCalculationEngine.Implementation implementation) {
+        return createLikelihoodCalculationEngine(likelihoodArgs, fbargs, handleSoftclips, implementation, createLikelihoodCache(likelihoodArgs));
+    }
+
+    /**
+     * Creates a likelihood calculation engine that shares the given cache of read-vs-haplotype likelihoods (only used by
+     * the PairHMM implementation) with any other engines it was passed to.
+     *
+     * @param likelihoodCache the cache to use, or {@code null} for none
+     */
+    public static ReadLikelihoodCalculationEngine createLikelihoodCalculationEngine(final LikelihoodEngineArgumentCollection likelihoodArgs,
+                                                                                    final FlowBasedAlignmentArgumentCollection fbargs,
+                                                                                    final boolean handleSoftclips,
+                                                                                    final ReadLikelihoodCalculationEngine.Implementation implementation,
+                                                                                    final ReadHaplotypeLikelihoodCache likelihoodCache) {
         //AlleleLikelihoods::normalizeLikelihoods uses Double.NEGATIVE_INFINITY as a flag to disable capping
         final double log10GlobalReadMismappingRate = getGlobalMismatchingRateFromArgs(likelihoodArgs);
 
@@ -268,7 +282,7 @@ public final class AssemblyBasedCallerUtils {
                 return new PairHMMLikelihoodCalculationEngine((byte) likelihoodArgs.gcpHMM, likelihoodArgs.dontUseDragstrPairHMMScores ? null : DragstrParamUtils.parse(likelihoodArgs.dragstrParams),
                 likelihoodArgs.pairHMMNativeArgs.getPairHMMArgs(), likelihoodArgs.pairHMM, likelihoodArgs.pairHmmResultsFile, log10GlobalReadMismappingRate, likelihoodArgs.pcrErrorModel,
                 likelihoodArgs.BASE_QUALITY_SCORE_THRESHOLD, likelihoodArgs.enableDynamicReadDisqualification, likelihoodArgs.readDisqualificationThresholdConstant,
-                likelihoodArgs.expectedErrorRatePerBase, !likelihoodArgs.disableSymmetricallyNormalizeAllelesToReference, likelihoodArgs.disableCapReadQualitiesToMapQ, handleSoftclips);
+                likelihoodArgs.expectedErrorRatePerBase, !likelihoodArgs.disableSymmetricallyNormalizeAllelesToReference, likelihoodArgs.disableCapReadQualitiesToMapQ, handleSoftclips, likelihoodCache);
             case FlowBased:
                 return new FlowBasedAlignmentLikelihoodEngine(fbargs, log10GlobalReadMismappingRate, likelihoodArgs.expectedErrorRatePerBase, likelihoodArgs.enableDynamicReadDisqualification, likelihoodArgs.readDisqualificationThresholdConstant);
             case FlowBasedHMM:
@@ -280,6 +294,14 @@ public final class AssemblyBasedCallerUtils {
         }
     }
 
+    /**
+     * @return a new cache of read-vs-haplotype likelihoods of the size requested in the arguments, or {@code null} if
+     *         caching is disabled
+     */
+    public static ReadHaplotypeLikelihoodCache createLikelihoodCache(final LikelihoodEngineArgumentCollection likelihoodArgs) {
+        return likelihoodArgs.pairHMMLikelihoodCacheSize > 0 ? new ReadHaplotypeLikelihoodCache(likelihoodArgs.pairHMMLikelihoodCacheSize) : null;
+    }
+
     /**
      * Exposed so that PDHMM can be constructed outside of this class
      */
@@ -564,9 +586,12 @@ public final class AssemblyBasedCallerUtils {
     }
 
     /**
-     * Get a list of pileups that span the entire active region span, in order, one for each position
+     * Get the pileups that span the entire active region span, in order, one for each position.
+     *
+     * The pileups are produced lazily as the iterator advances, so only the reads overlapping the current position
+     * are held in pileup form rather than those of every position of the span at once.
      */
-    public static List<ReadPileup> getPileupsOverReference(final SAMFileHeader readsHeader,
+    public static Iterator<ReadPileup> getPileupsOverReference(final SAMFileHeader readsHeader,
                                                      final SimpleInterval activeRegionSpan,
                                                      final AlleleLikelihoods<GATKRead, Haplotype> readLikelihoods,
                                                      final SampleList samples) {
@@ -576,19 +601,32 @@ public final class AssemblyBasedCallerUtils {
         final LocusIteratorByState libs = new LocusIteratorByState(reads.iterator(), LocusIteratorByState.NO_DOWNSAMPLING, samples.asSetOfSamples(), readsHeader, true);
 
         final int startPos = activeRegionSpan.getStart();
-        final List<ReadPileup> pileups = new ArrayList<>(activeRegionSpan.getEnd() - startPos);
-        AlignmentContext next = libs.advanceToLocus(startPos, true);
-        for ( int curPos = startPos; curPos <= activeRegionSpan.getEnd(); curPos++ ) {
-            if ( next != null && next.getLocation().getStart() == curPos ) {
-                pileups.add(next.getBasePileup());
-                next = libs.hasNext() ? libs.next() : null;
-            } else {
-                // no data, so we create empty pileups
-                pileups.add(new ReadPileup(new SimpleInterval(activeRegionSpan.getContig(), curPos, curPos)));
+        return new Iterator<ReadPileup>() {
+            private AlignmentContext next = libs.advanceToLocus(startPos, true);
+            private int curPos = startPos;
+
+            @Override
+            public boolean hasNext() {
+                return curPos <= activeRegionSpan.getEnd();
             }
-        }
 
-        return pileups;
+            @Override
+            public ReadPileup next() {
+                if ( !hasNext() ) {
+                    throw new NoSuchElementException("no more pileups over " + activeRegionSpan);
+                }
+                final ReadPileup result;
+                if ( next != null && next.getLocation().getStart() == curPos ) {
+                    result = next.getBasePileup();
+                    next = libs.hasNext() ? libs.next() : null;
+                } else {
+                    // no data, so we create empty pileups
+                    result = new ReadPileup(new SimpleInterval(activeRegionSpan.getContig(), curPos, curPos));
+                }
+                curPos++;
+                return result;
+            }
+        };
     }
 
 
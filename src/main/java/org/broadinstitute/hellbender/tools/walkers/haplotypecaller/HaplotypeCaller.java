@@ -2,6 +2,7 @@ package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
@@ -27,6 +28,7 @@ import org.broadinstitute.hellbender.utils.fasta.CachingIndexedFastaSequenceFile
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 /**
@@ -160,6 +162,11 @@ public class HaplotypeCaller extends AssemblyRegionWalker {
 
     private HaplotypeCallerEngine hcEngine;
 
+    private PipelinedRegionCaller regionPipeline;
+
+    // the likelihood caches of the main engine and of the engines of the traversal threads, if caching is enabled
+    private final List<ReadHaplotypeLikelihoodCache> likelihoodCaches = new CopyOnWriteArrayList<>();
+
     @Override
     public List<ReadFilter> getDefaultReadFilters() {
         return HaplotypeCallerEngine.makeStandardHCReadFilters();
@@ -190,6 +197,17 @@ public class HaplotypeCaller extends AssemblyRegionWalker {
                     hcArgs.flowMode.getNameValuePairs(),
                     HaplotypeCallerArgumentCollection.FLOW_GATK_MODE_LONG_NAME);
         }
+        if (traversalThreads > 1 && (hcArgs.bamOutputPath != null || hcArgs.assemblyStateOutput != null || hcArgs.genotyperDebugOutStream != null)) {
+            throw new UserException("debug outputs (bamout, assembly state and genotyper debug streams) are not supported with --" + TRAVERSAL_THREADS_LONG_NAME + " greater than 1");
+        }
+        if (hcArgs.pipelinedLikelihoodThreads > 0) {
+            if (traversalThreads > 1) {
+                throw new UserException("--" + HaplotypeCallerArgumentCollection.PIPELINED_LIKELIHOOD_THREADS_LONG_NAME + " cannot be combined with --" + TRAVERSAL_THREADS_LONG_NAME + " greater than 1");
+            }
+            if (hcArgs.stepwiseFiltering || hcArgs.assemblyStateOutput != null || hcArgs.genotyperDebugOutStream != null) {
+                throw new UserException("--" + HaplotypeCallerArgumentCollection.PIPELINED_LIKELIHOOD_THREADS_LONG_NAME + " is not supported with stepwise filtering or debug outputs");
+            }
+        }
 
         return null;
     }
@@ -254,6 +272,19 @@ public class HaplotypeCaller extends AssemblyRegionWalker {
         final SAMSequenceDictionary sequenceDictionary = getHeaderForReads().getSequenceDictionary();
         vcfWriter = hcEngine.makeVCFWriter(outputVCF, sequenceDictionary, createOutputVariantIndex, createOutputVariantMD5, outputSitesOnlyVCFs);
         hcEngine.writeHeader(vcfWriter, sequenceDictionary, getDefaultToolVCFHeaderLines());
+
+        if (hcArgs.pipelinedLikelihoodThreads > 0) {
+            if (hcEngine instanceof RampedHaplotypeCallerEngine) {
+                throw new UserException("--" + HaplotypeCallerArgumentCollection.PIPELINED_LIKELIHOOD_THREADS_LONG_NAME + " is not supported by " + getClass().getSimpleName());
+            }
+            regionPipeline = new PipelinedRegionCaller(hcEngine, hcArgs.pipelinedLikelihoodThreads);
+        }
+
+        if (hcEngine.getLikelihoodCache() != null) {
+            likelihoodCaches.add(hcEngine.getLikelihoodCache());
+            progressMeter.addStatistic("HMM Cache Hits", () -> likelihoodCaches.stream().mapToLong(ReadHaplotypeLikelihoodCache::getHits).sum());
+            progressMeter.addStatistic("HMM Cache Misses", () -> likelihoodCaches.stream().mapToLong(ReadHaplotypeLikelihoodCache::getMisses).sum());
+        }
     }
 
     protected HaplotypeCallerEngine buildHaplotypeCallerEngine(final HaplotypeCallerArgumentCollection hcArgs, final AssemblyRegionArgumentCollection assemblyRegionArgs, final boolean createOutputBamIndex, final boolean createOutputBamMD5, final SAMFileHeader headerForReads, final CachingIndexedFastaSequenceFile referenceReader, final VariantAnnotatorEngine variantAnnotatorEngine) {
@@ -266,11 +297,58 @@ public class HaplotypeCaller extends AssemblyRegionWalker {
 
     @Override
     public void apply(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext ) {
-        hcEngine.callRegion(region, featureContext, referenceContext).forEach(vcfWriter::add);
+        if ( regionPipeline != null ) {
+            regionPipeline.submitRegion(region, featureContext, referenceContext, vcfWriter::add);
+        } else {
+            hcEngine.callRegion(region, featureContext, referenceContext).forEach(vcfWriter::add);
+        }
+    }
+
+    @Override
+    public Object onTraversalSuccess() {
+        if ( regionPipeline != null ) {
+            regionPipeline.flush(vcfWriter::add);
+        }
+        return null;
+    }
+
+    /**
+     * Each traversal thread gets its own {@link HaplotypeCallerEngine}, which both evaluates activity and calls
+     * variants. Calls are written to the shared writer on the main thread, in traversal order.
+     */
+    @Override
+    protected AssemblyRegionWorker makeAssemblyRegionWorker() {
+        final VariantAnnotatorEngine variantAnnotatorEngine = new VariantAnnotatorEngine(makeVariantAnnotations(),
+                hcArgs.dbsnp.dbsnp, hcArgs.comps,  hcArgs.emitReferenceConfidence != ReferenceConfidenceMode.NONE, false);
+        final HaplotypeCallerEngine workerEngine = buildHaplotypeCallerEngine(hcArgs, assemblyRegionArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), getReferenceReader(referenceArguments), variantAnnotatorEngine);
+        if (workerEngine.getLikelihoodCache() != null) {
+            likelihoodCaches.add(workerEngine.getLikelihoodCache());
+        }
+        return new AssemblyRegionWorker() {
+            @Override
+            public AssemblyRegionEvaluator assemblyRegionEvaluator() {
+                return workerEngine;
+            }
+
+            @Override
+            public Runnable processRegion(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+                final List<VariantContext> calls = workerEngine.callRegion(region, featureContext, referenceContext);
+                return () -> calls.forEach(vcfWriter::add);
+            }
+
+            @Override
+            public void close() {
+                workerEngine.shutdown();
+            }
+        };
     }
 
     @Override
     public void closeTool() {
+        if ( regionPipeline != null ) {
+            regionPipeline.close();
+        }
+
         if ( vcfWriter != null ) {
             vcfWriter.close();
         }
@@ -46,6 +46,7 @@ public class HaplotypeCallerArgumentCollection extends AssemblyBasedCallerArgume
     public static final String DEBUG_ASSEMBLY_REGION_STATE_LONG_NAME = "debug-assembly-region-state";
     public static final String DEBUG_GENOTYPER_OUTPUT_LONG_NAME = "debug-genotyper-output";
     public static final String DONT_GENOTYPE_LONG_NAME = "dont-genotype";
+    public static final String PIPELINED_LIKELIHOOD_THREADS_LONG_NAME = "pipelined-likelihood-threads";
 
     @ArgumentCollection
     public StandardCallerArgumentCollection standardArgs = new StandardCallerArgumentCollection();
@@ -302,6 +303,15 @@ public class HaplotypeCallerArgumentCollection extends AssemblyBasedCallerArgume
     @Argument(fullName = STEPWISE_FITLERING_ARGUMENT, doc = "If enabled, this will create a FlowBasedAligner to use for filtering haplotypes before using another likelihoods engine for scoring.")
     public boolean stepwiseFiltering = false;
 
+    /**
+     * If greater than 0, read likelihoods for each assembly region are computed on this many background threads while
+     * the traversal thread goes on to assemble the following regions and to genotype the preceding ones. Calls are
+     * still emitted in coordinate order. Not compatible with debug outputs or stepwise filtering.
+     */
+    @Advanced
+    @Argument(fullName = PIPELINED_LIKELIHOOD_THREADS_LONG_NAME, doc = "Number of threads used to compute read likelihoods concurrently with assembly and genotyping (0 to disable)", optional = true, minValue = 0)
+    public int pipelinedLikelihoodThreads = 0;
+
     // Should we make any alterations to the pipeline for DRAGEN-GATK
     boolean isDragenGATKMode() {
         return dragen3412mode || dragen378Mode;
@@ -92,6 +92,8 @@ public class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
     private ReadLikelihoodCalculationEngine filterStepLikelihoodCalculationEngine = null;
     // If we are in PDHMM mode we need to hold onto two likelihoods engines for the fallback
     private ReadLikelihoodCalculationEngine pdhmmLikelihoodCalculationEngine = null;
+    // read-vs-haplotype likelihoods shared by all the likelihood engines created by this engine (null if not enabled)
+    private ReadHaplotypeLikelihoodCache likelihoodCache = null;
 
     protected HaplotypeCallerGenotypingEngine genotypingEngine = null;
 
@@ -272,7 +274,8 @@ public class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         assembledEventMapVariants = Optional.ofNullable(hcArgs.assemblerArgs.debugAssemblyVariantsOut != null ?
                 new PriorityQueue<>(200, new VariantContextComparator(readsHeader.getSequenceDictionary())) : null);
         assembledEventMapVcfOutputWriter.ifPresent(writer -> writeHeader(writer, readsHeader.getSequenceDictionary(), new HashSet<>()));
-        likelihoodCalculationEngine = AssemblyBasedCallerUtils.createLikelihoodCalculationEngine(hcArgs.likelihoodArgs, hcArgs.fbargs, !hcArgs.softClipLowQualityEnds, hcArgs.likelihoodArgs.likelihoodEngineImplementation);
+        likelihoodCache = AssemblyBasedCallerUtils.createLikelihoodCache(hcArgs.likelihoodArgs);
+        likelihoodCalculationEngine = createLikelihoodCalculationEngine();
 
 
         //Some sanity checking of the stepwise filtering approach
@@ -288,7 +291,31 @@ public class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         filterStepLikelihoodCalculationEngine = (hcArgs.stepwiseFiltering?
                 AssemblyBasedCallerUtils.createLikelihoodCalculationEngine(hcArgs.likelihoodArgs, hcArgs.fbargs, !hcArgs.softClipLowQualityEnds, ReadLikelihoodCalculationEngine.Implementation.FlowBased)
                 : null);
-        pdhmmLikelihoodCalculationEngine = (hcArgs.pileupDetectionArgs.generatePDHaplotypes?
+        pdhmmLikelihoodCalculationEngine = createPDHMMLikelihoodCalculationEngine();
+    }
+
+    /**
+     * @return a new likelihood calculation engine configured from the arguments of this engine, sharing this engine's
+     *         likelihood cache (if any)
+     */
+    ReadLikelihoodCalculationEngine createLikelihoodCalculationEngine() {
+        return AssemblyBasedCallerUtils.createLikelihoodCalculationEngine(hcArgs.likelihoodArgs, hcArgs.fbargs, !hcArgs.softClipLowQualityEnds,
+                hcArgs.likelihoodArgs.likelihoodEngineImplementation, likelihoodCache);
+    }
+
+    /**
+     * @return the cache of read-vs-haplotype likelihoods shared by the likelihood engines of this engine, or
+     *         {@code null} if caching is not enabled
+     */
+    public ReadHaplotypeLikelihoodCache getLikelihoodCache() {
+        return likelihoodCache;
+    }
+
+    /**
+     * @return a new likelihood calculation engine for partially determined haplotypes, or null if PD haplotypes are not generated
+     */
+    ReadLikelihoodCalculationEngine createPDHMMLikelihoodCalculationEngine() {
+        return (hcArgs.pileupDetectionArgs.generatePDHaplotypes?
                 new PDPairHMMLikelihoodCalculationEngine((byte) hcArgs.likelihoodArgs.gcpHMM, hcArgs.likelihoodArgs.dontUseDragstrPairHMMScores ? null : DragstrParamUtils.parse(hcArgs.likelihoodArgs.dragstrParams),
                         hcArgs.likelihoodArgs.pairHMMNativeArgs.getPairHMMArgs(), hcArgs.likelihoodArgs.pairHMM, hcArgs.pileupDetectionArgs.pdhmmDebugOutputResults, AssemblyBasedCallerUtils.getGlobalMismatchingRateFromArgs(hcArgs.likelihoodArgs), hcArgs.likelihoodArgs.pcrErrorModel,
                         hcArgs.likelihoodArgs.BASE_QUALITY_SCORE_THRESHOLD, hcArgs.likelihoodArgs.enableDynamicReadDisqualification, hcArgs.likelihoodArgs.readDisqualificationThresholdConstant,
@@ -607,6 +634,55 @@ public class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      * @return List of variants discovered in the region (may be empty)
      */
     public List<VariantContext> callRegion(final AssemblyRegion region, final FeatureContext features, final ReferenceContext referenceContext) {
+        final RegionCallingState state = new RegionCallingState(region, features, referenceContext);
+        final List<VariantContext> callsWithoutGenotyping = assembleRegion(state);
+        if ( callsWithoutGenotyping != null ) {
+            return callsWithoutGenotyping;
+        }
+
+        final AlleleLikelihoods<GATKRead, Haplotype> readLikelihoods = computeReadLikelihoods(state, likelihoodCalculationEngine, pdhmmLikelihoodCalculationEngine);
+        return genotypeRegion(state, readLikelihoods);
+    }
+
+    /**
+     * Intermediate state of variant calling for a single assembly region, handed from the assembly stage
+     * ({@link #assembleRegion}) to the likelihood stage ({@link #computeReadLikelihoods}) and then to the genotyping
+     * stage ({@link #genotypeRegion}). The stages may run on different threads when pipelined by
+     * {@link PipelinedRegionCaller}.
+     */
+    static final class RegionCallingState {
+        final AssemblyRegion region;
+        final FeatureContext features;
+        final ReferenceContext referenceContext;
+
+        List<VariantContext> VCpriors;
+        List<Event> givenAlleles;
+        AssemblyResultSet untrimmedAssemblyResult;
+        AssemblyRegionTrimmer.Result trimmingResult;
+        AssemblyResultSet assemblyResult;
+        AssemblyRegion regionForGenotyping;
+        Map<String, List<GATKRead>> perSampleFilteredReadList;
+        Map<String, List<GATKRead>> reads;
+
+        RegionCallingState(final AssemblyRegion region, final FeatureContext features, final ReferenceContext referenceContext) {
+            this.region = region;
+            this.features = features;
+            this.referenceContext = referenceContext;
+        }
+    }
+
+    /**
+     * Assembly stage of {@link #callRegion}: assemble the reads of the region into haplotypes, trim the region and
+     * filter the reads to be genotyped.
+     *
+     * @param state state of the region being called, updated with the results of assembly
+     * @return the final calls for the region if it does not need likelihoods and genotyping, otherwise null
+     */
+    List<VariantContext> assembleRegion(final RegionCallingState state) {
+        final AssemblyRegion region = state.region;
+        final FeatureContext features = state.features;
+        final ReferenceContext referenceContext = state.referenceContext;
+
         if ( hcArgs.justDetermineActiveRegions ) {
             // we're benchmarking ART and/or the active region determination code in the HC, just leave without doing any work
             return NO_CALLS;
@@ -616,6 +692,7 @@ public class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         }
 
         final List<VariantContext> VCpriors = new ArrayList<>();
+        state.VCpriors = VCpriors;
         if (hcArgs.standardArgs.genotypeArgs.supportVariants != null) {
             features.getValues(hcArgs.standardArgs.genotypeArgs.supportVariants).stream().forEach(VCpriors::add);
         }
@@ -633,6 +710,7 @@ public class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
                 .filter(vc -> hcArgs.forceCallFiltered || vc.isNotFiltered())
                 .flatMap(vc -> GATKVariantContextUtils.splitVariantContextToEvents(vc, false, GenotypeAssignmentMethod.BEST_MATCH_TO_ORIGINAL, false).stream())
                 .collect(Collectors.toList());
+        state.givenAlleles = givenAlleles;
 
         if( givenAlleles.isEmpty() && region.size() == 0 ) {
             // No reads here so nothing to do!
@@ -760,8 +838,7 @@ public class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
         // evaluate each sample's reads against all haplotypes
         final Map<String,List<GATKRead>> reads = AssemblyBasedCallerUtils.splitReadsBySample(samplesList, readsHeader, regionForGenotyping.getReads());
-        final AlleleLikelihoods<GATKRead, Haplotype> readLikelihoods;
-        List<Haplotype> haplotypes = assemblyResult.getHaplotypeList();
+        final List<Haplotype> haplotypes = assemblyResult.getHaplotypeList();
 
 
         if (HaplotypeCallerGenotypingDebugger.isEnabled()) {
@@ -779,15 +856,61 @@ public class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
             HaplotypeCallerGenotypingDebugger.println("");
         }
 
+        state.untrimmedAssemblyResult = untrimmedAssemblyResult;
+        state.trimmingResult = trimmingResult;
+        state.assemblyResult = assemblyResult;
+        state.regionForGenotyping = regionForGenotyping;
+        state.perSampleFilteredReadList = perSampleFilteredReadList;
+        state.reads = reads;
+        return null;
+    }
+
+    /**
+     * Likelihood stage of {@link #callRegion}: evaluate each sample's reads against all haplotypes.
+     *
+     * Only uses the given likelihood engines and the immutable configuration of this engine, so that it may run
+     * on a different thread than the other stages as long as the likelihood engines are not shared.
+     *
+     * @param state state of the region being called, as produced by {@link #assembleRegion}
+     * @param likelihoodEngine engine used to compute likelihoods for regular haplotypes
+     * @param pdhmmLikelihoodEngine engine used to compute likelihoods for partially determined haplotypes (may be null if not in PDHMM mode)
+     * @return read likelihoods for the region
+     */
+    AlleleLikelihoods<GATKRead, Haplotype> computeReadLikelihoods(final RegionCallingState state,
+                                                                  final ReadLikelihoodCalculationEngine likelihoodEngine,
+                                                                  final ReadLikelihoodCalculationEngine pdhmmLikelihoodEngine) {
+        final AssemblyResultSet assemblyResult = state.assemblyResult;
+
         // Calculate the likelihoods: CPU intensive part.
         // flow based alignment might add an extra step of uncollapsing - implemented by possiblyUncollapseHaplotypesInReadLikelihoods
         // non-flow based alignment will not be affected.
-        readLikelihoods = possiblyUncollapseHaplotypesInReadLikelihoods(untrimmedAssemblyResult,
+        return possiblyUncollapseHaplotypesInReadLikelihoods(state.untrimmedAssemblyResult,
                 hcArgs.stepwiseFiltering
-                        ? filterStepLikelihoodCalculationEngine.computeReadLikelihoods(assemblyResult, samplesList, reads, true)
+                        ? filterStepLikelihoodCalculationEngine.computeReadLikelihoods(assemblyResult, samplesList, state.reads, true)
                         : ( assemblyResult.isPartiallyDeterminedList() ?
-                        pdhmmLikelihoodCalculationEngine.computeReadLikelihoods(assemblyResult, samplesList, reads, true) :
-                        likelihoodCalculationEngine.computeReadLikelihoods(assemblyResult, samplesList, reads, true)));
+                        pdhmmLikelihoodEngine.computeReadLikelihoods(assemblyResult, samplesList, state.reads, true) :
+                        likelihoodEngine.computeReadLikelihoods(assemblyResult, samplesList, state.reads, true)));
+    }
+
+    /**
+     * Genotyping stage of {@link #callRegion}: filter alleles, realign reads to their best haplotypes, genotype and
+     * compute the reference model if requested.
+     *
+     * @param state state of the region being called, as produced by {@link #assembleRegion}
+     * @param readLikelihoods read likelihoods for the region, as produced by {@link #computeReadLikelihoods}
+     * @return List of variants discovered in the region (may be empty)
+     */
+    List<VariantContext> genotypeRegion(final RegionCallingState state, final AlleleLikelihoods<GATKRead, Haplotype> readLikelihoods) {
+        final AssemblyRegion region = state.region;
+        final FeatureContext features = state.features;
+        final List<VariantContext> VCpriors = state.VCpriors;
+        final List<Event> givenAlleles = state.givenAlleles;
+        final AssemblyRegionTrimmer.Result trimmingResult = state.trimmingResult;
+        final AssemblyResultSet assemblyResult = state.assemblyResult;
+        final AssemblyRegion regionForGenotyping = state.regionForGenotyping;
+        final Map<String, List<GATKRead>> perSampleFilteredReadList = state.perSampleFilteredReadList;
+        final Map<String, List<GATKRead>> reads = state.reads;
+        List<Haplotype> haplotypes;
 
         alleleLikelihoodWriter.ifPresent(
                 writer -> writer.writeAlleleLikelihoods(readLikelihoods));
@@ -49,6 +49,8 @@ public class HaplotypeCallerReadThreadingAssemblerArgumentCollection extends Rea
         assemblyEngine.setRecoverAllDanglingBranches(recoverAllDanglingBranches);
         assemblyEngine.setMinDanglingBranchLength(minDanglingBranchLength);
         assemblyEngine.setArtificialHaplotypeRecoveryMode(disableArtificialHaplotypeRecovery);
+        assemblyEngine.setUsePackedKmerGraph(usePackedKmerGraph);
+        assemblyEngine.setKmerSizeThreads(kmerSizeThreads);
 
         if ( graphOutput != null ) {
             assemblyEngine.setGraphWriter(new File(graphOutput));
@@ -27,6 +27,7 @@ public final class LikelihoodEngineArgumentCollection implements Serializable {
     public static final String LIKELIHOOD_CALCULATION_ENGINE_FULL_NAME = "likelihood-calculation-engine";
     public static final String PAIR_HMM_GAP_CONTINUATION_PENALTY_LONG_NAME = "pair-hmm-gap-continuation-penalty";
     public static final String PAIR_HMM_IMPLEMENTATION_LONG_NAME = "pair-hmm-implementation";
+    public static final String PAIR_HMM_LIKELIHOOD_CACHE_SIZE_LONG_NAME = "pair-hmm-likelihood-cache-size";
     public static final String PCR_INDEL_MODEL_LONG_NAME = "pcr-indel-model";
     public static final String PHRED_SCALED_GLOBAL_READ_MISMAPPING_RATE_LONG_NAME = "phred-scaled-global-read-mismapping-rate";
     public static final String DISABLE_SYMMETRIC_HMM_NORMALIZING_LONG_NAME = "disable-symmetric-hmm-normalizing";
@@ -66,6 +67,11 @@ public final class LikelihoodEngineArgumentCollection implements Serializable {
 
     /**
      * The PairHMM implementation to use for genotype likelihood calculations. The various implementations balance a tradeoff of accuracy and runtime.
+     *
+     * VECTOR_API_LOGLESS_CACHING is a pure Java alternative to the native AVX implementations for machines on which the
+     * native library cannot be used (eg., non-x86 hardware). It requires running with
+     * --java-options "--add-modules jdk.incubator.vector", and is also used by FASTEST_AVAILABLE when the native
+     * implementations are not available but the module is.
      */
     @Advanced
     @Argument(fullName = PAIR_HMM_IMPLEMENTATION_LONG_NAME, shortName = "pairHMM", doc = "The PairHMM implementation to use for genotype likelihood calculations", optional = true)
@@ -130,6 +136,16 @@ public final class LikelihoodEngineArgumentCollection implements Serializable {
     @Argument(fullName="pair-hmm-results-file", doc="File to write exact pairHMM inputs/outputs to for debugging purposes", optional = true)
     public GATKPath pairHmmResultsFile = null;
 
+    /**
+     * Maximum number of read-haplotype likelihoods kept by the PairHMM likelihood engine so that reads scored against an
+     * identical haplotype in a previous (typically adjacent, overlapping) region are not scored again. A cached value is
+     * only reused if the read bases, qualities and gap penalties and the haplotype bases are all identical, so results
+     * are unchanged. 0 disables the cache. Ignored when --pair-hmm-results-file is provided.
+     */
+    @Advanced
+    @Argument(fullName = PAIR_HMM_LIKELIHOOD_CACHE_SIZE_LONG_NAME, doc = "Maximum number of read-haplotype likelihoods to cache across regions (0 to disable)", optional = true, minValue = 0)
+    public int pairHMMLikelihoodCacheSize = 0;
+
     @ArgumentCollection
     public PairHMMNativeArgumentCollection pairHMMNativeArgs = new PairHMMNativeArgumentCollection();
 
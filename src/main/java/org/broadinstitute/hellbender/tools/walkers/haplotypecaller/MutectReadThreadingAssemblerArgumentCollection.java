@@ -30,6 +30,8 @@ public class MutectReadThreadingAssemblerArgumentCollection extends ReadThreadin
         assemblyEngine.setRecoverAllDanglingBranches(recoverAllDanglingBranches);
         assemblyEngine.setMinDanglingBranchLength(minDanglingBranchLength);
         assemblyEngine.setArtificialHaplotypeRecoveryMode(disableArtificialHaplotypeRecovery);
+        assemblyEngine.setUsePackedKmerGraph(usePackedKmerGraph);
+        assemblyEngine.setKmerSizeThreads(kmerSizeThreads);
 
         if ( graphOutput != null ) {
             assemblyEngine.setGraphWriter(new File(graphOutput));
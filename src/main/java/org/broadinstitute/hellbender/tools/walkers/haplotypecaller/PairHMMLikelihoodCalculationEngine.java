@@ -2,6 +2,7 @@ package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import com.google.common.annotations.VisibleForTesting;
 import htsjdk.samtools.SAMFileHeader;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeArguments;
@@ -14,6 +15,7 @@ import org.broadinstitute.hellbender.utils.clipping.ReadClipper;
 import org.broadinstitute.hellbender.utils.genotyper.*;
 import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.pairhmm.PairHMM;
+import org.broadinstitute.hellbender.utils.pairhmm.PairHMMInputScoreImputation;
 import org.broadinstitute.hellbender.utils.pairhmm.PairHMMInputScoreImputator;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
@@ -41,6 +43,9 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
 
     private final PairHMM pairHMM;
 
+    // likelihoods of previously seen read-haplotype pairs (null if not enabled)
+    private final ReadHaplotypeLikelihoodCache likelihoodCache;
+
     // DRAGEN-GATK related parameters
     private final DragstrParams dragstrParams;
     private final boolean dynamicDisqualification;
@@ -71,6 +76,8 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
     }
 
     private final PCRErrorModel pcrErrorModel;
+
+    private static final String POOLED_READS_SAMPLE = "pooledReads";
     
     private final byte baseQualityScoreThreshold;
 
@@ -130,6 +137,37 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
                                               final boolean symmetricallyNormalizeAllelesToReference,
                                               final boolean disableCapReadQualitiesToMapQ,
                                               final boolean modifySoftclippedBases) {
+        this(constantGCP, dragstrParams, arguments, hmmType, resultsFile, log10globalReadMismappingRate, pcrErrorModel, baseQualityScoreThreshold,
+                dynamicReadDisqualificaiton, readDisqualificationScale, expectedErrorRatePerBase, symmetricallyNormalizeAllelesToReference,
+                disableCapReadQualitiesToMapQ, modifySoftclippedBases, null);
+    }
+
+    /**
+     * Create a new PairHMMLikelihoodCalculationEngine that reuses the likelihoods of read-haplotype pairs it (or any
+     * other engine sharing the same cache) has already computed.
+     *
+     * @param likelihoodCache cache of read-vs-haplotype likelihoods, possibly shared with other engines; {@code null} to
+     *                        disable caching. Ignored if {@code resultsFile} is not {@code null}, so that every
+     *                        likelihood is written to the results file.
+     *
+     * See {@link #PairHMMLikelihoodCalculationEngine(byte, DragstrParams, PairHMMNativeArguments, PairHMM.Implementation, GATKPath, double, PCRErrorModel, byte, boolean, double, double, boolean, boolean, boolean)}
+     * for the other parameters.
+     */
+    public PairHMMLikelihoodCalculationEngine(final byte constantGCP,
+                                              final DragstrParams dragstrParams,
+                                              final PairHMMNativeArguments arguments,
+                                              final PairHMM.Implementation hmmType,
+                                              final GATKPath resultsFile,
+                                              final double log10globalReadMismappingRate,
+                                              final PCRErrorModel pcrErrorModel,
+                                              final byte baseQualityScoreThreshold,
+                                              final boolean dynamicReadDisqualificaiton,
+                                              final double readDisqualificationScale,
+                                              final double expectedErrorRatePerBase,
+                                              final boolean symmetricallyNormalizeAllelesToReference,
+                                              final boolean disableCapReadQualitiesToMapQ,
+                                              final boolean modifySoftclippedBases,
+                                              final ReadHaplotypeLikelihoodCache likelihoodCache) {
         Utils.nonNull(hmmType, "hmmType is null");
         Utils.nonNull(pcrErrorModel, "pcrErrorModel is null");
         if (constantGCP < 0){
@@ -146,6 +184,7 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         if (resultsFile != null) {
             pairHMM.setAndInitializeDebugOutputStream(new OutputStreamWriter(resultsFile.getOutputStream()));
         }
+        this.likelihoodCache = resultsFile == null ? likelihoodCache : null;
         this.dynamicDisqualification = dynamicReadDisqualificaiton;
         this.readDisqualificationScale = readDisqualificationScale;
         this.symmetricallyNormalizeAllelesToReference = symmetricallyNormalizeAllelesToReference;
@@ -193,9 +232,15 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         // Add likelihoods for each sample's reads to our result
         final AlleleLikelihoods<GATKRead, Haplotype> result = new AlleleLikelihoods<>(samples, haplotypes, perSampleReadList);
         final int sampleCount = result.numberOfSamples();
+        final List<LikelihoodMatrix<GATKRead, Haplotype>> sampleMatrices = new ArrayList<>(sampleCount);
+        final List<List<GATKRead>> processedReads = new ArrayList<>(sampleCount);
         for (int i = 0; i < sampleCount; i++) {
-            computeReadLikelihoods(result.sampleMatrix(i));
+            final LikelihoodMatrix<GATKRead, Haplotype> sampleMatrix = result.sampleMatrix(i);
+            sampleMatrices.add(sampleMatrix);
+            processedReads.add(processReads(sampleMatrix.evidence()));
         }
+        // the reads of all the samples are submitted to the PairHMM together, so that it can run them as a single batch
+        computeReadLikelihoods(sampleMatrices, processedReads);
 
         result.normalizeLikelihoods(log10globalReadMismappingRate, symmetricallyNormalizeAllelesToReference);
         filterPoorlyModeledEvidence(result, dynamicDisqualification, expectedErrorRatePerBase, readDisqualificationScale);
@@ -257,9 +302,9 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         pairHMM.initialize(haplotypes, perSampleReadList, readMaxLength, haplotypeMaxLength);
     }
 
-    private void computeReadLikelihoods(final LikelihoodMatrix<GATKRead, Haplotype> likelihoods) {
+    private List<GATKRead> processReads(final List<GATKRead> reads) {
         // Modify the read qualities by applying the PCR error model and capping the minimum base,insertion,deletion qualities
-        final List<GATKRead> processedReads = modifyReadQualities(likelihoods.evidence());
+        final List<GATKRead> processedReads = modifyReadQualities(reads);
 
         for(int counter = 0; counter < processedReads.size(); counter++) {
             GATKRead read = processedReads.get(counter);
@@ -268,8 +313,107 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
                 HaplotypeCallerGenotypingDebugger.println(Arrays.toString(read.getBaseQualitiesNoCopy()));
             }
         }
-        // Run the PairHMM to calculate the log10 likelihood of each (processed) reads' arising from each haplotype
-        pairHMM.computeLog10Likelihoods(likelihoods, processedReads, inputScoreImputator);
+        return processedReads;
+    }
+
+    /**
+     * Run the PairHMM to calculate the log10 likelihood of each (processed) reads' arising from each haplotype
+     */
+    private void computeReadLikelihoods(final List<LikelihoodMatrix<GATKRead, Haplotype>> sampleMatrices, final List<List<GATKRead>> processedReads) {
+        if (likelihoodCache != null) {
+            computeReadLikelihoodsWithCache(sampleMatrices, processedReads);
+        } else if (sampleMatrices.size() == 1) {
+            pairHMM.computeLog10Likelihoods(sampleMatrices.get(0), processedReads.get(0), inputScoreImputator);
+        } else {
+            final List<GATKRead> allReads = new ArrayList<>(processedReads.stream().mapToInt(List::size).sum());
+            final IntArrayList readSamples = new IntArrayList();
+            final IntArrayList readIndices = new IntArrayList();
+            for (int s = 0; s < processedReads.size(); s++) {
+                final List<GATKRead> sampleReads = processedReads.get(s);
+                for (int r = 0; r < sampleReads.size(); r++) {
+                    allReads.add(sampleReads.get(r));
+                    readSamples.add(s);
+                    readIndices.add(r);
+                }
+            }
+            final LikelihoodMatrix<GATKRead, Haplotype> allLikelihoods = computePooledReadLikelihoods(sampleMatrices.get(0), allReads, inputScoreImputator);
+            for (int m = 0; m < allReads.size(); m++) {
+                final LikelihoodMatrix<GATKRead, Haplotype> likelihoods = sampleMatrices.get(readSamples.getInt(m));
+                for (int a = 0; a < likelihoods.numberOfAlleles(); a++) {
+                    likelihoods.set(a, readIndices.getInt(m), allLikelihoods.get(a, m));
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the PairHMM once on reads pooled from several samples, so that implementations with a fixed per-call
+     * overhead (such as the native ones) see a single batch per region. The PairHMM only looks at the alleles of the
+     * matrix and at the processed reads it is given, so the reads are computed in a matrix of their own and the caller
+     * copies the results back to the matrices of their samples.
+     */
+    private LikelihoodMatrix<GATKRead, Haplotype> computePooledReadLikelihoods(final AlleleList<Haplotype> alleles, final List<GATKRead> reads,
+                                                                              final PairHMMInputScoreImputator imputator) {
+        final LikelihoodMatrix<GATKRead, Haplotype> pooledLikelihoods = new AlleleLikelihoods<>(SampleList.singletonSampleList(POOLED_READS_SAMPLE),
+                alleles, Collections.singletonMap(POOLED_READS_SAMPLE, reads)).sampleMatrix(0);
+        pairHMM.computeLog10Likelihoods(pooledLikelihoods, reads, imputator);
+        return pooledLikelihoods;
+    }
+
+    /**
+     * Fills in the likelihoods of reads whose likelihoods for every haplotype are in the cache, and runs the PairHMM on
+     * the remaining reads of all samples only, adding their likelihoods to the cache.
+     */
+    private void computeReadLikelihoodsWithCache(final List<LikelihoodMatrix<GATKRead, Haplotype>> sampleMatrices, final List<List<GATKRead>> processedReads) {
+        final AlleleList<Haplotype> alleles = sampleMatrices.get(0);
+        final int alleleCount = alleles.numberOfAlleles();
+        final byte[][] haplotypeBases = new byte[alleleCount][];
+        final int[] haplotypeHashes = new int[alleleCount];
+        for (int a = 0; a < alleleCount; a++) {
+            haplotypeBases[a] = alleles.getAllele(a).getBases();
+            haplotypeHashes[a] = Arrays.hashCode(haplotypeBases[a]);
+        }
+
+        final double[] cachedLikelihoods = new double[alleleCount];
+        final Map<GATKRead, PairHMMInputScoreImputation> missedReadImputations = new IdentityHashMap<>();
+        final List<ReadHaplotypeLikelihoodCache.ReadInputs> missedReadInputs = new ArrayList<>();
+        final List<GATKRead> missedReads = new ArrayList<>();
+        final IntArrayList missedReadSamples = new IntArrayList();
+        final IntArrayList missedReadIndices = new IntArrayList();
+        for (int s = 0; s < sampleMatrices.size(); s++) {
+            final LikelihoodMatrix<GATKRead, Haplotype> likelihoods = sampleMatrices.get(s);
+            final List<GATKRead> sampleReads = processedReads.get(s);
+            for (int r = 0; r < sampleReads.size(); r++) {
+                final GATKRead read = sampleReads.get(r);
+                final PairHMMInputScoreImputation imputation = inputScoreImputator.impute(read);
+                final ReadHaplotypeLikelihoodCache.ReadInputs readInputs = new ReadHaplotypeLikelihoodCache.ReadInputs(read, imputation);
+                if (likelihoodCache.getAll(readInputs, haplotypeBases, haplotypeHashes, cachedLikelihoods)) {
+                    for (int a = 0; a < alleleCount; a++) {
+                        likelihoods.set(a, r, cachedLikelihoods[a]);
+                    }
+                } else {
+                    missedReadImputations.put(read, imputation);
+                    missedReadInputs.add(readInputs);
+                    missedReads.add(read);
+                    missedReadSamples.add(s);
+                    missedReadIndices.add(r);
+                }
+            }
+        }
+        if (missedReads.isEmpty()) {
+            return;
+        }
+
+        // the missed reads of all samples are computed together, reusing the imputations above
+        final LikelihoodMatrix<GATKRead, Haplotype> missedLikelihoods = computePooledReadLikelihoods(alleles, missedReads, missedReadImputations::get);
+        for (int m = 0; m < missedReads.size(); m++) {
+            final LikelihoodMatrix<GATKRead, Haplotype> likelihoods = sampleMatrices.get(missedReadSamples.getInt(m));
+            for (int a = 0; a < alleleCount; a++) {
+                cachedLikelihoods[a] = missedLikelihoods.get(a, m);
+                likelihoods.set(a, missedReadIndices.getInt(m), cachedLikelihoods[a]);
+            }
+            likelihoodCache.putAll(missedReadInputs.get(m), haplotypeBases, haplotypeHashes, cachedLikelihoods);
+        }
     }
 
     /**
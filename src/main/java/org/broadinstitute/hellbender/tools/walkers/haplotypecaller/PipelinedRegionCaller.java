@@ -0,0 +1,163 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.engine.FeatureContext;
+import org.broadinstitute.hellbender.engine.ReferenceContext;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.AlleleLikelihoods;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Pipelines the stages of {@link HaplotypeCallerEngine#callRegion} across consecutive assembly regions.
+ *
+ * Assembly ({@link HaplotypeCallerEngine#assembleRegion}) and genotyping ({@link HaplotypeCallerEngine#genotypeRegion})
+ * run on the calling thread, since they use the reference reader, the Feature data sources and the genotyping engine,
+ * none of which are thread-safe. The likelihood calculation ({@link HaplotypeCallerEngine#computeReadLikelihoods})
+ * runs on background threads, each owning its own likelihood calculation engines, so that the PairHMM for one region
+ * overlaps with the assembly of the following regions and the genotyping of the preceding ones.
+ *
+ * Submitted regions are kept in a bounded queue in submission order, which doubles as the reorder buffer: calls for a
+ * region are only emitted once all earlier regions have been emitted, so the output is the same as for
+ * {@link HaplotypeCallerEngine#callRegion}.
+ */
+public final class PipelinedRegionCaller implements AutoCloseable {
+
+    /**
+     * Number of regions that may be waiting for likelihoods or genotyping per likelihood thread before
+     * {@link #submitRegion} blocks
+     */
+    private static final int MAX_PENDING_REGIONS_PER_THREAD = 4;
+
+    private final HaplotypeCallerEngine engine;
+    private final List<ExecutorService> likelihoodExecutors;
+    private final List<ReadLikelihoodCalculationEngine> likelihoodEngines;
+    private final List<ReadLikelihoodCalculationEngine> pdhmmLikelihoodEngines;
+    private final Deque<PendingRegion> pendingRegions = new ArrayDeque<>();
+    private final int maxPendingRegions;
+    private int nextLikelihoodThread = 0;
+
+    /**
+     * @param engine engine used for the assembly and genotyping stages. Must not be used to call other regions
+     *               while this pipeline has pending regions.
+     * @param numLikelihoodThreads number of background threads on which to compute read likelihoods
+     */
+    public PipelinedRegionCaller(final HaplotypeCallerEngine engine, final int numLikelihoodThreads) {
+        this.engine = Utils.nonNull(engine);
+        Utils.validateArg(numLikelihoodThreads > 0, "the number of likelihood threads must be positive");
+
+        likelihoodExecutors = new ArrayList<>(numLikelihoodThreads);
+        likelihoodEngines = new ArrayList<>(numLikelihoodThreads);
+        pdhmmLikelihoodEngines = new ArrayList<>(numLikelihoodThreads);
+        for ( int i = 0; i < numLikelihoodThreads; i++ ) {
+            // one single-threaded executor per engine so that no likelihood engine is ever used by two threads
+            likelihoodExecutors.add(Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("hcLikelihoods-thread-" + i).setDaemon(true).build()));
+            likelihoodEngines.add(engine.createLikelihoodCalculationEngine());
+            pdhmmLikelihoodEngines.add(engine.createPDHMMLikelihoodCalculationEngine());
+        }
+        maxPendingRegions = MAX_PENDING_REGIONS_PER_THREAD * numLikelihoodThreads;
+    }
+
+    /**
+     * Assemble the given region on the calling thread and schedule its likelihood calculation, then emit the calls
+     * for all leading regions whose likelihoods are ready. Blocks if too many regions are pending.
+     *
+     * @param region region to assemble and perform variant calling on
+     * @param features Features overlapping the assembly region
+     * @param referenceContext reference bases overlapping the padded span of the assembly region
+     * @param output consumer for the calls of completed regions, invoked in submission order on the calling thread
+     */
+    public void submitRegion(final AssemblyRegion region, final FeatureContext features, final ReferenceContext referenceContext,
+                             final Consumer<VariantContext> output) {
+        final HaplotypeCallerEngine.RegionCallingState state = new HaplotypeCallerEngine.RegionCallingState(region, features, referenceContext);
+        final List<VariantContext> callsWithoutGenotyping = engine.assembleRegion(state);
+        if ( callsWithoutGenotyping != null ) {
+            pendingRegions.add(new PendingRegion(state, null, callsWithoutGenotyping));
+        } else {
+            final int thread = nextLikelihoodThread;
+            nextLikelihoodThread = (nextLikelihoodThread + 1) % likelihoodExecutors.size();
+            final Future<AlleleLikelihoods<GATKRead, Haplotype>> likelihoods = likelihoodExecutors.get(thread).submit(
+                    () -> engine.computeReadLikelihoods(state, likelihoodEngines.get(thread), pdhmmLikelihoodEngines.get(thread)));
+            pendingRegions.add(new PendingRegion(state, likelihoods, null));
+        }
+
+        while ( ! pendingRegions.isEmpty() && (pendingRegions.size() > maxPendingRegions || pendingRegions.peek().isReady()) ) {
+            emitNextRegion(output);
+        }
+    }
+
+    /**
+     * Wait for all pending regions and emit their calls in submission order.
+     *
+     * @param output consumer for the calls of completed regions, invoked in submission order on the calling thread
+     */
+    public void flush(final Consumer<VariantContext> output) {
+        while ( ! pendingRegions.isEmpty() ) {
+            emitNextRegion(output);
+        }
+    }
+
+    private void emitNextRegion(final Consumer<VariantContext> output) {
+        final PendingRegion pendingRegion = pendingRegions.poll();
+        final List<VariantContext> calls = pendingRegion.callsWithoutGenotyping != null ? pendingRegion.callsWithoutGenotyping
+                : engine.genotypeRegion(pendingRegion.state, getLikelihoods(pendingRegion.likelihoods));
+        calls.forEach(output);
+    }
+
+    private static AlleleLikelihoods<GATKRead, Haplotype> getLikelihoods(final Future<AlleleLikelihoods<GATKRead, Haplotype>> likelihoods) {
+        try {
+            return likelihoods.get();
+        } catch ( final ExecutionException e ) {
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Read likelihood calculation failed", e.getCause());
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for read likelihoods", e);
+        }
+    }
+
+    /**
+     * Shut down the likelihood threads and close their engines. Any regions still pending are discarded.
+     */
+    @Override
+    public void close() {
+        likelihoodExecutors.forEach(ExecutorService::shutdownNow);
+        pendingRegions.clear();
+        likelihoodEngines.forEach(ReadLikelihoodCalculationEngine::close);
+        pdhmmLikelihoodEngines.stream().filter(e -> e != null).forEach(ReadLikelihoodCalculationEngine::close);
+    }
+
+    private static final class PendingRegion {
+        final HaplotypeCallerEngine.RegionCallingState state;
+        final Future<AlleleLikelihoods<GATKRead, Haplotype>> likelihoods;
+        final List<VariantContext> callsWithoutGenotyping;
+
+        PendingRegion(final HaplotypeCallerEngine.RegionCallingState state,
+                      final Future<AlleleLikelihoods<GATKRead, Haplotype>> likelihoods,
+                      final List<VariantContext> callsWithoutGenotyping) {
+            this.state = state;
+            this.likelihoods = likelihoods;
+            this.callsWithoutGenotyping = callsWithoutGenotyping;
+        }
+
+        boolean isReady() {
+            return likelihoods == null || likelihoods.isDone();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.hellbender.utils.LRUCache;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.pairhmm.PairHMMInputScoreImputation;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded (least-recently-used) cache of PairHMM read-vs-haplotype log10 likelihoods, used by
+ * {@link PairHMMLikelihoodCalculationEngine} to avoid rescoring a read against a haplotype it has already been scored
+ * against, typically because the read lies in the padding overlap of adjacent assembly regions.
+ *
+ * Entries are keyed by the read name and every PairHMM input derived from the read (bases, base qualities and the
+ * imputed gap open/continuation penalties), plus the haplotype bases. Reads are hard-clipped differently in different
+ * regions, so the read name alone is not enough; since the key covers all the inputs of the PairHMM, a hit always
+ * returns exactly the value that would have been computed.
+ *
+ * All methods are thread-safe, so a single cache may be shared by several likelihood engines.
+ */
+public final class ReadHaplotypeLikelihoodCache {
+
+    private final LRUCache<Key, Double> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxEntries maximum number of read-haplotype pairs to keep
+     */
+    public ReadHaplotypeLikelihoodCache(final int maxEntries) {
+        Utils.validateArg(maxEntries > 0, "the maximum number of cache entries must be positive");
+        cache = new LRUCache<>(maxEntries);
+    }
+
+    /**
+     * The PairHMM inputs for a read, computed once per read and combined with each haplotype to look up likelihoods.
+     */
+    public static final class ReadInputs {
+        private final String name;
+        private final boolean firstOfPair;
+        private final byte[] bases;
+        private final byte[] quals;
+        private final byte[] insertionGOP;
+        private final byte[] deletionGOP;
+        private final byte[] overallGCP;
+        private final int hashCode;
+
+        /**
+         * @param read the read as it will be presented to the PairHMM (ie., after quality modification and clipping)
+         * @param imputation the gap penalties imputed for this read
+         */
+        public ReadInputs(final GATKRead read, final PairHMMInputScoreImputation imputation) {
+            name = read.getName();
+            firstOfPair = read.isPaired() && read.isFirstOfPair();
+            bases = read.getBasesNoCopy();
+            quals = read.getBaseQualitiesNoCopy();
+            insertionGOP = imputation.insOpenPenalties();
+            deletionGOP = imputation.delOpenPenalties();
+            overallGCP = imputation.gapContinuationPenalties();
+            int hash = Objects.hash(name, firstOfPair);
+            hash = 31 * hash + Arrays.hashCode(bases);
+            hash = 31 * hash + Arrays.hashCode(quals);
+            hash = 31 * hash + Arrays.hashCode(insertionGOP);
+            hash = 31 * hash + Arrays.hashCode(deletionGOP);
+            hash = 31 * hash + Arrays.hashCode(overallGCP);
+            hashCode = hash;
+        }
+
+        private boolean sameAs(final ReadInputs other) {
+            return this == other || (hashCode == other.hashCode && firstOfPair == other.firstOfPair && name.equals(other.name)
+                    && Arrays.equals(bases, other.bases) && Arrays.equals(quals, other.quals)
+                    && Arrays.equals(insertionGOP, other.insertionGOP) && Arrays.equals(deletionGOP, other.deletionGOP)
+                    && Arrays.equals(overallGCP, other.overallGCP));
+        }
+    }
+
+    private static final class Key {
+        private final ReadInputs read;
+        private final byte[] haplotypeBases;
+        private final int hashCode;
+
+        Key(final ReadInputs read, final byte[] haplotypeBases, final int haplotypeHash) {
+            this.read = read;
+            this.haplotypeBases = haplotypeBases;
+            this.hashCode = 31 * read.hashCode + haplotypeHash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !(o instanceof Key) ) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return hashCode == other.hashCode && Arrays.equals(haplotypeBases, other.haplotypeBases) && read.sameAs(other.read);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Look up the likelihoods of a read given each of the haplotypes. Counts as a single hit if all of them are cached
+     * and as a single miss otherwise.
+     *
+     * @param read the PairHMM inputs for the read
+     * @param haplotypeBases the bases of each haplotype
+     * @param haplotypeHashes {@link Arrays#hashCode(byte[])} of each haplotype's bases
+     * @param destination where to store the likelihood for each haplotype
+     * @return true if all the likelihoods were cached (and have been written to {@code destination}), false otherwise
+     */
+    public boolean getAll(final ReadInputs read, final byte[][] haplotypeBases, final int[] haplotypeHashes, final double[] destination) {
+        synchronized (cache) {
+            for ( int h = 0; h < haplotypeBases.length; h++ ) {
+                final Double likelihood = cache.get(new Key(read, haplotypeBases[h], haplotypeHashes[h]));
+                if ( likelihood == null ) {
+                    misses.increment();
+                    return false;
+                }
+                destination[h] = likelihood;
+            }
+        }
+        hits.increment();
+        return true;
+    }
+
+    /**
+     * Store the likelihoods of a read given each of the haplotypes.
+     *
+     * @param read the PairHMM inputs for the read
+     * @param haplotypeBases the bases of each haplotype
+     * @param haplotypeHashes {@link Arrays#hashCode(byte[])} of each haplotype's bases
+     * @param likelihoods the likelihood for each haplotype
+     */
+    public void putAll(final ReadInputs read, final byte[][] haplotypeBases, final int[] haplotypeHashes, final double[] likelihoods) {
+        synchronized (cache) {
+            for ( int h = 0; h < haplotypeBases.length; h++ ) {
+                cache.put(new Key(read, haplotypeBases[h], haplotypeHashes[h]), likelihoods[h]);
+            }
+        }
+    }
+
+    /**
+     * @return the number of reads for which the likelihoods for all haplotypes were found in the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of reads for which at least one likelihood had to be computed
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+}
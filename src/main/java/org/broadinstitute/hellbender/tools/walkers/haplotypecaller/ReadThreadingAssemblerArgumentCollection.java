@@ -25,6 +25,8 @@ public abstract class ReadThreadingAssemblerArgumentCollection implements Serial
     public static final String KMER_SIZE_LONG_NAME = "kmer-size";
     public static final String DONT_INCREASE_KMER_SIZE_LONG_NAME = "dont-increase-kmer-sizes-for-cycles";
     public static final String LINKED_DE_BRUIJN_GRAPH_LONG_NAME = "linked-de-bruijn-graph";
+    public static final String USE_PACKED_KMER_GRAPH_LONG_NAME = "use-packed-kmer-graph";
+    public static final String KMER_SIZE_THREADS_LONG_NAME = "kmer-size-threads";
     public static final String ALLOW_NON_UNIQUE_KMERS_IN_REF_LONG_NAME = "allow-non-unique-kmers-in-ref";
     public static final String NUM_PRUNING_SAMPLES_LONG_NAME = "num-pruning-samples";
     public static final String MIN_DANGLING_BRANCH_LENGTH_LONG_NAME = "min-dangling-branch-length";
@@ -164,6 +166,24 @@ public abstract class ReadThreadingAssemblerArgumentCollection implements Serial
     @Argument(fullName= LINKED_DE_BRUIJN_GRAPH_LONG_NAME, doc = "If enabled, the Assembly Engine will construct a Linked De Bruijn graph to recover better haplotypes", optional = true)
     public boolean useLinkedDeBruijnGraph = false;
 
+    /**
+     * Find the non-unique kmers of each assembly graph using kmers packed into longs in primitive hash tables, rather
+     * than one kmer object per read position. This reduces garbage collection in high-depth regions and produces the
+     * same haplotypes. Kmers longer than 32 bases or containing bases other than A, C, G and T are handled as before.
+     * Has no effect with --linked-de-bruijn-graph.
+     */
+    @Advanced
+    @Argument(fullName= USE_PACKED_KMER_GRAPH_LONG_NAME, doc = "Use primitive tables of packed kmers to find non-unique kmers when building assembly graphs", optional = true)
+    public boolean usePackedKmerGraph = false;
+
+    /**
+     * Build the assembly graphs for the different --kmer-size values concurrently, on up to this many threads per
+     * assembly engine. The assembled haplotypes are the same as when they are built one at a time.
+     * Has no effect with --linked-de-bruijn-graph.
+     */
+    @Advanced
+    @Argument(fullName= KMER_SIZE_THREADS_LONG_NAME, doc = "Number of threads used to build the assembly graphs for the different kmer sizes", optional = true, minValue = 1)
+    public int kmerSizeThreads = 1;
 
     /**
      * This is used to disable the recovery of paths that were dropped in the graph based on the junction trees. Disabling this
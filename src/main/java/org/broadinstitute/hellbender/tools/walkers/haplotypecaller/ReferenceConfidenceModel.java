@@ -39,9 +39,12 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Code for estimating the reference confidence
@@ -96,6 +99,16 @@ public class ReferenceConfidenceModel {
     protected static final int MAX_N_INDEL_INFORMATIVE_READS = 40; // more than this is overkill because GQs are capped at 99 anyway
 
     private static final int INITIAL_INDEL_LK_CACHE_PLOIDY_CAPACITY = 20;
+
+    /**
+     * Number of distinct base quality values, as qualities are read as unsigned bytes.
+     */
+    private static final int QUAL_VALUE_COUNT = 256;
+
+    /**
+     * Per ploidy, what a single base adds to each heterozygous genotype likelihood; see {@link #hetLikelihoodIncrements(int)}.
+     */
+    private static final Map<Integer, double[]> hetLikelihoodIncrementsCache = new ConcurrentHashMap<>();
     private static GenotypeLikelihoods[][] indelPLCache = new GenotypeLikelihoods[INITIAL_INDEL_LK_CACHE_PLOIDY_CAPACITY + 1][];
 
     /**
@@ -225,16 +238,15 @@ public class ReferenceConfidenceModel {
         final int ploidy = ploidyModel.samplePloidy(0); // the first sample = the only sample in reference-confidence mode.
 
         final SimpleInterval refSpan = activeRegion.getSpan();
-        final List<ReadPileup> refPileups = AssemblyBasedCallerUtils.getPileupsOverReference(activeRegion.getHeader(), refSpan, readLikelihoods, samples);
+        final Iterator<ReadPileup> refPileups = AssemblyBasedCallerUtils.getPileupsOverReference(activeRegion.getHeader(), refSpan, readLikelihoods, samples);
         final byte[] ref = refHaplotype.getBases();
         final List<VariantContext> results = new ArrayList<>(refSpan.size());
         final String sampleName = readLikelihoods.getSample(0);
 
         final int globalRefOffset = refSpan.getStart() - activeRegion.getPaddedSpan().getStart();
-        // Note, we use an indexed for-loop here because this method has a large impact on the profile of HaplotypeCaller runtime in GVCF mode
-        final int refPileupsSize = refPileups.size();
-        for (int i = 0; i < refPileupsSize; i++) {
-            final ReadPileup pileup = refPileups.get(i);
+        // Note, the pileups are consumed as they are produced because this method has a large impact on the profile of HaplotypeCaller runtime in GVCF mode
+        while (refPileups.hasNext()) {
+            final ReadPileup pileup = refPileups.next();
             final Locatable curPos = pileup.getLocation();
             final int offset = curPos.getStart() - refSpan.getStart();
 
@@ -405,6 +417,7 @@ public class ReferenceConfidenceModel {
 
         final int likelihoodCount = ploidy + 1;
         final double log10Ploidy = Math.log10(ploidy);
+        final double[] hetLikelihoodIncrements = hetLikelihoodIncrements(ploidy);
 
         final RefVsAnyResult result = new RefVsAnyResult(likelihoodCount);
         int readCount = 0;
@@ -426,7 +439,7 @@ public class ReferenceConfidenceModel {
             }
 
             readCount++;
-            applyPileupElementRefVsNonRefLikelihoodAndCount(refBase, likelihoodCount, log10Ploidy, result, p, qual, hqSoftClips, readsWereRealigned);
+            applyPileupElementRefVsNonRefLikelihoodAndCount(refBase, likelihoodCount, log10Ploidy, hetLikelihoodIncrements, result, p, qual, hqSoftClips, readsWereRealigned);
         }
         final double denominator = readCount * log10Ploidy;
         for (int i = 0; i < likelihoodCount; i++) {
@@ -470,7 +483,33 @@ public class ReferenceConfidenceModel {
         return refModelDeletionQuality;
     }
 
-    private void applyPileupElementRefVsNonRefLikelihoodAndCount(final byte refBase, final int likelihoodCount, final double log10Ploidy, final RefVsAnyResult result, final PileupElement element, final byte qual, final MathUtils.RunningAverage hqSoftClips, final boolean readsWereRealigned) {
+    /**
+     * Table of what a base of each quality adds to the heterozygous genotype likelihoods, both as a reference and as a
+     * non-reference base, so that scoring a pileup element takes array lookups rather than a log-sum per genotype.
+     *
+     * The increment of the likelihood of the genotype with {@code i} non-reference alleles ({@code 0 < i < ploidy}) is at
+     * {@code ((isAlt ? QUAL_VALUE_COUNT : 0) + (qual & 0xFF)) * (ploidy - 1) + i - 1}. The values are computed exactly as
+     * they would be for each element, so the genotype likelihoods are the same.
+     */
+    private static double[] hetLikelihoodIncrements(final int ploidy) {
+        return hetLikelihoodIncrementsCache.computeIfAbsent(ploidy, p -> {
+            final int hetCount = Math.max(p - 1, 0);
+            final double[] result = new double[2 * QUAL_VALUE_COUNT * hetCount];
+            for (int q = 0; q < QUAL_VALUE_COUNT; q++) {
+                final double matchLikelihood = QualityUtils.qualToProbLog10((byte) q);
+                final double mismatchLikelihood = QualityUtils.qualToErrorProbLog10((byte) q) + MathUtils.LOG10_ONE_THIRD;
+                for (int i = 1, j = p - 1; i < p; i++, j--) {
+                    result[q * hetCount + i - 1] =
+                            MathUtils.approximateLog10SumLog10(matchLikelihood + Math.log10(j), mismatchLikelihood + Math.log10(i));
+                    result[(QUAL_VALUE_COUNT + q) * hetCount + i - 1] =
+                            MathUtils.approximateLog10SumLog10(mismatchLikelihood + Math.log10(j), matchLikelihood + Math.log10(i));
+                }
+            }
+            return result;
+        });
+    }
+
+    private void applyPileupElementRefVsNonRefLikelihoodAndCount(final byte refBase, final int likelihoodCount, final double log10Ploidy, final double[] hetLikelihoodIncrements, final RefVsAnyResult result, final PileupElement element, final byte qual, final MathUtils.RunningAverage hqSoftClips, final boolean readsWereRealigned) {
         final boolean isAlt = readsWereRealigned ? isAltAfterAssembly(element, refBase) : isAltBeforeAssembly(element, refBase);
         final double referenceLikelihood;
         final double nonRefLikelihood;
@@ -487,12 +526,11 @@ public class ReferenceConfidenceModel {
         // Homozygous likelihoods don't need the logSum trick.
         result.genotypeLikelihoods[0] += referenceLikelihood + log10Ploidy;
         result.genotypeLikelihoods[likelihoodCount - 1] += nonRefLikelihood + log10Ploidy;
-        // Heterozygous likelihoods need the logSum trick:
-        for (int i = 1, j = likelihoodCount - 2; i < likelihoodCount - 1; i++, j--) {
-            result.genotypeLikelihoods[i] +=
-                    MathUtils.approximateLog10SumLog10(
-                            referenceLikelihood + Math.log10(j),
-                            nonRefLikelihood + Math.log10(i));
+        // Heterozygous likelihoods need the logSum trick, precomputed per quality:
+        final int hetCount = likelihoodCount - 2;
+        final int incrementsOffset = ((isAlt ? QUAL_VALUE_COUNT : 0) + (qual & 0xFF)) * hetCount;
+        for (int i = 1; i <= hetCount; i++) {
+            result.genotypeLikelihoods[i] += hetLikelihoodIncrements[incrementsOffset + i - 1];
         }
         if (isAlt && hqSoftClips != null && element.isNextToSoftClip()) {
             hqSoftClips.add(AlignmentUtils.countHighQualitySoftClips(element.getRead(), HQ_BASE_QUALITY_SOFTCLIP_THRESHOLD));
@@ -253,13 +253,24 @@ public abstract class AbstractReadThreadingGraph extends BaseGraph<MultiDeBruijn
      */
     protected void addSequence(final String seqName, final String sampleName, final byte[] sequence, final int start, final int stop, final int count, final boolean isRef) {
         // note that argument testing is taken care of in SequenceForKmers
+        addSequence(sampleName, new SequenceForKmers(seqName, sequence, start, stop, count, isRef));
+    }
+
+    /**
+     * Add a sequence for kmers to this graph. The sequence may be shared with other graphs (see {@link ReadSequencesForKmers}).
+     *
+     * @param sampleName the sample the sequence comes from
+     * @param sequenceForKmers non-null sequence
+     */
+    final void addSequence(final String sampleName, final SequenceForKmers sequenceForKmers) {
+        Utils.nonNull(sequenceForKmers);
         Utils.validate(!alreadyBuilt, "Attempting to add sequence to a graph that has already been built");
 
         // get the list of sequences for this sample
         List<SequenceForKmers> sampleSequences = pending.computeIfAbsent(sampleName, s -> new LinkedList<>());
 
         // add the new sequence to the list of sequences for sample
-        sampleSequences.add(new SequenceForKmers(seqName, sequence, start, stop, count, isRef));
+        sampleSequences.add(sequenceForKmers);
     }
 
     /**
@@ -1132,6 +1143,14 @@ public abstract class AbstractReadThreadingGraph extends BaseGraph<MultiDeBruijn
         final int count;
         final boolean isRef;
 
+        /**
+         * Smallest kmer size for which this sequence is known to contain no repeated kmers. A sequence without
+         * repeated kmers of some size has no repeated kmers of any larger size either, so graphs with larger kmer sizes
+         * sharing this sequence can skip looking for non-unique kmers in it. Graphs with different kmer sizes may be
+         * built concurrently; a lost update only costs a redundant scan.
+         */
+        private volatile int noNonUniqueKmersFromSize = Integer.MAX_VALUE;
+
         /**
          * Create a new sequence for creating kmers
          */
@@ -1148,5 +1167,21 @@ public abstract class AbstractReadThreadingGraph extends BaseGraph<MultiDeBruijn
             this.count = count;
             isRef = ref;
         }
+
+        /**
+         * @return true if this sequence is known to contain no repeated kmers of size kmerSize
+         */
+        boolean isKnownToHaveNoNonUniqueKmers(final int kmerSize) {
+            return kmerSize >= noNonUniqueKmersFromSize;
+        }
+
+        /**
+         * Record that this sequence contains no repeated kmers of size kmerSize (and therefore none of any larger size)
+         */
+        void recordNoNonUniqueKmers(final int kmerSize) {
+            if ( kmerSize < noNonUniqueKmersFromSize ) {
+                noNonUniqueKmersFromSize = kmerSize;
+            }
+        }
     }
 }
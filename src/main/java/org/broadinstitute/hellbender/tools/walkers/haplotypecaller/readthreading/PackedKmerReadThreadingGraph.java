@@ -0,0 +1,136 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import com.google.common.annotations.VisibleForTesting;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link ReadThreadingGraph} that finds the non-unique kmers of the pending sequences using kmers packed two bits per
+ * base into longs, kept in open-addressing primitive hash sets, instead of allocating a {@link Kmer} (and a hash set
+ * entry) for every position of every read.
+ *
+ * Only kmers of at most {@link #MAX_PACKED_KMER_SIZE} bases made up of the bases A, C, G and T can be packed; any other
+ * kmer is handled as a {@link Kmer} object, exactly as in {@link ReadThreadingGraph}. The set of non-unique kmers, and
+ * therefore the graph and the haplotypes assembled from it, are identical to those of {@link ReadThreadingGraph}.
+ */
+public final class PackedKmerReadThreadingGraph extends ReadThreadingGraph {
+    private static final long serialVersionUID = 1l;
+
+    /**
+     * Largest kmer size that fits in a long at two bits per base.
+     */
+    public static final int MAX_PACKED_KMER_SIZE = Long.SIZE / 2;
+
+    /**
+     * Create a new PackedKmerReadThreadingGraph using kmerSize for matching
+     * @param kmerSize must be >= 1
+     */
+    PackedKmerReadThreadingGraph(final int kmerSize, final boolean debugGraphTransformations, final byte minBaseQualityToUseInAssembly, final int numPruningSamples, final int numDanglingMatchingPrefixBases) {
+        super(kmerSize, debugGraphTransformations, minBaseQualityToUseInAssembly, numPruningSamples, numDanglingMatchingPrefixBases);
+    }
+
+    @Override
+    protected void preprocessReads() {
+        if ( kmerSize > MAX_PACKED_KMER_SIZE ) {
+            super.preprocessReads();
+        } else {
+            nonUniqueKmers = determineNonUniqueKmers(pending.values(), kmerSize);
+        }
+    }
+
+    @Override
+    public PackedKmerReadThreadingGraph clone() {
+        return (PackedKmerReadThreadingGraph) super.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "PackedKmerReadThreadingAssembler{kmerSize=" + kmerSize + '}';
+    }
+
+    /**
+     * Get the kmers of size kmerSize that occur more than once within any one of the sequences.
+     *
+     * As in {@link ReadThreadingGraph#determineNonUniqueKmers(SequenceForKmers, int)}, all the kmers ending before
+     * the stop of each sequence are considered, including those starting before its start, and sequences known to
+     * have no repeated kmers of this size are skipped.
+     *
+     * @param sequencesBySample the sequences, grouped by sample
+     * @param kmerSize the size of the kmers, at most {@link #MAX_PACKED_KMER_SIZE}
+     * @return a non-null set of non-unique kmers
+     */
+    @VisibleForTesting
+    static Set<Kmer> determineNonUniqueKmers(final Collection<List<SequenceForKmers>> sequencesBySample, final int kmerSize) {
+        final Set<Kmer> nonUniqueKmers = new HashSet<>();
+        final LongOpenHashSet packedNonUniqueKmers = new LongOpenHashSet();
+        final LongOpenHashSet packedSequenceKmers = new LongOpenHashSet();
+        final Set<Kmer> unpackableSequenceKmers = new HashSet<>();
+        final long mask = kmerSize == MAX_PACKED_KMER_SIZE ? -1L : (1L << (2 * kmerSize)) - 1L;
+
+        for ( final List<SequenceForKmers> sequences : sequencesBySample ) {
+            for ( final SequenceForKmers sequenceForKmers : sequences ) {
+                if ( sequenceForKmers.isKnownToHaveNoNonUniqueKmers(kmerSize) ) {
+                    continue;
+                }
+                boolean hasNonUniqueKmers = false;
+                packedSequenceKmers.clear();
+                unpackableSequenceKmers.clear();
+                final byte[] sequence = sequenceForKmers.sequence;
+
+                long packedKmer = 0L;
+                int packableBases = 0; // number of consecutive packable bases ending at the current position
+                for ( int end = 0; end < sequenceForKmers.stop; end++ ) {
+                    final int code = packedCode(sequence[end]);
+                    if ( code < 0 ) {
+                        packableBases = 0;
+                    } else {
+                        packedKmer = ((packedKmer << 2) | code) & mask;
+                        packableBases++;
+                    }
+                    if ( end < kmerSize - 1 ) {
+                        continue;
+                    }
+
+                    final int start = end - kmerSize + 1;
+                    if ( packableBases >= kmerSize ) {
+                        // the Kmer is only created the first time we find it to be non-unique
+                        if ( !packedSequenceKmers.add(packedKmer) ) {
+                            hasNonUniqueKmers = true;
+                            if ( packedNonUniqueKmers.add(packedKmer) ) {
+                                nonUniqueKmers.add(new Kmer(sequence, start, kmerSize));
+                            }
+                        }
+                    } else {
+                        final Kmer kmer = new Kmer(sequence, start, kmerSize);
+                        if ( !unpackableSequenceKmers.add(kmer) ) {
+                            hasNonUniqueKmers = true;
+                            nonUniqueKmers.add(kmer);
+                        }
+                    }
+                }
+                if ( !hasNonUniqueKmers ) {
+                    sequenceForKmers.recordNoNonUniqueKmers(kmerSize);
+                }
+            }
+        }
+        return nonUniqueKmers;
+    }
+
+    /**
+     * @return the two-bit code of base, or -1 if it cannot be packed (ie., it is not one of the upper-case bases A, C, G or T)
+     */
+    private static int packedCode(final byte base) {
+        switch ( base ) {
+            case 'A': return 0;
+            case 'C': return 1;
+            case 'G': return 2;
+            case 'T': return 3;
+            default: return -1;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading.AbstractReadThreadingGraph.SequenceForKmers;
+import org.broadinstitute.hellbender.utils.BaseUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The maximal runs of bases usable for assembly of a set of reads, found once and then added to the graph for each
+ * kmer size the {@link ReadThreadingAssembler} tries, instead of splitting every read again for every graph.
+ *
+ * The runs and their order are the same as those {@link AbstractReadThreadingGraph#addRead(GATKRead, SAMFileHeader)}
+ * adds, so a graph built from them is identical. Since the {@link SequenceForKmers} are shared by all the graphs, what
+ * one graph learns about the non-unique kmers of a sequence is reused by the graphs with larger kmer sizes.
+ */
+final class ReadSequencesForKmers {
+    private final List<String> sampleNames = new ArrayList<>();
+    private final List<SequenceForKmers> sequences = new ArrayList<>();
+
+    /**
+     * @param reads the reads to split
+     * @param header header used to find the sample of each read
+     * @param minBaseQualityToUseInAssembly bases with lower quality (as well as Ns) split reads
+     */
+    ReadSequencesForKmers(final Iterable<GATKRead> reads, final SAMFileHeader header, final byte minBaseQualityToUseInAssembly) {
+        Utils.nonNull(reads);
+        for ( final GATKRead read : reads ) {
+            final byte[] sequence = read.getBases();
+            final byte[] qualities = read.getBaseQualitiesNoCopy();
+            final String sampleName = ReadUtils.getSampleName(read, header);
+
+            int lastGood = -1;
+            for ( int end = 0; end <= sequence.length; end++ ) {
+                if ( end == sequence.length || sequence[end] == BaseUtils.Base.N.base || qualities[end] < minBaseQualityToUseInAssembly ) {
+                    if ( lastGood != -1 ) {
+                        sampleNames.add(sampleName);
+                        sequences.add(new SequenceForKmers(read.getName() + '_' + lastGood + '_' + end, sequence, lastGood, end, 1, false));
+                    }
+                    lastGood = -1;
+                } else if ( lastGood == -1 ) {
+                    lastGood = end;
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the sequences that are at least as long as the kmer size of the graph to it
+     *
+     * @param graph a graph that has not been built yet
+     */
+    void addTo(final AbstractReadThreadingGraph graph) {
+        final int kmerSize = graph.getKmerSize();
+        for ( int i = 0; i < sequences.size(); i++ ) {
+            final SequenceForKmers sequence = sequences.get(i);
+            if ( sequence.stop - sequence.start >= kmerSize ) {
+                graph.addSequence(sampleNames.get(i), sequence);
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreadin
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.Cigar;
 import htsjdk.samtools.CigarOperator;
 import htsjdk.samtools.SAMFileHeader;
@@ -14,6 +15,7 @@ import org.apache.logging.log4j.Logger;
 import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
 import org.broadinstitute.gatk.nativebindings.smithwaterman.SWParameters;
 import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResult;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResultSet;
@@ -35,6 +37,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 public final class ReadThreadingAssembler {
@@ -68,6 +71,9 @@ public final class ReadThreadingAssembler {
     private boolean debugGraphTransformations = false;
     private boolean recoverDanglingBranches = true;
     private boolean recoverAllDanglingBranches = false;
+    private boolean usePackedKmerGraph = false;
+    private int kmerSizeThreads = 1;
+    private ExecutorService kmerSizeExecutor = null;
     private int minDanglingBranchLength = 0;
 
     private byte minBaseQualityToUseInAssembly = DEFAULT_MIN_BASE_QUALITY_TO_USE;
@@ -242,12 +248,13 @@ public final class ReadThreadingAssembler {
 
         boolean hasAdequatelyAssembledGraph = false;
         List<Integer> kmersToTry = getExpandedKmerList();
+        final ReadSequencesForKmers readSequences = new ReadSequencesForKmers(correctedReads, header, minBaseQualityToUseInAssembly);
         // first, try using the requested kmer sizes
         for ( int i = 0; i < kmersToTry.size(); i++ ) {
             final int kmerSize = kmersToTry.get(i);
             final boolean isLastCycle = i == kmersToTry.size() - 1;
             if (!hasAdequatelyAssembledGraph) {
-                AssemblyResult assembledResult = createGraph(correctedReads, refHaplotype, kmerSize, isLastCycle || dontIncreaseKmerSizesForCycles, isLastCycle || allowNonUniqueKmersInRef, header, aligner, danglingEndSWParameters);
+                AssemblyResult assembledResult = createGraph(readSequences, refHaplotype, kmerSize, isLastCycle || dontIncreaseKmerSizesForCycles, isLastCycle || allowNonUniqueKmersInRef, aligner, danglingEndSWParameters);
                 if (assembledResult != null && assembledResult.getStatus() == AssemblyResult.Status.ASSEMBLED_SOME_VARIATION) {
                     // do some QC on the graph
                     sanityCheckGraph(assembledResult.getThreadingGraph(), refHaplotype);
@@ -550,10 +557,16 @@ public final class ReadThreadingAssembler {
     @VisibleForTesting
     List<AssemblyResult> assemble(final List<GATKRead> reads, final Haplotype refHaplotype, final SAMFileHeader header, final SmithWatermanAligner aligner, final SWParameters danglingEndSWParameters) {
         final List<AssemblyResult> results = new LinkedList<>();
+        // split the reads only once, for all the kmer sizes
+        final ReadSequencesForKmers readSequences = new ReadSequencesForKmers(reads, header, minBaseQualityToUseInAssembly);
 
         // first, try using the requested kmer sizes
-        for ( final int kmerSize : kmerSizes ) {
-            addResult(results, createGraph(reads, refHaplotype, kmerSize, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, header, aligner, danglingEndSWParameters));
+        if ( kmerSizeThreads > 1 && kmerSizes.size() > 1 ) {
+            createGraphsConcurrently(readSequences, refHaplotype, aligner, danglingEndSWParameters).forEach(result -> addResult(results, result));
+        } else {
+            for ( final int kmerSize : kmerSizes ) {
+                addResult(results, createGraph(readSequences, refHaplotype, kmerSize, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, aligner, danglingEndSWParameters));
+            }
         }
 
         // if none of those worked, iterate over larger sizes if allowed to do so
@@ -563,7 +576,7 @@ public final class ReadThreadingAssembler {
             while ( results.isEmpty() && numIterations <= MAX_KMER_ITERATIONS_TO_ATTEMPT ) {
                 // on the last attempt we will allow low complexity graphs
                 final boolean lastAttempt = numIterations == MAX_KMER_ITERATIONS_TO_ATTEMPT;
-                addResult(results, createGraph(reads, refHaplotype, kmerSize, lastAttempt, lastAttempt, header, aligner, danglingEndSWParameters));
+                addResult(results, createGraph(readSequences, refHaplotype, kmerSize, lastAttempt, lastAttempt, aligner, danglingEndSWParameters));
                 kmerSize += KMER_SIZE_ITERATION_INCREASE;
                 numIterations++;
             }
@@ -589,6 +602,48 @@ public final class ReadThreadingAssembler {
         return returnList;
     }
 
+    /**
+     * Create the graphs for all the requested kmer sizes concurrently, using up to {@link #kmerSizeThreads} threads.
+     *
+     * @return the result (possibly null) for each kmer size, in the same order as {@link #kmerSizes}
+     */
+    private List<AssemblyResult> createGraphsConcurrently(final ReadSequencesForKmers readSequences, final Haplotype refHaplotype,
+                                                          final SmithWatermanAligner aligner, final SWParameters danglingEndSWParameters) {
+        final ExecutorService executor = getKmerSizeExecutor();
+        final List<Future<AssemblyResult>> futures = new ArrayList<>(kmerSizes.size());
+        for ( final int kmerSize : kmerSizes ) {
+            futures.add(executor.submit(() -> createGraph(readSequences, refHaplotype, kmerSize, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, aligner, danglingEndSWParameters)));
+        }
+
+        final List<AssemblyResult> results = new ArrayList<>(kmerSizes.size());
+        try {
+            for ( final Future<AssemblyResult> future : futures ) {
+                results.add(future.get());
+            }
+        } catch ( final ExecutionException e ) {
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Assembly graph construction failed", e.getCause());
+        } catch ( final InterruptedException e ) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for assembly graphs", e);
+        }
+        return results;
+    }
+
+    private synchronized ExecutorService getKmerSizeExecutor() {
+        if ( kmerSizeExecutor == null ) {
+            // idle threads time out, so that an assembler that is no longer used doesn't need to be closed
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(kmerSizeThreads, kmerSizeThreads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setNameFormat("assembly-kmer-size-thread-%d").setDaemon(true).build());
+            executor.allowCoreThreadTimeOut(true);
+            kmerSizeExecutor = executor;
+        }
+        return kmerSizeExecutor;
+    }
+
     private static int arrayMaxInt(final List<Integer> array) {
         return array.stream().mapToInt(Integer::intValue).max().orElseThrow(() -> new IllegalArgumentException("Array size cannot be 0!"));
     }
@@ -596,7 +651,7 @@ public final class ReadThreadingAssembler {
     /**
      * Creates the sequence graph for the given kmerSize
      *
-     * @param reads            reads to use
+     * @param readSequences    the usable runs of bases of the reads to use
      * @param refHaplotype     reference haplotype
      * @param kmerSize         kmer size
      * @param allowLowComplexityGraphs if true, do not check for low-complexity graphs
@@ -605,12 +660,11 @@ public final class ReadThreadingAssembler {
      * @param danglingEndSWParameters {@link SWParameters} used to align dangling ends to the reference sequence
      * @return sequence graph or null if one could not be created (e.g. because it contains cycles or too many paths or is low complexity)
      */
-    private AssemblyResult createGraph(final Iterable<GATKRead> reads,
+    private AssemblyResult createGraph(final ReadSequencesForKmers readSequences,
                                        final Haplotype refHaplotype,
                                        final int kmerSize,
                                        final boolean allowLowComplexityGraphs,
                                        final boolean allowNonUniqueKmersInRef,
-                                       final SAMFileHeader header,
                                        final SmithWatermanAligner aligner,
                                        final SWParameters danglingEndSWParameters) {
         if ( refHaplotype.length() < kmerSize ) {
@@ -629,8 +683,9 @@ public final class ReadThreadingAssembler {
         }
 
         // TODO figure out how you want to hook this in
-        final AbstractReadThreadingGraph rtgraph = generateSeqGraph ? new ReadThreadingGraph(kmerSize, debugGraphTransformations, minBaseQualityToUseInAssembly, numPruningSamples, minMatchingBasesToDanglingEndRecovery) :
-                new JunctionTreeLinkedDeBruijnGraph(kmerSize, debugGraphTransformations, minBaseQualityToUseInAssembly, numPruningSamples, minMatchingBasesToDanglingEndRecovery);
+        final AbstractReadThreadingGraph rtgraph = !generateSeqGraph ? new JunctionTreeLinkedDeBruijnGraph(kmerSize, debugGraphTransformations, minBaseQualityToUseInAssembly, numPruningSamples, minMatchingBasesToDanglingEndRecovery) :
+                usePackedKmerGraph ? new PackedKmerReadThreadingGraph(kmerSize, debugGraphTransformations, minBaseQualityToUseInAssembly, numPruningSamples, minMatchingBasesToDanglingEndRecovery) :
+                new ReadThreadingGraph(kmerSize, debugGraphTransformations, minBaseQualityToUseInAssembly, numPruningSamples, minMatchingBasesToDanglingEndRecovery);
 
         rtgraph.setThreadingStartOnlyAtExistingVertex(!recoverDanglingBranches);
 
@@ -638,9 +693,7 @@ public final class ReadThreadingAssembler {
         rtgraph.addSequence("ref", refHaplotype.getBases(), 1, true);
 
         // Next pull kmers out of every read and throw them on the graph
-        for( final GATKRead read : reads ) {
-            rtgraph.addRead(read, header);
-        }
+        readSequences.addTo(rtgraph);
 
         // actually build the read threading graph
         rtgraph.buildGraphIfNecessary();
@@ -841,6 +894,27 @@ public final class ReadThreadingAssembler {
         recoverDanglingBranches = true;
     }
 
+    /**
+     * Use {@link PackedKmerReadThreadingGraph}, which finds non-unique kmers using primitive tables of packed kmers,
+     * instead of {@link ReadThreadingGraph}. The assembled haplotypes are the same. Has no effect in linked de Bruijn
+     * graph mode.
+     */
+    public void setUsePackedKmerGraph(final boolean usePackedKmerGraph) {
+        this.usePackedKmerGraph = usePackedKmerGraph;
+    }
+
+    /**
+     * Build the graphs for the requested kmer sizes concurrently, on up to this many threads. The graphs for the
+     * larger kmer sizes tried when all of those fail are still built one at a time, as each is only needed if the
+     * previous one failed. Has no effect in linked de Bruijn graph mode, where each kmer size depends on the previous.
+     *
+     * @param kmerSizeThreads number of threads, 1 to build the graphs one at a time on the calling thread
+     */
+    public void setKmerSizeThreads(final int kmerSizeThreads) {
+        Utils.validateArg(kmerSizeThreads >= 1, "the number of kmer size threads must be positive");
+        this.kmerSizeThreads = kmerSizeThreads;
+    }
+
     public void setMinDanglingBranchLength( final int minDanglingBranchLength ) {
         this.minDanglingBranchLength = minDanglingBranchLength;
     }
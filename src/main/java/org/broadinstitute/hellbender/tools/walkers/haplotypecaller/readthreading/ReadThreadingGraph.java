@@ -15,7 +15,7 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 /**
- * Note: not final but only intended to be subclassed for testing.
+ * Note: not final but only intended to be subclassed for testing and by {@link PackedKmerReadThreadingGraph}.
  */
 public class ReadThreadingGraph extends AbstractReadThreadingGraph {
 
@@ -111,28 +111,28 @@ public class ReadThreadingGraph extends AbstractReadThreadingGraph {
     }
 
     /**
-     * Compute the smallest kmer size >= minKmerSize and <= maxKmerSize that has no non-unique kmers
-     * among all sequences added to the current graph.  Will always return a result for maxKmerSize if
-     * all smaller kmers had non-unique kmers.
+     * Get the kmers of size kmerSize that occur more than once within any one of the sequences.
+     *
+     * Sequences already known to have no repeated kmers of this size (because they had none at a smaller kmer size
+     * in a graph sharing them) are skipped, and those found to have none are marked as such.
      *
      * @param kmerSize the kmer size to check for non-unique kmers of
-     * @return a non-null NonUniqueResult
+     * @return a non-null set of non-unique kmers
      */
-    private static Set<Kmer> determineNonUniques(final int kmerSize, Collection<SequenceForKmers> withNonUniques) {
+    private static Set<Kmer> determineNonUniques(final int kmerSize, final Collection<SequenceForKmers> sequences) {
         final Set<Kmer> nonUniqueKmers = new HashSet<>();
 
-        // loop over all sequences that have non-unique kmers in them from the previous iterator
-        final Iterator<SequenceForKmers> it = withNonUniques.iterator();
-        while ( it.hasNext() ) {
-            final SequenceForKmers sequenceForKmers = it.next();
+        for ( final SequenceForKmers sequenceForKmers : sequences ) {
+            if ( sequenceForKmers.isKnownToHaveNoNonUniqueKmers(kmerSize) ) {
+                continue;
+            }
 
             // determine the non-unique kmers for this sequence
             final Collection<Kmer> nonUniquesFromSeq = determineNonUniqueKmers(sequenceForKmers, kmerSize);
             if ( nonUniquesFromSeq.isEmpty() ) {
-                // remove this sequence from future consideration
-                it.remove();
+                // remove this sequence from future consideration at this and larger kmer sizes
+                sequenceForKmers.recordNoNonUniqueKmers(kmerSize);
             } else {
-                // keep track of the non-uniques for this kmerSize, and keep it in the list of sequences that have non-uniques
                 nonUniqueKmers.addAll(nonUniquesFromSeq);
             }
         }
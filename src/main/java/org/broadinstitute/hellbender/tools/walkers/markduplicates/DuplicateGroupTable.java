@@ -0,0 +1,138 @@
+package org.broadinstitute.hellbender.tools.walkers.markduplicates;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.DuplicateGroup;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.markduplicates.ReadsKey;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * An open-addressing hash table from {@link ReadsKey}s to {@link DuplicateGroup}s, used by {@link MarkDuplicatesGATK}
+ * in place of a {@code HashMap<ReadsKey, DuplicateGroup>}.
+ *
+ * The keys are stored as the packed longs they wrap, in parallel primitive arrays, so the table holds no key objects
+ * and no entry objects: the ReadsKeys of the records are garbage as soon as their groups are found. Keys are equal
+ * here exactly when they are equal as ReadsKeys, that is, when they are of the same kind and have the same values.
+ *
+ * Not thread-safe.
+ */
+final class DuplicateGroupTable {
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+    // capacity is doubled when more than this fraction of the slots are in use
+    private static final double MAX_LOAD_FACTOR = 0.5;
+
+    // kinds of key, of which EMPTY marks an unused slot
+    private static final byte EMPTY = 0;
+    private static final byte FRAGMENT = 1;
+    private static final byte PAIR = 2;
+
+    private byte[] kinds;
+    private long[] firstKeyValues;
+    private long[] secondKeyValues;
+    private DuplicateGroup[] groups;
+    private int size = 0;
+
+    DuplicateGroupTable() {
+        allocate(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * @return the group of the given key, which is created with the given supplier and added to the table if the key
+     *         isn't in it yet
+     */
+    DuplicateGroup computeIfAbsent(final ReadsKey key, final Supplier<DuplicateGroup> groupSupplier) {
+        Utils.nonNull(key);
+        final byte kind;
+        final long first;
+        final long second;
+        if (key instanceof ReadsKey.KeyForPair) {
+            kind = PAIR;
+            first = ((ReadsKey.KeyForPair) key).getFirstReadKeyValue();
+            second = ((ReadsKey.KeyForPair) key).getSecondReadKeyValue();
+        } else if (key instanceof ReadsKey.KeyForFragment) {
+            kind = FRAGMENT;
+            first = ((ReadsKey.KeyForFragment) key).getKeyValue();
+            second = 0;
+        } else {
+            throw new GATKException.ShouldNeverReachHereException("Unknown ReadsKey type " + key.getClass().getSimpleName());
+        }
+
+        final int slot = findSlot(kind, first, second);
+        if (kinds[slot] != EMPTY) {
+            return groups[slot];
+        }
+        final DuplicateGroup group = groupSupplier.get();
+        kinds[slot] = kind;
+        firstKeyValues[slot] = first;
+        secondKeyValues[slot] = second;
+        groups[slot] = group;
+        if (++size > MAX_LOAD_FACTOR * kinds.length) {
+            rehash(kinds.length * 2);
+        }
+        return group;
+    }
+
+    /**
+     * Apply the given action to the group of every key in the table, in no particular order
+     */
+    void forEachGroup(final Consumer<DuplicateGroup> action) {
+        for (int slot = 0; slot < kinds.length; slot++) {
+            if (kinds[slot] != EMPTY) {
+                action.accept(groups[slot]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Remove all keys, and release the memory held by the table
+     */
+    void clear() {
+        allocate(DEFAULT_INITIAL_CAPACITY);
+        size = 0;
+    }
+
+    /**
+     * @return the slot holding the given key, or the empty slot where it should be added
+     */
+    private int findSlot(final byte kind, final long first, final long second) {
+        final int mask = kinds.length - 1;
+        int slot = (int) HashCommon.mix(first ^ HashCommon.mix(second + kind)) & mask;
+        while (kinds[slot] != EMPTY &&
+                (kinds[slot] != kind || firstKeyValues[slot] != first || secondKeyValues[slot] != second)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(final int newCapacity) {
+        final byte[] oldKinds = kinds;
+        final long[] oldFirstKeyValues = firstKeyValues;
+        final long[] oldSecondKeyValues = secondKeyValues;
+        final DuplicateGroup[] oldGroups = groups;
+        allocate(newCapacity);
+        for (int oldSlot = 0; oldSlot < oldKinds.length; oldSlot++) {
+            if (oldKinds[oldSlot] != EMPTY) {
+                final int slot = findSlot(oldKinds[oldSlot], oldFirstKeyValues[oldSlot], oldSecondKeyValues[oldSlot]);
+                kinds[slot] = oldKinds[oldSlot];
+                firstKeyValues[slot] = oldFirstKeyValues[oldSlot];
+                secondKeyValues[slot] = oldSecondKeyValues[oldSlot];
+                groups[slot] = oldGroups[oldSlot];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        Utils.validate(Integer.bitCount(capacity) == 1 && capacity > 0, () -> "Duplicate group table capacity overflowed at " + capacity);
+        kinds = new byte[capacity];
+        firstKeyValues = new long[capacity];
+        secondKeyValues = new long[capacity];
+        groups = new DuplicateGroup[capacity];
+    }
+}
@@ -0,0 +1,392 @@
+package org.broadinstitute.hellbender.tools.walkers.markduplicates;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.metrics.MetricsFile;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.broadinstitute.barclay.argparser.Advanced;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.ArgumentCollection;
+import org.broadinstitute.barclay.argparser.BetaFeature;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.barclay.help.DocumentedFeature;
+import org.broadinstitute.hellbender.cmdline.ModeArgumentUtils;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.MarkDuplicatesSparkArgumentCollection;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.OpticalDuplicatesArgumentCollection;
+import org.broadinstitute.hellbender.engine.GATKPath;
+import org.broadinstitute.hellbender.engine.GATKTool;
+import org.broadinstitute.hellbender.engine.filters.ReadFilter;
+import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.DuplicateGroup;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSpark;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSparkUtils;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSparkUtils.IndexPair;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.broadinstitute.hellbender.utils.read.SAMFileGATKReadWriter;
+import org.broadinstitute.hellbender.utils.read.markduplicates.GATKDuplicationMetrics;
+import org.broadinstitute.hellbender.utils.read.markduplicates.LibraryIdGenerator;
+import org.broadinstitute.hellbender.utils.read.markduplicates.ReadsKey;
+import org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords.MarkDuplicatesSparkRecord;
+import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
+import picard.sam.markduplicates.MarkDuplicates;
+import picard.sam.markduplicates.util.OpticalDuplicateFinder;
+import scala.Tuple2;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * MarkDuplicates on a single machine, using multiple threads and no Spark
+ *
+ * <p>This tool marks duplicates exactly as {@link MarkDuplicatesSpark} does, with the same scoring, optical duplicate
+ * detection, tagging and metrics, but runs in a single JVM. On one large machine this avoids the serialization,
+ * shuffle files and scheduling overhead of running MarkDuplicatesSpark in local mode.</p>
+ *
+ * <p>The input must be grouped by read name (queryname sorted or querygrouped), and is read twice:</p>
+ * <ol>
+ *     <li>The reads of each template are turned into the fragments and pairs used by MarkDuplicatesSpark, on several
+ *     threads, and combined by their duplicate-marking key into tables shared by all threads. Each template is
+ *     identified by its position in the input rather than by its name.</li>
+ *     <li>The non-duplicate and optical duplicate templates of each key are found, and recorded in an array with one
+ *     entry per template. The input is then read again, and each read is marked according to its template's entry
+ *     and written out in the order of the input.</li>
+ * </ol>
+ *
+ * <p>Unlike MarkDuplicatesSpark, the output is not coordinate sorted. Since the input is read twice, it can't be
+ * read from a stream. Memory usage scales with the number of distinct duplicate-marking keys and the number of
+ * templates.</p>
+ *
+ * <h3>Usage example</h3>
+ * <pre>
+ *     gatk MarkDuplicatesGATK \
+ *           -I input.queryname_sorted.bam \
+ *           -O marked_duplicates.bam \
+ *           -M marked_dup_metrics.txt \
+ *           --threads 8
+ * </pre>
+ */
+@DocumentedFeature
+@BetaFeature
+@CommandLineProgramProperties(
+        summary = "Marks duplicates in queryname-grouped reads using multiple threads, without Spark",
+        oneLineSummary = "MarkDuplicates using multiple threads, without Spark",
+        programGroup = ReadDataManipulationProgramGroup.class)
+public final class MarkDuplicatesGATK extends GATKTool {
+
+    public static final String THREADS_FULL_NAME = "threads";
+
+    // number of templates handed to a thread at once
+    private static final int TEMPLATES_PER_BATCH = 10000;
+    // number of independently locked tables of duplicate groups per thread
+    private static final int SHARDS_PER_THREAD = 4;
+    // marker of the templates that had no non-duplicate or optical duplicate record
+    private static final int NO_MARKER = Integer.MIN_VALUE;
+
+    @Argument(doc = "the output bam", shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
+            fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME)
+    protected GATKPath output;
+
+    @Argument(doc = "Path to write duplication metrics to.", optional = true,
+            shortName = StandardArgumentDefinitions.METRICS_FILE_SHORT_NAME,
+            fullName = StandardArgumentDefinitions.METRICS_FILE_LONG_NAME)
+    protected String metricsFile;
+
+    @Argument(doc = "Number of threads to use for building and marking duplicate groups. Defaults to the number of available processors.",
+            optional = true, minValue = 1, fullName = THREADS_FULL_NAME)
+    protected int threads = Runtime.getRuntime().availableProcessors();
+
+    @Advanced
+    @Argument(doc = "Treat unsorted files as query-group orderd files. WARNING: This option disables a basic safety check and may result in unexpected behavior if the file is truly unordered", optional = true,
+            fullName = MarkDuplicatesSpark.TREAT_UNSORTED_AS_ORDERED)
+    protected boolean treatUnsortedAsOrdered = false;
+
+    @ArgumentCollection
+    protected MarkDuplicatesSparkArgumentCollection markDuplicatesArgumentCollection = new MarkDuplicatesSparkArgumentCollection();
+
+    @ArgumentCollection
+    protected OpticalDuplicatesArgumentCollection opticalDuplicatesArgumentCollection = new OpticalDuplicatesArgumentCollection();
+
+    private SAMFileHeader header;
+    private Map<String, Short> headerReadGroupIndexMap;
+    private Map<String, Byte> libraryIndex;
+    private boolean markOpticalDups;
+    // OpticalDuplicateFinder caches the last name it parsed, so each thread needs its own
+    private ThreadLocal<OpticalDuplicateFinder> finders;
+
+    @Override
+    public boolean requiresReads() { return true; }
+
+    @Override
+    public List<ReadFilter> getDefaultReadFilters() {
+        return Collections.singletonList(ReadFilterLibrary.ALLOW_ALL_READS);
+    }
+
+    @Override
+    protected String[] customCommandLineValidation() {
+        if (markDuplicatesArgumentCollection.useFlowFragments) {
+            ModeArgumentUtils.setArgValues(
+                    getCommandLineParser(),
+                    markDuplicatesArgumentCollection.getFlowModeArgValues(),
+                    MarkDuplicatesSparkArgumentCollection.FLOW_MD_MODE_LONG_NAME);
+        }
+        return null;
+    }
+
+    @Override
+    public void onTraversalStart() {
+        header = getHeaderForReads();
+        if (!ReadUtils.isReadNameGroupedBam(header)) {
+            final SAMFileHeader.SortOrder sortOrder = header.getSortOrder();
+            if (treatUnsortedAsOrdered && (sortOrder == SAMFileHeader.SortOrder.unknown || sortOrder == SAMFileHeader.SortOrder.unsorted)) {
+                logger.warn("Input bam was marked as " + sortOrder + " but " + MarkDuplicatesSpark.TREAT_UNSORTED_AS_ORDERED + " is specified so it's being treated as read name grouped");
+            } else {
+                throw new UserException.BadInput(getClass().getSimpleName() + " requires its input to be queryname sorted or querygrouped, but it was in " +
+                        sortOrder + " order. Sort it by queryname first, or use MarkDuplicatesSpark.");
+            }
+        }
+
+        // If we need to remove optical duplicates, set the engine to mark optical duplicates using the DT tag.
+        if (markDuplicatesArgumentCollection.removeSequencingDuplicates && markDuplicatesArgumentCollection.taggingPolicy == MarkDuplicates.DuplicateTaggingPolicy.DontTag) {
+            markDuplicatesArgumentCollection.taggingPolicy = MarkDuplicates.DuplicateTaggingPolicy.OpticalOnly;
+        }
+        markOpticalDups = markDuplicatesArgumentCollection.taggingPolicy != MarkDuplicates.DuplicateTaggingPolicy.DontTag;
+
+        headerReadGroupIndexMap = MarkDuplicatesSparkUtils.getHeaderReadGroupIndexMap(header);
+        libraryIndex = MarkDuplicatesSparkUtils.constructLibraryIndex(header);
+        finders = ThreadLocal.withInitial(() -> new OpticalDuplicateFinder(opticalDuplicatesArgumentCollection.READ_NAME_REGEX,
+                opticalDuplicatesArgumentCollection.OPTICAL_DUPLICATE_PIXEL_DISTANCE, null));
+    }
+
+    @Override
+    public void traverse() {
+        final List<DuplicateGroupTable> shards = new ArrayList<>(threads * SHARDS_PER_THREAD);
+        for (int i = 0; i < threads * SHARDS_PER_THREAD; i++) {
+            shards.add(new DuplicateGroupTable());
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("markDuplicates-thread-%d").setDaemon(true).build());
+        final int[] templateMarkers;
+        try {
+            logger.info("Grouping templates by their duplicate-marking keys");
+            final int numTemplates = combineRecords(shards, executor);
+            logger.info("Finding the duplicates among " + numTemplates + " templates");
+            templateMarkers = markTemplates(shards, numTemplates, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        logger.info("Writing marked reads");
+        writeMarkedReads(templateMarkers);
+    }
+
+    /**
+     * Pass over the input, combining the records of its templates into the DuplicateGroups of their keys
+     *
+     * @return the number of templates in the input
+     */
+    private int combineRecords(final List<DuplicateGroupTable> shards, final ExecutorService executor) {
+        // bound the number of batches in flight, so that reading the input doesn't outpace the threads
+        final Deque<Future<?>> pendingBatches = new ArrayDeque<>();
+        final Iterator<List<GATKRead>> templates = templateIterator();
+        int numTemplates = 0;
+        while (templates.hasNext()) {
+            final int firstTemplateIndex = numTemplates;
+            final List<List<GATKRead>> batch = new ArrayList<>(TEMPLATES_PER_BATCH);
+            while (batch.size() < TEMPLATES_PER_BATCH && templates.hasNext()) {
+                batch.add(templates.next());
+                if (numTemplates == Integer.MAX_VALUE) {
+                    throw new UserException.BadInput(getClass().getSimpleName() + " supports at most " + Integer.MAX_VALUE + " templates");
+                }
+                numTemplates++;
+            }
+            if (pendingBatches.size() >= 2 * threads) {
+                waitFor(pendingBatches.removeFirst());
+            }
+            pendingBatches.addLast(executor.submit(() -> combineBatch(batch, firstTemplateIndex, shards)));
+        }
+        while (!pendingBatches.isEmpty()) {
+            waitFor(pendingBatches.removeFirst());
+        }
+        return numTemplates;
+    }
+
+    private void combineBatch(final List<List<GATKRead>> batch, final int firstTemplateIndex, final List<DuplicateGroupTable> shards) {
+        final OpticalDuplicateFinder finder = finders.get();
+        final List<List<Tuple2<ReadsKey, MarkDuplicatesSparkRecord>>> recordsByShard = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            recordsByShard.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            final List<IndexPair<GATKRead>> mappedReads = new ArrayList<>(2);
+            for (final GATKRead read : batch.get(i)) {
+                // we treat these specially and don't mark them as duplicates
+                if (ReadFilterLibrary.MAPPED.test(read)) {
+                    mappedReads.add(new IndexPair<>(read, firstTemplateIndex + i));
+                }
+            }
+            if (mappedReads.isEmpty()) {
+                continue;
+            }
+            for (final Tuple2<ReadsKey, MarkDuplicatesSparkRecord> record : MarkDuplicatesSparkUtils.makeRecordsForTemplate(
+                    mappedReads, header, markDuplicatesArgumentCollection.duplicatesScoringStrategy, headerReadGroupIndexMap, libraryIndex, markDuplicatesArgumentCollection)) {
+                recordsByShard.get(Math.floorMod(record._1().hashCode(), shards.size())).add(record);
+            }
+        }
+
+        for (int i = 0; i < shards.size(); i++) {
+            final DuplicateGroupTable shard = shards.get(i);
+            synchronized (shard) {
+                for (final Tuple2<ReadsKey, MarkDuplicatesSparkRecord> record : recordsByShard.get(i)) {
+                    shard.computeIfAbsent(record._1(), () -> new DuplicateGroup(markOpticalDups, markDuplicatesArgumentCollection.FLOW_END_LOCATION_SIGNIFICANT))
+                            .add(record._2(), finder);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the non-duplicates and optical duplicates of each key, emptying the shards as they're done
+     *
+     * @return the marker of each template, as given to {@link MarkDuplicatesSpark#markRead}, or {@link #NO_MARKER}
+     */
+    private int[] markTemplates(final List<DuplicateGroupTable> shards, final int numTemplates, final ExecutorService executor) {
+        final List<Future<LongArrayList>> results = new ArrayList<>(shards.size());
+        for (final DuplicateGroupTable shard : shards) {
+            results.add(executor.submit(() -> markShard(shard)));
+        }
+
+        final int[] templateMarkers = new int[numTemplates];
+        Arrays.fill(templateMarkers, NO_MARKER);
+        for (final Future<LongArrayList> result : results) {
+            final LongArrayList markers = waitFor(result);
+            for (int i = 0; i < markers.size(); i++) {
+                final long templateAndMarker = markers.getLong(i);
+                final int templateIndex = (int) (templateAndMarker >>> 32);
+                if (templateMarkers[templateIndex] != NO_MARKER) {
+                    throw new GATKException(String.format("Detected multiple mark duplicate records objects corresponding to the template at index %d, this could be the result of the file sort order being incorrect", templateIndex));
+                }
+                templateMarkers[templateIndex] = (int) templateAndMarker;
+            }
+        }
+        return templateMarkers;
+    }
+
+    /**
+     * @return the index of each template with a marker in the shard, in the upper half of a long, and the marker in the lower half
+     */
+    private LongArrayList markShard(final DuplicateGroupTable shard) {
+        final OpticalDuplicateFinder finder = finders.get();
+        final LongArrayList markers = new LongArrayList();
+        synchronized (shard) {
+            shard.forEachGroup(group -> {
+                for (final Tuple2<IndexPair<String>, Integer> marker : MarkDuplicatesSparkUtils.markDuplicateGroup(group, finder, markOpticalDups,
+                        markDuplicatesArgumentCollection.FLOW_END_LOCATION_SIGNIFICANT, markDuplicatesArgumentCollection.ENDS_READ_UNCERTAINTY)) {
+                    markers.add(((long) marker._1().getIndex() << 32) | (marker._2() & 0xFFFFFFFFL));
+                }
+            });
+            shard.clear();
+        }
+        return markers;
+    }
+
+    /**
+     * Pass over the input again, marking each read according to the marker of its template and writing it out
+     */
+    private void writeMarkedReads(final int[] templateMarkers) {
+        final boolean markUnmappedMates = !markDuplicatesArgumentCollection.dontMarkUnmappedMates;
+        final Map<String, GATKDuplicationMetrics> metricsByLibrary = new LinkedHashMap<>();
+        try (final SAMFileGATKReadWriter writer = createSAMWriter(output, true)) {
+            final Iterator<List<GATKRead>> templates = templateIterator();
+            int templateIndex = 0;
+            while (templates.hasNext()) {
+                Integer marker = templateMarkers[templateIndex] == NO_MARKER ? null : templateMarkers[templateIndex];
+                for (final GATKRead read : templates.next()) {
+                    marker = MarkDuplicatesSpark.markRead(read, marker, markUnmappedMates, markDuplicatesArgumentCollection.taggingPolicy);
+                    if (metricsFile != null) {
+                        final String library = LibraryIdGenerator.getLibraryName(header, read.getReadGroup());
+                        final GATKDuplicationMetrics metrics = metricsByLibrary.computeIfAbsent(library, l -> {
+                            final GATKDuplicationMetrics libraryMetrics = new GATKDuplicationMetrics();
+                            libraryMetrics.LIBRARY = l;
+                            return libraryMetrics;
+                        });
+                        MarkDuplicatesSparkUtils.updateMetrics(metrics, read);
+                    }
+                    // Filter out the duplicates if instructed to do so
+                    if (!(markDuplicatesArgumentCollection.removeAllDuplicates && read.isDuplicate()) &&
+                            !(markDuplicatesArgumentCollection.removeSequencingDuplicates && MarkDuplicates.DUPLICATE_TYPE_SEQUENCING.equals(read.getAttributeAsString(MarkDuplicates.DUPLICATE_TYPE_TAG)))) {
+                        writer.addRead(read);
+                    }
+                    progressMeter.update(read);
+                }
+                templateIndex++;
+            }
+        }
+
+        if (metricsFile != null) {
+            final Map<String, GATKDuplicationMetrics> finalMetricsByLibrary = new LinkedHashMap<>();
+            metricsByLibrary.forEach((library, metrics) -> finalMetricsByLibrary.put(library, MarkDuplicatesSparkUtils.finalizeMetrics(metrics)));
+            final MetricsFile<GATKDuplicationMetrics, Double> resultMetrics = getMetricsFile();
+            MarkDuplicatesSparkUtils.saveMetrics(resultMetrics, header, finalMetricsByLibrary, metricsFile);
+        }
+    }
+
+    /**
+     * @return an iterator over the templates of the input, that is, runs of consecutive reads with the same name
+     */
+    private Iterator<List<GATKRead>> templateIterator() {
+        final Iterator<GATKRead> reads = getTransformedReadStream(makeReadFilter()).iterator();
+        return new Iterator<List<GATKRead>>() {
+            private GATKRead nextRead = reads.hasNext() ? reads.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return nextRead != null;
+            }
+
+            @Override
+            public List<GATKRead> next() {
+                if (nextRead == null) {
+                    throw new IllegalStateException("No more templates");
+                }
+                final List<GATKRead> template = new ArrayList<>(2);
+                final String name = nextRead.getName();
+                do {
+                    template.add(nextRead);
+                    nextRead = reads.hasNext() ? reads.next() : null;
+                } while (nextRead != null && nextRead.getName().equals(name));
+                return template;
+            }
+        };
+    }
+
+    private static <T> T waitFor(final Future<T> result) {
+        try {
+            return result.get();
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Duplicate marking thread failed", e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for duplicate marking threads", e);
+        }
+    }
+}
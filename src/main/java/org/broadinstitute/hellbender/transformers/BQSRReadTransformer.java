@@ -16,7 +16,6 @@ import org.broadinstitute.hellbender.utils.recalibration.covariates.ReadCovariat
 import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
 
 import java.io.File;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -28,7 +27,6 @@ public final class BQSRReadTransformer implements ReadTransformer {
     private static final long serialVersionUID = 1L;
 
     private final QuantizationInfo quantizationInfo; // histogram containing the map for qual quantization (calculated after recalibration is done)
-    private final RecalibrationTables recalibrationTables;
     private final StandardCovariateList covariates; // list of all covariates to be used in this calculation
     private final SAMFileHeader header;
     
@@ -42,13 +40,21 @@ public final class BQSRReadTransformer implements ReadTransformer {
 
     private static final int BASE_SUBSTITUTION_INDEX = EventType.BASE_SUBSTITUTION.ordinal();
 
-    //Note: varargs allocates a new array every time. We'll pre-allocate one array and reuse it to avoid object allocation for every base of every read.
-    private final RecalDatum[] empiricalQualCovsArgs;
     private final boolean useOriginalBaseQualities;
 
     private byte[] staticQuantizedMapping;
     private final CovariateKeyCache keyCache;
 
+    /*
+     * Lookup tables compiled from the recalibration tables for base substitutions, see compileRecalibrationTables().
+     * Entries for a (read group, reported quality) pair are at index rgKey * qualDimension + qual.
+     */
+    private final int qualDimension;
+    private final boolean[] hasReadGroupDatum;          // by read group key
+    private final double[] conditionalPriors;           // Qreported + DeltaQ + DeltaQ(reported qual), by (rg, qual)
+    private final double[][][] covariateDeltaQs;        // DeltaQ(covariate), by additional covariate, then (rg, qual), then covariate key; null if there is no data
+    private final byte[] recalibratedQualMapping;       // bounded recalibrated qual -> final (quantized and statically binned) qual
+
     /**
      * Constructor using a GATK Report file
      *
@@ -71,7 +77,6 @@ public final class BQSRReadTransformer implements ReadTransformer {
      */
     private BQSRReadTransformer(final SAMFileHeader header, final RecalibrationTables recalibrationTables, final QuantizationInfo quantizationInfo, final StandardCovariateList covariates, final ApplyBQSRArgumentCollection args) {
         this.header = header;
-        this.recalibrationTables = recalibrationTables;
         this.covariates = covariates;
         this.quantizationInfo = quantizationInfo;
 
@@ -95,9 +100,69 @@ public final class BQSRReadTransformer implements ReadTransformer {
         totalCovariateCount = covariates.size();
         specialCovariateCount = covariates.numberOfSpecialCovariates();
 
-        //Note: We pre-create the varargs arrays that will be used in the calls. Otherwise we're spending a lot of time allocating those int[] objects
-        empiricalQualCovsArgs = new RecalDatum[totalCovariateCount - specialCovariateCount];
         keyCache = new CovariateKeyCache();//one cache per transformer
+
+        final NestedIntegerArray<RecalDatum> readGroupTable = recalibrationTables.getReadGroupTable();
+        final int numReadGroups = readGroupTable.getDimensions()[0];
+        qualDimension = recalibrationTables.getQualityScoreTable().getDimensions()[1];
+        hasReadGroupDatum = new boolean[numReadGroups];
+        conditionalPriors = new double[numReadGroups * qualDimension];
+        covariateDeltaQs = new double[totalCovariateCount - specialCovariateCount][numReadGroups * qualDimension][];
+        compileRecalibrationTables(recalibrationTables);
+
+        final List<Byte> quantizedQuals = quantizationInfo.getQuantizedQuals();
+        recalibratedQualMapping = new byte[Math.min(quantizedQuals.size(), MAX_RECALIBRATED_Q_SCORE + 1)];
+        for (int qual = 0; qual < recalibratedQualMapping.length; qual++) {
+            final byte quantizedQual = quantizedQuals.get(qual);
+            recalibratedQualMapping[qual] = staticQuantizedMapping == null ? quantizedQual : staticQuantizedMapping[quantizedQual];
+        }
+    }
+
+    /**
+     * Evaluate the hierarchical model of {@link #hierarchicalBayesianQualityEstimate} once for every datum in the
+     * recalibration tables, instead of once per base.
+     *
+     * The recalibrated quality of a base is Qreported + DeltaQ + DeltaQ(reported qual) + the sum of DeltaQ(covariate)
+     * over the additional covariates, where each term depends only on the read group, the reported quality and (for
+     * the last ones) the key of one covariate. We store the first sum for each (read group, qual) pair, and each
+     * DeltaQ(covariate) for each (read group, qual, covariate key), so that apply() only has to add up a few
+     * array entries per base. The terms are computed with the same expressions and in the same order as
+     * hierarchicalBayesianQualityEstimate, so the recalibrated qualities are identical.
+     */
+    private void compileRecalibrationTables(final RecalibrationTables recalibrationTables) {
+        final NestedIntegerArray<RecalDatum> qualityScoreTable = recalibrationTables.getQualityScoreTable();
+        for (int rgKey = 0; rgKey < hasReadGroupDatum.length; rgKey++) {
+            final RecalDatum empiricalQualRG = recalibrationTables.getReadGroupTable().get2Keys(rgKey, BASE_SUBSTITUTION_INDEX);
+            if (empiricalQualRG == null) {
+                continue;
+            }
+            hasReadGroupDatum[rgKey] = true;
+            final double epsilon = globalQScorePrior > 0.0 ? globalQScorePrior : empiricalQualRG.getEstimatedQReported();
+            final double globalDeltaQ = empiricalQualRG.getEmpiricalQuality(epsilon) - epsilon;
+            for (int qual = 0; qual < qualDimension; qual++) {
+                final RecalDatum empiricalQualQS = qualityScoreTable.get3Keys(rgKey, qual, BASE_SUBSTITUTION_INDEX);
+                final double deltaQReported = empiricalQualQS == null ? 0.0 : empiricalQualQS.getEmpiricalQuality(globalDeltaQ + epsilon) - (globalDeltaQ + epsilon);
+                conditionalPriors[rgKey * qualDimension + qual] = deltaQReported + globalDeltaQ + epsilon;
+            }
+        }
+
+        for (int i = specialCovariateCount; i < totalCovariateCount; i++) {
+            final NestedIntegerArray<RecalDatum> covariateTable = recalibrationTables.getTable(i);
+            final int covariateDimension = covariateTable.getDimensions()[2];
+            final double[][] deltaQs = covariateDeltaQs[i - specialCovariateCount];
+            for (final NestedIntegerArray.Leaf<RecalDatum> leaf : covariateTable.getAllLeaves()) {
+                final int rgKey = leaf.keys[0];
+                if (leaf.keys[3] != BASE_SUBSTITUTION_INDEX || !hasReadGroupDatum[rgKey]) {
+                    continue;
+                }
+                final int rgQualIndex = rgKey * qualDimension + leaf.keys[1];
+                if (deltaQs[rgQualIndex] == null) {
+                    deltaQs[rgQualIndex] = new double[covariateDimension];
+                }
+                final double conditionalPrior2 = conditionalPriors[rgQualIndex];
+                deltaQs[rgQualIndex][leaf.keys[2]] = leaf.value.getEmpiricalQuality(conditionalPrior2) - conditionalPrior2;
+            }
+        }
     }
 
     /**
@@ -154,18 +219,12 @@ public final class BQSRReadTransformer implements ReadTransformer {
         // the rg key is constant over the whole read, the global deltaQ is too
         final int rgKey = fullReadKeySet[0][0];
 
-        final RecalDatum empiricalQualRG = recalibrationTables.getReadGroupTable().get2Keys(rgKey, BASE_SUBSTITUTION_INDEX);
-
-        if (empiricalQualRG == null) {
+        if (rgKey >= hasReadGroupDatum.length || !hasReadGroupDatum[rgKey]) {
             return read;
         }
         final byte[] quals = read.getBaseQualities();
 
         final int readLength = quals.length;
-        final double epsilon = globalQScorePrior > 0.0 ? globalQScorePrior : empiricalQualRG.getEstimatedQReported();
-
-        final NestedIntegerArray<RecalDatum> qualityScoreTable = recalibrationTables.getQualityScoreTable();
-        final List<Byte> quantizedQuals = quantizationInfo.getQuantizedQuals();
 
         //Note: this loop is under very heavy use in applyBQSR. Keep it slim.
         for (int offset = 0; offset < readLength; offset++) { // recalibrate all bases in the read
@@ -174,23 +233,23 @@ public final class BQSRReadTransformer implements ReadTransformer {
             if (quals[offset] < preserveQLessThan) {
                 continue;
             }
-            Arrays.fill(empiricalQualCovsArgs, null);  //clear the array
             final int[] keySet = fullReadKeySet[offset];
+            final int rgQualIndex = rgKey * qualDimension + keySet[1];
 
-
-            final RecalDatum empiricalQualQS = qualityScoreTable.get3Keys(keySet[0], keySet[1], BASE_SUBSTITUTION_INDEX);
-
+            double deltaQCovariates = 0.0;
             for (int i = specialCovariateCount; i < totalCovariateCount; i++) {
-                if (keySet[i] >= 0) {
-                    empiricalQualCovsArgs[i - specialCovariateCount] = recalibrationTables.getTable(i).get4Keys(keySet[0], keySet[1], keySet[i], BASE_SUBSTITUTION_INDEX);
+                final int key = keySet[i];
+                if (key >= 0) {
+                    final double[] deltaQs = covariateDeltaQs[i - specialCovariateCount][rgQualIndex];
+                    if (deltaQs != null && key < deltaQs.length) {
+                        deltaQCovariates += deltaQs[key];
+                    }
                 }
             }
-            final double recalibratedQualDouble = hierarchicalBayesianQualityEstimate(epsilon, empiricalQualRG, empiricalQualQS, empiricalQualCovsArgs);
-
-            final byte recalibratedQualityScore = quantizedQuals.get(getRecalibratedQual(recalibratedQualDouble));
+            final double recalibratedQualDouble = conditionalPriors[rgQualIndex] + deltaQCovariates;
 
-            // Bin to static quals
-            quals[offset] = staticQuantizedMapping == null ? recalibratedQualityScore : staticQuantizedMapping[recalibratedQualityScore];
+            // quantize and bin to static quals
+            quals[offset] = recalibratedQualMapping[getRecalibratedQual(recalibratedQualDouble)];
         }
         read.setBaseQualities(quals);
         return read;
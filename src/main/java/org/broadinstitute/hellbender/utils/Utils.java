@@ -53,14 +53,59 @@ public final class Utils {
     private static final Random randomGenerator = new Random(GATK_RANDOM_SEED);
     private static final RandomDataGenerator randomDataGenerator = new RandomDataGenerator(new Well19937c(GATK_RANDOM_SEED));
 
-    public static Random getRandomGenerator() { return randomGenerator; }
-    public static RandomDataGenerator getRandomDataGenerator() { return randomDataGenerator; }
+    /**
+     *  Random number generators private to the current thread, if any. See {@link #setThreadRandomGenerators}.
+     */
+    private static final ThreadLocal<Random> threadRandomGenerator = new ThreadLocal<>();
+    private static final ThreadLocal<RandomDataGenerator> threadRandomDataGenerator = new ThreadLocal<>();
+
+    /**
+     *  Multiplier of the stream index in the seeds of thread-private generators, to spread the seeds of consecutive
+     *  streams over the whole range of seeds (the 64-bit golden ratio).
+     */
+    private static final long RANDOM_STREAM_SEED_STRIDE = 0x9E3779B97F4A7C15L;
+
+    public static Random getRandomGenerator() {
+        final Random threadGenerator = threadRandomGenerator.get();
+        return threadGenerator != null ? threadGenerator : randomGenerator;
+    }
+
+    public static RandomDataGenerator getRandomDataGenerator() {
+        final RandomDataGenerator threadGenerator = threadRandomDataGenerator.get();
+        return threadGenerator != null ? threadGenerator : randomDataGenerator;
+    }
 
     public static void resetRandomGenerator() {
         randomGenerator.setSeed(GATK_RANDOM_SEED);
         randomDataGenerator.reSeed(GATK_RANDOM_SEED);
     }
 
+    /**
+     * Until {@link #clearThreadRandomGenerators} is called on the current thread, make {@link #getRandomGenerator} and
+     * {@link #getRandomDataGenerator} return new generators private to the current thread, seeded from the GATK seed
+     * and the given stream index.
+     *
+     * Traversals use this to give each shard its own stream of random numbers, so that the random choices made while
+     * processing a shard depend only on the shard, and not on how many threads process shards or how they interleave.
+     * Stream 0 is seeded like the global generators after {@link #resetRandomGenerator}.
+     *
+     * @param streamIndex index of the stream of random numbers, such as the index of a shard
+     */
+    public static void setThreadRandomGenerators(final long streamIndex) {
+        final long seed = GATK_RANDOM_SEED + streamIndex * RANDOM_STREAM_SEED_STRIDE;
+        threadRandomGenerator.set(new Random(seed));
+        threadRandomDataGenerator.set(new RandomDataGenerator(new Well19937c(seed)));
+    }
+
+    /**
+     * Make {@link #getRandomGenerator} and {@link #getRandomDataGenerator} return the global generators again on the
+     * current thread, after a call to {@link #setThreadRandomGenerators}.
+     */
+    public static void clearThreadRandomGenerators() {
+        threadRandomGenerator.remove();
+        threadRandomDataGenerator.remove();
+    }
+
     private static final int TEXT_WARNING_WIDTH = 68;
     private static final String TEXT_WARNING_PREFIX = "* ";
     private static final String TEXT_WARNING_BORDER = StringUtils.repeat('*', TEXT_WARNING_PREFIX.length() + TEXT_WARNING_WIDTH);
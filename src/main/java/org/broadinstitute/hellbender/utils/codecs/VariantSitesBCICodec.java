@@ -0,0 +1,235 @@
+package org.broadinstitute.hellbender.utils.codecs;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.tribble.NameAwareCodec;
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import htsjdk.variant.vcf.VCFConstants;
+import org.broadinstitute.hellbender.engine.GATKPath;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.sv.SVFeaturesHeader;
+import org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStream.Reader;
+import org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStream.Writer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Codec to handle the sites of a VCF in BlockCompressedInterval files.
+ *
+ * Each record keeps the position, ID, alleles, QUAL and filters of a variant, and only those INFO fields that were
+ * chosen when the file was written. Genotypes are dropped. The names of the retained INFO fields are stored in the
+ * sample-name list of the file's header.
+ *
+ * These files are written by IndexFeatureFile next to a VCF, as a sidecar (see {@link #SIDECAR_EXTENSION}), and are
+ * read by FeatureDataSource in place of that VCF when present and the input opts in to it. Decoding a record is a handful of binary reads rather
+ * than the parsing of a VCF line with all of its INFO fields, which matters for huge resources such as gnomAD that
+ * are queried at every active region.
+ */
+public class VariantSitesBCICodec extends AbstractBCICodec<VariantContext> implements NameAwareCodec {
+    public static final String BCI_VERSION = "1.0";
+    public static final String SIDECAR_EXTENSION = ".sites.bci";
+
+    private static final byte FLAG_VALUE = 0;
+    private static final byte SINGLE_VALUE = 1;
+    private static final byte LIST_VALUE = 2;
+
+    private boolean versionChecked = false;
+    private String name = "Unknown";
+
+    /** The path of the sidecar for the VCF at the given path */
+    public static String getSidecarPath( final String vcfPath ) {
+        return vcfPath + SIDECAR_EXTENSION;
+    }
+
+    @Override
+    public VariantContext decode( final Reader<VariantContext> reader ) throws IOException {
+        if ( !versionChecked ) {
+            if ( !BCI_VERSION.equals(reader.getVersion()) ) {
+                throw new UserException("bci file has wrong version: expected " +
+                        BCI_VERSION + " but found " + reader.getVersion());
+            }
+            versionChecked = true;
+        }
+        final DataInputStream dis = reader.getStream();
+        final String contig = reader.getDictionary().getSequence(dis.readInt()).getSequenceName();
+        final int start = dis.readInt();
+        final int stop = dis.readInt();
+        final VariantContextBuilder builder = new VariantContextBuilder()
+                .source(name)
+                .chr(contig)
+                .start(start)
+                .stop(stop)
+                .id(readString(dis));
+
+        final int nAlleles = dis.readInt();
+        final List<Allele> alleles = new ArrayList<>(nAlleles);
+        for ( int idx = 0; idx != nAlleles; ++idx ) {
+            alleles.add(Allele.create(readString(dis), idx == 0));
+        }
+        builder.alleles(alleles);
+        builder.log10PError(dis.readDouble());
+
+        final int nFilters = dis.readInt();
+        if ( nFilters < 0 ) {
+            builder.unfiltered();
+        } else if ( nFilters == 0 ) {
+            builder.passFilters();
+        } else {
+            final Set<String> filters = new LinkedHashSet<>(nFilters);
+            for ( int idx = 0; idx != nFilters; ++idx ) {
+                filters.add(readString(dis));
+            }
+            builder.filters(filters);
+        }
+
+        final List<String> infoKeys = reader.getSampleNames();
+        final int nAttributes = dis.readInt();
+        final Map<String, Object> attributes = new HashMap<>(nAttributes * 2);
+        for ( int idx = 0; idx != nAttributes; ++idx ) {
+            final String key = infoKeys.get(dis.readInt());
+            final byte valueType = dis.readByte();
+            if ( valueType == FLAG_VALUE ) {
+                attributes.put(key, Boolean.TRUE);
+            } else if ( valueType == SINGLE_VALUE ) {
+                attributes.put(key, readString(dis));
+            } else {
+                final int nValues = dis.readInt();
+                final List<String> values = new ArrayList<>(nValues);
+                for ( int valueIdx = 0; valueIdx != nValues; ++valueIdx ) {
+                    values.add(readString(dis));
+                }
+                attributes.put(key, values);
+            }
+        }
+        // a record whose extent was given by END keeps it, even if END wasn't among the retained INFO fields
+        if ( stop != start + alleles.get(0).length() - 1 && !attributes.containsKey(VCFConstants.END_KEY) ) {
+            attributes.put(VCFConstants.END_KEY, String.valueOf(stop));
+        }
+        return builder.attributes(attributes).make();
+    }
+
+    @Override
+    public Class<VariantContext> getFeatureType() { return VariantContext.class; }
+
+    @Override
+    public boolean canDecode( final String path ) {
+        return path.toLowerCase().endsWith(SIDECAR_EXTENSION);
+    }
+
+    @Override
+    public String getName() { return name; }
+
+    @Override
+    public void setName( final String name ) { this.name = name; }
+
+    /**
+     * @param sampleNames the names of the INFO fields to retain, which must not be empty
+     */
+    @Override
+    public Writer<VariantContext> makeSink( final GATKPath path,
+                                            final SAMSequenceDictionary dict,
+                                            final List<String> sampleNames,
+                                            final int compressionLevel ) {
+        final String className = VariantContext.class.getSimpleName();
+        return new Writer<>(path,
+                            new SVFeaturesHeader(className, BCI_VERSION, dict, sampleNames),
+                            this::encode,
+                            compressionLevel);
+    }
+
+    @Override
+    public void encode( final VariantContext variant, final Writer<VariantContext> writer )
+            throws IOException {
+        final DataOutputStream dos = writer.getStream();
+        dos.writeInt(writer.getContigIndex(variant.getContig()));
+        dos.writeInt(variant.getStart());
+        dos.writeInt(variant.getEnd());
+        writeString(variant.getID(), dos);
+
+        final List<Allele> alleles = variant.getAlleles();
+        dos.writeInt(alleles.size());
+        for ( final Allele allele : alleles ) {
+            writeString(allele.getDisplayString(), dos);
+        }
+        dos.writeDouble(variant.getLog10PError());
+
+        if ( !variant.filtersWereApplied() ) {
+            dos.writeInt(-1);
+        } else {
+            final Set<String> filters = variant.getFilters();
+            dos.writeInt(filters.size());
+            for ( final String filter : filters ) {
+                writeString(filter, dos);
+            }
+        }
+
+        final List<String> infoKeys = new ArrayList<>();
+        for ( final String key : writer.getSampleNames() ) {
+            if ( variant.hasAttribute(key) ) {
+                infoKeys.add(key);
+            }
+        }
+        dos.writeInt(infoKeys.size());
+        for ( final String key : infoKeys ) {
+            dos.writeInt(writer.getSampleIndex(key));
+            encodeValue(variant.getAttribute(key), dos);
+        }
+    }
+
+    private static void encodeValue( final Object value, final DataOutputStream dos ) throws IOException {
+        if ( value instanceof Boolean ) {
+            dos.writeByte(FLAG_VALUE);
+        } else if ( value instanceof Collection ) {
+            final Collection<?> values = (Collection<?>)value;
+            dos.writeByte(LIST_VALUE);
+            dos.writeInt(values.size());
+            for ( final Object element : values ) {
+                writeString(String.valueOf(element), dos);
+            }
+        } else if ( value != null && value.getClass().isArray() ) {
+            final int nValues = Array.getLength(value);
+            dos.writeByte(LIST_VALUE);
+            dos.writeInt(nValues);
+            for ( int idx = 0; idx != nValues; ++idx ) {
+                writeString(String.valueOf(Array.get(value, idx)), dos);
+            }
+        } else {
+            dos.writeByte(SINGLE_VALUE);
+            writeString(String.valueOf(value), dos);
+        }
+    }
+
+    // Strings are written as a length and UTF-8 bytes rather than with writeUTF, which is limited to 64K bytes
+    private static void writeString( final String value, final DataOutputStream dos ) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        dos.writeInt(bytes.length);
+        dos.write(bytes);
+    }
+
+    private static String readString( final DataInputStream dis ) throws IOException {
+        final byte[] bytes = new byte[dis.readInt()];
+        dis.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public FeatureSink<VariantContext> makeSortMerger( final GATKPath path,
+                                                       final SAMSequenceDictionary dict,
+                                                       final List<String> sampleNames,
+                                                       final int compressionLevel ) {
+        // sites are written in the order of the VCF they're taken from, which is already sorted
+        return makeSink(path, dict, sampleNames, compressionLevel);
+    }
+}
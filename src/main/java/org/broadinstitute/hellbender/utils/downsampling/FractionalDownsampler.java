@@ -5,6 +5,7 @@ import org.broadinstitute.hellbender.utils.read.GATKRead;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Fractional Downsampler: selects a specified fraction of the reads for inclusion.
@@ -22,6 +23,8 @@ public final class FractionalDownsampler extends ReadsDownsampler {
 
     private static final int RANDOM_POOL_SIZE = 10000;
 
+    private final Random random;
+
     /**
      * Construct a FractionalDownsampler
      *
@@ -29,10 +32,22 @@ public final class FractionalDownsampler extends ReadsDownsampler {
      *                 Actual number of reads preserved may differ randomly.
      */
     public FractionalDownsampler( final double fraction ) {
+        this(fraction, Utils.getRandomGenerator());
+    }
+
+    /**
+     * Construct a FractionalDownsampler that makes its random choices with the given generator
+     *
+     * @param fraction Fraction of reads to preserve, between 0.0 (inclusive) and 1.0 (inclusive).
+     *                 Actual number of reads preserved may differ randomly.
+     * @param random source of the random choices of reads to preserve
+     */
+    public FractionalDownsampler( final double fraction, final Random random ) {
         if ( fraction < 0.0 || fraction > 1.0 ) {
             throw new IllegalArgumentException("Fraction of reads to include must be between 0.0 and 1.0, inclusive");
         }
 
+        this.random = Utils.nonNull(random);
         cutoffForInclusion = (int)(fraction * RANDOM_POOL_SIZE);
         clearItems();
         resetStats();
@@ -42,7 +57,7 @@ public final class FractionalDownsampler extends ReadsDownsampler {
     public void submit( final GATKRead newRead ) {
         Utils.nonNull(newRead, "newRead");
 
-        if ( Utils.getRandomGenerator().nextInt(10000) < cutoffForInclusion) {
+        if ( random.nextInt(10000) < cutoffForInclusion) {
             selectedReads.add(newRead);
         } else {
             incrementNumberOfDiscardedItems(1);
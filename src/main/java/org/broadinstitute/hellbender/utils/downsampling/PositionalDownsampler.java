@@ -10,6 +10,7 @@ import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 
 
 /**
@@ -37,19 +38,31 @@ public final class PositionalDownsampler extends ReadsDownsampler {
      * @param header SAMFileHeader to use to determine contig ordering. Non-null.
      */
     public PositionalDownsampler( final int targetCoverage, final SAMFileHeader header ) {
+        this(targetCoverage, header, false, Utils.getRandomGenerator());
+    }
+    public PositionalDownsampler( final int targetCoverage, final SAMFileHeader header, final boolean nonRandomDownsamplingMode ) {
+        this(targetCoverage, header, nonRandomDownsamplingMode, Utils.getRandomGenerator());
+    }
+
+    /**
+     * Construct a PositionalDownsampler that makes its random choices with the given generator
+     *
+     * @param targetCoverage Maximum number of reads that may share any given alignment start position. Must be > 0
+     * @param header SAMFileHeader to use to determine contig ordering. Non-null.
+     * @param nonRandomDownsamplingMode if true, choose the reads to discard from their names rather than at random
+     * @param random source of the random choices of reads to discard. Non-null.
+     */
+    public PositionalDownsampler( final int targetCoverage, final SAMFileHeader header, final boolean nonRandomDownsamplingMode, final Random random ) {
         Utils.validateArg(targetCoverage > 0, "targetCoverage must be > 0");
         Utils.nonNull(header);
 
-        this.reservoir = new ReservoirDownsampler(targetCoverage);
+        this.reservoir = new ReservoirDownsampler(targetCoverage, false, random);
+        this.reservoir.setNonRandomReplacementMode(nonRandomDownsamplingMode);
         this.finalizedReads = new ArrayList<>();
         this.header = header;
         clearItems();
         resetStats();
     }
-    public PositionalDownsampler( final int targetCoverage, final SAMFileHeader header, final boolean nonRandomDownsamplingMode ) {
-        this(targetCoverage, header);
-        this.reservoir.setNonRandomReplacementMode(nonRandomDownsamplingMode);
-    }
 
     @Override
     public void submit( final GATKRead newRead ) {
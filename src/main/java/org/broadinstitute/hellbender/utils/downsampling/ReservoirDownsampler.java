@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Reservoir Downsampler: Selects n reads out of a stream whose size is not known in advance, with
@@ -64,6 +65,11 @@ public final class ReservoirDownsampler extends ReadsDownsampler {
      */
     private boolean nonRandomReplacementMode = false;
 
+    /**
+     * source of the random choices of reads to replace
+     */
+    private final Random random;
+
 
     /**
      * Construct a ReservoirDownsampler
@@ -78,12 +84,24 @@ public final class ReservoirDownsampler extends ReadsDownsampler {
      *                           elements.
      */
     public ReservoirDownsampler(final int targetSampleSize, final boolean expectFewOverflows ) {
+        this(targetSampleSize, expectFewOverflows, Utils.getRandomGenerator());
+    }
+
+    /**
+     * Construct a ReservoirDownsampler that makes its random choices with the given generator
+     *
+     * @param targetSampleSize Size of the reservoir used by this downsampler.
+     * @param expectFewOverflows see {@link #ReservoirDownsampler(int, boolean)}
+     * @param random source of the random choices of reads to replace
+     */
+    public ReservoirDownsampler(final int targetSampleSize, final boolean expectFewOverflows, final Random random ) {
         if ( targetSampleSize <= 0 ) {
             throw new IllegalArgumentException("Cannot do reservoir downsampling with a sample size <= 0");
         }
 
         this.targetSampleSize = targetSampleSize;
         this.expectFewOverflows = expectFewOverflows;
+        this.random = Utils.nonNull(random);
         clearItems();
         resetStats();
     }
@@ -119,7 +137,7 @@ public final class ReservoirDownsampler extends ReadsDownsampler {
             // replacing overwritten slot selection by a deterministic mechanism or non-determinsitic one
             // should still provide similar distribution
             final int randomSlot = !nonRandomReplacementMode
-                                        ? Utils.getRandomGenerator().nextInt(totalReadsSeen)
+                                        ? random.nextInt(totalReadsSeen)
                                         : Math.abs(newRead.getName().hashCode()) % totalReadsSeen;
             if ( randomSlot < targetSampleSize ) {
                 reservoir.set(randomSlot, newRead);
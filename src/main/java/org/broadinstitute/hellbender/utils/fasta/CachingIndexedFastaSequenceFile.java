@@ -170,7 +170,7 @@ public final class CachingIndexedFastaSequenceFile implements ReferenceSequenceF
      * @param fastaPath Fasta file to be used as reference
      * @throws UserException If the given {@code fastaPath} is not good.
      */
-    private static void checkFastaPath(final Path fastaPath) {
+    public static void checkFastaPath(final Path fastaPath) {
 
         // does the fasta file exist? check that first...
         if (!Files.exists(fastaPath)) {
@@ -66,16 +66,17 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
     protected final List<List<EVIDENCE>> filteredEvidenceBySampleIndex;
 
     /**
-     * Indexed per sample, allele and finally evidence (within sample).
+     * Indexed per sample and then by allele and evidence (within sample) in a single array per sample, one allele after
+     * the other, with the evidence capacity of the sample as the stride:
      * <p>
-     *     valuesBySampleIndex[s][a][r] == lnLk(R_r | A_a) where R_r comes from Sample s.
+     *     valuesBySampleIndex[s][a * likelihoodsMatrixEvidenceCapacityBySampleIndex[s] + r] == lnLk(R_r | A_a) where R_r comes from Sample s.
      * </p>
      */
-    private final double[][][] valuesBySampleIndex;
+    private final double[][] valuesBySampleIndex;
 
     /**
      * Keeps track of the maximum number of evidences and likelihood values that can be stored
-     * stored across all alleles.
+     * stored across all alleles, which is also the stride between alleles in {@link #valuesBySampleIndex}.
      */
     private final int[] likelihoodsMatrixEvidenceCapacityBySampleIndex;
 
@@ -145,7 +146,7 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         final int alleleCount = alleles.numberOfAlleles();
 
         evidenceBySampleIndex = new ArrayList<>(sampleCount);
-        valuesBySampleIndex = new double[sampleCount][][];
+        valuesBySampleIndex = new double[sampleCount][];
         likelihoodsMatrixEvidenceCapacityBySampleIndex = new int[sampleCount]; // set to 0s; what we need.
         referenceAlleleIndex = findReferenceAllele(alleles);
         numberOfEvidences = new int[sampleCount];
@@ -160,17 +161,19 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
     }
 
 
-    // Internally used constructor.
+    // Internally used constructor; values are laid out as in {@link #valuesBySampleIndex} with the given capacities as strides.
     @SuppressWarnings({"unchecked", "rawtypes"})
     private AlleleLikelihoods(final AlleleList alleles,
                       final SampleList samples,
                       final List<List<EVIDENCE>> evidenceBySampleIndex,
                       final List<List<EVIDENCE>> filteredEvidenceBySampleIndex,
-                      final double[][][] values) {
+                      final double[][] values,
+                      final int[] evidenceCapacities) {
         this.samples = samples;
         this.alleles = alleles;
         this.evidenceBySampleIndex = evidenceBySampleIndex;
         this.valuesBySampleIndex = values;
+        this.likelihoodsMatrixEvidenceCapacityBySampleIndex = evidenceCapacities;
 
         final int sampleCount = samples.numberOfSamples();
 
@@ -187,14 +190,6 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         numberOfEvidences = IntStream.range(0, sampleCount)
           .map(i -> evidenceBySampleIndex.get(i).size())
           .toArray();
-
-        // We take the shortest allele's values array as the maximum evidence capacity for
-        // each sample.
-        likelihoodsMatrixEvidenceCapacityBySampleIndex = Arrays.stream(values)
-                .mapToInt(sampleValues -> Arrays.stream(sampleValues)
-                        .mapToInt(v -> v.length)
-                        .min().orElse(0))
-                .toArray();
     }
 
     /*
@@ -206,7 +201,22 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
                                             final List<List<EVIDENCE>> evidenceBySampleIndex,
                                             final List<List<EVIDENCE>> filteredEvidenceBySampleIndex,
                                             final double[][][] values) {
-        return new AlleleLikelihoods<>(alleles, samples, evidenceBySampleIndex, filteredEvidenceBySampleIndex, values);
+        // We take the shortest allele's values array as the maximum evidence capacity for
+        // each sample.
+        final int[] evidenceCapacities = Arrays.stream(values)
+                .mapToInt(sampleValues -> Arrays.stream(sampleValues)
+                        .mapToInt(v -> v.length)
+                        .min().orElse(0))
+                .toArray();
+        final double[][] flatValues = new double[values.length][];
+        for (int s = 0; s < values.length; s++) {
+            final int capacity = evidenceCapacities[s];
+            flatValues[s] = new double[values[s].length * capacity];
+            for (int a = 0; a < values[s].length; a++) {
+                System.arraycopy(values[s][a], 0, flatValues[s], a * capacity, capacity);
+            }
+        }
+        return new AlleleLikelihoods<>(alleles, samples, evidenceBySampleIndex, filteredEvidenceBySampleIndex, flatValues, evidenceCapacities);
     }
 
     /**
@@ -238,9 +248,8 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
             evidenceBySampleIndex.add(sampleEvidences == null ? new ArrayList<>() : new ArrayList<>(sampleEvidences));
             final int sampleEvidenceCount = evidenceBySampleIndex.get(s).size();
 
-            final double[][] sampleValues = new double[alleleCount][sampleEvidenceCount];
             likelihoodsMatrixEvidenceCapacityBySampleIndex[s] = sampleEvidenceCount;
-            valuesBySampleIndex[s] = sampleValues;
+            valuesBySampleIndex[s] = new double[alleleCount * sampleEvidenceCount];
         }
     }
 
@@ -371,9 +380,11 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
 
         for (int s = 0; s < sampleCount; s++) {
             final int evidenceCount = sampleEvidenceCount(s);
+            final double[] sampleValues = valuesBySampleIndex[s];
+            final int capacity = likelihoodsMatrixEvidenceCapacityBySampleIndex[s];
             for (int a = 0; a < alleleCount; a++) {
-                for (int e = 0; e < evidenceCount; e++) {
-                    valuesBySampleIndex[s][a][e] = MathUtils.log10ToLog(valuesBySampleIndex[s][a][e]);
+                for (int e = a * capacity; e < a * capacity + evidenceCount; e++) {
+                    sampleValues[e] = MathUtils.log10ToLog(sampleValues[e]);
                 }
             }
         }
@@ -429,7 +440,7 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         }
 
         for (int s = 0; s < valuesBySampleIndex.length; s++) {
-            final double[][] sampleValues = valuesBySampleIndex[s];
+            final double[] sampleValues = valuesBySampleIndex[s];
             final int evidenceCount = evidenceBySampleIndex.get(s).size();
             for (int r = 0; r < evidenceCount; r++) {
                 normalizeLikelihoodsPerEvidence(maximumLikelihoodDifferenceCap, sampleValues, s, r, symmetricallyNormalizeAllelesToReference);
@@ -439,7 +450,7 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
 
     // Does the normalizeLikelihoods job for each piece of evidence.
     private void normalizeLikelihoodsPerEvidence(final double maximumBestAltLikelihoodDifference,
-                                                 final double[][] sampleValues, final int sampleIndex, final int evidenceIndex, final boolean symmetricallyNormalizeAllelesToReference) {
+                                                 final double[] sampleValues, final int sampleIndex, final int evidenceIndex, final boolean symmetricallyNormalizeAllelesToReference) {
 
         //allow the best allele to be the reference because asymmetry leads to strange artifacts like het calls with >90% alt reads
         final BestAllele bestAllele = searchBestAllele(sampleIndex,evidenceIndex,symmetricallyNormalizeAllelesToReference);
@@ -447,11 +458,12 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         final double worstLikelihoodCap = bestAllele.likelihood + maximumBestAltLikelihoodDifference;
 
         final int alleleCount = alleles.numberOfAlleles();
+        final int capacity = likelihoodsMatrixEvidenceCapacityBySampleIndex[sampleIndex];
 
         // Guarantee to be the case by enclosing code.
-        for (int a = 0; a < alleleCount; a++) {
-            if (sampleValues[a][evidenceIndex] < worstLikelihoodCap) {
-                sampleValues[a][evidenceIndex] = worstLikelihoodCap;
+        for (int a = 0, i = evidenceIndex; a < alleleCount; a++, i += capacity) {
+            if (sampleValues[i] < worstLikelihoodCap) {
+                sampleValues[i] = worstLikelihoodCap;
             }
         }
 
@@ -509,18 +521,19 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
                     Double.NEGATIVE_INFINITY, MISSING_INDEX, Double.NEGATIVE_INFINITY);
         }
 
-        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+        final int capacity = likelihoodsMatrixEvidenceCapacityBySampleIndex[sampleIndex];
         int bestAlleleIndex = canBeReference || referenceAlleleIndex != 0 ? 0 : 1;
 
         int secondBestIndex = 0;
-        double bestLikelihood = sampleValues[bestAlleleIndex][evidenceIndex];
+        double bestLikelihood = sampleValues[bestAlleleIndex * capacity + evidenceIndex];
         double secondBestLikelihood = Double.NEGATIVE_INFINITY;
 
         for (int a = bestAlleleIndex + 1; a < alleleCount; a++) {
             if (!canBeReference && referenceAlleleIndex == a) {
                 continue;
             }
-            final double candidateLikelihood = sampleValues[a][evidenceIndex];
+            final double candidateLikelihood = sampleValues[a * capacity + evidenceIndex];
             if (candidateLikelihood > bestLikelihood) {
                 secondBestIndex = bestAlleleIndex;
                 bestAlleleIndex = a;
@@ -536,7 +549,7 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
             double bestPriority = priorities[bestAlleleIndex];
             double secondBestPriority = priorities[secondBestIndex];
             for (int a = 0; a < alleleCount; a++) {
-                final double candidateLikelihood = sampleValues[a][evidenceIndex];
+                final double candidateLikelihood = sampleValues[a * capacity + evidenceIndex];
                 if (a == bestAlleleIndex || (!canBeReference && a == referenceAlleleIndex) || bestLikelihood - candidateLikelihood > getInformativeThreshold()) {
                     continue;
                 }
@@ -554,8 +567,8 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
             }
         }
 
-        bestLikelihood = sampleValues[bestAlleleIndex][evidenceIndex];
-        secondBestLikelihood = secondBestIndex != bestAlleleIndex ? sampleValues[secondBestIndex][evidenceIndex] : Double.NEGATIVE_INFINITY;
+        bestLikelihood = sampleValues[bestAlleleIndex * capacity + evidenceIndex];
+        secondBestLikelihood = secondBestIndex != bestAlleleIndex ? sampleValues[secondBestIndex * capacity + evidenceIndex] : Double.NEGATIVE_INFINITY;
 
         return new BestAllele(sampleIndex, evidenceIndex, bestAlleleIndex, bestLikelihood, secondBestIndex, secondBestLikelihood);
     }
@@ -632,16 +645,16 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         //copy old allele likelihoods and set new allele likelihoods to the default value
         for (int s = 0; s < samples.numberOfSamples(); s++) {
             final int sampleEvidenceCount = evidenceBySampleIndex.get(s).size();
-            final double[][] newValuesBySampleIndex = Arrays.copyOf(valuesBySampleIndex[s], newAlleleCount);
+            final int capacity = likelihoodsMatrixEvidenceCapacityBySampleIndex[s];
+            final double[] newSampleValues = Arrays.copyOf(valuesBySampleIndex[s], newAlleleCount * capacity);
             for (int a = oldAlleleCount; a < newAlleleCount; a++) {
-                newValuesBySampleIndex[a] = new double[likelihoodsMatrixEvidenceCapacityBySampleIndex[s]];
                 if (defaultLikelihood != 0.0) {
-                    Arrays.fill(newValuesBySampleIndex[a], 0, sampleEvidenceCount, defaultLikelihood);
+                    Arrays.fill(newSampleValues, a * capacity, a * capacity + sampleEvidenceCount, defaultLikelihood);
                 }
                 // Fill the rest with NaNs
-                Arrays.fill(newValuesBySampleIndex[a], sampleEvidenceCount, newValuesBySampleIndex[a].length, Double.NaN);
+                Arrays.fill(newSampleValues, a * capacity + sampleEvidenceCount, (a + 1) * capacity, Double.NaN);
             }
-            valuesBySampleIndex[s] = newValuesBySampleIndex;
+            valuesBySampleIndex[s] = newSampleValues;
         }
         return true;
     }
@@ -661,7 +674,8 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
      */
     public <U, NEW_EVIDENCE_TYPE extends Locatable> AlleleLikelihoods<NEW_EVIDENCE_TYPE, A> groupEvidence(final Function<EVIDENCE, U> groupingFunction, final Function<List<EVIDENCE>, NEW_EVIDENCE_TYPE> gather) {
         final int sampleCount = samples.numberOfSamples();
-        final double[][][] newLikelihoodValues = new double[sampleCount][][];
+        final double[][] newLikelihoodValues = new double[sampleCount][];
+        final int[] newEvidenceCapacities = new int[sampleCount];
         final int alleleCount = alleles.numberOfAlleles();
 
         final List<List<NEW_EVIDENCE_TYPE>> newEvidenceBySampleIndex = new ArrayList<>(sampleCount);
@@ -675,15 +689,17 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
 
             final int newEvidenceCount = evidenceGroups.size();
 
-            final double[][] oldSampleValues = valuesBySampleIndex[s];
-            newLikelihoodValues[s] = new double[alleleCount][newEvidenceCount];
+            final double[] oldSampleValues = valuesBySampleIndex[s];
+            final int oldCapacity = likelihoodsMatrixEvidenceCapacityBySampleIndex[s];
+            final double[] newSampleValues = newLikelihoodValues[s] = new double[alleleCount * newEvidenceCount];
+            newEvidenceCapacities[s] = newEvidenceCount;
 
             // For each old allele and read we update the new table keeping the maximum likelihood.
             for (int newEvidenceIndex = 0; newEvidenceIndex < newEvidenceCount; newEvidenceIndex++) {
-                for (int a = 0; a < alleleCount; a++) {
-                    for (final EVIDENCE evidence : evidenceGroups.get(newEvidenceIndex)) {
-                        final int oldEvidenceIndex = evidenceIndex(s, evidence);
-                        newLikelihoodValues[s][a][newEvidenceIndex] += oldSampleValues[a][oldEvidenceIndex];
+                for (final EVIDENCE evidence : evidenceGroups.get(newEvidenceIndex)) {
+                    final int oldEvidenceIndex = evidenceIndex(s, evidence);
+                    for (int a = 0; a < alleleCount; a++) {
+                        newSampleValues[a * newEvidenceCount + newEvidenceIndex] += oldSampleValues[a * oldCapacity + oldEvidenceIndex];
                     }
                 }
             }
@@ -696,7 +712,8 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
                 samples,
                 newEvidenceBySampleIndex,
                 null, //TODO this is only currently used for Somatic and i'm alright with removing this for now but this is NOT robust and 3 of these methods is too many
-                newLikelihoodValues);
+                newLikelihoodValues,
+                newEvidenceCapacities);
         result.isNaturalLog = this.isNaturalLog;
         return result;
     }
@@ -727,9 +744,9 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         final List<BitSet> newToOldAlleleIndex = this.newToOldAlleleIndexMap(newToOldAlleleMap, oldAlleleCount, newAlleles);
 
         // We calculate the marginal likelihoods.
-        final double[][][] newLikelihoodValues = marginalLikelihoodsDirect( newAlleleCount, newToOldAlleleIndex);
-
         final int sampleCount = samples.numberOfSamples();
+        final int[] newEvidenceCapacities = new int[sampleCount];
+        final double[][] newLikelihoodValues = marginalLikelihoods(newAlleleCount, newToOldAlleleIndex, newEvidenceCapacities);
 
         final List<List<EVIDENCE>> newEvidenceBySampleIndex = new ArrayList<>(sampleCount);
 
@@ -743,62 +760,44 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
                 samples,
                 newEvidenceBySampleIndex,
                 filteredEvidenceBySampleIndex,
-                newLikelihoodValues);
+                newLikelihoodValues,
+                newEvidenceCapacities);
         result.isNaturalLog = isNaturalLog;
         return result;
     }
 
-    // Calculate the marginal likelihoods considering the old -> new allele index mapping.
-    private double[][][] marginalLikelihoods(final int oldAlleleCount, final int newAlleleCount,
-                                             final int[] oldToNewAlleleIndexMap) {
+    // Calculate the marginal likelihoods considering the new -> old allele index mapping, returning the new values with the
+    // evidence count of each sample as its stride; these strides are written into {@code newEvidenceCapacities}.
+    private double[][] marginalLikelihoods(final int newAlleleCount, final List<BitSet> newToOldAlleleIndexMap, final int[] newEvidenceCapacities) {
+
         final int sampleCount = samples.numberOfSamples();
-        final double[][][] result = new double[sampleCount][][];
+        final double[][] result = new double[sampleCount][];
 
-        for (int s = 0; s < sampleCount; s++) {
-            final int sampleEvidenceCount = evidenceBySampleIndex.get(s).size();
-            final double[][] oldSampleValues = valuesBySampleIndex[s];
-            final double[][] newSampleValues = result[s] = new double[newAlleleCount][sampleEvidenceCount];
-            // We initiate all likelihoods to -Inf.
-            for (int a = 0; a < newAlleleCount; a++) {
-                Arrays.fill(newSampleValues[a], Double.NEGATIVE_INFINITY);
-            }
-            // For each old allele and read we update the new table keeping the maximum likelihood.
-            for (int r = 0; r < sampleEvidenceCount; r++) {
-                for (int a = 0; a < oldAlleleCount; a++) {
-                    final int newAlleleIndex = oldToNewAlleleIndexMap[a];
-                    if (newAlleleIndex == MISSING_INDEX) {
-                        continue;
-                    }
-                    final double likelihood = oldSampleValues[a][r];
-                    if (likelihood > newSampleValues[newAlleleIndex][r]) {
-                        newSampleValues[newAlleleIndex][r] = likelihood;
-                    }
-                }
-            }
+        // the old allele indices of each new allele, so that we don't iterate the bit sets for every unit of evidence.
+        final int[][] oldAllelesByNewAllele = new int[newAlleleCount][];
+        for (int newAllele = 0; newAllele < newAlleleCount; newAllele++) {
+            oldAllelesByNewAllele[newAllele] = newToOldAlleleIndexMap.get(newAllele).stream().toArray();
         }
-        return result;
-    }
-
-    // Calculate the marginal likelihoods considering the old -> new allele index mapping.
-    private double[][][] marginalLikelihoodsDirect(final int newAlleleCount, final List<BitSet> newToOldAlleleIndexMap) {
-
-        final int sampleCount = samples.numberOfSamples();
-        final double[][][] result = new double[sampleCount][][];
 
         for (int s = 0; s < sampleCount; s++) {
             final int sampleEvidenceCount = evidenceBySampleIndex.get(s).size();
-            final double[][] oldSampleValues = valuesBySampleIndex[s];
-            final double[][] newSampleValues = result[s] = new double[newAlleleCount][sampleEvidenceCount];
+            final int oldCapacity = likelihoodsMatrixEvidenceCapacityBySampleIndex[s];
+            final double[] oldSampleValues = valuesBySampleIndex[s];
+            final double[] newSampleValues = result[s] = new double[newAlleleCount * sampleEvidenceCount];
+            newEvidenceCapacities[s] = sampleEvidenceCount;
 
             // For each old allele and unit of evidence we update the new table keeping the maximum likelihood.
             for (int newAllele = 0; newAllele < newAlleleCount; newAllele++) {
-                final BitSet oldAlleleSet = newToOldAlleleIndexMap.get(newAllele);
-                for (int r = 0; r < sampleEvidenceCount; r++) {
-                    final int finalR = r;
-                    newSampleValues[newAllele][finalR] = oldAlleleSet.stream()
-                            .mapToDouble(oldA -> oldSampleValues[oldA][finalR])
-                            .max()
-                            .orElse(Double.NEGATIVE_INFINITY);
+                final int newOffset = newAllele * sampleEvidenceCount;
+                Arrays.fill(newSampleValues, newOffset, newOffset + sampleEvidenceCount, Double.NEGATIVE_INFINITY);
+                for (final int oldAllele : oldAllelesByNewAllele[newAllele]) {
+                    final int oldOffset = oldAllele * oldCapacity;
+                    for (int r = 0; r < sampleEvidenceCount; r++) {
+                        final double likelihood = oldSampleValues[oldOffset + r];
+                        if (likelihood > newSampleValues[newOffset + r]) {
+                            newSampleValues[newOffset + r] = likelihood;
+                        }
+                    }
                 }
             }
         }
@@ -890,27 +889,31 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
 
     // Extends the likelihood arrays-matrices.
     private void extendsLikelihoodArrays(final double initialLikelihood, final int sampleIndex, final int oldEvidenceCount, final int newEvidenceCount) {
-        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
         final int numberOfAlleles = alleles.numberOfAlleles();
-        ensureLikelihoodsMatrixEvidenceCapacity(sampleIndex, newEvidenceCount, sampleValues, numberOfAlleles);
+        ensureLikelihoodsMatrixEvidenceCapacity(sampleIndex, newEvidenceCount, numberOfAlleles);
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+        final int capacity = likelihoodsMatrixEvidenceCapacityBySampleIndex[sampleIndex];
         for (int a = 0; a < numberOfAlleles; a++) {
-            Arrays.fill(sampleValues[a], oldEvidenceCount, newEvidenceCount, initialLikelihood);
+            Arrays.fill(sampleValues, a * capacity + oldEvidenceCount, a * capacity + newEvidenceCount, initialLikelihood);
         }
     }
 
     // Resizes the lk value holding arrays to be able to handle at least "x" amount of evidence.
-    private void ensureLikelihoodsMatrixEvidenceCapacity(final int sampleIndex, final int x,
-                                                         final double[][] sampleValues, final int numberOfAlleles) {
+    // As the capacity is the stride between alleles, the values of every allele are moved into a new array.
+    private void ensureLikelihoodsMatrixEvidenceCapacity(final int sampleIndex, final int x, final int numberOfAlleles) {
         final int currentCapacity = likelihoodsMatrixEvidenceCapacityBySampleIndex[sampleIndex];
         if (currentCapacity < x) {
             final int newCapacity = Math.max(currentCapacity, x) << 1; // we double it to avoid repetitive 1-element extensions resizing.
+            final double[] oldSampleValues = valuesBySampleIndex[sampleIndex];
+            final double[] newSampleValues = new double[numberOfAlleles * newCapacity];
+            // We don't need the following fill for this to work as intended but
+            // with NaN we ensure some clear failure output in case there is a bug that
+            // uses "zombie" likelihoods (e.g. github issue {@link https://github.com/broadinstitute/gatk/pull/7153 #7153).
+            Arrays.fill(newSampleValues, Double.NaN);
             for (int a  = 0; a < numberOfAlleles; a++) {
-                sampleValues[a] = Arrays.copyOf(sampleValues[a], newCapacity);
-                // We don't need the following fill for this to work as intended but
-                // with NaN we ensure some clear failure output in case there is a bug that
-                // uses "zombie" likelihoods (e.g. github issue {@link https://github.com/broadinstitute/gatk/pull/7153 #7153).
-                Arrays.fill(sampleValues[a], currentCapacity, newCapacity, Double.NaN);
+                System.arraycopy(oldSampleValues, a * currentCapacity, newSampleValues, a * newCapacity, currentCapacity);
             }
+            valuesBySampleIndex[sampleIndex] = newSampleValues;
             likelihoodsMatrixEvidenceCapacityBySampleIndex[sampleIndex] = newCapacity;
         }
     }
@@ -985,13 +988,14 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         final double[] qualifiedAlleleLikelihoods = new double[nonSymbolicAlleleCount];
         final Median medianCalculator = new Median();
         for (int s = 0; s < samples.numberOfSamples(); s++) {
-            final double[][] sampleValues = valuesBySampleIndex[s];
+            final double[] sampleValues = valuesBySampleIndex[s];
+            final int capacity = likelihoodsMatrixEvidenceCapacityBySampleIndex[s];
             final int evidenceCount = evidenceBySampleIndex.get(s).size();
             for (int r = 0; r < evidenceCount; r++) {
                 final BestAllele bestAllele = searchBestAllele(s, r, true);
                 int numberOfQualifiedAlleleLikelihoods = 0;
                 for (int i = 0; i < alleleCount; i++) {
-                    final double alleleLikelihood = sampleValues[i][r];
+                    final double alleleLikelihood = sampleValues[i * capacity + r];
                     if (i != nonRefAlleleIndex && alleleLikelihood < bestAllele.likelihood
                             && !Double.isNaN(alleleLikelihood) && allelesToConsider.indexOfAllele(alleles.getAllele(i)) != MISSING_INDEX) {
                         qualifiedAlleleLikelihoods[numberOfQualifiedAlleleLikelihoods++] = alleleLikelihood;
@@ -1002,7 +1006,7 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
                 // so the evidence is not informative at all given the existing alleles. Unless there is only one (or zero) concrete
                 // alleles with give the same (the best) likelihood to the NON-REF. When there is only one (or zero) concrete
                 // alleles we set the NON-REF likelihood to NaN.
-                sampleValues[nonRefAlleleIndex][r] = !Double.isNaN(nonRefLikelihood) ? nonRefLikelihood
+                sampleValues[nonRefAlleleIndex * capacity + r] = !Double.isNaN(nonRefLikelihood) ? nonRefLikelihood
                         : nonSymbolicAlleleCount <= 1 ? Double.NaN : bestAllele.likelihood;
             }
         }
@@ -1198,10 +1202,11 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
     protected double maximumLikelihoodOverAllAlleles(final int sampleIndex, final int evidenceIndex) {
         double result = Double.NEGATIVE_INFINITY;
         final int alleleCount = alleles.numberOfAlleles();
-        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
-        for (int a = 0; a < alleleCount; a++) {
-            if (sampleValues[a][evidenceIndex] > result) {
-                result = sampleValues[a][evidenceIndex];
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+        final int capacity = likelihoodsMatrixEvidenceCapacityBySampleIndex[sampleIndex];
+        for (int a = 0, i = evidenceIndex; a < alleleCount; a++, i += capacity) {
+            if (sampleValues[i] > result) {
+                result = sampleValues[i];
             }
         }
         return result;
@@ -1305,26 +1310,26 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         final int oldEvidenceCount = numberOfEvidences[sampleIndex];
         final int newEvidenceCount = oldEvidenceCount - numToRemove;
 
-        // update the list of evidence and evidence count
-        final List<EVIDENCE> oldEvidence = evidenceBySampleIndex.get(sampleIndex);
-        final List<EVIDENCE> newEvidence = new ArrayList<>(newEvidenceCount);
+        // compact the list of evidence and the likelihoods arrays in place
+        final List<EVIDENCE> evidence = evidenceBySampleIndex.get(sampleIndex);
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+        final int capacity = likelihoodsMatrixEvidenceCapacityBySampleIndex[sampleIndex];
+        final int alleleCount = alleles.numberOfAlleles();
         for (int n = 0, numRemoved = 0; n < oldEvidenceCount; n++) {
             if (numRemoved < numToRemove && n == evidencesToRemove[numRemoved]) {
                 numRemoved++;
-            } else {
-                newEvidence.add(oldEvidence.get(n));
-
-                // update the likelihoods arrays in place
-                for (final double[] alleleValues : valuesBySampleIndex[sampleIndex]) {
-                    alleleValues[n - numRemoved] = alleleValues[n];
+            } else if (numRemoved > 0) {
+                evidence.set(n - numRemoved, evidence.get(n));
+                for (int a = 0; a < alleleCount; a++) {
+                    sampleValues[a * capacity + n - numRemoved] = sampleValues[a * capacity + n];
                 }
             }
         }
+        evidence.subList(newEvidenceCount, oldEvidenceCount).clear();
         // set to NaN lks of the deleted positions in lk value arrays.
-        for (final double[] alleleValues : valuesBySampleIndex[sampleIndex]) {
-            Arrays.fill(alleleValues, newEvidenceCount, alleleValues.length, Double.NaN);
+        for (int a = 0; a < alleleCount; a++) {
+            Arrays.fill(sampleValues, a * capacity + newEvidenceCount, (a + 1) * capacity, Double.NaN);
         }
-        evidenceBySampleIndex.set(sampleIndex, newEvidence);
         numberOfEvidences[sampleIndex] = newEvidenceCount;
         invalidateEvidenceToIndexCache(sampleIndex);
     }
@@ -1416,16 +1421,16 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
 
         @Override
         public void set(final int alleleIndex, final int evidenceIndex, final double value) {
-            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
+            Utils.validIndex(alleleIndex, alleles.numberOfAlleles());
             Utils.validIndex(evidenceIndex,  numberOfEvidences[sampleIndex]);
-            valuesBySampleIndex[sampleIndex][alleleIndex][evidenceIndex] = value;
+            valuesBySampleIndex[sampleIndex][alleleIndex * likelihoodsMatrixEvidenceCapacityBySampleIndex[sampleIndex] + evidenceIndex] = value;
         }
 
         @Override
         public double get(final int alleleIndex, final int evidenceIndex) {
-            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
+            Utils.validIndex(alleleIndex, alleles.numberOfAlleles());
             Utils.validIndex(evidenceIndex, numberOfEvidences[sampleIndex]);
-            return valuesBySampleIndex[sampleIndex][alleleIndex][evidenceIndex];
+            return valuesBySampleIndex[sampleIndex][alleleIndex * likelihoodsMatrixEvidenceCapacityBySampleIndex[sampleIndex] + evidenceIndex];
         }
 
         @Override
@@ -1465,8 +1470,9 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         @Override
         public void copyAlleleLikelihoods(final int alleleIndex, final double[] dest, final int offset) {
             Utils.nonNull(dest);
-            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
-            System.arraycopy(valuesBySampleIndex[sampleIndex][alleleIndex], 0, dest, offset, numberOfEvidences[sampleIndex]);
+            Utils.validIndex(alleleIndex, alleles.numberOfAlleles());
+            System.arraycopy(valuesBySampleIndex[sampleIndex], alleleIndex * likelihoodsMatrixEvidenceCapacityBySampleIndex[sampleIndex],
+                    dest, offset, numberOfEvidences[sampleIndex]);
         }
     }
 }
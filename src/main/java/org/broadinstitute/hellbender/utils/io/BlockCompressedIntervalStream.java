@@ -189,6 +189,7 @@ public class BlockCompressedIntervalStream {
         }
 
         public DataOutputStream getStream() { return dos; }
+        public List<String> getSampleNames() { return header.getSampleNames(); }
 
         public int getSampleIndex( final String sampleName ) {
             final Integer sampleIndex = header.getSampleIndex(sampleName);
@@ -306,6 +307,7 @@ public class BlockCompressedIntervalStream {
         final long dataFilePointer;
         SVIntervalTree<Long> index;
         boolean usedByIterator;
+        final boolean isClone;
 
         public Reader( final FeatureInput<T> inputDescriptor, final FeatureCodec<T, Reader<T>> codec ) {
             this.path = inputDescriptor.getRawInputString();
@@ -323,6 +325,7 @@ public class BlockCompressedIntervalStream {
             this.dataFilePointer = bcis.getPosition(); // having read header, we're pointing at the data
             this.index = null;
             this.usedByIterator = false;
+            this.isClone = false;
             final String expectedClassName = codec.getFeatureType().getSimpleName();
             if ( !header.getClassName().equals(expectedClassName) ) {
                 throw new UserException("can't use " + path + " to read " + expectedClassName +
@@ -346,6 +349,7 @@ public class BlockCompressedIntervalStream {
             this.dataFilePointer = reader.dataFilePointer;
             this.index = reader.index;
             this.usedByIterator = true;
+            this.isClone = true;
         }
 
         @VisibleForTesting
@@ -361,6 +365,7 @@ public class BlockCompressedIntervalStream {
             this.dataFilePointer = bcis.getPosition();
             this.index = null;
             this.usedByIterator = false;
+            this.isClone = false;
         }
 
         public FeatureCodecHeader getFeatureCodecHeader() {
@@ -519,12 +524,22 @@ public class BlockCompressedIntervalStream {
             return new Reader<>(this);
         }
 
+        // our own stream can be reused by the next iterator once the current one is done with it,
+        //   so that a series of queries doesn't reopen the file each time
+        private void releaseFromIterator() {
+            if ( isClone ) {
+                close();
+            } else {
+                usedByIterator = false;
+            }
+        }
+
         private static class CompleteIterator <T extends Feature>
                 implements CloseableTribbleIterator<T> {
             final Reader<T> reader;
             public CompleteIterator( final Reader<T> reader ) {
                 this.reader = reader.getReaderForIterator();
-                reader.seekStream(reader.dataFilePointer);
+                this.reader.seekStream(reader.dataFilePointer);
             }
 
             @Override public Iterator<T> iterator() {
@@ -542,7 +557,7 @@ public class BlockCompressedIntervalStream {
                 return reader.readStream();
             }
 
-            @Override public void close() { reader.close(); }
+            @Override public void close() { reader.releaseFromIterator(); }
         }
         // find all the objects in the stream inflating just those blocks that might have relevant objects
         private static class OverlapIterator <T extends Feature>
@@ -571,7 +586,7 @@ public class BlockCompressedIntervalStream {
                 advance();
                 return result; }
 
-            @Override public void close() { reader.close(); nextT = null; }
+            @Override public void close() { reader.releaseFromIterator(); nextT = null; }
 
             @Override public CloseableTribbleIterator<T> iterator() {
                 return new OverlapIterator<>(interval, reader);
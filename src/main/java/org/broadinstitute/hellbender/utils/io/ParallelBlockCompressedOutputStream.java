@@ -0,0 +1,271 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import htsjdk.samtools.util.RuntimeIOException;
+import htsjdk.samtools.util.zip.DeflaterFactory;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A BGZF output stream that cuts blocks like htsjdk's BlockCompressedOutputStream, but deflates them on a pool of
+ * threads and writes them in order as they complete.
+ *
+ * Positions in the stream are reported as block pointers, which have the layout of BGZF virtual offsets but
+ * hold the index of the block instead of its address. {@link #getVirtualOffset} converts them to virtual offsets
+ * once the preceding blocks have been written.
+ */
+public final class ParallelBlockCompressedOutputStream extends OutputStream {
+
+    /**
+     * Maximum number of blocks submitted for compression but not yet written, per compression thread
+     */
+    private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 4;
+
+    private final OutputStream output;
+    private final ExecutorService compressionPool;
+    private final int maxBlocksInFlight;
+    private final Runnable onBlocksWritten;
+
+    private final int compressionLevel = BlockCompressedOutputStream.getDefaultCompressionLevel();
+    private final DeflaterFactory deflaterFactory = BlockCompressedOutputStream.getDefaultDeflaterFactory();
+    private final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> track(deflaterFactory.makeDeflater(compressionLevel, true)));
+    private final ThreadLocal<Deflater> noCompressionDeflaters = ThreadLocal.withInitial(() -> track(new Deflater(Deflater.NO_COMPRESSION, true)));
+    // every Deflater created by the compression threads, so that their native memory is released on close()
+    private final Queue<Deflater> allDeflaters = new ConcurrentLinkedQueue<>();
+
+    private byte[] uncompressedBuffer = new byte[BlockCompressedStreamConstants.DEFAULT_UNCOMPRESSED_BLOCK_SIZE];
+    private int numUncompressedBytes = 0;
+
+    private final Deque<Future<byte[]>> blocksInFlight = new ArrayDeque<>();
+    private long numBlocksSubmitted = 0;
+
+    // addresses of the blocks written so far, plus the address of the next one
+    private long[] blockAddresses = new long[1024];
+    private long numBlocksWritten = 0;
+    private long bytesWritten = 0;
+
+    /**
+     * @param output stream the compressed blocks are written to; closed when this stream is closed
+     * @param compressionThreads number of threads compressing blocks
+     * @param onBlocksWritten called on the writing thread each time a block has been written, so that callers can
+     *                        resolve the virtual offsets of what they wrote. May be null.
+     */
+    public ParallelBlockCompressedOutputStream(final OutputStream output, final int compressionThreads, final Runnable onBlocksWritten) {
+        Utils.nonNull(output);
+        Utils.validateArg(compressionThreads > 0, "compressionThreads must be > 0");
+        this.output = output;
+        this.maxBlocksInFlight = compressionThreads * BLOCKS_IN_FLIGHT_PER_THREAD;
+        this.onBlocksWritten = onBlocksWritten;
+        this.compressionPool = Executors.newFixedThreadPool(compressionThreads,
+                new ThreadFactoryBuilder().setNameFormat("bgzfCompression-thread-%d").setDaemon(true).build());
+    }
+
+    private Deflater track(final Deflater deflater) {
+        allDeflaters.add(deflater);
+        return deflater;
+    }
+
+    @Override
+    public void write(final int b) {
+        uncompressedBuffer[numUncompressedBytes++] = (byte) b;
+        if (numUncompressedBytes == uncompressedBuffer.length) {
+            endBlock();
+        }
+    }
+
+    @Override
+    public void write(final byte[] bytes, int startIndex, int numBytes) {
+        while (numBytes > 0) {
+            final int bytesToWrite = Math.min(uncompressedBuffer.length - numUncompressedBytes, numBytes);
+            System.arraycopy(bytes, startIndex, uncompressedBuffer, numUncompressedBytes, bytesToWrite);
+            numUncompressedBytes += bytesToWrite;
+            startIndex += bytesToWrite;
+            numBytes -= bytesToWrite;
+            if (numUncompressedBytes == uncompressedBuffer.length) {
+                endBlock();
+            }
+        }
+    }
+
+    /**
+     * @return the block pointer of the next byte written to this stream
+     */
+    public long getBlockPointer() {
+        return BlockCompressedFilePointerUtil.makeFilePointer(numBlocksSubmitted, numUncompressedBytes);
+    }
+
+    /**
+     * @return the virtual offset corresponding to blockPointer, or -1 if the blocks before it have not all been written yet
+     */
+    public long getVirtualOffset(final long blockPointer) {
+        final long blockIndex = BlockCompressedFilePointerUtil.getBlockAddress(blockPointer);
+        if (blockIndex > numBlocksWritten) {
+            return -1L;
+        }
+        return BlockCompressedFilePointerUtil.makeFilePointer(blockAddresses[(int) blockIndex], BlockCompressedFilePointerUtil.getBlockOffset(blockPointer));
+    }
+
+    /**
+     * @return the number of compressed bytes written to the underlying stream so far
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Submit the buffered bytes, if any, as a block of their own. This is what htsjdk's BlockCompressedOutputStream
+     * does on flush().
+     */
+    public void endBlock() {
+        if (numUncompressedBytes == 0) {
+            return;
+        }
+        final byte[] block = uncompressedBuffer;
+        final int blockLength = numUncompressedBytes;
+        blocksInFlight.add(compressionPool.submit(() -> compressBlock(block, blockLength)));
+        numBlocksSubmitted++;
+        uncompressedBuffer = new byte[BlockCompressedStreamConstants.DEFAULT_UNCOMPRESSED_BLOCK_SIZE];
+        numUncompressedBytes = 0;
+
+        // write out the blocks that are already done, and wait for the oldest one if too many are pending
+        while (!blocksInFlight.isEmpty() && (blocksInFlight.size() > maxBlocksInFlight || blocksInFlight.peekFirst().isDone())) {
+            writeOldestBlock();
+        }
+    }
+
+    private void writeOldestBlock() {
+        final byte[] compressedBlock;
+        try {
+            compressedBlock = blocksInFlight.removeFirst().get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while compressing BGZF blocks", e);
+        } catch (final ExecutionException e) {
+            throw new GATKException("Error compressing BGZF block", e.getCause());
+        }
+        writeToOutput(compressedBlock);
+        numBlocksWritten++;
+        if (numBlocksWritten >= blockAddresses.length) {
+            blockAddresses = Arrays.copyOf(blockAddresses, blockAddresses.length * 2);
+        }
+        blockAddresses[(int) numBlocksWritten] = bytesWritten;
+        if (onBlocksWritten != null) {
+            onBlocksWritten.run();
+        }
+    }
+
+    private void writeToOutput(final byte[] bytes) {
+        try {
+            output.write(bytes);
+        } catch (final IOException e) {
+            throw new RuntimeIOException(e);
+        }
+        bytesWritten += bytes.length;
+    }
+
+    /**
+     * Deflate one block and wrap it in its BGZF header and footer, as BlockCompressedOutputStream.deflateBlock() does
+     */
+    private byte[] compressBlock(final byte[] uncompressed, final int length) {
+        final int headerLength = BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH;
+        final int maxCompressedSize = BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE - headerLength;
+        final byte[] block = new byte[headerLength + maxCompressedSize + BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH];
+
+        final Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(uncompressed, 0, length);
+        deflater.finish();
+        int compressedSize = deflater.deflate(block, headerLength, maxCompressedSize);
+
+        // if it didn't fit, store the block without compression instead
+        if (!deflater.finished()) {
+            final Deflater noCompressionDeflater = noCompressionDeflaters.get();
+            noCompressionDeflater.reset();
+            noCompressionDeflater.setInput(uncompressed, 0, length);
+            noCompressionDeflater.finish();
+            compressedSize = noCompressionDeflater.deflate(block, headerLength, maxCompressedSize);
+            if (!noCompressionDeflater.finished()) {
+                throw new GATKException.ShouldNeverReachHereException("Uncompressed BGZF block does not fit in a block");
+            }
+        }
+
+        final CRC32 crc32 = new CRC32();
+        crc32.update(uncompressed, 0, length);
+        final int totalBlockSize = compressedSize + headerLength + BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+
+        final ByteBuffer buffer = ByteBuffer.wrap(block).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) BlockCompressedStreamConstants.GZIP_ID1);
+        buffer.put((byte) BlockCompressedStreamConstants.GZIP_ID2);
+        buffer.put((byte) BlockCompressedStreamConstants.GZIP_CM_DEFLATE);
+        buffer.put((byte) BlockCompressedStreamConstants.GZIP_FLG);
+        buffer.putInt(0); // modification time
+        buffer.put((byte) BlockCompressedStreamConstants.GZIP_XFL);
+        buffer.put((byte) BlockCompressedStreamConstants.GZIP_OS_UNKNOWN);
+        buffer.putShort((short) BlockCompressedStreamConstants.GZIP_XLEN);
+        buffer.put((byte) BlockCompressedStreamConstants.BGZF_ID1);
+        buffer.put((byte) BlockCompressedStreamConstants.BGZF_ID2);
+        buffer.putShort((short) BlockCompressedStreamConstants.BGZF_LEN);
+        buffer.putShort((short) (totalBlockSize - 1));
+        buffer.position(headerLength + compressedSize);
+        buffer.putInt((int) crc32.getValue());
+        buffer.putInt(length);
+        return Arrays.copyOf(block, totalBlockSize);
+    }
+
+    /**
+     * Write all remaining blocks and the BGZF terminator block, close the underlying stream, and release the
+     * compression threads and their Deflaters
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            endBlock();
+            while (!blocksInFlight.isEmpty()) {
+                writeOldestBlock();
+            }
+            writeToOutput(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+            output.close();
+        } finally {
+            compressionPool.shutdownNow();
+            endDeflaters();
+        }
+    }
+
+    /**
+     * End the Deflaters of the compression threads once the threads are done with them. A block still being deflated
+     * after a failure can't be interrupted, so we wait for it to finish.
+     */
+    private void endDeflaters() {
+        try {
+            compressionPool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (final InterruptedException e) {
+            // leave the Deflaters to be released when collected rather than end one that may still be in use
+            Thread.currentThread().interrupt();
+            return;
+        }
+        Deflater deflater;
+        while ((deflater = allDeflaters.poll()) != null) {
+            deflater.end();
+        }
+    }
+}
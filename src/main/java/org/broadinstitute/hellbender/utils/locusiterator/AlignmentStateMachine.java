@@ -8,6 +8,7 @@ import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.pileup.PileupElement;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
 
 /**
  * Steps a single read along its alignment to the genome
@@ -47,6 +48,12 @@ public final class AlignmentStateMachine {
      */
     private int offsetIntoCurrentCigarElement;
 
+    /**
+     * The adaptor boundary of the read, computed the first time it is needed as it doesn't change from position to position
+     */
+    private int adaptorBoundary;
+    private boolean adaptorBoundaryComputed = false;
+
     public AlignmentStateMachine(final GATKRead read) {
         this.read = read;
         this.cigar = read.getCigar();
@@ -189,6 +196,23 @@ public final class AlignmentStateMachine {
         return currentElement == null ? null : currentElement.getOperator();
     }
 
+    /**
+     * Is the given position on the genome inside the adaptor of our read?
+     *
+     * Equivalent to {@link ReadUtils#isBaseInsideAdaptor(GATKRead, long)}, but the adaptor boundary of the read
+     * is only computed once for all the positions the machine steps through.
+     *
+     * @param position the position on the genome
+     * @return true if the position is inside the adaptor of the read
+     */
+    public boolean isInsideAdaptor(final long position) {
+        if ( ! adaptorBoundaryComputed ) {
+            adaptorBoundary = read.getAdaptorBoundary();
+            adaptorBoundaryComputed = true;
+        }
+        return ReadUtils.isBaseInsideAdaptor(read, adaptorBoundary, position);
+    }
+
     @Override
     public String toString() {
         return String.format("%s ro=%d go=%d cec=%d %s", read.getName(), readOffset, genomeOffset, offsetIntoCurrentCigarElement, currentElement);
@@ -12,7 +12,6 @@ import org.broadinstitute.hellbender.utils.downsampling.DownsamplingMethod;
 import org.broadinstitute.hellbender.utils.pileup.PileupElement;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
-import org.broadinstitute.hellbender.utils.read.ReadUtils;
 
 import java.util.*;
 
@@ -292,23 +291,22 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
             // since they are just going to get combined into one monolithic pileup anyway
             // when we construct the final ReadPileup below. This optimization speeds up the
             // HaplotypeCaller by quite a bit!
-            final List<PileupElement> allPileupElements = new ArrayList<>(100);
+            final List<PileupElement> allPileupElements = new ArrayList<>(readStates.size());
 
             for (final Map.Entry<String, PerSampleReadStateManager> sampleStatePair : readStates) {
                 final PerSampleReadStateManager readState = sampleStatePair.getValue();
-                final Iterator<AlignmentStateMachine> iterator = readState.iterator();
+                final int stateCount = readState.size();
 
-                while (iterator.hasNext()) {
+                for (int i = 0; i < stateCount; i++) {
                     // state object with the read/offset information
-                    final AlignmentStateMachine state = iterator.next();
-                    final GATKRead read = state.getRead();
+                    final AlignmentStateMachine state = readState.get(i);
                     final CigarOperator op = state.getCigarOperator();
 
                     if (!includeReadsWithNsAtLoci && op == CigarOperator.N) {
                         continue;
                     }
 
-                    if (!dontIncludeReadInPileup(read, location.getStart())) {
+                    if (!state.isInsideAdaptor(location.getStart())) {
                         if (!includeReadsWithDeletionAtLoci && op == CigarOperator.D) {
                             continue;
                         }
@@ -325,17 +323,4 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
         }
     }
 
-    /**
-     * Should this read be excluded from the pileup?
-     *
-     * Generic place to put per-base filters appropriate to LocusIteratorByState
-     *
-     * @param rec the read to potentially exclude
-     * @param pos the genomic position of the current alignment
-     * @return true if the read should be excluded from the pileup, false otherwise
-     */
-    private static boolean dontIncludeReadInPileup(final GATKRead rec, final long pos) {
-        return ReadUtils.isBaseInsideAdaptor(rec, pos);
-    }
-
 }
@@ -7,6 +7,7 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.downsampling.Downsampler;
 import org.broadinstitute.hellbender.utils.downsampling.LevelingDownsampler;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -22,9 +23,13 @@ final class PerSampleReadStateManager implements Iterable<AlignmentStateMachine>
      * A list (potentially empty) of alignment state machines.
      *
      * The state machines must be ordered by the alignment start of their underlying reads, with the
-     * lowest alignment starts on the left, and the largest on the right
+     * lowest alignment starts on the left, and the largest on the right.
+     *
+     * This is an array list, rather than a linked one, because new states are only ever appended while the states
+     * that step off their reads are removed by compacting the list in place in {@link #updateReadStates()}, so the
+     * list is reused from locus to locus without allocating a node per state.
      */
-    private List<AlignmentStateMachine> readStatesByAlignmentStart = new LinkedList<>();
+    private ArrayList<AlignmentStateMachine> readStatesByAlignmentStart = new ArrayList<>();
 
     private final Downsampler<LinkedList<AlignmentStateMachine>> levelingDownsampler;
     private final int downsamplingTarget;
@@ -82,8 +87,8 @@ final class PerSampleReadStateManager implements Iterable<AlignmentStateMachine>
      * Flattens the grouped list of list of alignment state machines into a single list in order
      * @return a non-null list contains the state machines
      */
-    private LinkedList<AlignmentStateMachine> flattenByAlignmentStart(final List<LinkedList<AlignmentStateMachine>> grouped) {
-        final LinkedList<AlignmentStateMachine> flat = new LinkedList<>();
+    private ArrayList<AlignmentStateMachine> flattenByAlignmentStart(final List<LinkedList<AlignmentStateMachine>> grouped) {
+        final ArrayList<AlignmentStateMachine> flat = new ArrayList<>(grouped.stream().mapToInt(List::size).sum());
         for ( final List<AlignmentStateMachine> l : grouped ) {
             flat.addAll(l);
         }
@@ -114,7 +119,6 @@ final class PerSampleReadStateManager implements Iterable<AlignmentStateMachine>
 
             nStatesAdded -= levelingDownsampler.getNumberOfDiscardedItems();
 
-            // use returned List directly rather than make a copy, for efficiency's sake
             readStatesByAlignmentStart = flattenByAlignmentStart(levelingDownsampler.consumeFinalizedItems());
             levelingDownsampler.resetStats();
         }
@@ -175,27 +179,40 @@ final class PerSampleReadStateManager implements Iterable<AlignmentStateMachine>
         return readStatesByAlignmentStart.size();
     }
 
+    /**
+     * Get the read state at the given index, in alignment start order
+     * @param index index of the state, between 0 and {@link #size()} (exclusive)
+     * @return a non-null AlignmentStateMachine
+     */
+    public AlignmentStateMachine get(final int index) {
+        return readStatesByAlignmentStart.get(index);
+    }
+
     /**
      * Advances all read states forward by one element, removing states that are
      * no long aligned to the current position.
      * @return the number of states we're removed after advancing
      */
     public int updateReadStates() {
-        int nRemoved = 0;
-        final Iterator<AlignmentStateMachine> it = iterator();
-        while (it.hasNext()) {
-            final AlignmentStateMachine state = it.next();
+        final int size = readStatesByAlignmentStart.size();
+        int nKept = 0;
+        for (int i = 0; i < size; i++) {
+            final AlignmentStateMachine state = readStatesByAlignmentStart.get(i);
             final CigarOperator op = state.stepForwardOnGenome();
-            if (op == null) {
-                // we discard the read only when we are past its end AND indel at the end of the read (if any) was
-                // already processed. Keeping the read state that returned null upon stepForwardOnGenome() is safe
-                // as the next call to stepForwardOnGenome() will return null again AND will clear hadIndel() flag.
-                it.remove();                                                // we've stepped off the end of the object
-                nRemoved++;
+            // we discard the read only when we are past its end AND indel at the end of the read (if any) was
+            // already processed. Keeping the read state that returned null upon stepForwardOnGenome() is safe
+            // as the next call to stepForwardOnGenome() will return null again AND will clear hadIndel() flag.
+            if (op != null) {
+                // shift the states we keep left over the ones that stepped off the end of their reads, preserving their order
+                if (nKept != i) {
+                    readStatesByAlignmentStart.set(nKept, state);
+                }
+                nKept++;
             }
         }
+        readStatesByAlignmentStart.subList(nKept, size).clear();
 
-        return nRemoved;
+        return size - nKept;
     }
 
     /**
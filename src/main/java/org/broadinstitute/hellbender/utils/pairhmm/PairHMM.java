@@ -70,11 +70,19 @@ public abstract class PairHMM implements Closeable{
             logger.info("Using the OpenMP multi-threaded AVX-accelerated native PairHMM implementation");
             return hmm;
         }),
+        /* Java implementation of LOGLESS_CACHING vectorized with the Java Vector API, for platforms where the native AVX
+           implementation is not available. Throws if the JVM was not started with --add-modules jdk.incubator.vector */
+        VECTOR_API_LOGLESS_CACHING(args -> {
+            final PairHMM hmm = makeVectorApiLoglessPairHMM();
+            logger.info("Using the Java Vector API-accelerated LOGLESS_CACHING PairHMM implementation");
+            return hmm;
+        }),
         /* Uses the fastest available PairHMM implementation supported on the platform.
            Order of precedence:
             1. AVX_LOGLESS_CACHING_OMP
             2. AVX_LOGLESS_CACHING
-            3. LOGLESS_CACHING
+            3. VECTOR_API_LOGLESS_CACHING
+            4. LOGLESS_CACHING
          */
         FASTEST_AVAILABLE(args -> {
             try {
@@ -91,7 +99,16 @@ public abstract class PairHMM implements Closeable{
                 return hmm;
             }
             catch ( UserException.HardwareFeatureException e ) {
-                logger.warn("***WARNING: Machine does not have the AVX instruction set support needed for the accelerated AVX PairHmm. " +
+                logger.info("AVX-accelerated native PairHMM implementation is not supported");
+            }
+            try {
+                final PairHMM hmm = makeVectorApiLoglessPairHMM();
+                logger.info("Using the Java Vector API-accelerated LOGLESS_CACHING PairHMM implementation");
+                return hmm;
+            }
+            catch ( UserException.HardwareFeatureException e ) {
+                logger.warn("***WARNING: Machine does not have the AVX instruction set support needed for the accelerated AVX PairHmm, " +
+                            "and the Java Vector API is not enabled (--java-options \"--add-modules jdk.incubator.vector\"). " +
                             "Falling back to the MUCH slower LOGLESS_CACHING implementation!");
                 return new LoglessPairHMM();
             }
@@ -108,6 +125,25 @@ public abstract class PairHMM implements Closeable{
         }
     }
 
+    /**
+     * The Vector API implementation is compiled separately, since it depends on an incubator module (see build.gradle),
+     * so we load it reflectively.
+     */
+    private static final String VECTOR_API_PAIRHMM_CLASS_NAME = "org.broadinstitute.hellbender.utils.pairhmm.VectorApiLoglessPairHMM";
+
+    private static PairHMM makeVectorApiLoglessPairHMM() {
+        final String unavailableMessage = "The Java Vector API PairHMM implementation is not available. It requires the jdk.incubator.vector module, " +
+                "which can be enabled with --java-options \"--add-modules jdk.incubator.vector\"";
+        try {
+            return (PairHMM) Class.forName(VECTOR_API_PAIRHMM_CLASS_NAME).getDeclaredConstructor().newInstance();
+        } catch ( final ReflectiveOperationException e ) {
+            throw new UserException.HardwareFeatureException(unavailableMessage, e);
+        } catch ( final LinkageError e ) {
+            // thrown when the class is present but the jdk.incubator.vector module is not
+            throw new UserException.HardwareFeatureException(unavailableMessage + " (" + e + ")");
+        }
+    }
+
     protected int maxHaplotypeLength, maxReadLength;
     protected int paddedMaxReadLength, paddedMaxHaplotypeLength;
     protected int paddedReadLength, paddedHaplotypeLength;
@@ -0,0 +1,240 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.BAMFileSpan;
+import htsjdk.samtools.BAMIndexer;
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.Chunk;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileSource;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMSortOrderChecker;
+import htsjdk.samtools.SAMTextHeaderCodec;
+import htsjdk.samtools.SBIIndexWriter;
+import htsjdk.samtools.util.BinaryCodec;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import htsjdk.samtools.util.FileExtensions;
+import htsjdk.samtools.util.Md5CalculatingOutputStream;
+import htsjdk.samtools.util.ProgressLoggerInterface;
+import htsjdk.samtools.util.RuntimeIOException;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.ParallelBlockCompressedOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A BAM writer that compresses BGZF blocks on a pool of threads.
+ *
+ * Records are encoded on the calling thread into 64KB uncompressed blocks, exactly where htsjdk's BAMFileWriter would
+ * cut them. Each full block is deflated by a worker thread with the default htsjdk deflater and compression level,
+ * and the compressed blocks are written in order, so the output is byte-identical to that of htsjdk's writer.
+ *
+ * The BAI and SBI indices need the virtual file offset of each record, which depends on the compressed size of all
+ * of the preceding blocks. Records are therefore handed to the indexers once the blocks they span have been written.
+ *
+ * Only presorted (or unsorted) output is supported: this writer checks the sort order of the records but does not
+ * sort them.
+ */
+public final class ParallelBAMFileWriter implements SAMFileWriter {
+
+    private final Path outputPath;
+    private final SAMFileHeader header;
+    private final SAMSortOrderChecker sortOrderChecker;
+    private final ParallelBlockCompressedOutputStream blockOutput;
+    private final BAMRecordCodec recordCodec;
+    private final BAMIndexer bamIndexer;
+    private final SBIIndexWriter sbiIndexer;
+
+    /**
+     * Records (or only their pointers, if there is no BAI indexer) whose virtual offsets are not known yet, in the
+     * order they were written
+     */
+    private final Deque<PendingRecord> pendingRecords = new ArrayDeque<>();
+    private long lastRecordEnd = -1L;
+
+    private ProgressLoggerInterface progressLogger;
+    private boolean isClosed = false;
+
+    private static final class PendingRecord {
+        final SAMRecord record;
+        final long start;
+        final long end;
+
+        PendingRecord(final SAMRecord record, final long start, final long end) {
+            this.record = record;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * @param outputPath path of the BAM file to write
+     * @param header header of the output; must not require sorting the records
+     * @param compressionThreads number of threads compressing blocks
+     * @param createIndex if true, write a BAI index next to the output (requires coordinate-sorted output)
+     * @param createMD5 if true, write an MD5 digest of the output next to it
+     * @param sbiGranularity if greater than 0, write an SBI splitting index with this granularity next to the output
+     */
+    public ParallelBAMFileWriter(final Path outputPath, final SAMFileHeader header, final int compressionThreads,
+                                 final boolean createIndex, final boolean createMD5, final long sbiGranularity) {
+        Utils.nonNull(outputPath);
+        Utils.nonNull(header);
+        Utils.validateArg(compressionThreads > 0, "compressionThreads must be > 0");
+        Utils.validateArg(!createIndex || header.getSortOrder() == SAMFileHeader.SortOrder.coordinate,
+                "A BAM index can only be created for coordinate-sorted output");
+
+        this.outputPath = outputPath;
+        this.header = header;
+        this.sortOrderChecker = header.getSortOrder() == SAMFileHeader.SortOrder.unsorted ? null : new SAMSortOrderChecker(header.getSortOrder());
+
+        try {
+            final OutputStream fileOutput = new BufferedOutputStream(Files.newOutputStream(outputPath));
+            final OutputStream output = createMD5 ?
+                    new Md5CalculatingOutputStream(fileOutput, outputPath.resolveSibling(outputPath.getFileName() + ".md5")) :
+                    fileOutput;
+            bamIndexer = createIndex ? new BAMIndexer(new BufferedOutputStream(Files.newOutputStream(getIndexPath(outputPath))), header) : null;
+            sbiIndexer = sbiGranularity > 0 ?
+                    new SBIIndexWriter(new BufferedOutputStream(Files.newOutputStream(outputPath.resolveSibling(outputPath.getFileName() + FileExtensions.SBI))), sbiGranularity) :
+                    null;
+            blockOutput = new ParallelBlockCompressedOutputStream(output, compressionThreads, this::indexWrittenRecords);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(outputPath.toString(), "Could not open output BAM", e);
+        }
+
+        writeHeader();
+        recordCodec = new BAMRecordCodec(header);
+        recordCodec.setOutputStream(blockOutput);
+    }
+
+    /**
+     * @return the path of the BAI index htsjdk writes for a BAM at bamPath: foo.bam -> foo.bai
+     */
+    private static Path getIndexPath(final Path bamPath) {
+        final String fileName = bamPath.getFileName().toString();
+        return bamPath.resolveSibling(fileName.endsWith(FileExtensions.BAM) ?
+                fileName.substring(0, fileName.length() - FileExtensions.BAM.length()) + FileExtensions.BAI_INDEX :
+                fileName + FileExtensions.BAI_INDEX);
+    }
+
+    /**
+     * Write the header as htsjdk's BAMFileWriter does, ending its block so that the records start in a new one
+     */
+    private void writeHeader() {
+        final BinaryCodec headerCodec = new BinaryCodec(blockOutput);
+        final StringWriter headerText = new StringWriter();
+        new SAMTextHeaderCodec().encode(headerText, header, true);
+
+        headerCodec.writeBytes(ReadUtils.BAM_MAGIC);
+        headerCodec.writeString(headerText.toString(), true, false);
+        headerCodec.writeInt(header.getSequenceDictionary().size());
+        for (final SAMSequenceRecord sequenceRecord : header.getSequenceDictionary().getSequences()) {
+            headerCodec.writeString(sequenceRecord.getSequenceName(), true, true);
+            headerCodec.writeInt(sequenceRecord.getSequenceLength());
+        }
+        blockOutput.endBlock();
+    }
+
+    @Override
+    public void addAlignment(final SAMRecord alignment) {
+        Utils.validate(!isClosed, "Cannot add alignments to a closed writer");
+        alignment.setHeaderStrict(header);
+        if (sortOrderChecker != null) {
+            final SAMRecord previous = sortOrderChecker.getPreviousRecord();
+            if (!sortOrderChecker.isSorted(alignment)) {
+                throw new IllegalArgumentException("Alignments added out of order in ParallelBAMFileWriter.addAlignment for " + outputPath +
+                        ". Sort order is " + header.getSortOrder() + ". Offending records are at [" +
+                        sortOrderChecker.getSortKey(previous) + "] and [" + sortOrderChecker.getSortKey(alignment) + "]");
+            }
+        }
+
+        final long start = blockOutput.getBlockPointer();
+        recordCodec.encode(alignment);
+        final long end = blockOutput.getBlockPointer();
+        lastRecordEnd = end;
+        if (bamIndexer != null || sbiIndexer != null) {
+            pendingRecords.add(new PendingRecord(bamIndexer != null ? shallowCopy(alignment) : null, start, end));
+            indexWrittenRecords();
+        }
+
+        if (progressLogger != null) {
+            progressLogger.record(alignment);
+        }
+    }
+
+    /**
+     * The record is indexed after this method returns, so we copy it in case the caller modifies it in the meantime
+     */
+    private static SAMRecord shallowCopy(final SAMRecord record) {
+        try {
+            return (SAMRecord) record.clone();
+        } catch (final CloneNotSupportedException e) {
+            throw new GATKException.ShouldNeverReachHereException(e);
+        }
+    }
+
+    /**
+     * Hand the records whose blocks have all been written to the indexers
+     */
+    private void indexWrittenRecords() {
+        while (!pendingRecords.isEmpty()) {
+            final PendingRecord pending = pendingRecords.peekFirst();
+            final long end = blockOutput.getVirtualOffset(pending.end);
+            if (end < 0) {
+                return;
+            }
+            final long start = blockOutput.getVirtualOffset(pending.start);
+            if (bamIndexer != null) {
+                pending.record.setFileSource(new SAMFileSource(null, new BAMFileSpan(new Chunk(start, end))));
+                bamIndexer.processAlignment(pending.record);
+            }
+            if (sbiIndexer != null) {
+                sbiIndexer.processRecord(start);
+            }
+            pendingRecords.removeFirst();
+        }
+    }
+
+    @Override
+    public SAMFileHeader getFileHeader() {
+        return header;
+    }
+
+    @Override
+    public void setProgressLogger(final ProgressLoggerInterface progressLogger) {
+        this.progressLogger = progressLogger;
+    }
+
+    @Override
+    public void close() {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        try {
+            blockOutput.close();
+        } catch (final IOException e) {
+            throw new RuntimeIOException("Error closing " + outputPath, e);
+        }
+        Utils.validate(pendingRecords.isEmpty(), "Records were left unindexed after all blocks were written");
+        if (bamIndexer != null) {
+            bamIndexer.finish();
+        }
+        if (sbiIndexer != null) {
+            final long dataFileLength = blockOutput.getBytesWritten();
+            final long finalVirtualOffset = lastRecordEnd < 0 ?
+                    BlockCompressedFilePointerUtil.makeFilePointer(dataFileLength) :
+                    blockOutput.getVirtualOffset(lastRecordEnd);
+            sbiIndexer.finish(finalVirtualOffset, dataFileLength);
+        }
+    }
+}
@@ -950,6 +950,32 @@ public final class ReadUtils {
         final boolean preSorted,
         boolean createOutputBamIndex,
         final boolean createMD5)
+    {
+        return createCommonSAMWriter(outputPath, referenceFile, header, preSorted, createOutputBamIndex, createMD5, 0);
+    }
+
+    /**
+     * Create a common SAMFileWriter for use with GATK tools, optionally compressing BAM output on multiple threads.
+     *
+     * @param outputPath - if this file has a .cram extension then a reference is required. Can not be null.
+     * @param referenceFile - the reference source to use. Can not be null if a output file has a .cram extension.
+     * @param header - header to be used for the output writer
+     * @param preSorted - if true then the records must already be sorted to match the header sort order
+     * @param createOutputBamIndex - if true an index will be created for .BAM and .CRAM files
+     * @param createMD5 - if true an MD5 file will be created
+     * @param compressionThreads - if greater than 0, BAM output that does not need to be sorted by the writer is
+     *                           written by a {@link ParallelBAMFileWriter} with this many compression threads
+     *
+     * @return SAMFileWriter
+     */
+    public static SAMFileWriter createCommonSAMWriter(
+        final Path outputPath,
+        final Path referenceFile,
+        final SAMFileHeader header,
+        final boolean preSorted,
+        boolean createOutputBamIndex,
+        final boolean createMD5,
+        final int compressionThreads)
     {
         Utils.nonNull(outputPath);
         Utils.nonNull(header);
@@ -960,6 +986,11 @@ public final class ReadUtils {
             createOutputBamIndex = false;
         }
 
+        if (compressionThreads > 0 && outputPath.toString().endsWith(FileExtensions.BAM)
+                && (preSorted || header.getSortOrder() == SAMFileHeader.SortOrder.unsorted)) {
+            return new ParallelBAMFileWriter(outputPath, header.clone(), compressionThreads, createOutputBamIndex, createMD5, 0);
+        }
+
         final SAMFileWriterFactory factory = new SAMFileWriterFactory().setCreateIndex(createOutputBamIndex).setCreateMd5File(createMD5);
         return ReadUtils.createCommonSAMWriterFromFactory(factory, outputPath, referenceFile, header, preSorted);
     }
@@ -1064,7 +1095,19 @@ public final class ReadUtils {
      * @return whether or not the base is in the adaptor
      */
     public static boolean isBaseInsideAdaptor(final GATKRead read, long basePos) {
-        final int adaptorBoundary = read.getAdaptorBoundary();
+        return isBaseInsideAdaptor(read, read.getAdaptorBoundary(), basePos);
+    }
+
+    /**
+     * Same as {@link #isBaseInsideAdaptor(GATKRead, long)}, for callers that test many positions of the same read
+     * and have already computed its adaptor boundary.
+     *
+     * @param read the read
+     * @param adaptorBoundary the result of {@link GATKRead#getAdaptorBoundary()} for the read
+     * @param basePos the position on the genome
+     * @return true if the base is inside the adaptor of the read
+     */
+    public static boolean isBaseInsideAdaptor(final GATKRead read, final int adaptorBoundary, final long basePos) {
         if (adaptorBoundary == CANNOT_COMPUTE_ADAPTOR_BOUNDARY || read.getFragmentLength() > DEFAULT_ADAPTOR_SIZE)
             return false;
 
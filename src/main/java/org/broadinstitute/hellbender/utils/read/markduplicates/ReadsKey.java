@@ -61,6 +61,13 @@ public abstract class ReadsKey {
             this.keyValue = key;
         }
 
+        /**
+         * @return the packed key value, which is equal for two keys if and only if they are equal
+         */
+        public long getKeyValue() {
+            return keyValue;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -96,6 +103,20 @@ public abstract class ReadsKey {
             this.secondReadKeyValue = secondReadKeyValue;
         }
 
+        /**
+         * @return the packed key value of the first read of the pair
+         */
+        public long getFirstReadKeyValue() {
+            return firstReadKeyValue;
+        }
+
+        /**
+         * @return the packed key value of the second read of the pair
+         */
+        public long getSecondReadKeyValue() {
+            return secondReadKeyValue;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -64,6 +64,15 @@ public final class BaseRecalibrationEngine implements Serializable {
 
     private RecalibrationTables recalTables;
 
+    /**
+     * Primitive-backed accumulators for the observations of the tables in recalTables, at the same indices.
+     * The read group table is derived when finalizing, so it has no accumulator.
+     */
+    private RecalDatumTable[] accumulationTables;
+    private RecalDatumTable qualityScoreAccumulationTable;
+
+    private int numReadGroups;
+
     private SAMFileHeader readsHeader;
 
     /**
@@ -97,7 +106,18 @@ public final class BaseRecalibrationEngine implements Serializable {
         if ( numReadGroups < 1 ) {
             throw new UserException("Number of read groups must be >= 1, but is " + numReadGroups);
         }
+        this.numReadGroups = numReadGroups;
         recalTables = new RecalibrationTables(covariates, numReadGroups);
+        accumulationTables = new RecalDatumTable[recalTables.numTables()];
+        for ( int i = 0; i < accumulationTables.length; i++ ) {
+            final NestedIntegerArray<RecalDatum> table = recalTables.getTable(i);
+            if ( ! recalTables.isReadGroupTable(table) ) {
+                accumulationTables[i] = new RecalDatumTable(table.getDimensions());
+            }
+            if ( recalTables.isQualityScoreTable(table) ) {
+                qualityScoreAccumulationTable = accumulationTables[i];
+            }
+        }
         keyCache = new CovariateKeyCache();
         cachedEventTypes = recalArgs.computeIndelBQSRTables ? EventType.values() : new EventType[]{EventType.BASE_SUBSTITUTION};
     }
@@ -149,6 +169,26 @@ public final class BaseRecalibrationEngine implements Serializable {
         numReadsProcessed++;
     }
 
+    /**
+     * Add the observations of another engine, created with the same arguments and header, to the tables of this one.
+     *
+     * Used to merge the engines of reads processed in parallel. Must be called before either engine is finalized.
+     * Observation counts merge exactly, but fractional BAQ mismatches are floating-point sums taken in a different
+     * order than in a single engine, so they may differ in the last bits (see {@link RecalDatumTable#combine}).
+     *
+     * @param other engine whose observations are added to this one; left unchanged
+     */
+    public void combine( final BaseRecalibrationEngine other ) {
+        Utils.nonNull(other);
+        Utils.validate(!finalized && !other.finalized, "Cannot combine BaseRecalibrationEngines that have already been finalized");
+        for ( int i = 0; i < accumulationTables.length; i++ ) {
+            if ( accumulationTables[i] != null ) {
+                accumulationTables[i].combine(other.accumulationTables[i]);
+            }
+        }
+        numReadsProcessed += other.numReadsProcessed;
+    }
+
     /**
      * Finalize, if appropriate, all derived data in recalibrationTables.
      *
@@ -159,6 +199,7 @@ public final class BaseRecalibrationEngine implements Serializable {
      */
     public void finalizeData() {
         Utils.validate(!finalized, "FinalizeData() has already been called");
+        recalTables = materializeRecalibrationTables();
         finalizeRecalibrationTables(recalTables);
         finalized = true;
     }
@@ -210,9 +251,24 @@ public final class BaseRecalibrationEngine implements Serializable {
 
     /**
      * Get a possibly not-final recalibration table, to deal with distributed execution.
+     *
+     * Before finalizeData() has been called, this returns a newly allocated snapshot of the observations so far.
      */
     public RecalibrationTables getRecalibrationTables() {
-        return recalTables;
+        return finalized ? recalTables : materializeRecalibrationTables();
+    }
+
+    /**
+     * Copy the accumulated observations into a new RecalibrationTables, with one RecalDatum per observed cell
+     */
+    private RecalibrationTables materializeRecalibrationTables() {
+        final RecalibrationTables tables = new RecalibrationTables(covariates, numReadGroups);
+        for ( int i = 0; i < accumulationTables.length; i++ ) {
+            if ( accumulationTables[i] != null ) {
+                RecalUtils.combineTables(tables.getTable(i), accumulationTables[i].toNestedIntegerArray());
+            }
+        }
+        return tables;
     }
 
     /**
@@ -246,7 +302,7 @@ public final class BaseRecalibrationEngine implements Serializable {
 
         final GATKRead read = recalInfo.getRead();
         final ReadCovariates readCovariates = recalInfo.getCovariatesValues();
-        final NestedIntegerArray<RecalDatum> qualityScoreTable = recalTables.getQualityScoreTable();
+        final RecalDatumTable qualityScoreTable = qualityScoreAccumulationTable;
 
         final int nCovariates = covariates.size();
         final int nSpecialCovariates = covariates.numberOfSpecialCovariates();
@@ -263,12 +319,12 @@ public final class BaseRecalibrationEngine implements Serializable {
                     final int key0 = keys[0];
                     final int key1 = keys[1];
 
-                    RecalUtils.incrementDatumOrPutIfNecessary3keys(qualityScoreTable, qual, isError, key0, key1, eventIndex);
+                    qualityScoreTable.increment3Keys(qual, isError, key0, key1, eventIndex);
 
                     for (int i = nSpecialCovariates; i < nCovariates; i++) {
                         final int keyi = keys[i];
                         if (keyi >= 0) {
-                            RecalUtils.incrementDatumOrPutIfNecessary4keys(recalTables.getTable(i), qual, isError, key0, key1, keyi, eventIndex);
+                            accumulationTables[i].increment4Keys(qual, isError, key0, key1, keyi, eventIndex);
                         }
                     }
                 }
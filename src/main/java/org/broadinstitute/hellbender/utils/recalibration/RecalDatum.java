@@ -75,6 +75,23 @@ public final class RecalDatum implements Serializable {
         empiricalQuality = UNINITIALIZED;
     }
 
+    /**
+     * Create a new RecalDatum from a number of mismatches already scaled by {@link #scaleMismatches(double)},
+     * as accumulated by {@link RecalDatumTable}
+     */
+    static RecalDatum fromScaledMismatches(final long numObservations, final double scaledNumMismatches, final byte reportedQuality) {
+        final RecalDatum datum = new RecalDatum(numObservations, 0.0, reportedQuality);
+        datum.numMismatches = scaledNumMismatches;
+        return datum;
+    }
+
+    /**
+     * @return the internal representation of the given number of mismatches
+     */
+    static double scaleMismatches(final double numMismatches) {
+        return numMismatches*MULTIPLIER;
+    }
+
     /**
      * Copy copy into this recal datum, overwriting all of this objects data
      * @param copy  RecalDatum to copy
@@ -0,0 +1,257 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Primitive-backed accumulator for the observations of one recalibration table.
+ *
+ * A {@code NestedIntegerArray<RecalDatum>} holds one {@link RecalDatum} object per leaf, and every increment walks a
+ * chain of {@code Object[]}. This table instead keeps, for each combination of the first two keys (read group and
+ * quality score), one block of parallel primitive arrays indexed by the remaining keys: the number of observations,
+ * the (scaled) number of mismatches and the reported quality of every cell. Blocks are allocated on first use, so
+ * read groups and qualities that never occur cost one null reference each.
+ *
+ * Mismatches are summed exactly as {@link RecalDatum#increment(long, double)} sums them, so converting the table
+ * with {@link #toNestedIntegerArray()} yields the same RecalDatums, bit for bit, as incrementing a
+ * {@code NestedIntegerArray<RecalDatum>} in the same order.
+ *
+ * {@link #increment3Keys} and {@link #increment4Keys} are meant for tables owned by a single thread. The
+ * {@code Concurrently} variants update the cells with atomic operations and may be called from any number of
+ * threads at once.
+ */
+public final class RecalDatumTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final VarHandle OBSERVATIONS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle MISMATCHES = MethodHandles.arrayElementVarHandle(double[].class);
+
+    private final int[] dimensions;
+
+    // number of cells in one block, and the stride of the third key within a block
+    private final int blockSize;
+    private final int innerStride;
+
+    private final AtomicReferenceArray<Block> blocks;
+
+    private static final class Block implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final long[] observations;
+        final double[] scaledMismatches;
+        final byte[] reportedQuals;
+
+        Block(final int size) {
+            observations = new long[size];
+            scaledMismatches = new double[size];
+            reportedQuals = new byte[size];
+        }
+    }
+
+    /**
+     * @param dimensions the size of each key dimension, as for the NestedIntegerArray this table replaces.
+     *                   Must have 3 or 4 dimensions.
+     */
+    public RecalDatumTable(final int... dimensions) {
+        Utils.nonNull(dimensions);
+        Utils.validateArg(dimensions.length == 3 || dimensions.length == 4, "A RecalDatumTable must have 3 or 4 dimensions");
+        for ( final int dimension : dimensions ) {
+            Utils.validateArg(dimension > 0, () -> "Invalid dimensions " + Arrays.toString(dimensions));
+        }
+        this.dimensions = Arrays.copyOf(dimensions, dimensions.length);
+        this.innerStride = dimensions[dimensions.length - 1];
+        this.blockSize = dimensions.length == 3 ? dimensions[2] : Math.multiplyExact(dimensions[2], dimensions[3]);
+        this.blocks = new AtomicReferenceArray<>(Math.multiplyExact(dimensions[0], dimensions[1]));
+    }
+
+    /**
+     * @return the dimensions of this table.  DO NOT MODIFY
+     */
+    public int[] getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Add one observation with the given error fraction to the cell at key0, key1, key2 of a 3-dimensional table
+     */
+    public void increment3Keys(final byte qual, final double isError, final int key0, final int key1, final int key2) {
+        checkKey(key2, 2);
+        increment(block(key0, key1), key2, qual, isError);
+    }
+
+    /**
+     * Add one observation with the given error fraction to the cell at key0, key1, key2, key3 of a 4-dimensional table
+     */
+    public void increment4Keys(final byte qual, final double isError, final int key0, final int key1, final int key2, final int key3) {
+        checkKey(key2, 2);
+        checkKey(key3, 3);
+        increment(block(key0, key1), key2 * innerStride + key3, qual, isError);
+    }
+
+    /**
+     * Thread-safe version of {@link #increment3Keys}
+     */
+    public void increment3KeysConcurrently(final byte qual, final double isError, final int key0, final int key1, final int key2) {
+        checkKey(key2, 2);
+        incrementAtomically(block(key0, key1), key2, qual, isError);
+    }
+
+    /**
+     * Thread-safe version of {@link #increment4Keys}
+     */
+    public void increment4KeysConcurrently(final byte qual, final double isError, final int key0, final int key1, final int key2, final int key3) {
+        checkKey(key2, 2);
+        checkKey(key3, 3);
+        incrementAtomically(block(key0, key1), key2 * innerStride + key3, qual, isError);
+    }
+
+    private static void increment(final Block block, final int cell, final byte qual, final double isError) {
+        if ( block.observations[cell]++ == 0 ) {
+            block.reportedQuals[cell] = qual;
+        }
+        block.scaledMismatches[cell] += RecalDatum.scaleMismatches(isError);
+    }
+
+    private static void incrementAtomically(final Block block, final int cell, final byte qual, final double isError) {
+        // every observation of a cell shares the same reported quality, so racing writes of it are benign
+        block.reportedQuals[cell] = qual;
+        final double increment = RecalDatum.scaleMismatches(isError);
+        double current;
+        do {
+            current = (double) MISMATCHES.getVolatile(block.scaledMismatches, cell);
+        } while ( !MISMATCHES.compareAndSet(block.scaledMismatches, cell, current, current + increment) );
+        OBSERVATIONS.getAndAdd(block.observations, cell, 1L);
+    }
+
+    private void checkKey(final int key, final int dimension) {
+        if ( key < 0 || key >= dimensions[dimension] ) {
+            throw new IllegalArgumentException("Key " + key + " is out of range for dimension " + dimension + " (max is " + (dimensions[dimension] - 1) + ")");
+        }
+    }
+
+    private Block block(final int key0, final int key1) {
+        checkKey(key0, 0);
+        checkKey(key1, 1);
+        final int index = key0 * dimensions[1] + key1;
+        final Block block = blocks.get(index);
+        if ( block != null ) {
+            return block;
+        }
+        // another thread may have allocated the block in the meantime, in which case we use its block
+        blocks.compareAndSet(index, null, new Block(blockSize));
+        return blocks.get(index);
+    }
+
+    /**
+     * Add all of the observations of other, which must have the same dimensions, to this table.
+     *
+     * The numbers of observations are summed exactly. The scaled numbers of mismatches are summed directly, unlike
+     * {@link RecalDatum#combine}, which unscales and rescales them and recomputes the reported quality. Since
+     * fractional (BAQ) errors are not exact in floating point, the result may still differ in the last bits from
+     * incrementing a single table with all of the observations, by at most about one ulp of the total per
+     * observation.
+     *
+     * Must not be called while either table is being updated.
+     *
+     * @param other table whose observations are added to this one; left unchanged
+     */
+    public void combine(final RecalDatumTable other) {
+        Utils.nonNull(other);
+        Utils.validateArg(Arrays.equals(dimensions, other.dimensions),
+                () -> "Table dimensions " + Arrays.toString(dimensions) + " not equal to " + Arrays.toString(other.dimensions));
+
+        for ( int index = 0; index < blocks.length(); index++ ) {
+            final Block otherBlock = other.blocks.get(index);
+            if ( otherBlock == null ) {
+                continue;
+            }
+            final Block myBlock = blocks.get(index);
+            if ( myBlock == null ) {
+                final Block copy = new Block(blockSize);
+                System.arraycopy(otherBlock.observations, 0, copy.observations, 0, blockSize);
+                System.arraycopy(otherBlock.scaledMismatches, 0, copy.scaledMismatches, 0, blockSize);
+                System.arraycopy(otherBlock.reportedQuals, 0, copy.reportedQuals, 0, blockSize);
+                blocks.set(index, copy);
+                continue;
+            }
+            for ( int cell = 0; cell < blockSize; cell++ ) {
+                if ( otherBlock.observations[cell] == 0 ) {
+                    continue;
+                }
+                if ( myBlock.observations[cell] == 0 ) {
+                    myBlock.reportedQuals[cell] = otherBlock.reportedQuals[cell];
+                }
+                myBlock.observations[cell] += otherBlock.observations[cell];
+                myBlock.scaledMismatches[cell] += otherBlock.scaledMismatches[cell];
+            }
+        }
+    }
+
+    /**
+     * @return true if no observation has been added to this table
+     */
+    public boolean isEmpty() {
+        for ( int index = 0; index < blocks.length(); index++ ) {
+            final Block block = blocks.get(index);
+            if ( block != null && Arrays.stream(block.observations).anyMatch(n -> n > 0) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of observations in the cell at the given keys, 0 if there is none
+     */
+    public long getNumObservations(final int... keys) {
+        final int cell = cellForKeys(keys);
+        final Block block = blocks.get(keys[0] * dimensions[1] + keys[1]);
+        return block == null ? 0L : block.observations[cell];
+    }
+
+    private int cellForKeys(final int... keys) {
+        Utils.validateArg(keys.length == dimensions.length, () -> "Exactly " + dimensions.length + " keys should be passed to this RecalDatumTable but " + keys.length + " were provided");
+        for ( int i = 0; i < keys.length; i++ ) {
+            checkKey(keys[i], i);
+        }
+        return keys.length == 3 ? keys[2] : keys[2] * innerStride + keys[3];
+    }
+
+    /**
+     * Materialize this table as the NestedIntegerArray used by {@link RecalibrationTables}, with one
+     * RecalDatum for each cell that has at least one observation.
+     *
+     * @return a newly allocated NestedIntegerArray with the contents of this table
+     */
+    public NestedIntegerArray<RecalDatum> toNestedIntegerArray() {
+        final NestedIntegerArray<RecalDatum> result = new NestedIntegerArray<>(dimensions);
+        final int[] keys = new int[dimensions.length];
+        for ( int index = 0; index < blocks.length(); index++ ) {
+            final Block block = blocks.get(index);
+            if ( block == null ) {
+                continue;
+            }
+            keys[0] = index / dimensions[1];
+            keys[1] = index % dimensions[1];
+            for ( int cell = 0; cell < blockSize; cell++ ) {
+                if ( block.observations[cell] == 0 ) {
+                    continue;
+                }
+                if ( dimensions.length == 3 ) {
+                    keys[2] = cell;
+                } else {
+                    keys[2] = cell / innerStride;
+                    keys[3] = cell % innerStride;
+                }
+                result.put(RecalDatum.fromScaledMismatches(block.observations[cell], block.scaledMismatches[cell], block.reportedQuals[cell]), keys);
+            }
+        }
+        return result;
+    }
+}
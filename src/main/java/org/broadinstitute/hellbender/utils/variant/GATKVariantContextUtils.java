@@ -29,6 +29,7 @@ import org.broadinstitute.hellbender.utils.haplotype.Event;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
 import org.broadinstitute.hellbender.utils.pileup.PileupElement;
 import org.broadinstitute.hellbender.utils.read.AlignmentUtils;
+import org.broadinstitute.hellbender.utils.variant.writers.ParallelVCFWriter;
 
 import java.io.Serializable;
 import java.nio.file.Path;
@@ -94,9 +95,36 @@ public final class GATKVariantContextUtils {
             final SAMSequenceDictionary referenceDictionary,
             final boolean createMD5,
             final Options... options)
+    {
+        return createVCFWriter(outPath, referenceDictionary, createMD5, 0, options);
+    }
+
+    /**
+     * Creates a VariantContextWriter whose outputFile type is based on the extension of the output file name,
+     * optionally formatting and compressing block-compressed VCF output on multiple threads.
+     *
+     * @param outPath output Path for this writer. May not be null.
+     * @param referenceDictionary required if on the fly indexing is set, otherwise can be null
+     * @param createMD5 true if an md5 file should be created
+     * @param encodingThreads if greater than 0, block-compressed VCF output is written by a {@link ParallelVCFWriter}
+     *                        with this many threads
+     * @param options variable length list of additional Options to be set for this writer
+     * @returns VariantContextWriter must be closed by the caller
+     */
+    public static VariantContextWriter createVCFWriter(
+            final Path outPath,
+            final SAMSequenceDictionary referenceDictionary,
+            final boolean createMD5,
+            final int encodingThreads,
+            final Options... options)
     {
         Utils.nonNull(outPath);
 
+        if (encodingThreads > 0 &&
+                VariantContextWriterBuilder.determineOutputTypeFromFile(outPath) == VariantContextWriterBuilder.OutputType.BLOCK_COMPRESSED_VCF) {
+            return new ParallelVCFWriter(outPath, referenceDictionary, encodingThreads, createMD5, options);
+        }
+
         VariantContextWriterBuilder vcWriterBuilder =
                 new VariantContextWriterBuilder().clearOptions().setOutputPath(outPath);
 
@@ -0,0 +1,302 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.util.Md5CalculatingOutputStream;
+import htsjdk.samtools.util.RuntimeIOException;
+import htsjdk.tribble.index.Index;
+import htsjdk.tribble.index.tabix.TabixFormat;
+import htsjdk.tribble.index.tabix.TabixIndexCreator;
+import htsjdk.variant.variantcontext.GenotypesContext;
+import htsjdk.variant.variantcontext.LazyGenotypesContext;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import htsjdk.variant.variantcontext.writer.Options;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.variantcontext.writer.VariantContextWriterBuilder;
+import htsjdk.variant.vcf.VCFEncoder;
+import htsjdk.variant.vcf.VCFHeader;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.ParallelBlockCompressedOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A block-compressed VCF writer that formats and compresses records on a pool of threads.
+ *
+ * Records are collected into batches on the calling thread. Each batch is formatted into VCF text by a worker thread
+ * with htsjdk's {@link VCFEncoder}, the formatted batches are appended in order to a
+ * {@link ParallelBlockCompressedOutputStream}, which compresses the BGZF blocks on its own pool of threads, and the
+ * tabix index (if requested) is built as the blocks are written. The text of the output is the same as that written
+ * by htsjdk's VCF writer with the same options.
+ *
+ * Like {@link ShardingVCFWriter}, this writer can be wrapped by a {@link GVCFWriter}.
+ */
+public final class ParallelVCFWriter implements VariantContextWriter {
+
+    /**
+     * Number of records formatted together by one worker thread
+     */
+    public static final int ENCODING_BATCH_SIZE = 256;
+
+    /**
+     * Maximum number of batches submitted for formatting but not yet written, per encoding thread
+     */
+    private static final int BATCHES_IN_FLIGHT_PER_THREAD = 4;
+
+    private final Path outputPath;
+    private final boolean doNotWriteGenotypes;
+    private final boolean allowMissingFieldsInHeader;
+    private final boolean writeFullFormatField;
+    private final ParallelBlockCompressedOutputStream blockOutput;
+    private final TabixIndexCreator indexCreator;
+    private final ExecutorService encodingPool;
+    private final int maxBatchesInFlight;
+
+    private VCFHeader header;
+    private ThreadLocal<VCFEncoder> encoders;
+
+    private List<VariantContext> currentBatch = new ArrayList<>(ENCODING_BATCH_SIZE);
+    private final Deque<Future<EncodedBatch>> batchesInFlight = new ArrayDeque<>();
+
+    /**
+     * Records whose virtual offsets are not known yet, in the order they were written. Only used when indexing.
+     */
+    private final Deque<PendingRecord> pendingRecords = new ArrayDeque<>();
+
+    private boolean isClosed = false;
+
+    private static final class EncodedBatch {
+        final List<VariantContext> records;
+        final byte[][] lines;
+
+        EncodedBatch(final List<VariantContext> records, final byte[][] lines) {
+            this.records = records;
+            this.lines = lines;
+        }
+    }
+
+    private static final class PendingRecord {
+        final VariantContext record;
+        final long start;
+
+        PendingRecord(final VariantContext record, final long start) {
+            this.record = record;
+            this.start = start;
+        }
+    }
+
+    /**
+     * @param outputPath path of the block-compressed VCF to write
+     * @param dictionary sequence dictionary for the tabix index; may be null if no index is created
+     * @param threads number of threads formatting records, and number of threads compressing blocks
+     * @param createMD5 if true, write an MD5 digest of the output next to it
+     * @param options vcf writer options. {@link Options#INDEX_ON_THE_FLY} creates a tabix index.
+     */
+    public ParallelVCFWriter(final Path outputPath,
+                             final SAMSequenceDictionary dictionary,
+                             final int threads,
+                             final boolean createMD5,
+                             final Options... options) {
+        Utils.nonNull(outputPath);
+        Utils.validateArg(threads > 0, "threads must be > 0");
+        final List<Options> optionList = Arrays.asList(options);
+        this.outputPath = outputPath;
+        this.doNotWriteGenotypes = optionList.contains(Options.DO_NOT_WRITE_GENOTYPES);
+        this.allowMissingFieldsInHeader = optionList.contains(Options.ALLOW_MISSING_FIELDS_IN_HEADER);
+        this.writeFullFormatField = optionList.contains(Options.WRITE_FULL_FORMAT_FIELD);
+        this.indexCreator = optionList.contains(Options.INDEX_ON_THE_FLY) ? new TabixIndexCreator(dictionary, TabixFormat.VCF) : null;
+        this.maxBatchesInFlight = threads * BATCHES_IN_FLIGHT_PER_THREAD;
+
+        try {
+            final OutputStream fileOutput = new BufferedOutputStream(Files.newOutputStream(outputPath));
+            final OutputStream output = createMD5 ?
+                    new Md5CalculatingOutputStream(fileOutput, outputPath.resolveSibling(outputPath.getFileName() + ".md5")) :
+                    fileOutput;
+            blockOutput = new ParallelBlockCompressedOutputStream(output, threads, indexCreator == null ? null : this::indexWrittenRecords);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(outputPath.toString(), "Could not open output VCF", e);
+        }
+        encodingPool = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("vcfEncoding-thread-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Set the header used to format the records, without writing it
+     */
+    @Override
+    public void setHeader(final VCFHeader header) {
+        Utils.nonNull(header);
+        Utils.validate(this.header == null, "Cannot redefine header");
+        // as in htsjdk's VCFWriter, sites-only output is formatted with a header that has no samples
+        this.header = doNotWriteGenotypes ? new VCFHeader(header.getMetaDataInSortedOrder()) : header;
+        final VCFHeader encodingHeader = this.header;
+        encoders = ThreadLocal.withInitial(() -> new VCFEncoder(encodingHeader, allowMissingFieldsInHeader, writeFullFormatField));
+    }
+
+    @Override
+    public void writeHeader(final VCFHeader header) {
+        setHeader(header);
+        final byte[] headerText = formatHeader(header);
+        try {
+            blockOutput.write(headerText);
+            // htsjdk's VCFWriter flushes its BlockCompressedOutputStream after the header, which puts the header in
+            // blocks of its own, so we do the same for the blocks and index offsets to be identical
+            blockOutput.endBlock();
+        } catch (final IOException e) {
+            throw new RuntimeIOException("Error writing VCF header to " + outputPath, e);
+        }
+    }
+
+    /**
+     * Format the header with htsjdk's own VCF writer, so that it is written exactly as htsjdk writes it
+     */
+    private byte[] formatHeader(final VCFHeader header) {
+        final ByteArrayOutputStream headerText = new ByteArrayOutputStream();
+        final VariantContextWriterBuilder builder = new VariantContextWriterBuilder().clearOptions().setOutputVCFStream(headerText);
+        if (doNotWriteGenotypes) {
+            builder.setOption(Options.DO_NOT_WRITE_GENOTYPES);
+        }
+        if (allowMissingFieldsInHeader) {
+            builder.setOption(Options.ALLOW_MISSING_FIELDS_IN_HEADER);
+        }
+        try (final VariantContextWriter headerWriter = builder.build()) {
+            headerWriter.writeHeader(header);
+        }
+        return headerText.toByteArray();
+    }
+
+    @Override
+    public void add(final VariantContext vc) {
+        Utils.nonNull(vc);
+        Utils.validate(!isClosed, "Cannot add variants to a closed writer");
+        Utils.validate(header != null, "The VCF header must be set before records can be added");
+
+        final VariantContext record = doNotWriteGenotypes ? new VariantContextBuilder(vc).noGenotypes().make() : vc;
+        decodeGenotypesIfNeeded(record);
+        currentBatch.add(record);
+        if (currentBatch.size() == ENCODING_BATCH_SIZE) {
+            submitCurrentBatch();
+        }
+    }
+
+    /**
+     * VCFEncoder copies lazily-parsed genotypes to the output as they are when they are still in their original VCF
+     * text, but otherwise decodes them. The codecs that decode them are not thread-safe, so that has to be done here
+     * rather than on the encoding threads.
+     */
+    private static void decodeGenotypesIfNeeded(final VariantContext vc) {
+        final GenotypesContext genotypes = vc.getGenotypes();
+        if (genotypes.isLazyWithData() && !(((LazyGenotypesContext) genotypes).getUnparsedGenotypeData() instanceof String)) {
+            genotypes.iterator();
+        }
+    }
+
+    private void submitCurrentBatch() {
+        if (currentBatch.isEmpty()) {
+            return;
+        }
+        final List<VariantContext> batch = currentBatch;
+        batchesInFlight.add(encodingPool.submit(() -> encodeBatch(batch)));
+        currentBatch = new ArrayList<>(ENCODING_BATCH_SIZE);
+
+        // write out the batches that are already done, and wait for the oldest one if too many are pending
+        while (!batchesInFlight.isEmpty() && (batchesInFlight.size() > maxBatchesInFlight || batchesInFlight.peekFirst().isDone())) {
+            writeOldestBatch();
+        }
+    }
+
+    private EncodedBatch encodeBatch(final List<VariantContext> batch) {
+        final VCFEncoder encoder = encoders.get();
+        final byte[][] lines = new byte[batch.size()][];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = (encoder.encode(batch.get(i)) + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+        return new EncodedBatch(batch, lines);
+    }
+
+    private void writeOldestBatch() {
+        final EncodedBatch batch;
+        try {
+            batch = batchesInFlight.removeFirst().get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while formatting VCF records", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Error formatting VCF records", e.getCause());
+        }
+
+        try {
+            for (int i = 0; i < batch.lines.length; i++) {
+                if (indexCreator != null) {
+                    pendingRecords.add(new PendingRecord(batch.records.get(i), blockOutput.getBlockPointer()));
+                }
+                blockOutput.write(batch.lines[i]);
+            }
+        } catch (final IOException e) {
+            throw new RuntimeIOException("Error writing VCF records to " + outputPath, e);
+        }
+    }
+
+    /**
+     * Hand the records whose first block has been written to the indexer
+     */
+    private void indexWrittenRecords() {
+        while (!pendingRecords.isEmpty()) {
+            final long start = blockOutput.getVirtualOffset(pendingRecords.peekFirst().start);
+            if (start < 0) {
+                return;
+            }
+            indexCreator.addFeature(pendingRecords.removeFirst().record, start);
+        }
+    }
+
+    @Override
+    public boolean checkError() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        try {
+            submitCurrentBatch();
+            while (!batchesInFlight.isEmpty()) {
+                writeOldestBatch();
+            }
+            blockOutput.close();
+            if (indexCreator != null) {
+                Utils.validate(pendingRecords.isEmpty(), "Records were left unindexed after all blocks were written");
+                final Index index = indexCreator.finalizeIndex(blockOutput.getVirtualOffset(blockOutput.getBlockPointer()));
+                index.writeBasedOnFeaturePath(outputPath);
+            }
+        } catch (final IOException e) {
+            throw new RuntimeIOException("Error closing " + outputPath, e);
+        } finally {
+            encodingPool.shutdownNow();
+        }
+    }
+}
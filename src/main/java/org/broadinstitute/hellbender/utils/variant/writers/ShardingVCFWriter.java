@@ -31,6 +31,7 @@ public class ShardingVCFWriter implements VariantContextWriter {
     private final Path basePath;
     private final SAMSequenceDictionary dictionary;
     private final boolean createMD5;
+    private final int encodingThreads;
     private final Options[] options;
 
     /** Current shard  */
@@ -54,12 +55,32 @@ public class ShardingVCFWriter implements VariantContextWriter {
                              final SAMSequenceDictionary dictionary,
                              final boolean createMD5,
                              final Options... options) {
+        this(basePath, maxVariantsPerShard, dictionary, createMD5, 0, options);
+    }
+
+    /**
+     * Create a new sharding VCF writer whose shards are formatted and compressed on multiple threads
+     *
+     * @param basePath              base path of the output VCFs. The shard designation and file extension will be added.
+     * @param maxVariantsPerShard   max number of records per file (last shard may have less)
+     * @param dictionary            sequence dictionary for this writer
+     * @param createMD5             enable MD5 file creation
+     * @param encodingThreads       if greater than 0, write each shard with a {@link ParallelVCFWriter} using this many threads
+     * @param options               vcf writer options
+     */
+    public ShardingVCFWriter(final Path basePath,
+                             final int maxVariantsPerShard,
+                             final SAMSequenceDictionary dictionary,
+                             final boolean createMD5,
+                             final int encodingThreads,
+                             final Options... options) {
         Utils.nonNull(basePath);
         Utils.validateArg(maxVariantsPerShard > 0, "maxVariantsPerShard must be positive");
         this.basePath = IOUtils.removeExtension(basePath, FileExtensions.VCF_LIST);
         this.maxVariantsPerShard = maxVariantsPerShard;
         this.dictionary = dictionary;
         this.createMD5 = createMD5;
+        this.encodingThreads = encodingThreads;
         this.options = options;
 
         // Initialize first shard
@@ -104,6 +125,7 @@ public class ShardingVCFWriter implements VariantContextWriter {
                 outPath,
                 dictionary,
                 createMD5,
+                encodingThreads,
                 options);
     }
 
@@ -0,0 +1,130 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.reference.ReferenceSequence;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public final class MemoryMappedReferenceSourceUnitTest extends GATKBaseTest {
+
+    private static final Path TEST_REFERENCE = IOUtils.getPath(hg19MiniReference);
+    private static final Path TEST_REFERENCE_BGZ = IOUtils.getPath(hg19MiniReference + ".gz");
+
+    private static List<SimpleInterval> randomIntervals(final ReferenceDataSource reference, final int count, final long seed) {
+        final Random random = new Random(seed);
+        final List<SimpleInterval> intervals = new ArrayList<>(count);
+        final List<SAMSequenceRecord> sequences = reference.getSequenceDictionary().getSequences();
+        for (int i = 0; i < count; i++) {
+            final SAMSequenceRecord sequence = sequences.get(random.nextInt(sequences.size()));
+            final int start = 1 + random.nextInt(sequence.getSequenceLength());
+            final int end = Math.min(sequence.getSequenceLength(), start + random.nextInt(500));
+            intervals.add(new SimpleInterval(sequence.getSequenceName(), start, end));
+        }
+        return intervals;
+    }
+
+    @DataProvider(name = "preserveBases")
+    public Object[][] preserveBases() {
+        return new Object[][] {{false}, {true}};
+    }
+
+    @Test(dataProvider = "preserveBases")
+    public void testQueriesMatchReferenceFileSource(final boolean preserveAmbiguityCodesAndCapitalization) {
+        try (final ReferenceDataSource expected = new ReferenceFileSource(TEST_REFERENCE, preserveAmbiguityCodesAndCapitalization);
+             final ReferenceDataSource actual = new MemoryMappedReferenceSource(TEST_REFERENCE, preserveAmbiguityCodesAndCapitalization)) {
+            Assert.assertEquals(actual.getSequenceDictionary(), expected.getSequenceDictionary());
+            for (final SimpleInterval interval : randomIntervals(expected, 2000, 17)) {
+                final ReferenceSequence expectedSequence = expected.queryAndPrefetch(interval);
+                final ReferenceSequence actualSequence = actual.queryAndPrefetch(interval);
+                Assert.assertEquals(actualSequence.getName(), expectedSequence.getName());
+                Assert.assertEquals(actualSequence.getContigIndex(), expectedSequence.getContigIndex());
+                Assert.assertEquals(actualSequence.getBases(), expectedSequence.getBases(), interval.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testWholeContigs() {
+        try (final ReferenceDataSource expected = new ReferenceFileSource(TEST_REFERENCE);
+             final ReferenceDataSource actual = new MemoryMappedReferenceSource(TEST_REFERENCE)) {
+            for (final SAMSequenceRecord sequence : expected.getSequenceDictionary().getSequences()) {
+                final SimpleInterval interval = new SimpleInterval(sequence.getSequenceName(), 1, sequence.getSequenceLength());
+                Assert.assertEquals(actual.queryAndPrefetch(interval).getBases(), expected.queryAndPrefetch(interval).getBases());
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentQueries() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (final ReferenceDataSource expected = new ReferenceFileSource(TEST_REFERENCE);
+             final ReferenceDataSource shared = new MemoryMappedReferenceSource(TEST_REFERENCE)) {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                final List<SimpleInterval> intervals = randomIntervals(expected, 500, thread);
+                final List<byte[]> expectedBases = new ArrayList<>();
+                intervals.forEach(interval -> expectedBases.add(expected.queryAndPrefetch(interval).getBases()));
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < intervals.size(); i++) {
+                        if (!Arrays.equals(shared.queryAndPrefetch(intervals.get(i)).getBases(), expectedBases.get(i))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testOfMemoryMappedFallsBackForBlockCompressedFasta() {
+        Assert.assertFalse(MemoryMappedReferenceSource.canMemoryMap(TEST_REFERENCE_BGZ));
+        try (final ReferenceDataSource reference = ReferenceDataSource.ofMemoryMapped(TEST_REFERENCE_BGZ)) {
+            Assert.assertTrue(reference instanceof ReferenceFileSource);
+            Assert.assertEquals(new String(reference.queryAndPrefetch(new SimpleInterval("1", 11041, 11045)).getBases()), "GCAAA");
+        }
+        try (final ReferenceDataSource reference = ReferenceDataSource.ofMemoryMapped(TEST_REFERENCE)) {
+            Assert.assertTrue(reference instanceof MemoryMappedReferenceSource);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MissingReferenceFaiFile.class)
+    public void testReferenceWithMissingFaiFile() {
+        new MemoryMappedReferenceSource(IOUtils.getPath(publicTestDir + "fastaWithoutFai.fasta"));
+    }
+
+    @Test(expectedExceptions = UserException.MissingContigInSequenceDictionary.class)
+    public void testMissingContig() {
+        try (final ReferenceDataSource reference = new MemoryMappedReferenceSource(TEST_REFERENCE)) {
+            reference.queryAndPrefetch("nonexistent", 1, 10);
+        }
+    }
+
+    @Test(expectedExceptions = SAMException.class)
+    public void testQueryPastEndOfContig() {
+        try (final ReferenceDataSource reference = new MemoryMappedReferenceSource(TEST_REFERENCE)) {
+            final int length = reference.getSequenceDictionary().getSequence("1").getSequenceLength();
+            reference.queryAndPrefetch("1", length - 5, length + 1);
+        }
+    }
+}
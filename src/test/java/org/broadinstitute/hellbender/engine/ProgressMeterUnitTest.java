@@ -9,6 +9,7 @@ import org.testng.annotations.Test;
 import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.LongSupplier;
 
 public class ProgressMeterUnitTest extends GATKBaseTest {
@@ -185,4 +186,26 @@ public class ProgressMeterUnitTest extends GATKBaseTest {
         disabledPM.stop();
         Assert.assertFalse(disabledPM.stopped());
     }
+
+    @Test
+    public void testStatisticsAreQueriedWithEachProgressLine() {
+        final ProgressMeter pm = new ProgressMeter(1.0, new ListBasedTimeFunction(Arrays.asList(0L, 1000L, 2000L, 3000L)));
+        pm.setRecordsBetweenTimeChecks(1L);
+        final AtomicLong numQueries = new AtomicLong(0L);
+        pm.addStatistic("Queries", numQueries::incrementAndGet);
+        pm.start();
+        pm.update(new SimpleInterval("1", 1, 1));
+        pm.update(new SimpleInterval("1", 2, 2));
+        pm.stop();
+        // once for each progress line (including the final one output by stop()), and once more for the summary
+        Assert.assertEquals(pm.numLoggerUpdates(), 3);
+        Assert.assertEquals(numQueries.get(), 4L);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testCantAddStatisticAfterStart() {
+        final ProgressMeter pm = new ProgressMeter();
+        pm.start();
+        pm.addStatistic("Too late", () -> 0L);
+    }
 }
@@ -351,6 +351,26 @@ public final class ReadsPathDataSourceUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test(dataProvider = "MultipleFilesTraversalWithIntervalsData")
+    public void testMultipleFilesTraversalWithReadAhead( final List<Path> samFiles, final List<SimpleInterval> intervals, final List<String> expectedReadNames ) {
+        try (ReadsPathDataSource readsSource = new ReadsPathDataSource(samFiles, SamReaderFactory.makeDefault().enable(SamReaderFactory.Option.EAGERLY_DECODE))) {
+            // a batch size smaller than the number of reads, so that the traversal spans several batches
+            readsSource.setReadAheadBatchSize(2);
+            readsSource.setTraversalBounds(intervals);
+
+            final List<String> readNames = new ArrayList<>();
+            for (GATKRead read : readsSource) {
+                readNames.add(read.getName());
+            }
+            Assert.assertEquals(readNames, expectedReadNames, "Wrong reads returned in read-ahead traversal by intervals of " + samFiles);
+
+            // a second iteration must close the read-ahead threads of the first one and start again
+            final List<String> secondReadNames = new ArrayList<>();
+            readsSource.iterator().forEachRemaining(read -> secondReadNames.add(read.getName()));
+            Assert.assertEquals(secondReadNames, expectedReadNames);
+        }
+    }
+
     @DataProvider(name = "MultipleFilesQueryByIntervalData")
     public Object[][] getMultipleFilesQueryByIntervalData() {
         // Files, with a single query interval, and expected read names in the expected order
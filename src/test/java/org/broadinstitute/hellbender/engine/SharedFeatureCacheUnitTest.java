@@ -0,0 +1,204 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+public final class SharedFeatureCacheUnitTest extends GATKBaseTest {
+    private static final String TEST_VCF = toolsTestDir + "walkers/varianteval/VariantEval/CEU.trio.callsForVE.vcf";
+
+    private static List<SimpleInterval> randomIntervals(final int count, final long seed) {
+        final Random random = new Random(seed);
+        final List<SimpleInterval> intervals = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int start = 1000000 + random.nextInt(1000000);
+            intervals.add(new SimpleInterval("1", start, start + random.nextInt(5000)));
+        }
+        return intervals;
+    }
+
+    private static List<String> describe(final List<VariantContext> variants) {
+        return variants.stream().map(vc -> vc.getContig() + ":" + vc.getStart() + ":" + vc.getAlleles()).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testQueriesMatchPrivateCache() {
+        final SharedFeatureCache cache = new SharedFeatureCache(1000, 1000);
+        try (final FeatureDataSource<VariantContext> expected = new FeatureDataSource<>(TEST_VCF);
+             final FeatureDataSource<VariantContext> actual = new FeatureDataSource<>(TEST_VCF)) {
+            actual.setSharedCache(cache);
+            int nonEmptyQueries = 0;
+            for (final SimpleInterval interval : randomIntervals(2000, 5)) {
+                final List<VariantContext> expectedVariants = expected.queryAndPrefetch(interval);
+                Assert.assertEquals(describe(actual.queryAndPrefetch(interval)), describe(expectedVariants), interval.toString());
+                nonEmptyQueries += expectedVariants.isEmpty() ? 0 : 1;
+            }
+            Assert.assertTrue(nonEmptyQueries > 0);
+        }
+        Assert.assertTrue(cache.getHits() > 0);
+        Assert.assertTrue(cache.getMisses() > 0);
+    }
+
+    @Test
+    public void testConcurrentQueries() throws Exception {
+        final SharedFeatureCache cache = new SharedFeatureCache(64, 1000);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (final FeatureDataSource<VariantContext> expected = new FeatureDataSource<>(TEST_VCF)) {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                final List<SimpleInterval> intervals = randomIntervals(500, thread);
+                final List<List<String>> expectedVariants = new ArrayList<>();
+                intervals.forEach(interval -> expectedVariants.add(describe(expected.queryAndPrefetch(interval))));
+                results.add(executor.submit(() -> {
+                    // each thread has its own data source, as each traversal thread has its own FeatureManager
+                    try (final FeatureDataSource<VariantContext> threadSource = new FeatureDataSource<>(TEST_VCF)) {
+                        threadSource.setSharedCache(cache);
+                        for (int i = 0; i < intervals.size(); i++) {
+                            if (!describe(threadSource.queryAndPrefetch(intervals.get(i))).equals(expectedVariants.get(i))) {
+                                return false;
+                            }
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentGenotypeLookupsOnSharedRecords() throws Exception {
+        // large enough to hold every block of the interval, so that nothing is evicted and loaded again
+        final SharedFeatureCache cache = new SharedFeatureCache(16 * 1000, 1000);
+        final SimpleInterval interval = new SimpleInterval("1", 1000000, 1200000);
+        final int numThreads = 8;
+
+        // what each thread should see, from records that are not shared
+        final List<String> samples;
+        final List<String> expectedGenotypes = new ArrayList<>();
+        try (final FeatureDataSource<VariantContext> expected = new FeatureDataSource<>(TEST_VCF)) {
+            final List<VariantContext> variants = expected.queryAndPrefetch(interval);
+            Assert.assertFalse(variants.isEmpty());
+            samples = new ArrayList<>(variants.get(0).getSampleNamesOrderedByName());
+            Assert.assertTrue(samples.size() > 1);
+            variants.forEach(vc -> expectedGenotypes.add(describeGenotypes(vc, samples)));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try (final FeatureDataSource<VariantContext> loader = new FeatureDataSource<>(TEST_VCF)) {
+            // load the blocks, so that every thread below gets the very same record instances from the cache
+            loader.setSharedCache(cache);
+            loader.queryAndPrefetch(interval);
+
+            final CyclicBarrier start = new CyclicBarrier(numThreads);
+            final List<Future<List<String>>> results = new ArrayList<>();
+            for (int thread = 0; thread < numThreads; thread++) {
+                results.add(executor.submit(() -> {
+                    try (final FeatureDataSource<VariantContext> threadSource = new FeatureDataSource<>(TEST_VCF)) {
+                        threadSource.setSharedCache(cache);
+                        final List<VariantContext> variants = threadSource.queryAndPrefetch(interval);
+                        start.await();
+                        final List<String> genotypes = new ArrayList<>();
+                        variants.forEach(vc -> genotypes.add(describeGenotypes(vc, samples)));
+                        return genotypes;
+                    }
+                }));
+            }
+            for (final Future<List<String>> result : results) {
+                Assert.assertEquals(result.get(), expectedGenotypes);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static String describeGenotypes(final VariantContext vc, final List<String> samples) {
+        final StringBuilder description = new StringBuilder(vc.getStart() + ":" + vc.getSampleNamesOrderedByName());
+        for (final String sample : samples) {
+            description.append(' ').append(vc.getGenotype(sample).getGenotypeString());
+        }
+        return description.append(' ').append(vc.getHomRefCount()).append(' ').append(vc.getHetCount()).toString();
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        final SharedFeatureCache cache = new SharedFeatureCache(1000, 1000);
+        try (final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(TEST_VCF)) {
+            source.setSharedCache(cache);
+
+            // spans blocks 1000 and 1001
+            source.queryAndPrefetch(new SimpleInterval("1", 1000500, 1001500));
+            Assert.assertEquals(cache.getMisses(), 2);
+            Assert.assertEquals(cache.getHits(), 0);
+
+            source.queryAndPrefetch(new SimpleInterval("1", 1000600, 1000700));
+            Assert.assertEquals(cache.getMisses(), 2);
+            Assert.assertEquals(cache.getHits(), 1);
+            Assert.assertEquals(cache.getEvictions(), 0);
+        }
+    }
+
+    @Test
+    public void testEvictions() {
+        final SharedFeatureCache cache = new SharedFeatureCache(16, 1000);
+        try (final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(TEST_VCF)) {
+            source.setSharedCache(cache);
+            // far more blocks than the cache can hold
+            for (int block = 0; block < 100; block++) {
+                source.queryAndPrefetch(new SimpleInterval("1", 2000001 + block * 1000, 2000001 + block * 1000));
+            }
+            Assert.assertEquals(cache.getMisses(), 100);
+            Assert.assertTrue(cache.getEvictions() >= 100 - 16);
+        }
+    }
+
+    @Test
+    public void testSmallCacheHoldsNoMoreThanMaxBlocks() {
+        for (final int maxBlocks : new int[] {1, 5, 15}) {
+            final SharedFeatureCache cache = new SharedFeatureCache(maxBlocks, 1000);
+            try (final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(TEST_VCF)) {
+                source.setSharedCache(cache);
+                // one more block than the cache can hold
+                for (int block = 0; block <= maxBlocks; block++) {
+                    source.queryAndPrefetch(new SimpleInterval("1", 2000001 + block * 1000, 2000001 + block * 1000));
+                }
+                Assert.assertEquals(cache.getMisses(), maxBlocks + 1);
+                Assert.assertTrue(cache.getEvictions() >= 1, "maxBlocks " + maxBlocks);
+            }
+        }
+    }
+
+    @Test
+    public void testReturnedListsAreIndependentOfCache() {
+        final SharedFeatureCache cache = new SharedFeatureCache(16);
+        try (final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(TEST_VCF)) {
+            source.setSharedCache(cache);
+            final SimpleInterval interval = new SimpleInterval("1", 1000000, 1200000);
+            final List<VariantContext> variants = source.queryAndPrefetch(interval);
+            final int numVariants = variants.size();
+            Assert.assertTrue(numVariants > 0);
+            variants.clear();
+            Assert.assertEquals(source.queryAndPrefetch(interval).size(), numVariants);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new SharedFeatureCache(0);
+    }
+}
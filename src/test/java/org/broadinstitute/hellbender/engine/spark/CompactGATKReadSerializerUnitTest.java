@@ -0,0 +1,107 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Output;
+import htsjdk.samtools.SAMTag;
+import org.apache.spark.SparkConf;
+import org.apache.spark.serializer.KryoRegistrator;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.ReadsDataSource;
+import org.broadinstitute.hellbender.engine.ReadsPathDataSource;
+import org.broadinstitute.hellbender.testutils.SparkTestUtils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CompactGATKReadSerializerUnitTest extends GATKBaseTest {
+
+    public static class TestGATKRegistrator implements KryoRegistrator {
+        @SuppressWarnings("unchecked")
+        @Override
+        public void registerClasses(Kryo kryo) {
+            kryo.register(SAMRecordToGATKReadAdapter.class, new CompactGATKReadSerializer());
+        }
+    }
+
+    private static SparkConf getConf() {
+        return new SparkConf().set("spark.kryo.registrator",
+                "org.broadinstitute.hellbender.engine.spark.CompactGATKReadSerializerUnitTest$TestGATKRegistrator");
+    }
+
+    @Test
+    public void testSerializerRoundTripHeaderlessRead() {
+        final GATKRead read = ArtificialReadUtils.createHeaderlessSamBackedRead("read1", "1", 100, 50);
+        read.setMappingQuality(60);
+        read.setAttribute(SAMTag.RG.name(), "readGroup");
+        read.setAttribute(SAMTag.NM.name(), 2);
+        final GATKRead roundTrippedRead = SparkTestUtils.roundTripInKryo(read, GATKRead.class, getConf());
+        Assert.assertEquals(roundTrippedRead, read);
+        Assert.assertEquals(roundTrippedRead.getReadGroup(), "readGroup");
+    }
+
+    @Test
+    public void testMatesAndUnmappedReads() {
+        final GATKRead read = ArtificialReadUtils.createHeaderlessSamBackedRead("read1", "1", 100, 50);
+        read.setIsPaired(true);
+        read.setMatePosition("1", 300);
+        read.setFragmentLength(250);
+        Assert.assertEquals(SparkTestUtils.roundTripInKryo(read, GATKRead.class, getConf()), read);
+
+        read.setMatePosition("2", 1);
+        read.setFragmentLength(0);
+        Assert.assertEquals(SparkTestUtils.roundTripInKryo(read, GATKRead.class, getConf()), read);
+
+        read.setIsReverseStrand(true);
+        read.setFragmentLength(-250);
+        Assert.assertEquals(SparkTestUtils.roundTripInKryo(read, GATKRead.class, getConf()), read);
+
+        read.setMateIsUnplaced();
+        Assert.assertEquals(SparkTestUtils.roundTripInKryo(read, GATKRead.class, getConf()), read);
+
+        read.setIsUnplaced();
+        final GATKRead roundTrippedRead = SparkTestUtils.roundTripInKryo(read, GATKRead.class, getConf());
+        Assert.assertEquals(roundTrippedRead, read);
+        Assert.assertTrue(roundTrippedRead.isUnmapped());
+        Assert.assertNull(roundTrippedRead.getContig());
+    }
+
+    @Test
+    public void testReadsFromBam() {
+        final List<GATKRead> reads = new ArrayList<>();
+        try (final ReadsDataSource readsSource = new ReadsPathDataSource(Paths.get(publicTestDir, "NA12878.chr17_69k_70k.dictFix.bam"))) {
+            readsSource.forEach(reads::add);
+        }
+        // modify some of the reads, so that their BAM encoding is no longer the one they were read with
+        for (int i = 0; i < reads.size(); i += 2) {
+            reads.get(i).setAttribute("XX", i);
+        }
+
+        final List<GATKRead> roundTrippedReads = SparkTestUtils.roundTripInKryo(reads, ArrayList.class, getConf());
+        Assert.assertEquals(roundTrippedReads, reads);
+        for (int i = 0; i < reads.size(); i += 2) {
+            Assert.assertEquals(roundTrippedReads.get(i).getAttributeAsInteger("XX").intValue(), i);
+        }
+    }
+
+    @Test
+    public void testSmallerThanSAMRecordToGATKReadAdapterSerializer() {
+        final GATKRead read = ArtificialReadUtils.createHeaderlessSamBackedRead("read1", "1", 100, 150);
+        read.setAttribute(SAMTag.RG.name(), "readGroup");
+        Assert.assertTrue(getSerializedSize(read, new CompactGATKReadSerializer()) < getSerializedSize(read, new SAMRecordToGATKReadAdapterSerializer()));
+    }
+
+    private static int getSerializedSize(final GATKRead read, final Serializer<SAMRecordToGATKReadAdapter> serializer) {
+        final Kryo kryo = new Kryo();
+        kryo.register(SAMRecordToGATKReadAdapter.class, serializer);
+        final Output output = new Output(1024, -1);
+        kryo.writeObject(output, read);
+        return output.position();
+    }
+}
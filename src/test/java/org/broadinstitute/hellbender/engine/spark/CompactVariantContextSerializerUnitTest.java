@@ -0,0 +1,124 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.esotericsoftware.kryo.Kryo;
+import htsjdk.variant.variantcontext.*;
+import htsjdk.variant.vcf.VCFConstants;
+import org.apache.spark.SparkConf;
+import org.apache.spark.serializer.KryoRegistrator;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.testutils.SparkTestUtils;
+import org.broadinstitute.hellbender.testutils.VariantContextTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+public class CompactVariantContextSerializerUnitTest extends GATKBaseTest {
+
+    public static class TestGATKRegistrator implements KryoRegistrator {
+        @SuppressWarnings("unchecked")
+        @Override
+        public void registerClasses(Kryo kryo) {
+            kryo.register(VariantContext.class, new CompactVariantContextSerializer());
+        }
+    }
+
+    private static SparkConf getConf() {
+        return new SparkConf().set("spark.kryo.registrator",
+                "org.broadinstitute.hellbender.engine.spark.CompactVariantContextSerializerUnitTest$TestGATKRegistrator");
+    }
+
+    private static void assertRoundTrips(final List<VariantContext> variants) {
+        final List<VariantContext> roundTrippedVariants = SparkTestUtils.roundTripInKryo(new ArrayList<>(variants), ArrayList.class, getConf());
+        Assert.assertEquals(roundTrippedVariants.size(), variants.size());
+        for (int i = 0; i < variants.size(); i++) {
+            final VariantContext roundTripped = roundTrippedVariants.get(i);
+            final VariantContext expected = variants.get(i);
+            VariantContextTestUtils.assertVariantContextsAreEqual(roundTripped, expected, Collections.emptyList(), Collections.emptyList());
+            Assert.assertEquals(roundTripped.getSource(), expected.getSource());
+            Assert.assertEquals(roundTripped.isFullyDecoded(), expected.isFullyDecoded());
+            Assert.assertEquals(roundTripped.getAttributes(), expected.getAttributes());
+        }
+    }
+
+    @DataProvider(name = "vcfs")
+    public Object[][] vcfs() {
+        return new Object[][] {
+                {publicTestDir + "Homo_sapiens_assembly19.dbsnp135.chr1_1M.exome_intervals.vcf"},
+                {publicTestDir + "joint_calling.chr1_1M.1kg_samples.10samples.noINFO.vcf"},
+        };
+    }
+
+    @Test(dataProvider = "vcfs")
+    public void testRoundTripVariantsFromVcf(final String vcf) {
+        assertRoundTrips(VariantContextTestUtils.readEntireVCFIntoMemory(vcf).getRight());
+    }
+
+    @Test
+    public void testRoundTripTypedAttributes() {
+        final Allele ref = Allele.create("A", true);
+        final Allele alt = Allele.create("ACGT", false);
+        final List<Allele> alleles = Arrays.asList(ref, alt, Allele.NON_REF_ALLELE);
+
+        final Genotype genotype = new GenotypeBuilder("sample1", Arrays.asList(ref, alt))
+                .phased(true).GQ(30).DP(12).AD(new int[] {6, 6, 0}).PL(new int[] {40, 0, 45, 99, 99, 99})
+                .attribute("PS", 100).attribute("XD", 0.25).make();
+        final Genotype filteredGenotype = new GenotypeBuilder("sample2", Arrays.asList(Allele.NO_CALL, Allele.NO_CALL))
+                .filter("lowGQ").attribute("XL", Arrays.asList(1, 2)).make();
+        final Genotype bareGenotype = new GenotypeBuilder("sample3", Arrays.asList(alt, alt)).make();
+
+        final Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("INT", 3);
+        attributes.put("DOUBLE", 1.5);
+        attributes.put("FLAG", true);
+        attributes.put("STRING", "value");
+        attributes.put("LIST", Arrays.asList(1, "two", 3.0));
+        attributes.put("ARRAY", new int[] {1, 2, 3});
+        attributes.put(VCFConstants.END_KEY, 10);
+
+        final VariantContext genotyped = new VariantContextBuilder("source", "20", 1, 10, alleles)
+                .id("rs1").log10PError(-3.5).filter("lowQual").attributes(attributes)
+                .genotypes(genotype, filteredGenotype, bareGenotype).make();
+        final VariantContext passing = new VariantContextBuilder("source", "20", 100, 100, Arrays.asList(ref, alt))
+                .passFilters().make();
+        final VariantContext unfiltered = new VariantContextBuilder("source", "21", 100, 100, Arrays.asList(ref, alt))
+                .unfiltered().make();
+
+        final List<VariantContext> roundTripped = SparkTestUtils.roundTripInKryo(new ArrayList<>(Arrays.asList(genotyped, passing, unfiltered)), ArrayList.class, getConf());
+        final VariantContext roundTrippedGenotyped = roundTripped.get(0);
+        VariantContextTestUtils.assertVariantContextsAreEqual(roundTrippedGenotyped, genotyped, Collections.singletonList("ARRAY"), Collections.emptyList());
+        Assert.assertEquals(roundTrippedGenotyped.getAttribute("INT"), 3);
+        Assert.assertEquals(roundTrippedGenotyped.getAttribute("DOUBLE"), 1.5);
+        Assert.assertEquals(roundTrippedGenotyped.getAttribute("FLAG"), true);
+        Assert.assertEquals(roundTrippedGenotyped.getAttribute("LIST"), Arrays.asList(1, "two", 3.0));
+        Assert.assertEquals((int[])roundTrippedGenotyped.getAttribute("ARRAY"), new int[] {1, 2, 3});
+        Assert.assertEquals(roundTrippedGenotyped.getGenotype("sample1").getExtendedAttribute("PS"), 100);
+        Assert.assertEquals(roundTrippedGenotyped.getGenotype("sample2").getExtendedAttribute("XL"), Arrays.asList(1, 2));
+
+        VariantContextTestUtils.assertVariantContextsAreEqual(roundTripped.get(1), passing, Collections.emptyList(), Collections.emptyList());
+        Assert.assertTrue(roundTripped.get(1).filtersWereApplied());
+        Assert.assertFalse(roundTripped.get(1).hasLog10PError());
+        VariantContextTestUtils.assertVariantContextsAreEqual(roundTripped.get(2), unfiltered, Collections.emptyList(), Collections.emptyList());
+        Assert.assertFalse(roundTripped.get(2).filtersWereApplied());
+    }
+
+    @Test
+    public void testRoundTripGenotypeAlleleNotInVariant() {
+        final Allele ref = Allele.create("A", true);
+        final Allele alt = Allele.create("C", false);
+        final Allele unlisted = Allele.create("G", false);
+        final Genotype genotype = new GenotypeBuilder("sample1", Arrays.asList(ref, unlisted)).GQ(20).make();
+
+        // as, for example, a subset of the alleles of a variant whose genotypes are left as they are
+        final VariantContext variant = new VariantContextBuilder("source", "20", 100, 100, Arrays.asList(ref, alt))
+                .genotypesNoValidation(GenotypesContext.create(genotype)).make();
+
+        final List<VariantContext> roundTripped = SparkTestUtils.roundTripInKryo(new ArrayList<>(Collections.singletonList(variant)), ArrayList.class, getConf());
+        final VariantContext roundTrippedVariant = roundTripped.get(0);
+        Assert.assertEquals(roundTrippedVariant.getAlleles(), variant.getAlleles());
+        final Genotype roundTrippedGenotype = roundTrippedVariant.getGenotype("sample1");
+        Assert.assertEquals(roundTrippedGenotype.getAlleles(), Arrays.asList(ref, unlisted));
+        Assert.assertEquals(roundTrippedGenotype.getGQ(), 20);
+    }
+}
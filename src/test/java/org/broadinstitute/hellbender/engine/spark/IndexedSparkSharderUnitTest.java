@@ -0,0 +1,123 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import htsjdk.samtools.ValidationStringency;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.GATKPath;
+import org.broadinstitute.hellbender.engine.ReadsPathDataSource;
+import org.broadinstitute.hellbender.engine.Shard;
+import org.broadinstitute.hellbender.engine.ShardBoundary;
+import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class IndexedSparkSharderUnitTest extends GATKBaseTest {
+
+    private static final String BAM = publicTestDir + "NA12878.chr17_69k_70k.dictFix.bam";
+
+    private static ShardBoundary shardBoundary(final String contig, final int start, final int end, final int padding) {
+        return new ShardBoundary(new SimpleInterval(contig, start, end), new SimpleInterval(contig, Math.max(1, start - padding), end + padding));
+    }
+
+    private static List<ShardBoundary> shardBoundaries(final int n) {
+        final List<ShardBoundary> shardBoundaries = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            shardBoundaries.add(shardBoundary("1", i * 100 + 1, (i + 1) * 100, 10));
+        }
+        return shardBoundaries;
+    }
+
+    @DataProvider(name = "groupShards")
+    public Object[][] groupShards() {
+        return new Object[][] {
+                // shard sizes, max partition size, expected number of shards in each partition
+                {new long[] {}, 10, Collections.emptyList()},
+                {new long[] {1, 2, 3}, 10, Collections.singletonList(3)},
+                {new long[] {5, 5, 5, 5}, 10, Arrays.asList(2, 2)},
+                {new long[] {5, 6, 4, 0, 0, 7}, 10, Arrays.asList(1, 4, 1)},
+                // shards larger than the maximum get a partition of their own
+                {new long[] {20, 1, 30, 1}, 10, Arrays.asList(1, 1, 2)},
+                {new long[] {0, 0, 0}, 0, Collections.singletonList(3)},
+        };
+    }
+
+    @Test(dataProvider = "groupShards")
+    public void testGroupShards(final long[] shardSizes, final long maxPartitionSize, final List<Integer> expectedPartitionSizes) {
+        final List<ShardBoundary> shardBoundaries = shardBoundaries(shardSizes.length);
+        final List<List<ShardBoundary>> partitions = IndexedSparkSharder.groupShards(shardBoundaries, shardSizes, maxPartitionSize);
+        Assert.assertEquals(partitions.stream().map(List::size).collect(Collectors.toList()), expectedPartitionSizes);
+        // the shards are all there, in order
+        Assert.assertEquals(partitions.stream().flatMap(List::stream).collect(Collectors.toList()), shardBoundaries);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testGroupShardsWithWrongNumberOfSizes() {
+        IndexedSparkSharder.groupShards(shardBoundaries(2), new long[] {1}, 10);
+    }
+
+    @Test
+    public void testShardsHaveTheReadsOfTheirPaddedSpans() {
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        final List<ShardBoundary> shardBoundaries = new ArrayList<>();
+        for (int start = 69_000; start < 70_000; start += 100) {
+            shardBoundaries.add(shardBoundary("17", start, start + 99, 50));
+        }
+        // a tiny maximum partition size, so that the shards are spread over many partitions
+        final List<Shard<GATKRead>> shards = IndexedSparkSharder.shard(ctx, Collections.singletonList(new GATKPath(BAM)), null, null,
+                shardBoundaries, 1, ReadFilterLibrary.ALLOW_ALL_READS, ValidationStringency.SILENT).collect();
+
+        Assert.assertEquals(shards.size(), shardBoundaries.size());
+        try (final ReadsPathDataSource readsSource = new ReadsPathDataSource(Paths.get(BAM))) {
+            for (int i = 0; i < shards.size(); i++) {
+                final Shard<GATKRead> shard = shards.get(i);
+                Assert.assertEquals(shard.getInterval(), shardBoundaries.get(i).getInterval());
+                Assert.assertEquals(shard.getPaddedInterval(), shardBoundaries.get(i).getPaddedSpan());
+                final List<GATKRead> expectedReads = new ArrayList<>();
+                readsSource.query(shard.getPaddedInterval()).forEachRemaining(expectedReads::add);
+                final List<GATKRead> reads = new ArrayList<>();
+                shard.forEach(reads::add);
+                Assert.assertEquals(reads, expectedReads);
+            }
+        }
+    }
+
+    @Test
+    public void testShardsAreFiltered() {
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        final List<Shard<GATKRead>> shards = IndexedSparkSharder.shard(ctx, Collections.singletonList(new GATKPath(BAM)), null, null,
+                Collections.singletonList(shardBoundary("17", 69_000, 70_000, 0)), 0, ReadFilterLibrary.FIRST_OF_PAIR,
+                ValidationStringency.SILENT).collect();
+        Assert.assertEquals(shards.size(), 1);
+        int nReads = 0;
+        for (final GATKRead read : shards.get(0)) {
+            Assert.assertTrue(read.isFirstOfPair());
+            nReads++;
+        }
+        Assert.assertTrue(nReads > 0);
+    }
+
+    @Test(expectedExceptions = UserException.MissingIndex.class)
+    public void testReadsWithoutIndex() throws IOException {
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        final File bamWithoutIndex = createTempFile("withoutIndex", ".bam");
+        Files.copy(Paths.get(BAM), bamWithoutIndex.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        IndexedSparkSharder.shard(ctx, Collections.singletonList(new GATKPath(bamWithoutIndex.getAbsolutePath())), null, null,
+                Collections.singletonList(shardBoundary("17", 69_000, 70_000, 0)), 0, ReadFilterLibrary.ALLOW_ALL_READS,
+                ValidationStringency.SILENT);
+    }
+}
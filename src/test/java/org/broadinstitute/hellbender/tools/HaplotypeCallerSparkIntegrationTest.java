@@ -9,6 +9,7 @@ import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.GATKPath;
 import org.broadinstitute.hellbender.engine.spark.datasources.ReferenceMultiSparkSource;
 import org.broadinstitute.hellbender.engine.spark.datasources.ReferenceWindowFunctions;
+import org.broadinstitute.hellbender.engine.spark.AssemblyRegionWalkerSpark;
 import org.broadinstitute.hellbender.engine.spark.SparkContextFactory;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
@@ -115,6 +116,30 @@ public class HaplotypeCallerSparkIntegrationTest extends CommandLineProgramTest
         }
     }
 
+    @Test(dataProvider = "HaplotypeCallerTestInputs")
+    public void testReadShardsFromIndexMatchesNonStrictVCFMode(final String inputFileName, final String referenceFileName) throws Exception {
+        Utils.resetRandomGenerator();
+
+        final File output = createTempFile("testReadShardsFromIndexMatchesNonStrictVCFMode", ".vcf");
+        final File expected = new File(TEST_FILES_DIR, "expected.testVCFMode.gatk4.nonstrict.vcf");
+
+        final String[] args = {
+                "-I", inputFileName,
+                "-R", referenceFileName,
+                "-L", "20:10000000-10100000",
+                "-O", output.getAbsolutePath(),
+                "-pairHMM", "AVX_LOGLESS_CACHING",
+                "--" + AssemblyBasedCallerArgumentCollection.ALLELE_EXTENSION_LONG_NAME, "2",
+                "--" + StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, "false",
+                "--" + AssemblyRegionWalkerSpark.READ_SHARDS_FROM_INDEX_LONG_NAME
+        };
+
+        runCommandLine(args);
+
+        // the shards are the same as when they are made from an RDD of the reads, so the calls must be too
+        IntegrationTestSpec.assertEqualTextFiles(output, expected);
+    }
+
     /*
     * Test that in VCF mode we're >= 99% concordant with GATK3.8 results
     */
@@ -7,12 +7,16 @@ import htsjdk.tribble.index.IndexFactory;
 import htsjdk.tribble.index.linear.LinearIndex;
 import htsjdk.tribble.index.tabix.TabixIndex;
 import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFHeader;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.Main;
 import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.engine.FeatureInput;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.testutils.ArgumentsBuilder;
+import org.broadinstitute.hellbender.tools.genomicsdb.GenomicsDBOptions;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.codecs.VariantSitesBCICodec;
 import org.broadinstitute.hellbender.utils.codecs.gtf.EnsemblGtfCodec;
 import org.broadinstitute.hellbender.utils.codecs.gtf.GencodeGtfFeature;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
@@ -24,6 +28,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
@@ -511,4 +516,136 @@ public final class IndexFeatureFileIntegrationTest extends CommandLineProgramTes
         // Run the beast:
         runCommandLine(arguments);
     }
+
+    @Test
+    public void testVCFSitesSidecar() throws IOException {
+        final File inputVCF = new File(toolsTestDir + "walkers/GenotypeGVCFs/NA12878.mergedIntervals.vcf");
+        final File tempDir = createTempDir("testVCFSitesSidecar");
+        final File inputCopy = new File(tempDir, inputVCF.getName());
+        Files.copy(inputVCF.toPath(), inputCopy.toPath());
+
+        final List<VariantContext> expectedVariants = new ArrayList<>();
+        final VCFHeader expectedHeader;
+        try (final FeatureDataSource<VariantContext> vcfSource = new FeatureDataSource<>(inputCopy)) {
+            expectedHeader = (VCFHeader)vcfSource.getHeader();
+            vcfSource.forEach(expectedVariants::add);
+        }
+
+        final ArgumentsBuilder arguments = new ArgumentsBuilder();
+        arguments.addInput(inputCopy);
+        arguments.add(IndexFeatureFile.SITES_SIDECAR_INFO_FIELD_LONG_NAME, "AF");
+        runCommandLine(arguments);
+        final File sidecar = new File(VariantSitesBCICodec.getSidecarPath(inputCopy.getAbsolutePath()));
+        Assert.assertTrue(sidecar.exists());
+
+        try (final FeatureDataSource<VariantContext> sidecarSource = makeSitesSidecarOptInSource(inputCopy, true)) {
+            // the header is a sites-only version of that of the VCF, declaring only the kept INFO fields
+            final VCFHeader sitesHeader = (VCFHeader)sidecarSource.getHeader();
+            Assert.assertFalse(sitesHeader.hasGenotypingData());
+            Assert.assertTrue(sitesHeader.getFormatHeaderLines().isEmpty());
+            Assert.assertTrue(sitesHeader.hasInfoLine("AF"));
+            Assert.assertTrue(sitesHeader.hasInfoLine("END"));
+            Assert.assertFalse(sitesHeader.hasInfoLine("DP"));
+            Assert.assertEquals(sitesHeader.getSequenceDictionary().size(), expectedHeader.getSequenceDictionary().size());
+
+            final List<VariantContext> actualVariants = new ArrayList<>();
+            sidecarSource.forEach(actualVariants::add);
+            Assert.assertEquals(actualVariants.size(), expectedVariants.size());
+            for (int i = 0; i < actualVariants.size(); i++) {
+                final VariantContext actual = actualVariants.get(i);
+                final VariantContext expected = expectedVariants.get(i);
+                Assert.assertEquals(actual.getContig(), expected.getContig());
+                Assert.assertEquals(actual.getStart(), expected.getStart());
+                Assert.assertEquals(actual.getEnd(), expected.getEnd());
+                Assert.assertEquals(actual.getID(), expected.getID());
+                Assert.assertEquals(actual.getAlleles(), expected.getAlleles());
+                Assert.assertEquals(actual.getPhredScaledQual(), expected.getPhredScaledQual(), 1e-6);
+                Assert.assertEquals(actual.filtersWereApplied(), expected.filtersWereApplied());
+                Assert.assertEquals(actual.getAttributeAsDoubleList("AF", 0.0), expected.getAttributeAsDoubleList("AF", 0.0));
+                // only the requested INFO fields are kept, and genotypes are dropped
+                Assert.assertFalse(actual.hasAttribute("DP"));
+                Assert.assertFalse(actual.hasGenotypes());
+            }
+
+            final SimpleInterval interval = new SimpleInterval("20", 10000400, 10001000);
+            final List<Integer> expectedStarts = new ArrayList<>();
+            expectedVariants.stream().filter(vc -> vc.overlaps(interval)).forEach(vc -> expectedStarts.add(vc.getStart()));
+            final List<Integer> actualStarts = new ArrayList<>();
+            sidecarSource.queryAndPrefetch(interval).forEach(vc -> actualStarts.add(vc.getStart()));
+            Assert.assertFalse(expectedStarts.isEmpty());
+            Assert.assertEquals(actualStarts, expectedStarts);
+        }
+
+        // a tagged input read where the sidecar isn't allowed, as driving variants are, is read from the VCF
+        try (final FeatureDataSource<VariantContext> vcfSource = makeSitesSidecarOptInSource(inputCopy, false)) {
+            Assert.assertTrue(vcfSource.iterator().next().hasGenotypes());
+        }
+
+        // a sidecar older than its VCF is ignored
+        Assert.assertTrue(sidecar.setLastModified(inputCopy.lastModified() - 10000));
+        try (final FeatureDataSource<VariantContext> vcfSource = makeSitesSidecarOptInSource(inputCopy, true)) {
+            Assert.assertTrue(vcfSource.iterator().next().hasGenotypes());
+        }
+    }
+
+    @Test
+    public void testVCFSitesSidecarIsNotUsedWithoutOptIn() throws IOException {
+        final File inputVCF = new File(toolsTestDir + "walkers/GenotypeGVCFs/NA12878.mergedIntervals.vcf");
+        final File inputCopy = new File(createTempDir("testVCFSitesSidecarIsNotUsedWithoutOptIn"), inputVCF.getName());
+        Files.copy(inputVCF.toPath(), inputCopy.toPath());
+
+        final List<VariantContext> expectedVariants = new ArrayList<>();
+        final VCFHeader expectedHeader;
+        try (final FeatureDataSource<VariantContext> vcfSource = new FeatureDataSource<>(inputCopy)) {
+            expectedHeader = (VCFHeader)vcfSource.getHeader();
+            vcfSource.forEach(expectedVariants::add);
+        }
+
+        final ArgumentsBuilder arguments = new ArgumentsBuilder();
+        arguments.addInput(inputCopy);
+        arguments.add(IndexFeatureFile.SITES_SIDECAR_INFO_FIELD_LONG_NAME, "AF");
+        runCommandLine(arguments);
+        Assert.assertTrue(new File(VariantSitesBCICodec.getSidecarPath(inputCopy.getAbsolutePath())).exists());
+
+        // untagged inputs are read from the VCF, with their genotypes and all of their INFO fields
+        try (final FeatureDataSource<VariantContext> vcfSource = new FeatureDataSource<>(inputCopy)) {
+            final VCFHeader header = (VCFHeader)vcfSource.getHeader();
+            Assert.assertEquals(header.getGenotypeSamples(), expectedHeader.getGenotypeSamples());
+            Assert.assertEquals(header.getInfoHeaderLines(), expectedHeader.getInfoHeaderLines());
+
+            final List<VariantContext> actualVariants = new ArrayList<>();
+            vcfSource.forEach(actualVariants::add);
+            Assert.assertEquals(actualVariants.size(), expectedVariants.size());
+            boolean sawDP = false;
+            for (int i = 0; i < actualVariants.size(); i++) {
+                final VariantContext actual = actualVariants.get(i);
+                final VariantContext expected = expectedVariants.get(i);
+                Assert.assertTrue(actual.hasGenotypes());
+                Assert.assertNotNull(actual.getGenotype("NA12878"));
+                Assert.assertEquals(actual.getGenotype("NA12878").toString(), expected.getGenotype("NA12878").toString());
+                Assert.assertEquals(actual.getAttributes(), expected.getAttributes());
+                sawDP |= actual.hasAttribute("DP");
+            }
+            Assert.assertTrue(sawDP);
+        }
+    }
+
+    private static FeatureDataSource<VariantContext> makeSitesSidecarOptInSource(final File vcf, final boolean allowSitesSidecar) {
+        final FeatureInput<VariantContext> featureInput = new FeatureInput<>(vcf.getAbsolutePath(), "resource",
+                Collections.singletonMap(FeatureDataSource.SITES_SIDECAR_ATTRIBUTE, "true"));
+        return new FeatureDataSource<>(featureInput, FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES, VariantContext.class,
+                0, 0, new GenomicsDBOptions(), false, allowSitesSidecar);
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testVCFSitesSidecarWithUndefinedInfoField() throws IOException {
+        final File inputVCF = new File(toolsTestDir + "walkers/GenotypeGVCFs/NA12878.mergedIntervals.vcf");
+        final File inputCopy = new File(createTempDir("testVCFSitesSidecar"), inputVCF.getName());
+        Files.copy(inputVCF.toPath(), inputCopy.toPath());
+
+        final ArgumentsBuilder arguments = new ArgumentsBuilder();
+        arguments.addInput(inputCopy);
+        arguments.add(IndexFeatureFile.SITES_SIDECAR_INFO_FIELD_LONG_NAME, "NOT_A_FIELD");
+        runCommandLine(arguments);
+    }
 }
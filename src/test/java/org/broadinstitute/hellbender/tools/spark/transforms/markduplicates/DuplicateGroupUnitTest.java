@@ -0,0 +1,278 @@
+package org.broadinstitute.hellbender.tools.spark.transforms.markduplicates;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.MarkDuplicatesSparkArgumentCollection;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.markduplicates.MarkDuplicatesScoringStrategy;
+import org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords.MarkDuplicatesSparkRecord;
+import org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords.Pair;
+import org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords.TransientFieldPhysicalLocation;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import picard.sam.markduplicates.util.OpticalDuplicateFinder;
+import picard.sam.markduplicates.util.ReadEnds;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class DuplicateGroupUnitTest extends GATKBaseTest {
+
+    private static final SAMFileHeader HEADER = ArtificialReadUtils.createArtificialSamHeaderWithReadGroup(new SAMReadGroupRecord(ArtificialReadUtils.READ_GROUP_ID));
+    private static final Map<String, Byte> LIBRARY_INDEX = MarkDuplicatesSparkUtils.constructLibraryIndex(HEADER);
+    private static final MarkDuplicatesSparkArgumentCollection MD_ARGS = new MarkDuplicatesSparkArgumentCollection();
+    private static final MarkDuplicatesScoringStrategy SCORING_STRATEGY = MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES;
+    private static final int READ_LENGTH = 20;
+    private static final int OPTICAL_DUPLICATE_PIXEL_DISTANCE = 100;
+
+    /**
+     * The records of one key, with the optical cluster of each pair. Pairs of the same cluster are all within the optical
+     * duplicate distance of each other, and pairs of different clusters are far apart, so that the number of optical
+     * duplicates in each cluster doesn't depend on the order in which the pairs are compared.
+     */
+    private static final class KeyRecords {
+        final List<MarkDuplicatesSparkRecord> records = new ArrayList<>();
+        final Map<String, Integer> clusterOfPair = new HashMap<>();
+    }
+
+    private static KeyRecords makeKeyRecords(final int numFragments, final int numEmptyFragments, final int numPairs,
+                                             final int numPassthroughs, final Random random) {
+        final KeyRecords keyRecords = new KeyRecords();
+        for (int i = 0; i < numFragments; i++) {
+            final GATKRead read = makeRead("fragment" + i + ":1:" + random.nextInt(30000) + ":" + random.nextInt(30000), 1000, false, random);
+            keyRecords.records.add(MarkDuplicatesSparkRecord.newFragment(read, HEADER, random.nextInt(8), SCORING_STRATEGY, LIBRARY_INDEX, MD_ARGS));
+        }
+        for (int i = 0; i < numEmptyFragments; i++) {
+            final GATKRead read = makeRead("empty" + i + ":1:1:1", 1000, false, random);
+            keyRecords.records.add(MarkDuplicatesSparkRecord.newEmptyFragment(read, HEADER, LIBRARY_INDEX, MD_ARGS));
+        }
+
+        // the reads of each pair start and end at the same position on opposite strands, so that depending on which of
+        // them is the first of pair the optical orientation is either FR or RF
+        final int numClusters = Math.max(1, numPairs / 4);
+        for (int i = 0; i < numPairs; i++) {
+            final int cluster = random.nextInt(numClusters);
+            final int tile = 1 + cluster % 2;
+            final int x = 1000 + (cluster / 2) * 1000 + random.nextInt(OPTICAL_DUPLICATE_PIXEL_DISTANCE / 2);
+            final int y = 2000 + random.nextInt(OPTICAL_DUPLICATE_PIXEL_DISTANCE / 2);
+            final String name = "pair" + i + ":" + tile + ":" + x + ":" + y;
+            final GATKRead forward = makeRead(name, 1000, false, random);
+            final GATKRead reverse = makeRead(name, 1000 - READ_LENGTH + 1, true, random);
+            final boolean forwardIsFirst = random.nextBoolean();
+            setMates(forward, reverse, forwardIsFirst);
+            final Pair pair = MarkDuplicatesSparkRecord.newPair(forwardIsFirst ? forward : reverse, forwardIsFirst ? reverse : forward,
+                    HEADER, random.nextInt(8), SCORING_STRATEGY, LIBRARY_INDEX);
+            pair.setReadGroup((short) 0);
+            keyRecords.records.add(pair);
+            keyRecords.clusterOfPair.put(name, cluster);
+        }
+
+        for (int i = 0; i < numPassthroughs; i++) {
+            final GATKRead read = makeRead("passthrough" + i + ":1:1:1", 1000, false, random);
+            keyRecords.records.add(MarkDuplicatesSparkRecord.getPassthrough(read, random.nextInt(8)));
+        }
+        return keyRecords;
+    }
+
+    private static GATKRead makeRead(final String name, final int start, final boolean reverse, final Random random) {
+        final byte[] bases = new byte[READ_LENGTH];
+        final byte[] quals = new byte[READ_LENGTH];
+        for (int i = 0; i < READ_LENGTH; i++) {
+            bases[i] = 'A';
+            // few distinct qualities, so that there are ties in scores
+            quals[i] = (byte) (random.nextBoolean() ? 20 : 30);
+        }
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(HEADER, name, 0, start, bases, quals);
+        read.setIsReverseStrand(reverse);
+        return read;
+    }
+
+    private static void setMates(final GATKRead forward, final GATKRead reverse, final boolean forwardIsFirst) {
+        forward.setMatePosition(reverse);
+        reverse.setMatePosition(forward);
+        forward.setMateIsReverseStrand(true);
+        reverse.setMateIsReverseStrand(false);
+        if (forwardIsFirst) {
+            forward.setIsFirstOfPair();
+            reverse.setIsSecondOfPair();
+        } else {
+            reverse.setIsFirstOfPair();
+            forward.setIsSecondOfPair();
+        }
+    }
+
+    /**
+     * Build a group from the records in a random order, split among several groups that are then merged, as
+     * combineByKey does on both sides of the shuffle
+     */
+    private static DuplicateGroup makeGroup(final List<MarkDuplicatesSparkRecord> records, final boolean keepPairNames,
+                                            final OpticalDuplicateFinder finder, final Random random) {
+        final List<MarkDuplicatesSparkRecord> shuffled = new ArrayList<>(records);
+        Collections.shuffle(shuffled, random);
+        final int numGroups = 1 + random.nextInt(Math.min(5, shuffled.size()));
+        final List<DuplicateGroup> groups = new ArrayList<>(numGroups);
+        for (int i = 0; i < numGroups; i++) {
+            groups.add(new DuplicateGroup(keepPairNames, false));
+        }
+        for (int i = 0; i < shuffled.size(); i++) {
+            // each group gets at least one record
+            final int groupIndex = i < numGroups ? i : random.nextInt(numGroups);
+            groups.get(groupIndex).add(shuffled.get(i), finder);
+        }
+        final DuplicateGroup merged = groups.get(0);
+        for (int i = 1; i < numGroups; i++) {
+            merged.merge(groups.get(i), finder);
+        }
+        return merged;
+    }
+
+    /**
+     * The non-duplicates and optical duplicates of the records of a key, computed from all of them at once, as
+     * MarkDuplicatesSparkUtils did before the records of a key were combined into a DuplicateGroup
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Tuple2<MarkDuplicatesSparkUtils.IndexPair<String>, Integer>> markGroupedRecords(final List<MarkDuplicatesSparkRecord> records,
+                                                                                                      final OpticalDuplicateFinder finder,
+                                                                                                      final boolean markOpticalDups) {
+        final Map<MarkDuplicatesSparkRecord.Type, List<MarkDuplicatesSparkRecord>> byType = records.stream()
+                .collect(Collectors.groupingBy(MarkDuplicatesSparkRecord::getType));
+        final List<MarkDuplicatesSparkRecord> emptyFragments = byType.getOrDefault(MarkDuplicatesSparkRecord.Type.EMPTY_FRAGMENT, Collections.emptyList());
+        final List<MarkDuplicatesSparkRecord> fragments = byType.getOrDefault(MarkDuplicatesSparkRecord.Type.FRAGMENT, Collections.emptyList());
+        final List<Pair> pairs = (List<Pair>)(List)byType.getOrDefault(MarkDuplicatesSparkRecord.Type.PAIR, Collections.emptyList());
+        final List<MarkDuplicatesSparkRecord> passthroughs = byType.getOrDefault(MarkDuplicatesSparkRecord.Type.PASSTHROUGH, Collections.emptyList());
+
+        final List<Tuple2<MarkDuplicatesSparkUtils.IndexPair<String>, Integer>> output = new ArrayList<>();
+        if (!fragments.isEmpty() && emptyFragments.isEmpty()) {
+            final TransientFieldPhysicalLocation bestFragment = fragments.stream()
+                    .map(f -> (TransientFieldPhysicalLocation)f)
+                    .peek(f -> finder.addLocationInformation(f.getName(), f))
+                    .max(MarkDuplicatesSparkUtils.PAIRED_ENDS_SCORE_COMPARATOR)
+                    .get();
+            output.add(marker(bestFragment, MarkDuplicatesSpark.NO_OPTICAL_MARKER));
+        }
+
+        if (pairs.size() == 1) {
+            output.add(marker(pairs.get(0), 0));
+        } else if (!pairs.isEmpty()) {
+            final Pair bestPair = pairs.stream()
+                    .peek(pair -> finder.addLocationInformation(pair.getName(), pair))
+                    .max(MarkDuplicatesSparkUtils.PAIRED_ENDS_SCORE_COMPARATOR)
+                    .get();
+            final Map<Byte, List<Pair>> byOrientation = pairs.stream().collect(Collectors.groupingBy(Pair::getOrientationForOpticalDuplicates));
+            final List<List<Pair>> scoredLists = byOrientation.containsKey(ReadEnds.FR) && byOrientation.containsKey(ReadEnds.RF) ?
+                    Arrays.asList(byOrientation.get(ReadEnds.FR), byOrientation.get(ReadEnds.RF)) : Collections.singletonList(pairs);
+            int numOpticalDuplicates = 0;
+            for (final List<Pair> scored : scoredLists) {
+                final boolean[] opticalDuplicateFlags = finder.findOpticalDuplicates(scored, bestPair);
+                for (int i = 0; i < opticalDuplicateFlags.length; i++) {
+                    if (opticalDuplicateFlags[i]) {
+                        numOpticalDuplicates++;
+                        if (markOpticalDups) {
+                            output.add(marker(scored.get(i), MarkDuplicatesSpark.OPTICAL_DUPLICATE_MARKER));
+                        }
+                    }
+                }
+            }
+            output.add(marker(bestPair, numOpticalDuplicates));
+        }
+
+        passthroughs.forEach(passthrough -> output.add(marker(passthrough, MarkDuplicatesSpark.NO_OPTICAL_MARKER)));
+        return output;
+    }
+
+    private static Tuple2<MarkDuplicatesSparkUtils.IndexPair<String>, Integer> marker(final MarkDuplicatesSparkRecord record, final int marker) {
+        return new Tuple2<>(new MarkDuplicatesSparkUtils.IndexPair<>(record.getName(), record.getPartitionIndex()), marker);
+    }
+
+    /**
+     * The non-duplicates, with their markers, which must be identical
+     */
+    private static List<String> nonDuplicates(final List<Tuple2<MarkDuplicatesSparkUtils.IndexPair<String>, Integer>> markers) {
+        return markers.stream()
+                .filter(marker -> marker._2() != MarkDuplicatesSpark.OPTICAL_DUPLICATE_MARKER)
+                .map(marker -> marker._1().getValue() + "/" + marker._1().getIndex() + "/" + marker._2())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The optical cluster of each optical duplicate. Which pairs of a cluster are optical duplicates may depend on the
+     * order of the pairs if the best pair isn't in it, but how many of them are doesn't.
+     */
+    private static List<Integer> opticalDuplicateClusters(final List<Tuple2<MarkDuplicatesSparkUtils.IndexPair<String>, Integer>> markers,
+                                                          final Map<String, Integer> clusterOfPair) {
+        return markers.stream()
+                .filter(marker -> marker._2() == MarkDuplicatesSpark.OPTICAL_DUPLICATE_MARKER)
+                .map(marker -> clusterOfPair.get(marker._1().getValue()))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    @DataProvider(name = "keyRecords")
+    public Object[][] keyRecords() {
+        final List<Object[]> tests = new ArrayList<>();
+        for (final boolean keepPairNames : new boolean[] {true, false}) {
+            // numFragments, numEmptyFragments, numPairs, numPassthroughs
+            tests.add(new Object[] {1, 0, 0, 0, keepPairNames});
+            tests.add(new Object[] {30, 0, 0, 0, keepPairNames});
+            tests.add(new Object[] {30, 1, 0, 0, keepPairNames});
+            tests.add(new Object[] {30, 5, 0, 2, keepPairNames});
+            tests.add(new Object[] {0, 3, 0, 0, keepPairNames});
+            tests.add(new Object[] {0, 0, 1, 0, keepPairNames});
+            tests.add(new Object[] {0, 0, 2, 0, keepPairNames});
+            tests.add(new Object[] {0, 0, 60, 0, keepPairNames});
+            tests.add(new Object[] {0, 0, 0, 4, keepPairNames});
+            tests.add(new Object[] {10, 2, 40, 3, keepPairNames});
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "keyRecords")
+    public void testMatchesGroupedComputation(final int numFragments, final int numEmptyFragments, final int numPairs,
+                                              final int numPassthroughs, final boolean keepPairNames) {
+        final OpticalDuplicateFinder finder = new OpticalDuplicateFinder(OpticalDuplicateFinder.DEFAULT_READ_NAME_REGEX, OPTICAL_DUPLICATE_PIXEL_DISTANCE, null);
+        final Random random = new Random(numFragments * 1000 + numEmptyFragments * 100 + numPairs * 10 + numPassthroughs);
+        for (int iteration = 0; iteration < 20; iteration++) {
+            final KeyRecords keyRecords = makeKeyRecords(numFragments, numEmptyFragments, numPairs, numPassthroughs, random);
+            final List<Tuple2<MarkDuplicatesSparkUtils.IndexPair<String>, Integer>> expected = markGroupedRecords(keyRecords.records, finder, keepPairNames);
+
+            final DuplicateGroup group = makeGroup(keyRecords.records, keepPairNames, finder, random);
+            Assert.assertEquals(group.hasEmptyFragment(), numEmptyFragments > 0);
+            Assert.assertEquals(group.getNumPairs(), numPairs);
+            Assert.assertEquals(group.getPassthroughs() == null ? 0 : group.getPassthroughs().size(), numPassthroughs);
+            if (numEmptyFragments > 0) {
+                Assert.assertNull(group.getBestFragment(), "fragments should be dropped once an empty fragment is seen");
+            }
+            final List<DuplicateGroup.PairLocation> pairLocations = group.getPairLocations(finder);
+            for (int i = 0; i < pairLocations.size(); i++) {
+                // the name of the best pair, which comes first, is always known
+                Assert.assertEquals(pairLocations.get(i).getName() != null, keepPairNames || i == 0);
+            }
+
+            final List<Tuple2<MarkDuplicatesSparkUtils.IndexPair<String>, Integer>> actual =
+                    MarkDuplicatesSparkUtils.markDuplicateGroup(group, finder, keepPairNames, false, 0);
+            Assert.assertEquals(nonDuplicates(actual), nonDuplicates(expected));
+            Assert.assertEquals(opticalDuplicateClusters(actual, keyRecords.clusterOfPair), opticalDuplicateClusters(expected, keyRecords.clusterOfPair));
+        }
+    }
+
+    @Test
+    public void testGroupsHaveOpticalDuplicates() {
+        // make sure the comparison above isn't vacuous
+        final OpticalDuplicateFinder finder = new OpticalDuplicateFinder(OpticalDuplicateFinder.DEFAULT_READ_NAME_REGEX, OPTICAL_DUPLICATE_PIXEL_DISTANCE, null);
+        final KeyRecords keyRecords = makeKeyRecords(0, 0, 60, 0, new Random(60));
+        final List<Tuple2<MarkDuplicatesSparkUtils.IndexPair<String>, Integer>> markers = markGroupedRecords(keyRecords.records, finder, true);
+        Assert.assertFalse(opticalDuplicateClusters(markers, keyRecords.clusterOfPair).isEmpty());
+        Assert.assertTrue(keyRecords.records.stream().map(record -> ((Pair)record).getOrientationForOpticalDuplicates()).distinct().count() > 1);
+    }
+}
@@ -1,6 +1,8 @@
 package org.broadinstitute.hellbender.tools.walkers;
 
 import htsjdk.samtools.seekablestream.SeekablePathStream;
+import htsjdk.tribble.Tribble;
+import htsjdk.tribble.index.IndexFactory;
 import htsjdk.variant.utils.VCFHeaderReader;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.Genotype;
@@ -13,6 +15,7 @@ import org.apache.commons.collections.IteratorUtils;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.engine.WalkerBase;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.runtime.ProcessController;
@@ -27,6 +30,7 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -157,6 +161,38 @@ public class CombineGVCFsIntegrationTest extends CommandLineProgramTest {
         assertVariantContextsMatch(Arrays.asList(inputs), expected, extraArgs, reference, ATTRIBUTES_TO_IGNORE);
     }
 
+    @DataProvider
+    public Object[][] gvcfsToCombineWithTraversalThreads() {
+        return new Object[][]{
+                // several contigs, with trailing reference blocks at the end of each of them
+                {new File[]{getTestFile("gvcfExample1WithTrailingReferenceBlocks.g.vcf"), getTestFile("gvcfExample2WithTrailingReferenceBlocks.g.vcf")}, getTestFile("gvcfWithTrailingReferenceBlocksExpected.g.vcf"), NO_EXTRA_ARGS, b38_reference_20_21},
+                {new File[]{getTestFile("gvcfExample1WithTrailingReferenceBlocks.g.vcf"), getTestFile("gvcfExample2WithTrailingReferenceBlocks.g.vcf")},
+                        getTestFile("gvcfWithTrailingReferenceBlocksBandedExpected.g.vcf"),
+                        Arrays.asList("--" + CombineGVCFs.BREAK_BANDS_LONG_NAME, "2000000"),
+                        b38_reference_20_21},
+                {new File[]{getTestFile("gvcfExample1.vcf"),getTestFile("gvcfExample2.vcf"),}, getTestFile("IntervalTest.vcf"), Arrays.asList(" -L ",  "20:69485-69791"), b37_reference_20_21},
+                {new File[]{getTestFile("NA12878.AS.chr20snippet.g.vcf"), getTestFile("NA12892.AS.chr20snippet.g.vcf")}, getTestFile("testAlleleSpecificAnnotations.vcf"), Arrays.asList("-G", "Standard", "-G", "AS_Standard"), b37_reference_20_21},
+        };
+    }
+
+    @Test(dataProvider = "gvcfsToCombineWithTraversalThreads")
+    public void testTraversalThreadsMatchExpectedResults(File[] inputs, File expected, List<String> extraArgs, String reference) throws IOException {
+        // traversing by contig requires indexed inputs
+        final File inputDir = createTempDir("indexedGVCFs");
+        final List<File> indexedInputs = new ArrayList<>(inputs.length);
+        for (final File input : inputs) {
+            final File indexedInput = new File(inputDir, input.getName());
+            Files.copy(input.toPath(), indexedInput.toPath());
+            IndexFactory.createDynamicIndex(indexedInput.toPath(), new VCFCodec(), IndexFactory.IndexBalanceApproach.FOR_SEEK_TIME)
+                    .write(Tribble.indexPath(indexedInput.toPath()));
+            indexedInputs.add(indexedInput);
+        }
+
+        final List<String> args = new ArrayList<>(extraArgs);
+        args.addAll(Arrays.asList("--" + WalkerBase.TRAVERSAL_THREADS_LONG_NAME, "3"));
+        assertVariantContextsMatch(indexedInputs, expected, args, reference, ATTRIBUTES_TO_IGNORE);
+    }
+
     public static void runProcess(ProcessController processController, String[] command) {
         final ProcessSettings prs = new ProcessSettings(command);
         prs.getStderrSettings().printStandard(true);
@@ -5,6 +5,8 @@ import htsjdk.samtools.ValidationStringency;
 import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.ReadWalker;
+import org.broadinstitute.hellbender.engine.WalkerBase;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
 import org.broadinstitute.hellbender.testutils.SamAssertionUtils;
@@ -106,6 +108,17 @@ public final class BaseRecalibratorIntegrationTest extends CommandLineProgramTes
         spec.executeTest("testBQSR-" + params.args, this);
     }
 
+    // the tables accumulated by several traversal threads add up to those of a single-threaded run; fractional BAQ
+    // errors summed in another order may differ in the last bits (see RecalDatumTable#combine), which the two-decimal
+    // report does not show for these inputs
+    @Test(dataProvider = "BQSRTest")
+    public void testBQSRMultiThreaded(BQSRTest params) throws IOException {
+        IntegrationTestSpec spec = new IntegrationTestSpec(
+                params.getCommandLine() + " --" + WalkerBase.TRAVERSAL_THREADS_LONG_NAME + " 3 --" + ReadWalker.TRAVERSAL_SHARD_SIZE_LONG_NAME + " 1000000",
+                Arrays.asList(params.expectedFileName));
+        spec.executeTest("testBQSRMultiThreaded-" + params.args, this);
+    }
+
     @Test(description = "This is to test https://github.com/broadinstitute/hellbender/issues/322")
     public void testPlottingWorkflow() throws IOException {
         final String resourceDir = getTestDataDir() + "/" + "BQSR" + "/";
@@ -15,9 +15,11 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.cmdline.argumentcollections.IntervalArgumentCollection;
+import org.broadinstitute.hellbender.engine.AssemblyRegionWalker;
 import org.broadinstitute.hellbender.engine.FeatureDataSource;
 import org.broadinstitute.hellbender.engine.ReadsDataSource;
 import org.broadinstitute.hellbender.engine.ReadsPathDataSource;
+import org.broadinstitute.hellbender.engine.WalkerBase;
 import org.broadinstitute.hellbender.engine.spark.AssemblyRegionArgumentCollection;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.testutils.ArgumentsBuilder;
@@ -411,6 +413,96 @@ public class HaplotypeCallerIntegrationTest extends CommandLineProgramTest {
     }
 
 
+    /*
+     * Test that a multi-threaded traversal, with the intervals split into several read shards, produces exactly the
+     * same GVCF as a single-threaded traversal. Downsampling is disabled, since the two traversals draw their random
+     * numbers from different generators.
+     */
+    @Test(dataProvider="HaplotypeCallerTestInputs")
+    public void testGVCFModeWithTraversalThreadsMatchesSingleThreaded(final String inputFileName, final String referenceFileName) throws Exception {
+        final File singleThreadedOutput = createTempFile("testGVCFModeWithTraversalThreads.single", ".g.vcf");
+        final File multiThreadedOutput = createTempFile("testGVCFModeWithTraversalThreads.multi", ".g.vcf");
+
+        for ( final File output : Arrays.asList(singleThreadedOutput, multiThreadedOutput) ) {
+            Utils.resetRandomGenerator();
+            final ArgumentsBuilder args = new ArgumentsBuilder()
+                    .addInput(inputFileName)
+                    .addReference(referenceFileName)
+                    .addInterval("20:10000000-10030000")
+                    .addInterval("20:10040000-10070000")
+                    .addInterval("20:10080000-10100000")
+                    .addOutput(output)
+                    .add(AssemblyBasedCallerArgumentCollection.EMIT_REF_CONFIDENCE_LONG_NAME, ReferenceConfidenceMode.GVCF.toString())
+                    .add(AssemblyRegionArgumentCollection.MAX_STARTS_LONG_NAME, 0)
+                    .add(LikelihoodEngineArgumentCollection.PAIR_HMM_IMPLEMENTATION_LONG_NAME, "AVX_LOGLESS_CACHING")
+                    .add(StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, false);
+            if ( output == multiThreadedOutput ) {
+                args.add(WalkerBase.TRAVERSAL_THREADS_LONG_NAME, 3)
+                    .add(AssemblyRegionWalker.TRAVERSAL_SHARD_SIZE_LONG_NAME, 10000);
+            }
+            runCommandLine(args);
+        }
+
+        IntegrationTestSpec.assertEqualTextFiles(multiThreadedOutput, singleThreadedOutput);
+    }
+
+    /*
+     * Test that a multi-threaded traversal makes the same random choices whatever the number of threads when
+     * downsampling kicks in, since each read shard has its own random number generators whichever thread processes it
+     */
+    @Test(dataProvider="HaplotypeCallerTestInputs")
+    public void testDownsamplingWithTraversalThreadsIsIndependentOfThreadCount(final String inputFileName, final String referenceFileName) throws Exception {
+        final File twoThreadOutput = createTempFile("testDownsamplingWithTraversalThreads.two", ".vcf");
+        final File fourThreadOutput = createTempFile("testDownsamplingWithTraversalThreads.four", ".vcf");
+
+        for ( final File output : Arrays.asList(twoThreadOutput, fourThreadOutput) ) {
+            final ArgumentsBuilder args = new ArgumentsBuilder()
+                    .addInput(inputFileName)
+                    .addReference(referenceFileName)
+                    .addInterval("20:10000000-10030000")
+                    .addInterval("20:10040000-10070000")
+                    .addInterval("20:10080000-10100000")
+                    .addOutput(output)
+                    // keep a single read per alignment start, so that nearly every stack of reads is downsampled
+                    .add(AssemblyRegionArgumentCollection.MAX_STARTS_LONG_NAME, 1)
+                    .add(WalkerBase.TRAVERSAL_THREADS_LONG_NAME, output == twoThreadOutput ? 2 : 4)
+                    .add(AssemblyRegionWalker.TRAVERSAL_SHARD_SIZE_LONG_NAME, 10000)
+                    .add(LikelihoodEngineArgumentCollection.PAIR_HMM_IMPLEMENTATION_LONG_NAME, "AVX_LOGLESS_CACHING")
+                    .add(StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, false);
+            runCommandLine(args);
+        }
+
+        IntegrationTestSpec.assertEqualTextFiles(fourThreadOutput, twoThreadOutput);
+    }
+
+    /*
+     * Test that computing read likelihoods on background threads, pipelined with assembly and genotyping, produces
+     * exactly the same GVCF as calling each region in series
+     */
+    @Test(dataProvider="HaplotypeCallerTestInputs")
+    public void testGVCFModeWithPipelinedLikelihoodsMatchesSerial(final String inputFileName, final String referenceFileName) throws Exception {
+        final File serialOutput = createTempFile("testGVCFModeWithPipelinedLikelihoods.serial", ".g.vcf");
+        final File pipelinedOutput = createTempFile("testGVCFModeWithPipelinedLikelihoods.pipelined", ".g.vcf");
+
+        for ( final File output : Arrays.asList(serialOutput, pipelinedOutput) ) {
+            Utils.resetRandomGenerator();
+            final ArgumentsBuilder args = new ArgumentsBuilder()
+                    .addInput(inputFileName)
+                    .addReference(referenceFileName)
+                    .addInterval("20:10000000-10100000")
+                    .addOutput(output)
+                    .add(AssemblyBasedCallerArgumentCollection.EMIT_REF_CONFIDENCE_LONG_NAME, ReferenceConfidenceMode.GVCF.toString())
+                    .add(LikelihoodEngineArgumentCollection.PAIR_HMM_IMPLEMENTATION_LONG_NAME, "AVX_LOGLESS_CACHING")
+                    .add(StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, false);
+            if ( output == pipelinedOutput ) {
+                args.add(HaplotypeCallerArgumentCollection.PIPELINED_LIKELIHOOD_THREADS_LONG_NAME, 2);
+            }
+            runCommandLine(args);
+        }
+
+        IntegrationTestSpec.assertEqualTextFiles(pipelinedOutput, serialOutput);
+    }
+
     /*
      * Minimal test that the non-seq graph haplotype detection code is equivalent using either seq graphs or kmer graphs
      *
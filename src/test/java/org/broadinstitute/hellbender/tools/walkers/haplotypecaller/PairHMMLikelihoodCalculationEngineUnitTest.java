@@ -1,12 +1,14 @@
 package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import com.google.common.base.Strings;
+import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMUtils;
 import htsjdk.samtools.TextCigarCodec;
 import htsjdk.variant.variantcontext.Allele;
 import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeArguments;
 import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.genotyper.*;
 import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.pairhmm.PairHMM;
@@ -198,4 +200,110 @@ public final class PairHMMLikelihoodCalculationEngineUnitTest extends GATKBaseTe
         Assert.assertTrue(v1 > v2, "matching haplotype should have a higher likelihood");
         lce.close();
     }
+
+    @Test
+    public void testLikelihoodCacheReusesLikelihoodsAcrossRegions() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        final String sample = "sample1";
+        final SampleList samples = new IndexedSampleList(sample);
+
+        Utils.resetRandomGenerator();
+        final byte[] refBases = ArtificialReadUtils.createRandomReadBases(60, false);
+        final byte[] altBases = refBases.clone();
+        altBases[30] = (byte) (altBases[30] == 'A' ? 'C' : 'A');
+        final List<Haplotype> haplotypes = Arrays.asList(new Haplotype(refBases, true), new Haplotype(altBases, false));
+
+        final List<GATKRead> reads = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            final byte[] readBases = Arrays.copyOfRange(i % 2 == 0 ? refBases : altBases, 3 * i, 3 * i + 30);
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, 1 + 3 * i, readBases, Utils.dupBytes((byte) 30, readBases.length), "30M");
+            read.setMappingQuality(60);
+            reads.add(read);
+        }
+        // the second region shares three reads with the first
+        final List<List<GATKRead>> regionReads = Arrays.asList(reads.subList(0, 6), reads.subList(3, 9));
+
+        final ReadHaplotypeLikelihoodCache cache = new ReadHaplotypeLikelihoodCache(1000);
+        final ReadLikelihoodCalculationEngine cachingEngine = makeEngine(cache);
+        final ReadLikelihoodCalculationEngine engine = makeEngine(null);
+        for (final List<GATKRead> region : regionReads) {
+            final LikelihoodMatrix<GATKRead, Haplotype> expected = engine.computeReadLikelihoods(haplotypes, header, samples,
+                    Collections.singletonMap(sample, new ArrayList<>(region)), false).sampleMatrix(0);
+            final LikelihoodMatrix<GATKRead, Haplotype> actual = cachingEngine.computeReadLikelihoods(haplotypes, header, samples,
+                    Collections.singletonMap(sample, new ArrayList<>(region)), false).sampleMatrix(0);
+            for (int r = 0; r < region.size(); r++) {
+                for (int h = 0; h < haplotypes.size(); h++) {
+                    Assert.assertEquals(actual.get(h, r), expected.get(h, r), "read " + r + " haplotype " + h);
+                }
+            }
+        }
+        Assert.assertEquals(cache.getHits(), 3);
+        Assert.assertEquals(cache.getMisses(), 9);
+
+        // a new haplotype is a miss for every read
+        final byte[] otherBases = refBases.clone();
+        otherBases[10] = (byte) (otherBases[10] == 'A' ? 'C' : 'A');
+        cachingEngine.computeReadLikelihoods(Arrays.asList(haplotypes.get(0), new Haplotype(otherBases, false)), header, samples,
+                Collections.singletonMap(sample, new ArrayList<>(reads.subList(0, 3))), false);
+        Assert.assertEquals(cache.getHits(), 3);
+        Assert.assertEquals(cache.getMisses(), 12);
+
+        cachingEngine.close();
+        engine.close();
+    }
+
+    @Test
+    public void testPooledSamplesMatchSeparateSamples() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        final SampleList samples = new IndexedSampleList("sample1", "sample2", "sample3");
+
+        Utils.resetRandomGenerator();
+        final byte[] refBases = ArtificialReadUtils.createRandomReadBases(60, false);
+        final byte[] altBases = refBases.clone();
+        altBases[30] = (byte) (altBases[30] == 'A' ? 'C' : 'A');
+        final List<Haplotype> haplotypes = Arrays.asList(new Haplotype(refBases, true), new Haplotype(altBases, false));
+
+        // samples with different numbers of reads, including none
+        final Map<String, List<GATKRead>> readsBySample = new LinkedHashMap<>();
+        for (int s = 0; s < samples.numberOfSamples(); s++) {
+            final List<GATKRead> reads = new ArrayList<>();
+            for (int i = 0; i < 4 * s; i++) {
+                final byte[] readBases = Arrays.copyOfRange((i + s) % 2 == 0 ? refBases : altBases, 3 * i, 3 * i + 30);
+                final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read" + s + "_" + i, 0, 1 + 3 * i, readBases, Utils.dupBytes((byte) 30, readBases.length), "30M");
+                read.setMappingQuality(60);
+                reads.add(read);
+            }
+            readsBySample.put(samples.getSample(s), reads);
+        }
+
+        final ReadLikelihoodCalculationEngine engine = makeEngine(null);
+        final AlleleLikelihoods<GATKRead, Haplotype> pooled = engine.computeReadLikelihoods(haplotypes, header, samples,
+                copyReads(readsBySample), false);
+        for (int s = 0; s < samples.numberOfSamples(); s++) {
+            final String sample = samples.getSample(s);
+            final LikelihoodMatrix<GATKRead, Haplotype> expected = engine.computeReadLikelihoods(haplotypes, header, new IndexedSampleList(sample),
+                    Collections.singletonMap(sample, new ArrayList<>(readsBySample.get(sample))), false).sampleMatrix(0);
+            final LikelihoodMatrix<GATKRead, Haplotype> actual = pooled.sampleMatrix(s);
+            Assert.assertEquals(actual.evidenceCount(), expected.evidenceCount(), sample);
+            for (int r = 0; r < expected.evidenceCount(); r++) {
+                for (int h = 0; h < haplotypes.size(); h++) {
+                    Assert.assertEquals(actual.get(h, r), expected.get(h, r), sample + " read " + r + " haplotype " + h);
+                }
+            }
+        }
+        engine.close();
+    }
+
+    private static Map<String, List<GATKRead>> copyReads(final Map<String, List<GATKRead>> readsBySample) {
+        final Map<String, List<GATKRead>> result = new LinkedHashMap<>();
+        readsBySample.forEach((sample, reads) -> result.put(sample, new ArrayList<>(reads)));
+        return result;
+    }
+
+    private static ReadLikelihoodCalculationEngine makeEngine(final ReadHaplotypeLikelihoodCache cache) {
+        return new PairHMMLikelihoodCalculationEngine((byte) 10, null, new PairHMMNativeArguments(), PairHMM.Implementation.LOGLESS_CACHING,
+                null, QualityUtils.qualToErrorProbLog10(45), PairHMMLikelihoodCalculationEngine.PCRErrorModel.CONSERVATIVE,
+                PairHMM.BASE_QUALITY_SCORE_THRESHOLD, false, PairHMMLikelihoodCalculationEngine.DEFAULT_DYNAMIC_DISQUALIFICATION_SCALE_FACTOR,
+                ReadLikelihoodCalculationEngine.DEFAULT_EXPECTED_ERROR_RATE_PER_BASE, true, false, true, cache);
+    }
 }
@@ -16,6 +16,8 @@ import org.broadinstitute.hellbender.tools.walkers.genotyper.IndependentSampleGe
 import org.broadinstitute.hellbender.tools.walkers.genotyper.PloidyModel;
 import org.broadinstitute.hellbender.utils.GenomeLoc;
 import org.broadinstitute.hellbender.utils.GenomeLocParser;
+import org.broadinstitute.hellbender.utils.MathUtils;
+import org.broadinstitute.hellbender.utils.QualityUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.clipping.ReadClipper;
@@ -384,6 +386,45 @@ public final class ReferenceConfidenceModelUnitTest extends GATKBaseTest {
         }
     }
 
+    // the per-quality likelihood increments must give exactly what summing the log-likelihoods of each base gives
+    @Test
+    public void testRefVsAnyLikelihoodsMatchPerBaseSum() {
+        final byte refBase = 'A';
+        final List<GATKRead> reads = new ArrayList<>();
+        final byte[] quals = {7, 10, 20, 30, 40, 60, 93};
+        for ( int i = 0; i < quals.length * 2; i++ ) {
+            final byte[] bases = {i % 2 == 0 ? refBase : (byte) 'C', refBase, refBase};
+            reads.add(ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, 10, bases, Utils.dupBytes(quals[i / 2], 3), "3M"));
+        }
+        final ReadPileup pileup = new ReadPileup(new SimpleInterval("1", 10, 10), reads, 0);
+
+        for ( int ploidy = 1; ploidy <= 4; ploidy++ ) {
+            final int likelihoodCount = ploidy + 1;
+            final double[] expected = new double[likelihoodCount];
+            for ( int i = 0; i < reads.size(); i++ ) {
+                final byte qual = quals[i / 2];
+                final double match = QualityUtils.qualToProbLog10(qual);
+                final double mismatch = QualityUtils.qualToErrorProbLog10(qual) + MathUtils.LOG10_ONE_THIRD;
+                final double ref = i % 2 == 0 ? match : mismatch;
+                final double nonRef = i % 2 == 0 ? mismatch : match;
+                expected[0] += ref + Math.log10(ploidy);
+                expected[likelihoodCount - 1] += nonRef + Math.log10(ploidy);
+                for ( int a = 1, j = likelihoodCount - 2; a < likelihoodCount - 1; a++, j-- ) {
+                    expected[a] += MathUtils.approximateLog10SumLog10(ref + Math.log10(j), nonRef + Math.log10(a));
+                }
+            }
+            for ( int a = 0; a < likelihoodCount; a++ ) {
+                expected[a] -= reads.size() * Math.log10(ploidy);
+            }
+
+            final RefVsAnyResult result = (RefVsAnyResult)
+                    model.calcGenotypeLikelihoodsOfRefVsAny(ploidy, pileup, refBase, (byte) 6, null, false);
+            Assert.assertEquals(result.genotypeLikelihoods, expected, "ploidy " + ploidy);
+            Assert.assertEquals(result.refDepth, quals.length);
+            Assert.assertEquals(result.nonRefDepth, quals.length);
+        }
+    }
+
     @Test
     public void testOverlappingVariantContext() {
         final VariantContext vc10 = GATKVariantContextUtils.makeFromAlleles("test", "1", 10, Arrays.asList("A", "C"));
@@ -0,0 +1,92 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.MultiSampleEdge;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+public final class PackedKmerReadThreadingGraphUnitTest extends GATKBaseTest {
+
+    private static final int REF_LENGTH = 200;
+    private static final int READ_LENGTH = 60;
+
+    @DataProvider(name = "KmerSizes")
+    public Object[][] makeKmerSizes() {
+        // include the largest packable kmer size and a size that falls back to unpacked kmers
+        return new Object[][]{{5}, {10}, {25}, {PackedKmerReadThreadingGraph.MAX_PACKED_KMER_SIZE}, {PackedKmerReadThreadingGraph.MAX_PACKED_KMER_SIZE + 1}};
+    }
+
+    @Test(dataProvider = "KmerSizes")
+    public void testSameGraphAsReadThreadingGraph(final int kmerSize) {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        Utils.resetRandomGenerator();
+        final Random random = Utils.getRandomGenerator();
+
+        // a reference with a repeated segment, so that there are non-unique kmers
+        final byte[] ref = ArtificialReadUtils.createRandomReadBases(REF_LENGTH, false);
+        System.arraycopy(ref, 20, ref, 120, 40);
+
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < 50; i++ ) {
+            final int start = random.nextInt(REF_LENGTH - READ_LENGTH);
+            final byte[] bases = Arrays.copyOfRange(ref, start, start + READ_LENGTH);
+            for ( int j = 0; j < READ_LENGTH; j++ ) {
+                final double r = random.nextDouble();
+                if ( r < 0.01 ) {
+                    bases[j] = 'N';
+                } else if ( r < 0.03 ) {
+                    bases[j] = (byte) "ACGT".charAt(random.nextInt(4));
+                }
+            }
+            reads.add(ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, start + 1, bases, Utils.dupBytes((byte) 30, READ_LENGTH), READ_LENGTH + "M"));
+        }
+
+        final ReadThreadingGraph expected = new ReadThreadingGraph(kmerSize, false, (byte) 6, 1, -1);
+        final ReadThreadingGraph actual = new PackedKmerReadThreadingGraph(kmerSize, false, (byte) 6, 1, -1);
+        for ( final ReadThreadingGraph graph : Arrays.asList(expected, actual) ) {
+            graph.addSequence("ref", ref, true);
+            reads.forEach(read -> graph.addRead(read, header));
+            graph.buildGraphIfNecessary();
+        }
+
+        Assert.assertEquals(kmerStrings(actual.getNonUniqueKmers()), kmerStrings(expected.getNonUniqueKmers()));
+        Assert.assertEquals(edgeStrings(actual), edgeStrings(expected));
+    }
+
+    @Test
+    public void testNonUniqueKmersWithUnpackableBases() {
+        // the repeated kmers containing an N or a lower case base can't be packed
+        final String sequence = "ACGTNACGTNACGTacgtTTacgtTT";
+        final ReadThreadingGraph.SequenceForKmers sequenceForKmers = new ReadThreadingGraph.SequenceForKmers("seq", sequence.getBytes(), 0, sequence.length(), 1, false);
+        for ( final int kmerSize : Arrays.asList(3, 4, 5) ) {
+            final Set<Kmer> actual = PackedKmerReadThreadingGraph.determineNonUniqueKmers(
+                    Collections.singletonList(Collections.singletonList(sequenceForKmers)), kmerSize);
+            final Set<Kmer> expected = new HashSet<>(ReadThreadingGraph.determineNonUniqueKmers(sequenceForKmers, kmerSize));
+            Assert.assertEquals(kmerStrings(actual), kmerStrings(expected), "kmer size " + kmerSize);
+        }
+    }
+
+    private static Set<String> kmerStrings(final Collection<Kmer> kmers) {
+        return kmers.stream().map(kmer -> new String(kmer.bases())).collect(Collectors.toSet());
+    }
+
+    // a canonical description of every edge in the graph, including its multiplicity
+    private static List<String> edgeStrings(final ReadThreadingGraph graph) {
+        final List<String> result = new ArrayList<>();
+        for ( final MultiSampleEdge edge : graph.edgeSet() ) {
+            result.add(graph.getEdgeSource(edge).getSequenceString() + "->" + graph.getEdgeTarget(edge).getSequenceString()
+                    + ':' + edge.getMultiplicity() + ':' + edge.isRef());
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
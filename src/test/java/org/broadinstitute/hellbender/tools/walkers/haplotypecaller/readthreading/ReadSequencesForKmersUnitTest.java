@@ -0,0 +1,84 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.MultiSampleEdge;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+public final class ReadSequencesForKmersUnitTest extends GATKBaseTest {
+
+    private static final int REF_LENGTH = 200;
+    private static final int READ_LENGTH = 60;
+    private static final byte MIN_BASE_QUALITY = 10;
+
+    @Test
+    public void testSameGraphsAsAddRead() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        Utils.resetRandomGenerator();
+        final Random random = Utils.getRandomGenerator();
+
+        // a reference with a repeated segment, so that there are non-unique kmers at the smaller kmer sizes
+        final byte[] ref = ArtificialReadUtils.createRandomReadBases(REF_LENGTH, false);
+        System.arraycopy(ref, 20, ref, 120, 30);
+
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < 50; i++ ) {
+            final int start = random.nextInt(REF_LENGTH - READ_LENGTH);
+            final byte[] bases = Arrays.copyOfRange(ref, start, start + READ_LENGTH);
+            final byte[] quals = Utils.dupBytes((byte) 30, READ_LENGTH);
+            for ( int j = 0; j < READ_LENGTH; j++ ) {
+                final double r = random.nextDouble();
+                if ( r < 0.01 ) {
+                    bases[j] = 'N';
+                } else if ( r < 0.03 ) {
+                    quals[j] = (byte) (MIN_BASE_QUALITY - 1);
+                } else if ( r < 0.05 ) {
+                    bases[j] = (byte) "ACGT".charAt(random.nextInt(4));
+                }
+            }
+            reads.add(ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, start + 1, bases, quals, READ_LENGTH + "M"));
+        }
+
+        // the same sequences are used for all the kmer sizes, in increasing order as in the assembler
+        final ReadSequencesForKmers readSequences = new ReadSequencesForKmers(reads, header, MIN_BASE_QUALITY);
+        for ( final int kmerSize : Arrays.asList(10, 20, 25, 35, 45) ) {
+            for ( final boolean packed : Arrays.asList(false, true) ) {
+                final ReadThreadingGraph expected = new ReadThreadingGraph(kmerSize, false, MIN_BASE_QUALITY, 1, -1);
+                expected.addSequence("ref", ref, true);
+                reads.forEach(read -> expected.addRead(read, header));
+                expected.buildGraphIfNecessary();
+
+                final ReadThreadingGraph actual = packed ? new PackedKmerReadThreadingGraph(kmerSize, false, MIN_BASE_QUALITY, 1, -1)
+                        : new ReadThreadingGraph(kmerSize, false, MIN_BASE_QUALITY, 1, -1);
+                actual.addSequence("ref", ref, true);
+                readSequences.addTo(actual);
+                actual.buildGraphIfNecessary();
+
+                Assert.assertEquals(kmerStrings(actual), kmerStrings(expected), "kmer size " + kmerSize);
+                Assert.assertEquals(edgeStrings(actual), edgeStrings(expected), "kmer size " + kmerSize);
+            }
+        }
+    }
+
+    private static Set<String> kmerStrings(final ReadThreadingGraph graph) {
+        return graph.getNonUniqueKmers().stream().map(kmer -> new String(kmer.bases())).collect(Collectors.toSet());
+    }
+
+    // a canonical description of every edge in the graph, including its multiplicity
+    private static List<String> edgeStrings(final ReadThreadingGraph graph) {
+        final List<String> result = new ArrayList<>();
+        for ( final MultiSampleEdge edge : graph.edgeSet() ) {
+            result.add(graph.getEdgeSource(edge).getSequenceString() + "->" + graph.getEdgeTarget(edge).getSequenceString()
+                    + ':' + edge.getMultiplicity() + ':' + edge.isRef());
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
@@ -64,6 +64,30 @@ public final class ReadThreadingAssemblerUnitTest extends GATKBaseTest {
 
     }
 
+    @Test
+    public void testConcurrentKmerSizesGiveSameHaplotypes() {
+        final SimpleInterval loc = new SimpleInterval("1", 100000, 100200);
+        final byte[] refBases = seq.getSubsequenceAt(loc.getContig(), loc.getStart(), loc.getEnd()).getBases();
+        final byte[] altBases = refBases.clone();
+        altBases[100] = altBases[100] == 'A' ? (byte) 'C' : (byte) 'A';
+
+        final List<GATKRead> reads = new LinkedList<>();
+        for ( int i = 0; i < 10; i++ ) {
+            final byte[] bases = (i % 2 == 0 ? refBases : altBases).clone();
+            final byte[] quals = Utils.dupBytes((byte) 30, bases.length);
+            reads.add(ArtificialReadUtils.createArtificialRead(header, "read" + i, loc.getContig(), loc.getStart(), bases, quals, bases.length + "M"));
+        }
+
+        final List<Integer> kmerSizes = Arrays.asList(10, 15, 25, 35);
+        final ReadThreadingAssembler sequential = new ReadThreadingAssembler(ReadThreadingAssembler.DEFAULT_NUM_PATHS_PER_GRAPH, kmerSizes, 2);
+        final ReadThreadingAssembler concurrent = new ReadThreadingAssembler(ReadThreadingAssembler.DEFAULT_NUM_PATHS_PER_GRAPH, kmerSizes, 2);
+        concurrent.setKmerSizeThreads(3);
+
+        final List<Haplotype> expected = assemble(sequential, refBases, loc, reads);
+        Assert.assertEquals(new HashSet<>(expected), new HashSet<>(Arrays.asList(new Haplotype(refBases, true), new Haplotype(altBases, false))));
+        Assert.assertEquals(assemble(concurrent, refBases, loc, reads), expected);
+    }
+
     @DataProvider(name = "AssembleIntervalsData")
     public Object[][] makeAssembleIntervalsData() {
         List<Object[]> tests = new ArrayList<>();
@@ -0,0 +1,99 @@
+package org.broadinstitute.hellbender.tools.walkers.markduplicates;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.DuplicateGroup;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.markduplicates.LibraryIdGenerator;
+import org.broadinstitute.hellbender.utils.read.markduplicates.ReadsKey;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class DuplicateGroupTableUnitTest extends GATKBaseTest {
+
+    private static final SAMFileHeader HEADER = ArtificialReadUtils.createArtificialSamHeader(3, 1, 1000000);
+    private static final Map<String, Byte> LIBRARY_INDEX = Collections.singletonMap(LibraryIdGenerator.UNKNOWN_LIBRARY, (byte) 0);
+
+    private static GATKRead makeRead(final int contig, final int start, final boolean reverse) {
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(HEADER, "read", contig, start, 10);
+        read.setIsReverseStrand(reverse);
+        return read;
+    }
+
+    private static List<ReadsKey> makeKeys(final int numKeys, final Random random) {
+        final List<ReadsKey> keys = new ArrayList<>(numKeys);
+        for (int i = 0; i < numKeys; i++) {
+            // a small range of positions, so that many keys are equal
+            final int contig = random.nextInt(3);
+            final int start = 1 + random.nextInt(500);
+            final boolean reverse = random.nextBoolean();
+            switch (random.nextInt(3)) {
+                case 0:
+                    keys.add(ReadsKey.getKeyForFragment(start, reverse, contig, (byte) 0));
+                    break;
+                case 1:
+                    keys.add(ReadsKey.getKeyForPair(HEADER, makeRead(contig, start, reverse),
+                            makeRead(random.nextInt(3), 1 + random.nextInt(500), random.nextBoolean()), LIBRARY_INDEX));
+                    break;
+                default:
+                    keys.add(ReadsKey.hashKeyForPassthroughRead(makeRead(contig, start, reverse)));
+            }
+        }
+        return keys;
+    }
+
+    @Test
+    public void testGroupsMatchHashMapOfReadsKeys() {
+        final List<ReadsKey> keys = makeKeys(20000, new Random(17));
+        final Map<ReadsKey, DuplicateGroup> expected = new HashMap<>();
+        final DuplicateGroupTable table = new DuplicateGroupTable();
+        for (final ReadsKey key : keys) {
+            final DuplicateGroup newGroup = new DuplicateGroup(false, false);
+            final DuplicateGroup expectedGroup = expected.computeIfAbsent(key, k -> newGroup);
+            Assert.assertSame(table.computeIfAbsent(key, () -> newGroup), expectedGroup, key.toString());
+        }
+        Assert.assertEquals(table.size(), expected.size());
+
+        final Map<DuplicateGroup, Boolean> visited = new IdentityHashMap<>();
+        table.forEachGroup(group -> Assert.assertNull(visited.put(group, true), "group visited twice"));
+        Assert.assertEquals(visited.size(), expected.size());
+        expected.values().forEach(group -> Assert.assertTrue(visited.containsKey(group)));
+    }
+
+    @Test
+    public void testFragmentAndPairKeysWithTheSameValueAreDistinct() {
+        final GATKRead first = makeRead(0, 100, false);
+        final ReadsKey fragmentKey = ReadsKey.getKeyForFragment(100, false, 0, (byte) 0);
+        final ReadsKey pairKey = ReadsKey.getKeyForPair(HEADER, first, makeRead(0, 200, true), LIBRARY_INDEX);
+        Assert.assertEquals(((ReadsKey.KeyForPair) pairKey).getFirstReadKeyValue(), ((ReadsKey.KeyForFragment) fragmentKey).getKeyValue());
+
+        final DuplicateGroupTable table = new DuplicateGroupTable();
+        final DuplicateGroup fragmentGroup = table.computeIfAbsent(fragmentKey, () -> new DuplicateGroup(false, false));
+        final DuplicateGroup pairGroup = table.computeIfAbsent(pairKey, () -> new DuplicateGroup(false, false));
+        Assert.assertNotSame(fragmentGroup, pairGroup);
+        Assert.assertEquals(table.size(), 2);
+    }
+
+    @Test
+    public void testClear() {
+        final DuplicateGroupTable table = new DuplicateGroupTable();
+        final List<ReadsKey> keys = makeKeys(5000, new Random(3));
+        keys.forEach(key -> table.computeIfAbsent(key, () -> new DuplicateGroup(false, false)));
+        Assert.assertTrue(table.size() > 0);
+
+        table.clear();
+        Assert.assertEquals(table.size(), 0);
+        table.forEachGroup(group -> Assert.fail("no groups should be left after clear"));
+        final DuplicateGroup group = table.computeIfAbsent(keys.get(0), () -> new DuplicateGroup(false, false));
+        Assert.assertSame(table.computeIfAbsent(keys.get(0), () -> new DuplicateGroup(false, false)), group);
+    }
+}
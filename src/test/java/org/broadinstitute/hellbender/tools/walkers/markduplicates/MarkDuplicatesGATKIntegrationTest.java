@@ -0,0 +1,133 @@
+package org.broadinstitute.hellbender.tools.walkers.markduplicates;
+
+import htsjdk.samtools.DuplicateScoringStrategy;
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.MarkDuplicatesSparkArgumentCollection;
+import org.broadinstitute.hellbender.engine.ReadsDataSource;
+import org.broadinstitute.hellbender.engine.ReadsPathDataSource;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.testutils.ArgumentsBuilder;
+import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
+import org.broadinstitute.hellbender.testutils.testers.MarkDuplicatesSparkTester;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSpark;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import picard.sam.markduplicates.MarkDuplicates;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class MarkDuplicatesGATKIntegrationTest extends CommandLineProgramTest {
+
+    private static final File TEST_DATA_DIR = AbstractMarkDuplicatesCommandLineProgramTest.TEST_DATA_DIR;
+
+    private static MarkDuplicatesSparkTester getTester(final int threads) {
+        final MarkDuplicatesSparkTester tester = new MarkDuplicatesSparkTester(DuplicateScoringStrategy.ScoringStrategy.TOTAL_MAPPED_REFERENCE_LENGTH, SAMFileHeader.SortOrder.queryname) {
+            @Override
+            protected CommandLineProgram getProgram() { return new MarkDuplicatesGATK(); }
+        };
+        tester.addArg("--" + MarkDuplicatesSparkArgumentCollection.DO_NOT_MARK_UNMAPPED_MATES_LONG_NAME);
+        tester.addArg("--" + MarkDuplicatesGATK.THREADS_FULL_NAME, String.valueOf(threads));
+        return tester;
+    }
+
+    @DataProvider(name = "threads")
+    public Object[][] threads() {
+        return new Object[][] {{1}, {4}};
+    }
+
+    @Test(dataProvider = "threads")
+    public void testMappedPairsAndFragments(final int threads) {
+        final MarkDuplicatesSparkTester tester = getTester(threads);
+        tester.addMappedFragment(1, 1, true, AbstractMarkDuplicatesCommandLineProgramTest.DEFAULT_BASE_QUALITY); // duplicate
+        tester.addMappedPair(1, 1, 100, false, false, AbstractMarkDuplicatesCommandLineProgramTest.ELIGIBLE_BASE_QUALITY);
+        tester.addMappedPair(1, 1, 100, true, true, AbstractMarkDuplicatesCommandLineProgramTest.DEFAULT_BASE_QUALITY); // duplicate
+        tester.addMappedFragment(2, 5000, false, AbstractMarkDuplicatesCommandLineProgramTest.ELIGIBLE_BASE_QUALITY);
+        tester.addMappedFragment(2, 5000, true, AbstractMarkDuplicatesCommandLineProgramTest.DEFAULT_BASE_QUALITY); // duplicate
+        tester.addUnmappedPair(-1, AbstractMarkDuplicatesCommandLineProgramTest.DEFAULT_BASE_QUALITY);
+        tester.runTest();
+    }
+
+    @Test(dataProvider = "threads")
+    public void testOpticalDuplicateFinding(final int threads) {
+        final MarkDuplicatesSparkTester tester = getTester(threads);
+        tester.setExpectedOpticalDuplicate(1);
+        tester.addMatePair("READ0:1:1:1:1", 1, 1, 100, false, false, false, false, "50M", "50M", false, true, false,
+                false, false, AbstractMarkDuplicatesCommandLineProgramTest.ELIGIBLE_BASE_QUALITY); // non-duplicate mapped pair to start
+        tester.addMatePair("READ1:1:1:1:300", 1, 1, 100, false, false, true, true, "50M", "50M", false, true, false,
+                false, false, AbstractMarkDuplicatesCommandLineProgramTest.DEFAULT_BASE_QUALITY); // duplicate pair, NOT optical duplicate (delta-Y > 100)
+        tester.addMatePair("READ2:1:1:1:50", 1, 1, 100, false, false, true, true, "50M", "50M", false, true, false,
+                false, false, AbstractMarkDuplicatesCommandLineProgramTest.DEFAULT_BASE_QUALITY); // duplicate pair, expected optical duplicate (delta-X and delta-Y < 100)
+        tester.runTest();
+    }
+
+    @DataProvider(name = "sameAsSpark")
+    public Object[][] sameAsSpark() {
+        final File[] opticalAndExample = {new File(TEST_DATA_DIR, "optical_dupes.queryname.bam"), new File(TEST_DATA_DIR, "example.chr1.1-1K.markedDups.queryname.bam")};
+        final File[] querygrouped = {new File(TEST_DATA_DIR, "example.chr1.1-1K.markedDups.querygrouped.bam")};
+        return new Object[][] {
+                {opticalAndExample, 1, MarkDuplicates.DuplicateTaggingPolicy.DontTag},
+                {opticalAndExample, 4, MarkDuplicates.DuplicateTaggingPolicy.All},
+                {querygrouped, 4, MarkDuplicates.DuplicateTaggingPolicy.OpticalOnly},
+        };
+    }
+
+    @Test(dataProvider = "sameAsSpark")
+    public void testSameAsMarkDuplicatesSpark(final File[] inputs, final int threads, final MarkDuplicates.DuplicateTaggingPolicy taggingPolicy) throws IOException {
+        final File output = createTempFile("markdups", ".bam");
+        final File metrics = createTempFile("markdups_metrics", ".txt");
+        final ArgumentsBuilder args = makeArgs(inputs, output, metrics, taggingPolicy);
+        args.add(MarkDuplicatesGATK.THREADS_FULL_NAME, threads);
+        runCommandLine(args);
+
+        final File sparkOutput = createTempFile("markdups_spark", ".bam");
+        final File sparkMetrics = createTempFile("markdups_spark_metrics", ".txt");
+        new MarkDuplicatesSpark().instanceMain(makeArgs(inputs, sparkOutput, sparkMetrics, taggingPolicy).getArgsArray());
+
+        final Map<String, String> marks = getMarks(output);
+        Assert.assertEquals(marks, getMarks(sparkOutput));
+        Assert.assertTrue(marks.values().stream().anyMatch(mark -> mark.startsWith("true")));
+        IntegrationTestSpec.assertEqualTextFiles(metrics, sparkMetrics, "#");
+    }
+
+    private static ArgumentsBuilder makeArgs(final File[] inputs, final File output, final File metrics, final MarkDuplicates.DuplicateTaggingPolicy taggingPolicy) {
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        for (final File input : inputs) {
+            args.addInput(input);
+        }
+        args.addOutput(output);
+        args.add(StandardArgumentDefinitions.METRICS_FILE_LONG_NAME, metrics.getAbsolutePath());
+        args.add(MarkDuplicatesSparkArgumentCollection.DUPLICATE_TAGGING_POLICY_LONG_NAME, taggingPolicy.name());
+        return args;
+    }
+
+    /**
+     * @return the duplicate flag and duplicate type of each read, by its name, flags and position
+     */
+    private static Map<String, String> getMarks(final File bam) {
+        final Map<String, String> marks = new HashMap<>();
+        try (final ReadsDataSource reads = new ReadsPathDataSource(bam.toPath())) {
+            for (final GATKRead read : reads) {
+                final String key = read.getName() + " " + read.isFirstOfPair() + " " + read.isSecondaryAlignment() + " " + read.isSupplementaryAlignment() +
+                        " " + read.getContig() + ":" + read.getStart();
+                Assert.assertNull(marks.put(key, read.isDuplicate() + " " + read.getAttributeAsString(MarkDuplicates.DUPLICATE_TYPE_TAG)), key);
+            }
+        }
+        return marks;
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testCoordinateSortedInput() {
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.addInput(new File(TEST_DATA_DIR, "example.chr1.1-1K.unmarkedDups.bam"));
+        args.addOutput(createTempFile("markdups", ".bam"));
+        runCommandLine(args);
+    }
+}
@@ -19,6 +19,8 @@ import org.testng.annotations.Test;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -1057,4 +1059,44 @@ public final class UtilsUnitTest extends GATKBaseTest {
         Utils.concat(arr1, arr2, constructor);
     }
 
+
+    @Test
+    public void testThreadRandomGenerators() throws Exception {
+        Utils.resetRandomGenerator();
+        final int[] globalDraws = Utils.getRandomGenerator().ints(10, 0, 1000).toArray();
+        final int[] globalPermutation = Utils.getRandomDataGenerator().nextPermutation(100, 10);
+
+        try {
+            // stream 0 starts like the global generators after a reset
+            Utils.setThreadRandomGenerators(0);
+            Assert.assertEquals(Utils.getRandomGenerator().ints(10, 0, 1000).toArray(), globalDraws);
+            Assert.assertEquals(Utils.getRandomDataGenerator().nextPermutation(100, 10), globalPermutation);
+
+            // each stream is reproducible, and private to the thread that installed it
+            Utils.setThreadRandomGenerators(5);
+            final int[] streamDraws = Utils.getRandomGenerator().ints(10, 0, 1000).toArray();
+            Assert.assertFalse(Arrays.equals(streamDraws, globalDraws));
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                final int[] otherThreadDraws = executor.submit(() -> {
+                    Utils.setThreadRandomGenerators(5);
+                    try {
+                        return Utils.getRandomGenerator().ints(10, 0, 1000).toArray();
+                    } finally {
+                        Utils.clearThreadRandomGenerators();
+                    }
+                }).get();
+                Assert.assertEquals(otherThreadDraws, streamDraws);
+            } finally {
+                executor.shutdown();
+            }
+        } finally {
+            Utils.clearThreadRandomGenerators();
+        }
+
+        // the global generators are untouched by the thread's own
+        Utils.resetRandomGenerator();
+        Assert.assertEquals(Utils.getRandomGenerator().ints(10, 0, 1000).toArray(), globalDraws);
+    }
+
 }
@@ -0,0 +1,72 @@
+package org.broadinstitute.hellbender.utils.codecs;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.seekablestream.ByteArraySeekableStream;
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import org.apache.commons.lang3.StringUtils;
+import org.broadinstitute.hellbender.tools.sv.SVFeaturesHeader;
+import org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStream.Reader;
+import org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStream.Writer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class VariantSitesBCICodecUnitTest {
+    private static final SAMSequenceDictionary dict = new SAMSequenceDictionary();
+    static {
+        dict.addSequence(new SAMSequenceRecord("20", 64444167));
+    }
+
+    private static List<VariantContext> roundTrip( final List<VariantContext> variants, final List<String> infoKeys ) {
+        final VariantSitesBCICodec codec = new VariantSitesBCICodec();
+        final ByteArrayOutputStream os = new ByteArrayOutputStream(1024);
+        final SVFeaturesHeader header =
+                new SVFeaturesHeader(VariantContext.class.getSimpleName(), VariantSitesBCICodec.BCI_VERSION, dict, infoKeys);
+        final Writer<VariantContext> writer = new Writer<>("in-memory stream", os, header, codec::encode);
+        for ( final VariantContext variant : variants ) {
+            writer.write(variant);
+        }
+        writer.close();
+        final Reader<VariantContext> reader =
+                new Reader<>("in-memory stream", new ByteArraySeekableStream(os.toByteArray()), codec);
+        final List<VariantContext> recoveredVariants = new ArrayList<>(variants.size());
+        while ( reader.hasNext() ) {
+            recoveredVariants.add(reader.readStream());
+        }
+        return recoveredVariants;
+    }
+
+    @Test
+    public void testRoundTripLongAllele() {
+        // longer than the 64K bytes that DataOutputStream.writeUTF can write
+        final String insertedBases = StringUtils.repeat("ACGT", 20000);
+        final Allele ref = Allele.create("A", true);
+        final Allele alt = Allele.create("A" + insertedBases, false);
+        final VariantContext variant = new VariantContextBuilder("test", "20", 1000, 1000, Arrays.asList(ref, alt))
+                .id("sv1")
+                .log10PError(-5.0)
+                .passFilters()
+                .attribute("SVSEQ", insertedBases)
+                .make();
+
+        final List<VariantContext> recoveredVariants = roundTrip(Collections.singletonList(variant), Collections.singletonList("SVSEQ"));
+        Assert.assertEquals(recoveredVariants.size(), 1);
+        final VariantContext recovered = recoveredVariants.get(0);
+        Assert.assertEquals(recovered.getStart(), 1000);
+        Assert.assertEquals(recovered.getEnd(), 1000);
+        Assert.assertEquals(recovered.getID(), "sv1");
+        Assert.assertEquals(recovered.getAlleles(), Arrays.asList(ref, alt));
+        Assert.assertEquals(recovered.getLog10PError(), -5.0);
+        Assert.assertTrue(recovered.filtersWereApplied());
+        Assert.assertFalse(recovered.isFiltered());
+        Assert.assertEquals(recovered.getAttribute("SVSEQ"), insertedBases);
+    }
+}
@@ -804,6 +804,60 @@ public final class AlleleLikelihoodsUnitTest {
         Assert.assertEquals(newLk, 0.0, " reporting the zoombie lk of 99.0?");
     }
 
+    // values of every allele share a single array per sample so removing, growing and marginalizing must keep them apart.
+    @Test
+    public void testRemoveGrowAndMarginalizeKeepAlleleValuesApart() {
+        final List<SimpleInterval> evidence = IntStream.range(1, 6).mapToObj(i -> new SimpleInterval("seq1", i, i)).collect(Collectors.toList());
+        final Allele ref = Allele.REF_A;
+        final Allele alt1 = Allele.ALT_C;
+        final Allele alt2 = Allele.ALT_G;
+        final AlleleLikelihoods<SimpleInterval, Allele> lk = new AlleleLikelihoods<>(
+                SampleList.singletonSampleList("sample"),
+                AlleleList.newList(Arrays.asList(ref, alt1, alt2)),
+                Collections.singletonMap("sample", new ArrayList<>(evidence)));
+        final LikelihoodMatrix<SimpleInterval, Allele> matrix = lk.sampleMatrix(0);
+        for (int a = 0; a < 3; a++) {
+            for (int r = 0; r < evidence.size(); r++) {
+                matrix.set(a, r, -(10 * a + r));
+            }
+        }
+
+        // the evidence view returned before the removal is updated in place
+        final List<SimpleInterval> view = lk.sampleEvidence(0);
+        lk.retainEvidence(e -> e.getStart() % 2 == 1);
+        Assert.assertEquals(view, Arrays.asList(evidence.get(0), evidence.get(2), evidence.get(4)));
+        for (int a = 0; a < 3; a++) {
+            for (int r = 0; r < 3; r++) {
+                Assert.assertEquals(matrix.get(a, r), -(10.0 * a + 2 * r));
+            }
+        }
+
+        // more evidence than the original capacity
+        final List<SimpleInterval> extra = IntStream.range(10, 20).mapToObj(i -> new SimpleInterval("seq1", i, i)).collect(Collectors.toList());
+        lk.addEvidence(Collections.singletonMap("sample", extra), -100.0);
+        Assert.assertEquals(lk.evidenceCount(), 13);
+        final double[] buffer = new double[13];
+        for (int a = 0; a < 3; a++) {
+            lk.sampleMatrix(0).copyAlleleLikelihoods(a, buffer, 0);
+            for (int r = 0; r < 3; r++) {
+                Assert.assertEquals(buffer[r], -(10.0 * a + 2 * r));
+            }
+            for (int r = 3; r < 13; r++) {
+                Assert.assertEquals(buffer[r], -100.0);
+            }
+        }
+
+        final Map<Allele, List<Allele>> newToOld = new LinkedHashMap<>();
+        newToOld.put(ref, Collections.singletonList(ref));
+        newToOld.put(alt2, Arrays.asList(alt1, alt2));
+        final AlleleLikelihoods<SimpleInterval, Allele> marginal = lk.marginalize(newToOld);
+        for (int r = 0; r < 3; r++) {
+            Assert.assertEquals(marginal.sampleMatrix(0).get(0, r), -(2.0 * r));
+            Assert.assertEquals(marginal.sampleMatrix(0).get(1, r), -(10.0 + 2 * r));
+        }
+        Assert.assertEquals(marginal.sampleMatrix(0).get(1, 12), -100.0);
+    }
+
     @DataProvider(name="readCountsAndnumberOfAllelesData")
     public Object[][] readCountsAndnumberOfAllelesData() {
         final Object[][] result = new Object[READ_COUNTS.length * ALLELE_COUNTS.length * 2][];
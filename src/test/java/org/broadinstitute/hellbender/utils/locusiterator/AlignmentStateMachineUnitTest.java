@@ -1,6 +1,8 @@
 package org.broadinstitute.hellbender.utils.locusiterator;
 
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -74,4 +76,26 @@ public final class AlignmentStateMachineUnitTest extends LocusIteratorByStateBas
         Assert.assertEquals(state.getCurrentCigarElement(), null);
         Assert.assertNotNull(state.toString());
     }
+
+    @Test
+    public void testIsInsideAdaptorMatchesReadUtils() {
+        for ( final boolean reverse : Arrays.asList(false, true) ) {
+            // a pair whose fragment is shorter than the read, so that the read runs into the adaptor
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read", 0, 10, 20);
+            read.setIsPaired(true);
+            read.setIsReverseStrand(reverse);
+            read.setMateIsReverseStrand(!reverse);
+            read.setMatePosition(read.getContig(), reverse ? 15 : 10);
+            read.setFragmentLength(reverse ? -15 : 15);
+
+            final AlignmentStateMachine state = new AlignmentStateMachine(read);
+            int nInsideAdaptor = 0;
+            while ( state.stepForwardOnGenome() != null ) {
+                final boolean expected = ReadUtils.isBaseInsideAdaptor(read, state.getGenomePosition());
+                Assert.assertEquals(state.isInsideAdaptor(state.getGenomePosition()), expected, "position " + state.getGenomePosition());
+                nInsideAdaptor += expected ? 1 : 0;
+            }
+            Assert.assertTrue(nInsideAdaptor > 0);
+        }
+    }
 }
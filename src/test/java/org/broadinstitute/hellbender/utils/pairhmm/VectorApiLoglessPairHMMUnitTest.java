@@ -0,0 +1,106 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeArguments;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public final class VectorApiLoglessPairHMMUnitTest extends GATKBaseTest {
+
+    // same tolerance as for the cached vs. uncached LoglessPairHMM calculations in PairHMMUnitTest
+    private static final double TOLERANCE = 1e-9;
+
+    private static PairHMM makeVectorApiHMM() {
+        try {
+            return PairHMM.Implementation.VECTOR_API_LOGLESS_CACHING.makeNewHMM(new PairHMMNativeArguments());
+        } catch ( final UserException.HardwareFeatureException e ) {
+            throw new SkipException("Java Vector API PairHMM implementation not available", e);
+        }
+    }
+
+    @DataProvider(name = "ReadAndHaplotypeLengths")
+    public Object[][] makeReadAndHaplotypeLengths() {
+        final List<Object[]> tests = new ArrayList<>();
+        // include lengths shorter and longer than the vector width, and reads longer than the haplotype
+        for ( final int readLength : Arrays.asList(1, 3, 8, 17, 100, 151) ) {
+            for ( final int haplotypeLength : Arrays.asList(1, 5, 16, 33, 150, 301) ) {
+                for ( final boolean tristateCorrection : Arrays.asList(true, false) ) {
+                    tests.add(new Object[]{readLength, haplotypeLength, tristateCorrection});
+                }
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "ReadAndHaplotypeLengths")
+    public void testMatchesLoglessPairHMM(final int readLength, final int haplotypeLength, final boolean tristateCorrection) {
+        final PairHMM vectorHMM = makeVectorApiHMM();
+        final LoglessPairHMM loglessHMM = new LoglessPairHMM();
+        if ( ! tristateCorrection ) {
+            vectorHMM.doNotUseTristateCorrection();
+            loglessHMM.doNotUseTristateCorrection();
+        }
+        vectorHMM.initialize(readLength, haplotypeLength);
+        loglessHMM.initialize(readLength, haplotypeLength);
+
+        Utils.resetRandomGenerator();
+        final Random random = Utils.getRandomGenerator();
+        for ( int trial = 0; trial < 10; trial++ ) {
+            final byte[] haplotypeBases = ArtificialReadUtils.createRandomReadBases(haplotypeLength, true);
+            final byte[] readBases = ArtificialReadUtils.createRandomReadBases(readLength, true);
+            // in half of the trials, make the read a (mutated) substring of the haplotype so that the likelihood is not negligible
+            if ( trial % 2 == 0 && readLength <= haplotypeLength ) {
+                final int start = random.nextInt(haplotypeLength - readLength + 1);
+                System.arraycopy(haplotypeBases, start, readBases, 0, readLength);
+                readBases[random.nextInt(readLength)] = 'A';
+            }
+            final byte[] readQuals = ArtificialReadUtils.createRandomReadQuals(readLength);
+            final byte[] insertionGOP = Utils.dupBytes((byte) (35 + random.nextInt(10)), readLength);
+            final byte[] deletionGOP = Utils.dupBytes((byte) (35 + random.nextInt(10)), readLength);
+            final byte[] overallGCP = Utils.dupBytes((byte) 10, readLength);
+
+            final double expected = loglessHMM.computeReadLikelihoodGivenHaplotypeLog10(haplotypeBases, readBases, readQuals, insertionGOP, deletionGOP, overallGCP, true, null);
+            final double actual = vectorHMM.computeReadLikelihoodGivenHaplotypeLog10(haplotypeBases, readBases, readQuals, insertionGOP, deletionGOP, overallGCP, true, null);
+            Assert.assertEquals(actual, expected, TOLERANCE, "read " + new String(readBases) + " vs haplotype " + new String(haplotypeBases));
+        }
+    }
+
+    @Test
+    public void testMatchesLoglessPairHMMWithCachedReadValues() {
+        final PairHMM vectorHMM = makeVectorApiHMM();
+        final LoglessPairHMM loglessHMM = new LoglessPairHMM();
+        final String prefix = "AACCGGTTTTTGGGCCCAAACGTACGTACAGTTGGTCAACATCGATCAGGTTCCGGAGTAC";
+        final List<byte[]> haplotypes = Arrays.asList(
+                (prefix + "ACGTGTCAAACCGGGTT").getBytes(),
+                (prefix + "ACGTGTCACACTGGGTT").getBytes(),
+                (prefix + "ACGTGTCACTCCGCGTT").getBytes(),
+                (prefix + "ACGTGTCACTCCGCGTTACGT").getBytes());
+        final byte[] readBases = "GTTCCGGAGTACACGTGTCACACTGGATT".getBytes();
+        final byte[] readQuals = Utils.dupBytes((byte) 30, readBases.length);
+        final byte[] insertionGOP = Utils.dupBytes((byte) 45, readBases.length);
+        final byte[] deletionGOP = Utils.dupBytes((byte) 40, readBases.length);
+        final byte[] overallGCP = Utils.dupBytes((byte) 10, readBases.length);
+
+        final int maxHaplotypeLength = haplotypes.stream().mapToInt(h -> h.length).max().getAsInt();
+        vectorHMM.initialize(readBases.length, maxHaplotypeLength);
+        loglessHMM.initialize(readBases.length, maxHaplotypeLength);
+
+        // only the first haplotype recaches the read values, as in PairHMM.computeLog10Likelihoods
+        for ( int h = 0; h < haplotypes.size(); h++ ) {
+            final byte[] nextHaplotype = h == haplotypes.size() - 1 ? null : haplotypes.get(h + 1);
+            final double expected = loglessHMM.computeReadLikelihoodGivenHaplotypeLog10(haplotypes.get(h), readBases, readQuals, insertionGOP, deletionGOP, overallGCP, h == 0, nextHaplotype);
+            final double actual = vectorHMM.computeReadLikelihoodGivenHaplotypeLog10(haplotypes.get(h), readBases, readQuals, insertionGOP, deletionGOP, overallGCP, h == 0, nextHaplotype);
+            Assert.assertEquals(actual, expected, TOLERANCE, "haplotype " + h);
+        }
+    }
+}
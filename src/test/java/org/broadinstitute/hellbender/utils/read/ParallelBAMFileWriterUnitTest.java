@@ -0,0 +1,146 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.BAMFileSpan;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMFileWriterFactory;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SBIIndexWriter;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import htsjdk.samtools.util.FileExtensions;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.BaseUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public final class ParallelBAMFileWriterUnitTest extends GATKBaseTest {
+    private static final File INPUT_BAM = new File(publicTestDir + "org/broadinstitute/hellbender/engine/CEUTrio.HiSeq.WGS.b37.NA12878.20.21.10000000-10000020.with.unmapped.bam");
+
+    private static final long SBI_GRANULARITY = 100;
+
+    @DataProvider(name = "compressionThreads")
+    public Object[][] compressionThreads() {
+        return new Object[][] {{1}, {2}, {4}, {8}};
+    }
+
+    /**
+     * Coordinate-sorted reads of random lengths across several contigs, followed by unmapped reads, so that the output
+     * spans many BGZF blocks, with records straddling block boundaries
+     */
+    private static List<SAMRecord> makeRecords(final SAMFileHeader header, final int readsPerContig, final int unmappedReads) {
+        final Random random = new Random(42);
+        final List<SAMRecord> records = new ArrayList<>();
+        for ( int contig = 0; contig < header.getSequenceDictionary().size(); contig++ ) {
+            final int contigLength = header.getSequenceDictionary().getSequence(contig).getSequenceLength();
+            final int[] starts = random.ints(readsPerContig, 1, contigLength - 300).sorted().toArray();
+            for ( int i = 0; i < readsPerContig; i++ ) {
+                records.add(makeRecord(header, "read" + records.size(), contig, starts[i], random));
+            }
+        }
+        for ( int i = 0; i < unmappedReads; i++ ) {
+            records.add(makeRecord(header, "read" + records.size(), SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX, SAMRecord.NO_ALIGNMENT_START, random));
+        }
+        return records;
+    }
+
+    private static SAMRecord makeRecord(final SAMFileHeader header, final String name, final int contig, final int start, final Random random) {
+        final int length = 50 + random.nextInt(250);
+        final byte[] bases = new byte[length];
+        final byte[] quals = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            bases[i] = BaseUtils.baseIndexToSimpleBase(random.nextInt(4));
+            quals[i] = (byte) random.nextInt(50);
+        }
+        return ArtificialReadUtils.createArtificialSAMRecord(header, name, contig, start, bases, quals);
+    }
+
+    @Test(dataProvider = "compressionThreads")
+    public void testOutputIdenticalToSerialWriter(final int compressionThreads) throws IOException {
+        final File outputDir = createTempDir("parallelBAMWriter");
+        final File expectedBam = new File(outputDir, "expected.bam");
+        final File actualBam = new File(outputDir, "actual.bam");
+
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(4, 1, 1_000_000);
+        final List<SAMRecord> records = makeRecords(header, 2_000, 500);
+        try ( final SAMFileWriter expectedWriter = new SAMFileWriterFactory().setCreateIndex(true).setCreateMd5File(true).makeBAMWriter(header, true, expectedBam);
+              final SAMFileWriter actualWriter = new ParallelBAMFileWriter(actualBam.toPath(), header, compressionThreads, true, true, SBI_GRANULARITY) ) {
+            for ( final SAMRecord record : records ) {
+                expectedWriter.addAlignment(record);
+                actualWriter.addAlignment(record);
+            }
+        }
+
+        // make sure we actually exercised the compression threads
+        Assert.assertTrue(actualBam.length() > 10 * BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE, "only " + actualBam.length() + " bytes written");
+        Assert.assertEquals(Files.readAllBytes(actualBam.toPath()), Files.readAllBytes(expectedBam.toPath()));
+        Assert.assertEquals(Files.readAllBytes(indexPath(actualBam)), Files.readAllBytes(indexPath(expectedBam)));
+        Assert.assertEquals(Files.readAllLines(new File(actualBam.getPath() + ".md5").toPath()),
+                            Files.readAllLines(new File(expectedBam.getPath() + ".md5").toPath()));
+        Assert.assertEquals(Files.readAllBytes(new File(actualBam.getPath() + FileExtensions.SBI).toPath()), makeSplittingIndex(expectedBam, SBI_GRANULARITY));
+    }
+
+    /**
+     * @return the SBI index of the given BAM, computed from the file pointers of its records as
+     *         {@link org.broadinstitute.hellbender.tools.spark.CreateHadoopBamSplittingIndex} does
+     */
+    private static byte[] makeSplittingIndex(final File bam, final long granularity) throws IOException {
+        final ByteArrayOutputStream sbi = new ByteArrayOutputStream();
+        try ( final SamReader reader = SamReaderFactory.makeDefault().enable(SamReaderFactory.Option.INCLUDE_SOURCE_IN_RECORDS).open(bam) ) {
+            final SBIIndexWriter indexer = new SBIIndexWriter(sbi, granularity);
+            long nextStart = 0;
+            for ( final SAMRecord record : reader ) {
+                final BAMFileSpan filePointer = (BAMFileSpan) record.getFileSource().getFilePointer();
+                indexer.processRecord(filePointer.getFirstOffset());
+                nextStart = filePointer.getChunks().get(0).getChunkEnd();
+            }
+            indexer.finish(nextStart, bam.length());
+        }
+        return sbi.toByteArray();
+    }
+
+    @Test
+    public void testEmptyOutput() throws IOException {
+        final File outputDir = createTempDir("parallelBAMWriter");
+        final File expectedBam = new File(outputDir, "expected.bam");
+        final File actualBam = new File(outputDir, "actual.bam");
+
+        try ( final SamReader reader = SamReaderFactory.makeDefault().open(INPUT_BAM) ) {
+            final SAMFileHeader header = reader.getFileHeader();
+            new SAMFileWriterFactory().makeBAMWriter(header, true, expectedBam).close();
+            new ParallelBAMFileWriter(actualBam.toPath(), header, 2, false, false, 0).close();
+        }
+
+        Assert.assertEquals(Files.readAllBytes(actualBam.toPath()), Files.readAllBytes(expectedBam.toPath()));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnsortedRecordsRejected() throws IOException {
+        final File actualBam = createTempFile("parallelBAMWriter", ".bam");
+        try ( final SamReader reader = SamReaderFactory.makeDefault().open(INPUT_BAM) ) {
+            final SAMFileHeader header = reader.getFileHeader();
+            final SAMRecord first = reader.iterator().next();
+            final SAMRecord later = first.deepCopy();
+            later.setAlignmentStart(first.getAlignmentStart() - 1);
+            try ( final SAMFileWriter writer = new ParallelBAMFileWriter(actualBam.toPath(), header, 2, false, false, 0) ) {
+                writer.addAlignment(first);
+                writer.addAlignment(later);
+            }
+        }
+    }
+
+    private static Path indexPath(final File bam) {
+        return new File(bam.getPath().replaceAll(FileExtensions.BAM + "$", FileExtensions.BAI_INDEX)).toPath();
+    }
+}
@@ -0,0 +1,159 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public final class RecalDatumTableUnitTest extends GATKBaseTest {
+    private static final int[] DIMENSIONS = {3, 10, 7, 2};
+
+    private static double errorFor(final int i) {
+        return (i % 5) / 4.0;
+    }
+
+    private static void assertSameTables(final NestedIntegerArray<RecalDatum> actual, final NestedIntegerArray<RecalDatum> expected) {
+        final List<NestedIntegerArray.Leaf<RecalDatum>> actualLeaves = actual.getAllLeaves();
+        final List<NestedIntegerArray.Leaf<RecalDatum>> expectedLeaves = expected.getAllLeaves();
+        Assert.assertEquals(actualLeaves.size(), expectedLeaves.size());
+        for ( int i = 0; i < actualLeaves.size(); i++ ) {
+            final RecalDatum actualDatum = actualLeaves.get(i).value;
+            final RecalDatum expectedDatum = expectedLeaves.get(i).value;
+            Assert.assertEquals(actualLeaves.get(i).keys, expectedLeaves.get(i).keys);
+            Assert.assertEquals(actualDatum.getNumObservations(), expectedDatum.getNumObservations());
+            Assert.assertEquals(actualDatum.getNumMismatches(), expectedDatum.getNumMismatches());
+            Assert.assertEquals(actualDatum.getEstimatedQReported(), expectedDatum.getEstimatedQReported());
+        }
+    }
+
+    @Test
+    public void testMatchesNestedIntegerArray() {
+        final RecalDatumTable table = new RecalDatumTable(DIMENSIONS);
+        final NestedIntegerArray<RecalDatum> expected = new NestedIntegerArray<>(DIMENSIONS);
+        Assert.assertTrue(table.isEmpty());
+
+        for ( int i = 0; i < 1000; i++ ) {
+            final int rg = i % 3;
+            final int qual = (i * 7) % 10;
+            final int cov = (i * 13) % 7;
+            final int event = i % 2;
+            table.increment4Keys((byte) qual, errorFor(i), rg, qual, cov, event);
+            RecalUtils.incrementDatumOrPutIfNecessary4keys(expected, (byte) qual, errorFor(i), rg, qual, cov, event);
+        }
+
+        Assert.assertFalse(table.isEmpty());
+        assertSameTables(table.toNestedIntegerArray(), expected);
+        Assert.assertEquals(table.getNumObservations(0, 0, 0, 0), expected.get4Keys(0, 0, 0, 0).getNumObservations());
+        Assert.assertEquals(table.getNumObservations(2, 9, 6, 1), expected.get4Keys(2, 9, 6, 1) == null ? 0L : expected.get4Keys(2, 9, 6, 1).getNumObservations());
+    }
+
+    @Test
+    public void testThreeKeys() {
+        final RecalDatumTable table = new RecalDatumTable(2, 40, 3);
+        final NestedIntegerArray<RecalDatum> expected = new NestedIntegerArray<>(2, 40, 3);
+        for ( int i = 0; i < 500; i++ ) {
+            table.increment3Keys((byte) 30, errorFor(i), i % 2, 30, i % 3);
+            RecalUtils.incrementDatumOrPutIfNecessary3keys(expected, (byte) 30, errorFor(i), i % 2, 30, i % 3);
+        }
+        assertSameTables(table.toNestedIntegerArray(), expected);
+    }
+
+    @Test
+    public void testCombine() {
+        final RecalDatumTable left = new RecalDatumTable(DIMENSIONS);
+        final RecalDatumTable right = new RecalDatumTable(DIMENSIONS);
+        final RecalDatumTable all = new RecalDatumTable(DIMENSIONS);
+        for ( int i = 0; i < 200; i++ ) {
+            final RecalDatumTable half = i % 2 == 0 ? left : right;
+            half.increment4Keys((byte) 5, 1.0, i % 3, 5, i % 7, 0);
+            all.increment4Keys((byte) 5, 1.0, i % 3, 5, i % 7, 0);
+        }
+        right.increment4Keys((byte) 8, 0.0, 1, 8, 1, 1);
+        all.increment4Keys((byte) 8, 0.0, 1, 8, 1, 1);
+
+        left.combine(right);
+        assertSameTables(left.toNestedIntegerArray(), all.toNestedIntegerArray());
+    }
+
+    @Test
+    public void testCombineFractionalErrorsIsWithinRoundingOfSingleTable() {
+        // BAQ spreads the errors of a block of n bases as fractions k/n, which are inexact in floating point
+        final int numTables = 3;
+        final int numIncrements = 100000;
+        final List<RecalDatumTable> parts = new ArrayList<>();
+        for ( int t = 0; t < numTables; t++ ) {
+            parts.add(new RecalDatumTable(DIMENSIONS));
+        }
+        final RecalDatumTable all = new RecalDatumTable(DIMENSIONS);
+        for ( int i = 0; i < numIncrements; i++ ) {
+            final int blockLength = 1 + i % 151;
+            final double isError = (i % (blockLength + 1)) / (double) blockLength;
+            parts.get((i / 17) % numTables).increment4Keys((byte) 25, isError, 0, 5, i % 2, 0);
+            all.increment4Keys((byte) 25, isError, 0, 5, i % 2, 0);
+        }
+        final RecalDatumTable combined = parts.get(0);
+        for ( int t = 1; t < numTables; t++ ) {
+            combined.combine(parts.get(t));
+        }
+
+        final List<NestedIntegerArray.Leaf<RecalDatum>> combinedLeaves = combined.toNestedIntegerArray().getAllLeaves();
+        final List<NestedIntegerArray.Leaf<RecalDatum>> expectedLeaves = all.toNestedIntegerArray().getAllLeaves();
+        Assert.assertEquals(combinedLeaves.size(), expectedLeaves.size());
+        for ( int i = 0; i < combinedLeaves.size(); i++ ) {
+            final RecalDatum actual = combinedLeaves.get(i).value;
+            final RecalDatum expected = expectedLeaves.get(i).value;
+            Assert.assertEquals(actual.getNumObservations(), expected.getNumObservations());
+            Assert.assertEquals(actual.getNumMismatches(), expected.getNumMismatches(),
+                    expected.getNumObservations() * Math.ulp(expected.getNumMismatches()));
+        }
+    }
+
+    @Test
+    public void testConcurrentIncrements() throws Exception {
+        final RecalDatumTable table = new RecalDatumTable(DIMENSIONS);
+        final int numThreads = 4;
+        final int incrementsPerThread = 10000;
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for ( int t = 0; t < numThreads; t++ ) {
+                futures.add(executor.submit(() -> {
+                    for ( int i = 0; i < incrementsPerThread; i++ ) {
+                        table.increment4KeysConcurrently((byte) 20, 1.0, i % 3, 9, i % 7, i % 2);
+                    }
+                }));
+            }
+            for ( final Future<?> future : futures ) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long total = 0;
+        double mismatches = 0.0;
+        for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : table.toNestedIntegerArray().getAllLeaves() ) {
+            total += leaf.value.getNumObservations();
+            mismatches += leaf.value.getNumMismatches();
+            Assert.assertEquals(leaf.value.getEstimatedQReported(), 20.0);
+        }
+        Assert.assertEquals(total, (long) numThreads * incrementsPerThread);
+        Assert.assertEquals(mismatches, (double) numThreads * incrementsPerThread, 1e-6);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testKeyOutOfRange() {
+        new RecalDatumTable(DIMENSIONS).increment4Keys((byte) 5, 0.0, 0, 10, 0, 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCombineDifferentDimensions() {
+        new RecalDatumTable(DIMENSIONS).combine(new RecalDatumTable(3, 10, 7, 3));
+    }
+}
@@ -0,0 +1,126 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.writer.Options;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.vcf.VCFHeader;
+import org.apache.commons.lang3.tuple.Pair;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.testutils.VariantContextTestUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public final class ParallelVCFWriterUnitTest extends GATKBaseTest {
+    private static final String INPUT_VCF = toolsTestDir + "walkers/varianteval/VariantEval/CEU.trio.callsForVE.vcf";
+    private static final SAMSequenceDictionary DICTIONARY = new SAMSequenceDictionary(Collections.singletonList(new SAMSequenceRecord("1", 249250621)));
+
+    @DataProvider(name = "writerOptions")
+    public Object[][] writerOptions() {
+        return new Object[][] {
+                {1, new Options[] {Options.INDEX_ON_THE_FLY}},
+                {2, new Options[] {Options.INDEX_ON_THE_FLY}},
+                {4, new Options[] {Options.INDEX_ON_THE_FLY}},
+                {4, new Options[] {Options.INDEX_ON_THE_FLY, Options.DO_NOT_WRITE_GENOTYPES}},
+                {2, new Options[] {}}
+        };
+    }
+
+    @Test(dataProvider = "writerOptions")
+    public void testOutputMatchesSerialWriter(final int threads, final Options[] options) throws IOException {
+        final Pair<VCFHeader, List<VariantContext>> input = VariantContextTestUtils.readEntireVCFIntoMemory(INPUT_VCF);
+        final File outputDir = createTempDir("parallelVCFWriter");
+        final Path expectedPath = new File(outputDir, "expected.vcf.gz").toPath();
+        final Path actualPath = new File(outputDir, "actual.vcf.gz").toPath();
+
+        try (final VariantContextWriter expectedWriter = GATKVariantContextUtils.createVCFWriter(expectedPath, DICTIONARY, false, options);
+             final VariantContextWriter actualWriter = new ParallelVCFWriter(actualPath, DICTIONARY, threads, false, options)) {
+            expectedWriter.writeHeader(input.getLeft());
+            actualWriter.writeHeader(input.getLeft());
+            for (final VariantContext vc : input.getRight()) {
+                expectedWriter.add(vc);
+                actualWriter.add(vc);
+            }
+        }
+
+        Assert.assertEquals(readLines(actualPath), readLines(expectedPath));
+        // the blocks, and therefore the virtual offsets in the index, are the same as well
+        Assert.assertEquals(Files.readAllBytes(actualPath), Files.readAllBytes(expectedPath));
+        if (Arrays.asList(options).contains(Options.INDEX_ON_THE_FLY)) {
+            Assert.assertEquals(Files.readAllBytes(Paths.get(actualPath + ".tbi")), Files.readAllBytes(Paths.get(expectedPath + ".tbi")));
+        }
+    }
+
+    @Test
+    public void testIndexQueries() {
+        final Pair<VCFHeader, List<VariantContext>> input = VariantContextTestUtils.readEntireVCFIntoMemory(INPUT_VCF);
+        final Path outputPath = new File(createTempDir("parallelVCFWriter"), "indexed.vcf.gz").toPath();
+        try (final VariantContextWriter writer = new ParallelVCFWriter(outputPath, DICTIONARY, 3, false, Options.INDEX_ON_THE_FLY)) {
+            writer.writeHeader(input.getLeft());
+            input.getRight().forEach(writer::add);
+        }
+        Assert.assertTrue(new File(outputPath + ".tbi").exists());
+
+        final SimpleInterval interval = new SimpleInterval("1", 1000000, 1200000);
+        final List<Integer> expectedStarts = input.getRight().stream()
+                .filter(vc -> vc.overlaps(interval))
+                .map(VariantContext::getStart)
+                .collect(Collectors.toList());
+        Assert.assertFalse(expectedStarts.isEmpty());
+        try (final FeatureDataSource<VariantContext> dataSource = new FeatureDataSource<>(outputPath.toString())) {
+            final List<Integer> actualStarts = dataSource.queryAndPrefetch(interval).stream()
+                    .map(VariantContext::getStart)
+                    .collect(Collectors.toList());
+            Assert.assertEquals(actualStarts, expectedStarts);
+        }
+    }
+
+    @Test
+    public void testShardingWriterWithEncodingThreads() throws IOException {
+        final Pair<VCFHeader, List<VariantContext>> input = VariantContextTestUtils.readEntireVCFIntoMemory(INPUT_VCF);
+        final Path basePath = new File(createTempDir("parallelVCFWriter"), "sharded").toPath();
+        try (final VariantContextWriter writer = new ShardingVCFWriter(basePath, 400, DICTIONARY, false, 2, Options.INDEX_ON_THE_FLY)) {
+            writer.writeHeader(input.getLeft());
+            input.getRight().forEach(writer::add);
+        }
+
+        int numRecords = 0;
+        for (int shard = 0; shard < 3; shard++) {
+            final Path shardPath = new File(ShardingVCFWriter.getShardFilename(basePath, shard)).toPath();
+            numRecords += VariantContextTestUtils.readEntireVCFIntoMemory(shardPath.toString()).getRight().size();
+        }
+        Assert.assertEquals(numRecords, input.getRight().size());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testAddBeforeHeader() {
+        final Pair<VCFHeader, List<VariantContext>> input = VariantContextTestUtils.readEntireVCFIntoMemory(INPUT_VCF);
+        final Path outputPath = new File(createTempDir("parallelVCFWriter"), "noHeader.vcf.gz").toPath();
+        try (final VariantContextWriter writer = new ParallelVCFWriter(outputPath, DICTIONARY, 2, false)) {
+            writer.add(input.getRight().get(0));
+        }
+    }
+
+    private static List<String> readLines(final Path path) throws IOException {
+        try (final BufferedReader reader = new BufferedReader(IOUtils.makeReaderMaybeGzipped(path))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.broadinstitute.hellbender.utils.QualityUtils;
+
+import static org.broadinstitute.hellbender.utils.pairhmm.PairHMMModel.*;
+
+/**
+ * Pure Java implementation of {@link LoglessPairHMM} vectorized with the (incubating) Java Vector API, for platforms on
+ * which the native AVX PairHMM cannot be loaded.
+ *
+ * The match, insertion and deletion matrices are computed one anti-diagonal at a time: all the cells of an
+ * anti-diagonal depend only on the two previous anti-diagonals, so consecutive read positions along an anti-diagonal
+ * map onto consecutive vector lanes. Only the last three anti-diagonals are kept, indexed by read position, so memory
+ * use is linear in the read length. The haplotype is stored reversed so that the haplotype bases along an
+ * anti-diagonal can be loaded as a contiguous vector.
+ *
+ * The recurrences, scaling and rounding are the same as in {@link LoglessPairHMM} (in double precision), so the
+ * results agree with it to within floating-point reassociation error.
+ *
+ * Compiling or running this class requires the {@code jdk.incubator.vector} module (ie., {@code --add-modules
+ * jdk.incubator.vector}). It is therefore compiled separately from the rest of the engine and only ever instantiated
+ * reflectively through {@link PairHMM.Implementation#VECTOR_API_LOGLESS_CACHING}.
+ */
+public final class VectorApiLoglessPairHMM extends PairHMM {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final double N = 'N';
+
+    // per read position (1-based, index 0 unused) inputs
+    private double[] readBases;
+    private double[] matchPrior;
+    private double[] mismatchPrior;
+    private double[] matchToMatchProbs;
+    private double[] indelToMatchProbs;
+    private double[] matchToInsertionProbs;
+    private double[] insertionToInsertionProbs;
+    private double[] matchToDeletionProbs;
+    private double[] deletionToDeletionProbs;
+    private final double[] transitionScratch = new double[TRANS_PROB_ARRAY_LENGTH];
+
+    private double[] reversedHaplotypeBases;
+
+    // the last three anti-diagonals of the match, insertion and deletion matrices, indexed by read position
+    private double[][] match;
+    private double[][] insertion;
+    private double[][] deletion;
+
+    @Override
+    public void doNotUseTristateCorrection() {
+        doNotUseTristateCorrection = true;
+    }
+
+    @Override
+    public void initialize( final int readMaxLength, final int haplotypeMaxLength ) {
+        super.initialize(readMaxLength, haplotypeMaxLength);
+
+        // one extra slot so that the j == 0 boundary cell of the longest anti-diagonals has somewhere to go
+        final int diagonalLength = paddedMaxReadLength + 1;
+        readBases = new double[diagonalLength];
+        matchPrior = new double[diagonalLength];
+        mismatchPrior = new double[diagonalLength];
+        matchToMatchProbs = new double[diagonalLength];
+        indelToMatchProbs = new double[diagonalLength];
+        matchToInsertionProbs = new double[diagonalLength];
+        insertionToInsertionProbs = new double[diagonalLength];
+        matchToDeletionProbs = new double[diagonalLength];
+        deletionToDeletionProbs = new double[diagonalLength];
+        reversedHaplotypeBases = new double[maxHaplotypeLength];
+        match = new double[3][diagonalLength];
+        insertion = new double[3][diagonalLength];
+        deletion = new double[3][diagonalLength];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double subComputeReadLikelihoodGivenHaplotypeLog10( final byte[] haplotypeBases,
+                                                               final byte[] readBases,
+                                                               final byte[] readQuals,
+                                                               final byte[] insertionGOP,
+                                                               final byte[] deletionGOP,
+                                                               final byte[] overallGCP,
+                                                               final int hapStartIndex,
+                                                               final boolean recacheReadValues,
+                                                               final int nextHapStartIndex) {
+        final int readLength = readBases.length;
+        final int haplotypeLength = haplotypeBases.length;
+
+        if ( ! constantsAreInitialized || recacheReadValues ) {
+            initializeReadValues(readBases, readQuals, insertionGOP, deletionGOP, overallGCP);
+            constantsAreInitialized = true;
+        }
+        for ( int j = 0; j < haplotypeLength; j++ ) {
+            reversedHaplotypeBases[j] = haplotypeBases[haplotypeLength - 1 - j];
+        }
+
+        // row 0 of the matrices: free deletions in the beginning
+        final double initialValue = LoglessPairHMM.INITIAL_CONDITION / haplotypeLength;
+        for ( int k = 0; k < 3; k++ ) {
+            match[k][0] = 0.0;
+            insertion[k][0] = 0.0;
+            deletion[k][0] = initialValue;
+        }
+        // anti-diagonal 0 only contains the (0, 0) cell, and anti-diagonal 1 the (0, 1) and (1, 0) cells
+        match[1][1] = insertion[1][1] = deletion[1][1] = 0.0;
+
+        double finalSumProbabilities = 0.0;
+        for ( int d = 2; d <= readLength + haplotypeLength; d++ ) {
+            final double[] match2 = match[(d - 2) % 3], insertion2 = insertion[(d - 2) % 3], deletion2 = deletion[(d - 2) % 3];
+            final double[] match1 = match[(d - 1) % 3], insertion1 = insertion[(d - 1) % 3], deletion1 = deletion[(d - 1) % 3];
+            final double[] match0 = match[d % 3], insertion0 = insertion[d % 3], deletion0 = deletion[d % 3];
+
+            // read positions i of the cells (i, j = d - i) with 1 <= i <= readLength and 1 <= j <= haplotypeLength
+            final int first = Math.max(1, d - haplotypeLength);
+            final int last = Math.min(readLength, d - 1);
+            // offset of the haplotype base of cell (i, d - i) in reversedHaplotypeBases is haplotypeOffset + i
+            final int haplotypeOffset = haplotypeLength - d;
+
+            int i = first;
+            for ( final int upperBound = last + 1 - SPECIES.length(); i <= upperBound; i += SPECIES.length() ) {
+                computeCells(i, haplotypeOffset, match2, insertion2, deletion2, match1, insertion1, deletion1, match0, insertion0, deletion0);
+            }
+            for ( ; i <= last; i++ ) {
+                computeCell(i, haplotypeOffset, match2, insertion2, deletion2, match1, insertion1, deletion1, match0, insertion0, deletion0);
+            }
+
+            // the j == 0 boundary cell, read by the next two anti-diagonals
+            if ( d <= readLength ) {
+                match0[d] = insertion0[d] = deletion0[d] = 0.0;
+            }
+            if ( first <= readLength && readLength <= last ) {
+                finalSumProbabilities += match0[readLength] + insertion0[readLength];
+            }
+        }
+
+        return Math.log10(finalSumProbabilities) - LoglessPairHMM.INITIAL_CONDITION_LOG10;
+    }
+
+    private void computeCells(final int i, final int haplotypeOffset,
+                              final double[] match2, final double[] insertion2, final double[] deletion2,
+                              final double[] match1, final double[] insertion1, final double[] deletion1,
+                              final double[] match0, final double[] insertion0, final double[] deletion0) {
+        final DoubleVector readBase = DoubleVector.fromArray(SPECIES, readBases, i);
+        final DoubleVector haplotypeBase = DoubleVector.fromArray(SPECIES, reversedHaplotypeBases, haplotypeOffset + i);
+        final VectorMask<Double> isMatch = readBase.compare(VectorOperators.EQ, haplotypeBase)
+                .or(readBase.compare(VectorOperators.EQ, N))
+                .or(haplotypeBase.compare(VectorOperators.EQ, N));
+        final DoubleVector prior = DoubleVector.fromArray(SPECIES, mismatchPrior, i)
+                .blend(DoubleVector.fromArray(SPECIES, matchPrior, i), isMatch);
+
+        final DoubleVector indelToMatch = DoubleVector.fromArray(SPECIES, indelToMatchProbs, i);
+        DoubleVector.fromArray(SPECIES, match2, i - 1).mul(DoubleVector.fromArray(SPECIES, matchToMatchProbs, i))
+                .add(DoubleVector.fromArray(SPECIES, insertion2, i - 1).mul(indelToMatch))
+                .add(DoubleVector.fromArray(SPECIES, deletion2, i - 1).mul(indelToMatch))
+                .mul(prior)
+                .intoArray(match0, i);
+        DoubleVector.fromArray(SPECIES, match1, i - 1).mul(DoubleVector.fromArray(SPECIES, matchToInsertionProbs, i))
+                .add(DoubleVector.fromArray(SPECIES, insertion1, i - 1).mul(DoubleVector.fromArray(SPECIES, insertionToInsertionProbs, i)))
+                .intoArray(insertion0, i);
+        DoubleVector.fromArray(SPECIES, match1, i).mul(DoubleVector.fromArray(SPECIES, matchToDeletionProbs, i))
+                .add(DoubleVector.fromArray(SPECIES, deletion1, i).mul(DoubleVector.fromArray(SPECIES, deletionToDeletionProbs, i)))
+                .intoArray(deletion0, i);
+    }
+
+    private void computeCell(final int i, final int haplotypeOffset,
+                             final double[] match2, final double[] insertion2, final double[] deletion2,
+                             final double[] match1, final double[] insertion1, final double[] deletion1,
+                             final double[] match0, final double[] insertion0, final double[] deletion0) {
+        final double x = readBases[i];
+        final double y = reversedHaplotypeBases[haplotypeOffset + i];
+        final double prior = x == y || x == N || y == N ? matchPrior[i] : mismatchPrior[i];
+        match0[i] = prior * ( match2[i - 1] * matchToMatchProbs[i] +
+                insertion2[i - 1] * indelToMatchProbs[i] +
+                deletion2[i - 1] * indelToMatchProbs[i] );
+        insertion0[i] = match1[i - 1] * matchToInsertionProbs[i] + insertion1[i - 1] * insertionToInsertionProbs[i];
+        deletion0[i] = match1[i] * matchToDeletionProbs[i] + deletion1[i] * deletionToDeletionProbs[i];
+    }
+
+    /**
+     * Caches the per read position priors and transition probabilities as one array per value, so that they can be
+     * loaded into vectors along an anti-diagonal.
+     */
+    private void initializeReadValues(final byte[] bases, final byte[] quals, final byte[] insertionGOP, final byte[] deletionGOP, final byte[] overallGCP) {
+        final double tristateCorrection = doNotUseTristateCorrection ? 1.0 : LoglessPairHMM.TRISTATE_CORRECTION;
+        for ( int i = 0; i < bases.length; i++ ) {
+            readBases[i + 1] = bases[i];
+            matchPrior[i + 1] = QualityUtils.qualToProb(quals[i]);
+            mismatchPrior[i + 1] = QualityUtils.qualToErrorProb(quals[i]) / tristateCorrection;
+
+            PairHMMModel.qualToTransProbs(transitionScratch, insertionGOP[i], deletionGOP[i], overallGCP[i]);
+            matchToMatchProbs[i + 1] = transitionScratch[matchToMatch];
+            indelToMatchProbs[i + 1] = transitionScratch[indelToMatch];
+            matchToInsertionProbs[i + 1] = transitionScratch[matchToInsertion];
+            insertionToInsertionProbs[i + 1] = transitionScratch[insertionToInsertion];
+            matchToDeletionProbs[i + 1] = transitionScratch[matchToDeletion];
+            deletionToDeletionProbs[i + 1] = transitionScratch[deletionToDeletion];
+        }
+    }
+}